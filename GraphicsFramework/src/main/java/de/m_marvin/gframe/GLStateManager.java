@@ -127,6 +127,14 @@ public class GLStateManager {
 		GL33.glTexImage2D(target, level, internalformat, width, height, border, format, type, pixels);
 	}
 	
+	public static void uploadTexture(int target, int level, int internalformat, int format, int width, int height, int border, int type, ByteBuffer pixels) {
+		GL33.glTexImage2D(target, level, internalformat, width, height, border, format, type, pixels);
+	}
+	
+	public static void uploadSubTexture(int target, int level, int xoffset, int yoffset, int width, int height, int format, int type, ByteBuffer pixels) {
+		GL33.glTexSubImage2D(target, level, xoffset, yoffset, width, height, format, type, pixels);
+	}
+	
 	public static void downloadTexture(int target, int level, int format, int type, int[] pixelBuffer) {
 		GL33.glGetTexImage(target, level, format, type, pixelBuffer);
 	}
@@ -139,6 +139,45 @@ public class BufferBuilder implements IBufferBuilder, IVertexConsumer {
 		}
 	}
 
+	/**
+	 * Returns the vertex format specified in the {@link #begin(RenderPrimitive, VertexFormat)} call.
+	 * @return The format of the vertices currently being built
+	 */
+	public VertexFormat getFormat() {
+		return format;
+	}
+	
+	/**
+	 * Returns the number of vertices completed since the {@link #begin(RenderPrimitive, VertexFormat)} call.
+	 * @return The number of vertices written to the current buffer
+	 */
+	public int getVertexCount() {
+		return vertexCount;
+	}
+	
+	/**
+	 * Reserves the space for multiple vertices and returns it as buffer to write the vertex data directly.
+	 * The returned buffer starts at the first reserved vertex and is laid out as specified by the current {@link VertexFormat}.
+	 * The reserved vertices are counted as completed, so they have to be written before the next call to this builder, which might reallocate its memory.
+	 * 
+	 * @param count The number of vertices to reserve
+	 * @return A buffer of count times the vertex size bytes, positioned at zero
+	 */
+	public ByteBuffer reserveVertecies(int count) {
+		if (!this.building) throw new IllegalStateException("Buffer not building!");
+		if (this.currentElementIndex != -1) {
+			throw new IllegalStateException("Not all elements filled!");
+		} else if (this.buildingIndecies) {
+			throw new IllegalStateException("Cant put vertices after indecies!");
+		}
+		int size = count * this.format.getSize();
+		ensureCapacity(size + this.format.getSize());
+		ByteBuffer vertexBuffer = this.buffer.slice(this.buffer.position(), size).order(this.buffer.order());
+		this.buffer.position(this.buffer.position() + size);
+		this.vertexCount += count;
+		return vertexBuffer;
+	}
+	
 	/**
 	 * Returns the vertex-data element that is required next in the order of the format specified in the {@link #begin(RenderPrimitive, VertexFormat)} call.
 	 * @return The next required vertex data element of the specified attribute format
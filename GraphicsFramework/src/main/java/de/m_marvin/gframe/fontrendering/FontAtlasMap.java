@@ -9,6 +9,7 @@ import de.m_marvin.gframe.textures.atlasbuilding.AtlasLayoutBuilder;
 import de.m_marvin.gframe.textures.atlasbuilding.AtlasLayoutBuilder.AtlasImageLayout;
 import de.m_marvin.gframe.textures.atlasbuilding.AtlasLayoutBuilder.AtlasLayout;
 import de.m_marvin.gframe.textures.maps.AbstractTextureMap;
+import de.m_marvin.gframe.textures.maps.Sprite;
 import de.m_marvin.gframe.textures.utility.TextureDataFormat;
 import de.m_marvin.gframe.textures.utility.TextureFormat;
 import de.m_marvin.simplelogging.printing.Logger;
@@ -102,6 +103,20 @@ public class FontAtlasMap<R extends IResourceProvider<R>> extends AbstractTextur
 		}
 	}
 	
+	/**
+	 * Returns an immutable handle to the texture of the character, the sprite of character 0 is returned if the character does not exist.
+	 * @param character The character
+	 * @return The sprite of the character
+	 */
+	public Sprite getCharacterSprite(char character) {
+		Vec4f uv = character2uv.get(character);
+		if (uv == null) {
+			Logger.defaultLogger().logWarn("The character-texture for '" + character + "' does not exist in the atlas!");
+			uv = character2uv.getOrDefault((char) 0, new Vec4f(0, 0, 0, 0));
+		}
+		return new Sprite(this, uv);
+	}
+	
 	public Vec2i getCharacterSize() {
 		Vec4f uv = getUV();
 		return new Vec2i((int) (uv.z * width), (int) (uv.w * height));
@@ -15,10 +15,10 @@ import de.m_marvin.gframe.resources.IResourceProvider;
 import de.m_marvin.gframe.resources.ISourceFolder;
 import de.m_marvin.gframe.textures.TextureLoader;
 import de.m_marvin.gframe.textures.maps.AbstractTextureMap;
+import de.m_marvin.gframe.textures.maps.Sprite;
 import de.m_marvin.gframe.translation.PoseStack;
 import de.m_marvin.gframe.utility.Utility;
 import de.m_marvin.simplelogging.printing.Logger;
-import de.m_marvin.univec.impl.Vec2i;
 
 public class FontRenderer {
 	
@@ -38,23 +38,24 @@ public class FontRenderer {
 		
 		for (int i = 0; i < string.length(); i++) {
 			char character = string.charAt(i);
-			fontAtlas.activateCharacter(character);
+			Sprite sprite = fontAtlas.getCharacterSprite(character);
 			
-			Vec2i characterSize = fontAtlas.getCharacterSize();
+			int characterWidth = (int) (sprite.width() * fontAtlas.getTexWidth());
+			int characterHeight = (int) (sprite.height() * fontAtlas.getTexHeight());
 			float fxl = wo;
 			float fyl = 0;
-			float fxh = wo + characterSize.x;
-			float fyh = characterSize.y;
-			wo +=  characterSize.x;
+			float fxh = wo + characterWidth;
+			float fyh = characterHeight;
+			wo +=  characterWidth;
 			
 			BufferBuilder vertexBuffer = bufferSource.startBuffer(renderModeSupplier.apply(fontAtlas.getAtlasLocation()));
 			
-			vertexBuffer.vertex(matrixStack, fxl, fyl, 0).uv(fontAtlas, 0, 0).color(r, g, b, a).endVertex();
-			vertexBuffer.vertex(matrixStack, fxh, fyl, 0).uv(fontAtlas, 1, 0).color(r, g, b, a).endVertex();
-			vertexBuffer.vertex(matrixStack, fxl, fyh, 0).uv(fontAtlas, 0, 1).color(r, g, b, a).endVertex();
-			vertexBuffer.vertex(matrixStack, fxl, fyh, 0).uv(fontAtlas, 0, 1).color(r, g, b, a).endVertex();
-			vertexBuffer.vertex(matrixStack, fxh, fyl, 0).uv(fontAtlas, 1, 0).color(r, g, b, a).endVertex();
-			vertexBuffer.vertex(matrixStack, fxh, fyh, 0).uv(fontAtlas, 1, 1).color(r, g, b, a).endVertex();
+			vertexBuffer.vertex(matrixStack, fxl, fyl, 0).uv(sprite, 0, 0).color(r, g, b, a).endVertex();
+			vertexBuffer.vertex(matrixStack, fxh, fyl, 0).uv(sprite, 1, 0).color(r, g, b, a).endVertex();
+			vertexBuffer.vertex(matrixStack, fxl, fyh, 0).uv(sprite, 0, 1).color(r, g, b, a).endVertex();
+			vertexBuffer.vertex(matrixStack, fxl, fyh, 0).uv(sprite, 0, 1).color(r, g, b, a).endVertex();
+			vertexBuffer.vertex(matrixStack, fxh, fyl, 0).uv(sprite, 1, 0).color(r, g, b, a).endVertex();
+			vertexBuffer.vertex(matrixStack, fxh, fyh, 0).uv(sprite, 1, 1).color(r, g, b, a).endVertex();
 			
 			vertexBuffer.end();
 			
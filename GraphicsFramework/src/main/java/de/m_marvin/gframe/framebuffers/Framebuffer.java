@@ -53,10 +53,10 @@ public class Framebuffer {
 			this.framebufferId = GLStateManager.genFramebuffer();
 			
 			if (this.colorTexture == null) this.colorTexture = new Texture(TextureFormat.RED_GREEN_BLUE_ALPHA);
-			this.colorTexture.upload(this.width, this.height, TextureDataFormat.INT_RGBA_8_8_8_8, null);
+			this.colorTexture.upload(this.width, this.height, TextureDataFormat.INT_RGBA_8_8_8_8, (int[]) null);
 			
 			if (this.depthTexture == null) this.depthTexture = new Texture(TextureFormat.DEPTH);
-			this.depthTexture.upload(this.width, this.height, TextureDataFormat.FLOAT_DEPTH, null);
+			this.depthTexture.upload(this.width, this.height, TextureDataFormat.FLOAT_DEPTH, (int[]) null);
 			
 			GLStateManager.bindFramebuffer(GL33.GL_FRAMEBUFFER, this.framebufferId);
 			GLStateManager.framebufferTexture2D(GL33.GL_FRAMEBUFFER, GL33.GL_COLOR_ATTACHMENT0, GL33.GL_TEXTURE_2D, this.colorTexture.getTextureId(), 0);
@@ -0,0 +1,45 @@
+package de.m_marvin.gframe.models;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import de.m_marvin.gframe.models.ModelCache.SourceStamp;
+import de.m_marvin.gframe.models.OBJParser.Material;
+import de.m_marvin.gframe.resources.ByteBufferInputStream;
+import de.m_marvin.gframe.resources.IResourceProvider;
+import de.m_marvin.gframe.resources.ISourceFolder;
+import de.m_marvin.gframe.resources.ResourceLoader;
+
+/**
+ * Loads Blockbench (.bbmodel) models, see {@link BBModelParser}.
+ * If a cache folder is set, the baked quads are stored as baked models and later loads skip the JSON parsing.
+ *
+ * @author Marvin Köhler
+ *
+ * @param <R> The type of resource location used
+ * @param <FE> The type of source folder used
+ */
+public class BBModelLoader<R extends IResourceProvider<R>, FE extends ISourceFolder> extends BakedModelLoader<R, FE> {
+	
+	public static final String MODEL_FILE_FORMAT = "bbmodel";
+	
+	public BBModelLoader(FE sourceFolder, ResourceLoader<R, FE> resourceLoader) {
+		super(sourceFolder, resourceLoader, MODEL_FILE_FORMAT, "model");
+	}
+	
+	@Override
+	protected ModelData<R> loadSource(R modelFile, List<SourceStamp> sources, List<Material> materials) throws IOException {
+		
+		R bbmodelFile = modelFile.append("." + MODEL_FILE_FORMAT);
+		BBModelParser<R> parser = new BBModelParser<>();
+		
+		ByteBuffer buffer = readSource(bbmodelFile, fileName(bbmodelFile), sources);
+		parser.parseModelFile(new ByteBufferInputStream(buffer));
+		
+		materials.addAll(parser.fragmentMaterials());
+		return parser.makeModelData(modelFile.getParent());
+	
+	}
+
+}
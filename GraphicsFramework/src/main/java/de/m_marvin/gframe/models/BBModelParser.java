@@ -0,0 +1,548 @@
+package de.m_marvin.gframe.models;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import de.m_marvin.gframe.models.OBJParser.Material;
+import de.m_marvin.gframe.resources.IResourceProvider;
+import de.m_marvin.gframe.utility.FloatArrayList;
+import de.m_marvin.gframe.utility.IntArrayList;
+import de.m_marvin.simplelogging.printing.Logger;
+import de.m_marvin.univec.impl.Vec3f;
+
+/**
+ * Parses Blockbench (.bbmodel) files and bakes their cube and mesh elements into indexed quads, one fragment per texture.
+ * The file is read with a streaming JSON reader, values not required for the geometry (like the embedded texture images) are skipped without being loaded.
+ *
+ * Element and group rotations are applied, the positions are scaled from pixels to blocks (16 pixels per unit).
+ * Faces without a texture are not baked, the textures are referenced by their folder and name relative to the model folder as diffuse maps.
+ *
+ * @author Marvin Köhler
+ *
+ * @param <R> The type of resource location used
+ */
+public class BBModelParser<R extends IResourceProvider<R>> {
+	
+	public static final float PIXELS_PER_UNIT = 16;
+	public static final int DEFAULT_RESOLUTION = 16;
+	
+	protected static final String[] CUBE_FACES = new String[] { "north", "south", "east", "west", "up", "down" };
+	/* Corners of the cube faces, counter clockwise from the outside starting at the top left corner of the texture, 0 selects the from and 1 the to coordinate of the axis */
+	protected static final int[][] CUBE_FACE_CORNERS = new int[][] {
+		{ 1, 1, 0,  1, 0, 0,  0, 0, 0,  0, 1, 0 },
+		{ 0, 1, 1,  0, 0, 1,  1, 0, 1,  1, 1, 1 },
+		{ 1, 1, 1,  1, 0, 1,  1, 0, 0,  1, 1, 0 },
+		{ 0, 1, 0,  0, 0, 0,  0, 0, 1,  0, 1, 1 },
+		{ 0, 1, 0,  0, 1, 1,  1, 1, 1,  1, 1, 0 },
+		{ 0, 0, 1,  0, 0, 0,  1, 0, 0,  1, 0, 1 }
+	};
+	
+	protected static class Element {
+		protected String uuid;
+		protected String type = "cube";
+		protected boolean export = true;
+		protected float[] from = new float[3];
+		protected float[] to = new float[3];
+		protected float[] origin = new float[3];
+		protected float[] rotation = new float[3];
+		protected float inflate;
+		protected List<Face> faces = new ArrayList<>();
+		protected Map<String, float[]> vertices = new HashMap<>();
+	}
+	
+	protected static class Face {
+		protected int texture = -1;
+		/* Cube faces: the direction, the texture rectangle as u1, v1, u2, v2 and its rotation in degrees */
+		protected String direction;
+		protected float[] uv;
+		protected int rotation;
+		/* Mesh faces: the vertex keys and the texture coordinates of the vertices */
+		protected List<String> vertices = new ArrayList<>();
+		protected Map<String, float[]> vertexUVs = new HashMap<>();
+	}
+	
+	protected static class Texture {
+		protected String name = "";
+		protected String folder = "";
+		protected int uvWidth;
+		protected int uvHeight;
+	}
+	
+	/**
+	 * The baked quads of one texture, packed as xyz, uv and xyz.
+	 */
+	protected static class QuadList {
+		protected FloatArrayList positions = new FloatArrayList(256);
+		protected FloatArrayList texcoords = new FloatArrayList(256);
+		protected FloatArrayList normals = new FloatArrayList(256);
+		protected IntArrayList indecies = new IntArrayList(256);
+		
+		public int vertexCount() {
+			return this.positions.size() / 3;
+		}
+	}
+	
+	protected int resolutionWidth = DEFAULT_RESOLUTION;
+	protected int resolutionHeight = DEFAULT_RESOLUTION;
+	protected List<Element> elements = new ArrayList<>();
+	protected List<Texture> textures = new ArrayList<>();
+	/* The group transformations of the elements listed in the outliner, null if the element is in a group that is not exported */
+	protected Map<String, float[]> elementMatrices = new HashMap<>();
+	
+	protected List<QuadList> quadLists = new ArrayList<>();
+	
+	/**
+	 * Parses the bbmodel file from the input stream.
+	 *
+	 * @param input The input stream of the bbmodel file, gets closed after reading
+	 * @throws IOException If an error occurs reading the input stream or the file is malformed
+	 */
+	public void parseModelFile(InputStream input) throws IOException {
+		
+		try (JsonReader reader = new JsonReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+			
+			reader.beginObject();
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+				case "resolution" -> parseResolution(reader);
+				case "elements" -> {
+					reader.beginArray();
+					while (reader.hasNext()) this.elements.add(parseElement(reader));
+					reader.endArray();
+				}
+				case "outliner" -> parseOutliner(reader, this.elementMatrices);
+				case "textures" -> {
+					reader.beginArray();
+					while (reader.hasNext()) this.textures.add(parseTexture(reader));
+					reader.endArray();
+				}
+				default -> reader.skipValue();
+				}
+			}
+			reader.endObject();
+		
+		} catch (IllegalStateException | NumberFormatException e) {
+			throw new IOException("Malformed bbmodel file!", e);
+		}
+	
+	}
+	
+	protected void parseResolution(JsonReader reader) throws IOException {
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+			case "width" -> this.resolutionWidth = reader.nextInt();
+			case "height" -> this.resolutionHeight = reader.nextInt();
+			default -> reader.skipValue();
+			}
+		}
+		reader.endObject();
+	}
+	
+	protected Element parseElement(JsonReader reader) throws IOException {
+		Element element = new Element();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+			case "uuid" -> element.uuid = reader.nextString();
+			case "type" -> element.type = reader.nextString();
+			case "export" -> element.export = reader.nextBoolean();
+			case "from" -> element.from = readFloats(reader, 3);
+			case "to" -> element.to = readFloats(reader, 3);
+			case "origin" -> element.origin = readFloats(reader, 3);
+			case "rotation" -> element.rotation = readFloats(reader, 3);
+			case "inflate" -> element.inflate = (float) reader.nextDouble();
+			case "vertices" -> {
+				reader.beginObject();
+				while (reader.hasNext()) element.vertices.put(reader.nextName(), readFloats(reader, 3));
+				reader.endObject();
+			}
+			case "faces" -> {
+				reader.beginObject();
+				while (reader.hasNext()) {
+					String faceName = reader.nextName();
+					Face face = parseFace(reader);
+					face.direction = faceName;
+					element.faces.add(face);
+				}
+				reader.endObject();
+			}
+			default -> reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return element;
+	}
+	
+	protected Face parseFace(JsonReader reader) throws IOException {
+		Face face = new Face();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+			case "texture" -> {
+				// untextured faces are stored as null or false
+				if (reader.peek() == JsonToken.NUMBER) {
+					face.texture = reader.nextInt();
+				} else {
+					reader.skipValue();
+				}
+			}
+			case "rotation" -> face.rotation = reader.nextInt();
+			case "uv" -> {
+				if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+					reader.beginObject();
+					while (reader.hasNext()) face.vertexUVs.put(reader.nextName(), readFloats(reader, 2));
+					reader.endObject();
+				} else {
+					face.uv = readFloats(reader, 4);
+				}
+			}
+			case "vertices" -> {
+				reader.beginArray();
+				while (reader.hasNext()) face.vertices.add(reader.nextString());
+				reader.endArray();
+			}
+			default -> reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return face;
+	}
+	
+	protected Texture parseTexture(JsonReader reader) throws IOException {
+		Texture texture = new Texture();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+			case "name" -> texture.name = reader.nextString();
+			case "folder" -> texture.folder = reader.nextString();
+			case "uv_width" -> texture.uvWidth = reader.nextInt();
+			case "uv_height" -> texture.uvHeight = reader.nextInt();
+			default -> reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return texture;
+	}
+	
+	/**
+	 * Parses an outliner array and puts the group transformations of the listed elements into the map.
+	 * The transformations are relative to the group containing the array.
+	 */
+	protected void parseOutliner(JsonReader reader, Map<String, float[]> matrices) throws IOException {
+		reader.beginArray();
+		while (reader.hasNext()) {
+			if (reader.peek() == JsonToken.STRING) {
+				matrices.put(reader.nextString(), GLTFParser.IDENTITY);
+			} else if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+				parseGroup(reader, matrices);
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endArray();
+	}
+	
+	protected void parseGroup(JsonReader reader, Map<String, float[]> matrices) throws IOException {
+		
+		float[] origin = new float[3];
+		float[] rotation = new float[3];
+		boolean export = true;
+		Map<String, float[]> childMatrices = new HashMap<>();
+		
+		// the children can be listed before the transformation of the group
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+			case "origin" -> origin = readFloats(reader, 3);
+			case "rotation" -> rotation = readFloats(reader, 3);
+			case "export" -> export = reader.nextBoolean();
+			case "children" -> parseOutliner(reader, childMatrices);
+			default -> reader.skipValue();
+			}
+		}
+		reader.endObject();
+		
+		float[] groupMatrix = pivotMatrix(origin, rotation);
+		for (Map.Entry<String, float[]> child : childMatrices.entrySet()) {
+			matrices.put(child.getKey(), !export || child.getValue() == null ? null : GLTFParser.mulMatrix(groupMatrix, child.getValue()));
+		}
+	
+	}
+	
+	protected static float[] readFloats(JsonReader reader, int count) throws IOException {
+		float[] values = new float[count];
+		int i = 0;
+		reader.beginArray();
+		while (reader.hasNext()) {
+			if (i < count) {
+				values[i++] = (float) reader.nextDouble();
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endArray();
+		return values;
+	}
+	
+	/**
+	 * Bakes the parsed elements into indexed quads and creates one fragment per used texture.
+	 *
+	 * @param modelFilesLocation The model folder, used to resolve the textures
+	 * @return The baked model data
+	 */
+	public ModelData<R> makeModelData(R modelFilesLocation) {
+		
+		bakeElements();
+		
+		ModelData<R> modelData = new ModelData<>();
+		List<Material> materials = fragmentMaterials();
+		int fragment = 0;
+		for (int texture = 0; texture < this.quadLists.size(); texture++) {
+			QuadList quads = this.quadLists.get(texture);
+			if (quads == null) continue;
+			if (texture >= this.textures.size()) Logger.defaultLogger().logWarn("Undefined texture '" + texture + "' in bbmodel, using default material!");
+			ModelData<R>.FragmentData fragmentData = makeFragmentData(modelData, quads);
+			fragmentData.shaderData = OBJParser.makeShaderData(materials.get(fragment++), modelFilesLocation);
+			modelData.fragmentData.add(fragmentData);
+		}
+		
+		return modelData;
+	
+	}
+	
+	/**
+	 * Returns the materials of the fragments created by {@link #makeModelData(IResourceProvider)}, in the same order.
+	 * Fragments using an undefined texture have a null entry.
+	 * @return The list of fragment materials
+	 */
+	protected List<Material> fragmentMaterials() {
+		bakeElements();
+		List<Material> materials = new ArrayList<>();
+		for (int texture = 0; texture < this.quadLists.size(); texture++) {
+			if (this.quadLists.get(texture) == null) continue;
+			materials.add(texture < this.textures.size() ? makeMaterial(this.textures.get(texture)) : null);
+		}
+		return materials;
+	}
+	
+	protected static Material makeMaterial(Texture texture) {
+		Material material = new Material();
+		material.ambientColor = new Vec3f(1, 1, 1);
+		material.diffuseColor = new Vec3f(1, 1, 1);
+		material.specularColor = new Vec3f(0, 0, 0);
+		material.specularExponent = 0;
+		material.opticalDensity = 1;
+		material.dissolve = 1;
+		material.diffuesMap = texture.folder.isEmpty() ? texture.name : texture.folder + "/" + texture.name;
+		return material;
+	}
+	
+	protected ModelData<R>.FragmentData makeFragmentData(ModelData<R> modelData, QuadList quads) {
+		
+		ModelData<R>.FragmentData fragment = modelData.new FragmentData(quads.vertexCount());
+		System.arraycopy(quads.positions.array(), 0, fragment.positions, 0, fragment.positions.length);
+		System.arraycopy(quads.texcoords.array(), 0, fragment.texcoords, 0, fragment.texcoords.length);
+		System.arraycopy(quads.normals.array(), 0, fragment.normals, 0, fragment.normals.length);
+		Arrays.fill(fragment.colors, 1);
+		fragment.indecies = quads.indecies.toArray();
+		
+		for (int i = 0; i < fragment.indecies.length; i += 3) {
+			OBJParser.addTangents(fragment.positions, fragment.texcoords, fragment.tangents, fragment.bitangents, fragment.indecies[i], fragment.indecies[i + 1], fragment.indecies[i + 2]);
+		}
+		OBJParser.normalizeAll(fragment.tangents);
+		OBJParser.normalizeAll(fragment.bitangents);
+		
+		return fragment;
+	
+	}
+	
+	protected void bakeElements() {
+		
+		if (!this.quadLists.isEmpty()) return;
+		
+		float[] scale = new float[] { 1 / PIXELS_PER_UNIT, 0, 0, 0, 0, 1 / PIXELS_PER_UNIT, 0, 0, 0, 0, 1 / PIXELS_PER_UNIT, 0, 0, 0, 0, 1 };
+		
+		for (Element element : this.elements) {
+			
+			if (!element.export) continue;
+			float[] groupMatrix = this.elementMatrices.getOrDefault(element.uuid, GLTFParser.IDENTITY);
+			if (groupMatrix == null) continue;
+			
+			if (element.type.equals("mesh")) {
+				// mesh vertices are relative to the origin
+				float[] matrix = GLTFParser.mulMatrix(scale, GLTFParser.mulMatrix(groupMatrix, GLTFParser.mulMatrix(translationMatrix(element.origin, 1), rotationMatrix(element.rotation))));
+				for (Face face : element.faces) bakeMeshFace(element, face, matrix);
+			} else if (element.type.equals("cube")) {
+				float[] matrix = GLTFParser.mulMatrix(scale, GLTFParser.mulMatrix(groupMatrix, pivotMatrix(element.origin, element.rotation)));
+				for (Face face : element.faces) bakeCubeFace(element, face, matrix);
+			}
+		
+		}
+	
+	}
+	
+	protected void bakeCubeFace(Element element, Face face, float[] matrix) {
+		
+		if (face.texture < 0 || face.uv == null) return;
+		int direction = Arrays.asList(CUBE_FACES).indexOf(face.direction);
+		if (direction == -1) return;
+		
+		int[] corners = CUBE_FACE_CORNERS[direction];
+		float[] positions = new float[12];
+		for (int i = 0; i < 12; i++) {
+			positions[i] = corners[i] == 0 ? element.from[i % 3] - element.inflate : element.to[i % 3] + element.inflate;
+		}
+		
+		// texture corners in the same order as the face corners, the rotation shifts them clockwise
+		float[] cornerUVs = new float[] { face.uv[0], face.uv[1], face.uv[0], face.uv[3], face.uv[2], face.uv[3], face.uv[2], face.uv[1] };
+		int shift = Math.floorMod(face.rotation / 90, 4);
+		float[] uvs = new float[8];
+		for (int i = 0; i < 4; i++) {
+			uvs[i * 2] = cornerUVs[((i + shift) % 4) * 2];
+			uvs[i * 2 + 1] = cornerUVs[((i + shift) % 4) * 2 + 1];
+		}
+		
+		addFace(face.texture, positions, uvs, 4, matrix);
+	
+	}
+	
+	protected void bakeMeshFace(Element element, Face face, float[] matrix) {
+		
+		int count = face.vertices.size();
+		if (face.texture < 0 || count < 3) return;
+		
+		float[] positions = new float[count * 3];
+		float[] uvs = new float[count * 2];
+		for (int i = 0; i < count; i++) {
+			String key = face.vertices.get(i);
+			float[] vertex = element.vertices.get(key);
+			float[] uv = face.vertexUVs.get(key);
+			if (vertex != null) System.arraycopy(vertex, 0, positions, i * 3, 3);
+			if (uv != null) System.arraycopy(uv, 0, uvs, i * 2, 2);
+		}
+		
+		if (count > 3) sortCorners(positions, uvs, count);
+		addFace(face.texture, positions, uvs, count, matrix);
+	
+	}
+	
+	/**
+	 * Sorts the corners of a mesh face counter clockwise around its center, the vertices of mesh faces are not stored in order.
+	 * The orientation is defined by the first three vertices, as in Blockbench.
+	 */
+	protected static void sortCorners(float[] positions, float[] uvs, int count) {
+		
+		float[] normal = faceNormal(positions, 0, 1, 2);
+		float cx = 0, cy = 0, cz = 0;
+		for (int i = 0; i < count; i++) {
+			cx += positions[i * 3] / count;
+			cy += positions[i * 3 + 1] / count;
+			cz += positions[i * 3 + 2] / count;
+		}
+		float ax = positions[0] - cx, ay = positions[1] - cy, az = positions[2] - cz;
+		float bx = normal[1] * az - normal[2] * ay;
+		float by = normal[2] * ax - normal[0] * az;
+		float bz = normal[0] * ay - normal[1] * ax;
+		
+		Integer[] order = new Integer[count];
+		double[] angles = new double[count];
+		for (int i = 0; i < count; i++) {
+			float dx = positions[i * 3] - cx, dy = positions[i * 3 + 1] - cy, dz = positions[i * 3 + 2] - cz;
+			angles[i] = Math.atan2(dx * bx + dy * by + dz * bz, dx * ax + dy * ay + dz * az);
+			if (angles[i] < 0) angles[i] += Math.PI * 2;
+			order[i] = i;
+		}
+		Arrays.sort(order, (i1, i2) -> Double.compare(angles[i1], angles[i2]));
+		
+		float[] sortedPositions = positions.clone();
+		float[] sortedUVs = uvs.clone();
+		for (int i = 0; i < count; i++) {
+			System.arraycopy(sortedPositions, order[i] * 3, positions, i * 3, 3);
+			System.arraycopy(sortedUVs, order[i] * 2, uvs, i * 2, 2);
+		}
+	
+	}
+	
+	/**
+	 * Transforms the face corners and adds them as fan of triangles to the quads of the texture.
+	 * The texture coordinates are converted from pixels to the range 0 to 1, with the V axis pointing upwards.
+	 */
+	protected void addFace(int texture, float[] positions, float[] uvs, int count, float[] matrix) {
+		
+		while (this.quadLists.size() <= texture) this.quadLists.add(null);
+		QuadList quads = this.quadLists.get(texture);
+		if (quads == null) {
+			quads = new QuadList();
+			this.quadLists.set(texture, quads);
+		}
+		
+		Texture textureInfo = texture < this.textures.size() ? this.textures.get(texture) : null;
+		float width = textureInfo != null && textureInfo.uvWidth > 0 ? textureInfo.uvWidth : this.resolutionWidth;
+		float height = textureInfo != null && textureInfo.uvHeight > 0 ? textureInfo.uvHeight : this.resolutionHeight;
+		
+		for (int i = 0; i < count; i++) GLTFParser.transformVector(positions, i, matrix, true);
+		float[] normal = faceNormal(positions, 0, 1, 2);
+		
+		int base = quads.vertexCount();
+		for (int i = 0; i < count; i++) {
+			quads.positions.add(positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2]);
+			quads.texcoords.add(uvs[i * 2] / width, 1 - uvs[i * 2 + 1] / height);
+			quads.normals.add(normal[0], normal[1], normal[2]);
+		}
+		for (int i = 2; i < count; i++) {
+			quads.indecies.add(base, base + i - 1, base + i);
+		}
+	
+	}
+	
+	protected static float[] faceNormal(float[] positions, int i1, int i2, int i3) {
+		float edge1x = positions[i2 * 3] - positions[i1 * 3];
+		float edge1y = positions[i2 * 3 + 1] - positions[i1 * 3 + 1];
+		float edge1z = positions[i2 * 3 + 2] - positions[i1 * 3 + 2];
+		float edge2x = positions[i3 * 3] - positions[i1 * 3];
+		float edge2y = positions[i3 * 3 + 1] - positions[i1 * 3 + 1];
+		float edge2z = positions[i3 * 3 + 2] - positions[i1 * 3 + 2];
+		float[] normal = new float[] { edge1y * edge2z - edge1z * edge2y, edge1z * edge2x - edge1x * edge2z, edge1x * edge2y - edge1y * edge2x };
+		OBJParser.normalizeAll(normal);
+		return normal;
+	}
+	
+	/* Matrices are stored column major as float[16], see GLTFParser */
+	
+	/**
+	 * Creates the rotation around the pivot point, as used by cubes and groups.
+	 */
+	protected static float[] pivotMatrix(float[] origin, float[] rotation) {
+		return GLTFParser.mulMatrix(translationMatrix(origin, 1), GLTFParser.mulMatrix(rotationMatrix(rotation), translationMatrix(origin, -1)));
+	}
+	
+	protected static float[] translationMatrix(float[] translation, float sign) {
+		return new float[] { 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, translation[0] * sign, translation[1] * sign, translation[2] * sign, 1 };
+	}
+	
+	/**
+	 * Creates the rotation matrix for the euler angles in degrees, rotating around X first, then Y and then Z.
+	 */
+	protected static float[] rotationMatrix(float[] rotation) {
+		double x = Math.toRadians(rotation[0]), y = Math.toRadians(rotation[1]), z = Math.toRadians(rotation[2]);
+		float sx = (float) Math.sin(x), cx = (float) Math.cos(x);
+		float sy = (float) Math.sin(y), cy = (float) Math.cos(y);
+		float sz = (float) Math.sin(z), cz = (float) Math.cos(z);
+		float[] rx = new float[] { 1, 0, 0, 0, 0, cx, sx, 0, 0, -sx, cx, 0, 0, 0, 0, 1 };
+		float[] ry = new float[] { cy, 0, -sy, 0, 0, 1, 0, 0, sy, 0, cy, 0, 0, 0, 0, 1 };
+		float[] rz = new float[] { cz, sz, 0, 0, -sz, cz, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1 };
+		return GLTFParser.mulMatrix(rz, GLTFParser.mulMatrix(ry, rx));
+	}
+
+}
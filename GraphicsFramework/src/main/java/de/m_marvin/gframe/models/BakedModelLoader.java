@@ -0,0 +1,154 @@
+package de.m_marvin.gframe.models;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.m_marvin.gframe.models.ModelCache.BakedModel;
+import de.m_marvin.gframe.models.ModelCache.SourceStamp;
+import de.m_marvin.gframe.models.OBJParser.Material;
+import de.m_marvin.gframe.resources.IResourceProvider;
+import de.m_marvin.gframe.resources.ISourceFolder;
+import de.m_marvin.gframe.resources.ResourceLoader;
+import de.m_marvin.gframe.resources.defimpl.SimpleFileLoader;
+import de.m_marvin.simplelogging.printing.LogType;
+import de.m_marvin.simplelogging.printing.Logger;
+
+/**
+ * Base class for model loaders that can store their results as baked models, see {@link ModelCache}.
+ * If a cache folder is set, the models are loaded from their baked files as long as the source files did not change, and baked after loading otherwise.
+ * 
+ * @author Marvin Köhler
+ *
+ * @param <R> The type of resource location used
+ * @param <FE> The type of source folder used
+ */
+public abstract class BakedModelLoader<R extends IResourceProvider<R>, FE extends ISourceFolder> extends SimpleFileLoader<R, FE, ModelData<R>> {
+	
+	protected File cacheFolder;
+	
+	public BakedModelLoader(FE sourceFolder, ResourceLoader<R, FE> resourceLoader, String fileFormat, String itemName) {
+		super(sourceFolder, resourceLoader, fileFormat, itemName);
+	}
+	
+	/**
+	 * Sets the folder in which baked models are stored.
+	 * If set, the models are loaded from their baked files as long as the source files did not change, and baked after parsing otherwise.
+	 * @param cacheFolder The cache folder or null to disable the model cache
+	 */
+	public void setCacheFolder(File cacheFolder) {
+		this.cacheFolder = cacheFolder;
+	}
+	
+	public File getCacheFolder() {
+		return cacheFolder;
+	}
+	
+	/**
+	 * Weighs the models by their size in bytes, see {@link ModelData#getByteSize()}.
+	 */
+	@Override
+	protected long weigh(ModelData<R> item) {
+		return item.getByteSize();
+	}
+	
+	@Override
+	public ModelData<R> load(R modelFile) throws IOException {
+		
+		File cacheFile = this.cacheFolder == null ? null : ModelCache.cacheFileOf(this.cacheFolder, modelFile.append("." + this.fileFormat));
+		if (cacheFile != null) {
+			ModelData<R> modelData = loadBaked(modelFile, cacheFile);
+			if (modelData != null) return modelData;
+		}
+		
+		List<SourceStamp> sources = new ArrayList<>();
+		List<Material> materials = new ArrayList<>();
+		ModelData<R> modelData = loadSource(modelFile, sources, materials);
+		recordSources(modelFile, sources);
+		
+		if (cacheFile != null) {
+			try {
+				ModelCache.writeModel(cacheFile, sources, modelData, materials);
+			} catch (IOException | RuntimeException e) {
+				Logger.defaultLogger().logWarn("Failed to write baked " + this.itemName + " file " + cacheFile);
+				Logger.defaultLogger().printException(LogType.WARN, e);
+			}
+		}
+		
+		return modelData;
+	
+	}
+	
+	/**
+	 * Loads the model from its source files.
+	 * All source files have to be read by {@link #readSource(IResourceProvider, String, List)}, so that the baked model can be validated later.
+	 * 
+	 * @param modelFile The location of the model, without file ending
+	 * @param sources The list to add the source stamps to, used to bake the model and to track its dependencies
+	 * @param materials The list to add the materials of the fragments to, in the same order as the fragments and null for the default material
+	 * @return The loaded model data
+	 * @throws IOException If an error occurs reading the source files
+	 */
+	protected abstract ModelData<R> loadSource(R modelFile, List<SourceStamp> sources, List<Material> materials) throws IOException;
+	
+	/**
+	 * Loads the baked model if it exists and all its source files are unchanged.
+	 * A source file is unchanged if its modification time matches, or, if it does not, if its content hash matches.
+	 * @param modelFile The location of the model
+	 * @param cacheFile The baked model file
+	 * @return The model data or null if the baked model is missing, outdated or corrupted
+	 */
+	protected ModelData<R> loadBaked(R modelFile, File cacheFile) {
+		try {
+			BakedModel<R> bakedModel = ModelCache.readModel(cacheFile, modelFile.getParent());
+			if (bakedModel == null) return null;
+			for (SourceStamp source : bakedModel.sources()) {
+				R sourceFile = modelFile.getParent().locationOfFile(source.name());
+				long lastModified = this.resourceLoader.lastModified(this.sourceFolder, sourceFile);
+				if (lastModified != -1 && lastModified == source.lastModified()) continue;
+				if (!source.matchesContent(ModelCache.hash(readSource(sourceFile, source.name(), null)))) return null;
+			}
+			recordSources(modelFile, bakedModel.sources());
+			return bakedModel.modelData();
+		} catch (IOException | RuntimeException e) {
+			// a truncated or corrupted file throws buffer and array exceptions, it is treated as missing and deleted
+			Logger.defaultLogger().logWarn("Failed to read baked " + this.itemName + " file " + cacheFile + ", loading source files!");
+			Logger.defaultLogger().printException(LogType.WARN, e);
+			cacheFile.delete();
+			return null;
+		}
+	}
+	
+	/**
+	 * Records the source files as dependencies of the model, see {@link #reloadChanged(java.util.Collection)}.
+	 * @param modelFile The location of the model
+	 * @param sources The source stamps of the model
+	 */
+	protected void recordSources(R modelFile, List<SourceStamp> sources) {
+		R modelFolder = modelFile.getParent();
+		this.dependencies.setDependencies(modelFile, sources.stream().map(source -> modelFolder.locationOfFile(source.name())).toList());
+	}
+	
+	/**
+	 * Reads the complete source file and adds its stamp to the source list.
+	 * The content hash is only calculated if a cache folder is set, otherwise the stamp has no hash.
+	 * @param location The location of the source file
+	 * @param name The name of the source file relative to the model folder
+	 * @param sources The list to add the stamp to or null if no stamp is required
+	 * @return The content of the source file, must not be modified
+	 * @throws IOException If an error occurs reading the file
+	 */
+	protected ByteBuffer readSource(R location, String name, List<SourceStamp> sources) throws IOException {
+		ByteBuffer buffer = this.resourceLoader.getAsByteBuffer(this.sourceFolder, location);
+		if (sources != null) sources.add(new SourceStamp(name, this.resourceLoader.lastModified(this.sourceFolder, location), this.cacheFolder != null ? ModelCache.hash(buffer) : null));
+		return buffer;
+	}
+	
+	protected static String fileName(IResourceProvider<?> location) {
+		String path = location.getPath();
+		return path.substring(path.lastIndexOf(File.separatorChar) + 1);
+	}
+
+}
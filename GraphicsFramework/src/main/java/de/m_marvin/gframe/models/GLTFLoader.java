@@ -0,0 +1,79 @@
+package de.m_marvin.gframe.models;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import de.m_marvin.gframe.resources.IResourceProvider;
+import de.m_marvin.gframe.resources.ISourceFolder;
+import de.m_marvin.gframe.resources.ResourceLoader;
+import de.m_marvin.gframe.resources.defimpl.SimpleFileLoader;
+
+/**
+ * Loads glTF 2.0 models, see {@link GLTFParser}.
+ * Binary (GLB) and JSON files are detected by their content, the file ending used to find the models is configurable.
+ *
+ * @author Marvin Köhler
+ *
+ * @param <R> The type of resource location used
+ * @param <FE> The type of source folder used
+ */
+public class GLTFLoader<R extends IResourceProvider<R>, FE extends ISourceFolder> extends SimpleFileLoader<R, FE, ModelData<R>> {
+	
+	public static final String GLB_FILE_FORMAT = "glb";
+	public static final String GLTF_FILE_FORMAT = "gltf";
+	
+	public GLTFLoader(FE sourceFolder, ResourceLoader<R, FE> resourceLoader) {
+		this(sourceFolder, resourceLoader, GLB_FILE_FORMAT);
+	}
+	
+	/**
+	 * Creates a new glTF loader.
+	 * @param sourceFolder The source folder
+	 * @param resourceLoader The resource loader used for the file access
+	 * @param fileFormat The file ending of the models, {@link #GLB_FILE_FORMAT} or {@link #GLTF_FILE_FORMAT}
+	 */
+	public GLTFLoader(FE sourceFolder, ResourceLoader<R, FE> resourceLoader, String fileFormat) {
+		super(sourceFolder, resourceLoader, fileFormat, "model");
+	}
+	
+	/**
+	 * Weighs the models by their size in bytes, see {@link ModelData#getByteSize()}.
+	 */
+	@Override
+	protected long weigh(ModelData<R> item) {
+		return item.getByteSize();
+	}
+	
+	@Override
+	public ModelData<R> load(R modelFile) throws IOException {
+		
+		R modelFolder = modelFile.getParent();
+		ByteBuffer buffer = readFile(modelFile, modelFile.append("." + this.fileFormat));
+		
+		GLTFParser<R> parser = new GLTFParser<>();
+		GLTFParser.BufferSource bufferSource = uri -> readFile(modelFile, modelFolder.locationOfFile(uri));
+		
+		if (GLTFParser.isBinary(buffer)) {
+			parser.parseGLBFile(buffer, bufferSource);
+		} else {
+			parser.parseGLTFFile(StandardCharsets.UTF_8.decode(buffer).toString(), bufferSource);
+		}
+		
+		return parser.makeModelData(modelFolder);
+	
+	}
+	
+	/**
+	 * Reads the complete file and records it as dependency of the model.
+	 * @param modelFile The location of the model
+	 * @param location The location of the file
+	 * @return The content of the file, must not be modified
+	 * @throws IOException If an error occurs reading the file
+	 */
+	protected ByteBuffer readFile(R modelFile, R location) throws IOException {
+		this.dependencies.addDependency(modelFile, location);
+		return this.resourceLoader.getAsByteBuffer(this.sourceFolder, location);
+	}
+
+}
@@ -0,0 +1,536 @@
+package de.m_marvin.gframe.models;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+import de.m_marvin.gframe.models.ModelData.ShaderData;
+import de.m_marvin.gframe.resources.IResourceProvider;
+import de.m_marvin.simplelogging.printing.Logger;
+import de.m_marvin.univec.impl.Vec3f;
+
+/**
+ * Parses glTF 2.0 models, either as binary GLB file or as JSON file with external or embedded buffers.
+ * The accessors are copied in bulk into the vertex arrays of the {@link ModelData} fragments, one fragment is created per mesh primitive and node it is referenced by.
+ * The node transformations of the default scene are applied to the vertices.
+ *
+ * Only triangle primitives are supported, sparse accessors and textures embedded in buffers are ignored.
+ * The PBR materials are mapped onto {@link ShaderData} as close as possible.
+ *
+ * @author Marvin Köhler
+ */
+public class GLTFParser<R extends IResourceProvider<R>> {
+	
+	public static final int GLB_MAGIC = 0x46546C67; // "glTF"
+	public static final int GLB_CHUNK_JSON = 0x4E4F534A;
+	public static final int GLB_CHUNK_BIN = 0x004E4942;
+	
+	public static final int COMPONENT_BYTE = 5120;
+	public static final int COMPONENT_UNSIGNED_BYTE = 5121;
+	public static final int COMPONENT_SHORT = 5122;
+	public static final int COMPONENT_UNSIGNED_SHORT = 5123;
+	public static final int COMPONENT_UNSIGNED_INT = 5125;
+	public static final int COMPONENT_FLOAT = 5126;
+	public static final int MODE_TRIANGLES = 4;
+	
+	protected static final Gson GSON = new GsonBuilder().create();
+	protected static final float[] IDENTITY = new float[] { 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1 };
+	
+	/**
+	 * Loads the external buffers referenced by the glTF file.
+	 */
+	@FunctionalInterface
+	public static interface BufferSource {
+		public ByteBuffer loadBuffer(String uri) throws IOException;
+	}
+	
+	protected JsonObject gltf;
+	protected ByteBuffer binaryChunk;
+	protected List<ByteBuffer> buffers = new ArrayList<>();
+	protected List<ShaderData<R>> materials = new ArrayList<>();
+	
+	/**
+	 * Checks if the buffer starts with the GLB magic number.
+	 * @param buffer The file content
+	 * @return true if the file is a binary glTF file
+	 */
+	public static boolean isBinary(ByteBuffer buffer) {
+		return buffer.remaining() >= 4 && buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).getInt(buffer.position()) == GLB_MAGIC;
+	}
+	
+	/**
+	 * Parses a binary glTF file.
+	 * The JSON chunk is parsed, the binary chunk is used without copying as the buffer without URI.
+	 *
+	 * @param buffer The content of the GLB file
+	 * @param bufferSource Loads external buffers, if any
+	 * @throws IOException If the file is not a valid GLB file or an external buffer can not be loaded
+	 */
+	public void parseGLBFile(ByteBuffer buffer, BufferSource bufferSource) throws IOException {
+		
+		ByteBuffer glb = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+		if (glb.remaining() < 12 || glb.getInt(0) != GLB_MAGIC) throw new IOException("Not a GLB file!");
+		int version = glb.getInt(4);
+		if (version != 2) throw new IOException("Unsupported GLB version " + version + "!");
+		int length = Math.min(glb.getInt(8), glb.limit());
+		
+		String json = null;
+		int position = 12;
+		while (position + 8 <= length) {
+			int chunkLength = glb.getInt(position);
+			int chunkType = glb.getInt(position + 4);
+			position += 8;
+			if (chunkLength < 0 || position + chunkLength > length) throw new IOException("GLB chunk exceeds the file length!");
+			if (chunkType == GLB_CHUNK_JSON && json == null) {
+				byte[] bytes = new byte[chunkLength];
+				glb.get(position, bytes);
+				json = new String(bytes, StandardCharsets.UTF_8);
+			} else if (chunkType == GLB_CHUNK_BIN && this.binaryChunk == null) {
+				this.binaryChunk = glb.slice(position, chunkLength).order(ByteOrder.LITTLE_ENDIAN);
+			}
+			position += (chunkLength + 3) & ~3;
+		}
+		if (json == null) throw new IOException("GLB file contains no JSON chunk!");
+		
+		parseGLTFFile(json, bufferSource);
+	
+	}
+	
+	/**
+	 * Parses a glTF JSON file and loads its buffers.
+	 *
+	 * @param json The content of the glTF file
+	 * @param bufferSource Loads external buffers, if any
+	 * @throws IOException If the file is not a valid glTF file or a buffer can not be loaded
+	 */
+	public void parseGLTFFile(String json, BufferSource bufferSource) throws IOException {
+		
+		try {
+			this.gltf = GSON.fromJson(json, JsonObject.class);
+		} catch (JsonParseException e) {
+			throw new IOException("Failed to parse glTF JSON!", e);
+		}
+		if (this.gltf == null) throw new IOException("Empty glTF file!");
+		
+		String version = this.gltf.has("asset") ? string(this.gltf.getAsJsonObject("asset"), "version", "") : "";
+		if (!version.startsWith("2.")) throw new IOException("Unsupported glTF version '" + version + "'!");
+		
+		JsonArray buffers = array(this.gltf, "buffers");
+		for (int i = 0; i < buffers.size(); i++) {
+			String uri = string(buffers.get(i).getAsJsonObject(), "uri", null);
+			ByteBuffer buffer;
+			if (uri == null) {
+				if (i != 0 || this.binaryChunk == null) throw new IOException("Buffer " + i + " has no data!");
+				buffer = this.binaryChunk;
+			} else if (uri.startsWith("data:")) {
+				int dataStart = uri.indexOf(";base64,");
+				if (dataStart < 0) throw new IOException("Buffer " + i + " uses an unsupported data URI!");
+				buffer = ByteBuffer.wrap(Base64.getDecoder().decode(uri.substring(dataStart + 8)));
+			} else {
+				buffer = bufferSource.loadBuffer(decodeUri(uri));
+			}
+			this.buffers.add(buffer.slice().order(ByteOrder.LITTLE_ENDIAN));
+		}
+	
+	}
+	
+	/**
+	 * Creates the model data from the parsed file.
+	 *
+	 * @param modelFilesLocation The model folder, used to resolve the texture maps of the materials
+	 * @return The model data
+	 * @throws IOException If the file contains invalid references
+	 */
+	public ModelData<R> makeModelData(R modelFilesLocation) throws IOException {
+		
+		ModelData<R> modelData = new ModelData<>();
+		
+		try {
+			this.materials.clear();
+			for (JsonElement material : array(this.gltf, "materials")) {
+				this.materials.add(makeShaderData(material.getAsJsonObject(), modelFilesLocation));
+			}
+			
+			JsonArray scenes = array(this.gltf, "scenes");
+			if (scenes.size() > 0) {
+				JsonObject scene = scenes.get(integer(this.gltf, "scene", 0)).getAsJsonObject();
+				for (JsonElement node : array(scene, "nodes")) {
+					addNode(modelData, node.getAsInt(), IDENTITY, 0);
+				}
+			} else {
+				// files without scenes only define their meshes
+				for (int mesh = 0; mesh < array(this.gltf, "meshes").size(); mesh++) {
+					addMesh(modelData, mesh, IDENTITY);
+				}
+			}
+		} catch (IndexOutOfBoundsException | IllegalStateException | ClassCastException e) {
+			throw new IOException("Invalid glTF file!", e);
+		}
+		
+		return modelData;
+	
+	}
+	
+	protected void addNode(ModelData<R> modelData, int nodeIndex, float[] parentMatrix, int depth) throws IOException {
+		
+		if (depth > 256) throw new IOException("glTF node hierarchy too deep or cyclic!");
+		
+		JsonObject node = element("nodes", nodeIndex);
+		float[] matrix = mulMatrix(parentMatrix, nodeMatrix(node));
+		
+		if (node.has("mesh")) addMesh(modelData, node.get("mesh").getAsInt(), matrix);
+		for (JsonElement child : array(node, "children")) {
+			addNode(modelData, child.getAsInt(), matrix, depth + 1);
+		}
+	
+	}
+	
+	protected void addMesh(ModelData<R> modelData, int meshIndex, float[] matrix) throws IOException {
+		
+		JsonObject mesh = element("meshes", meshIndex);
+		for (JsonElement primitiveElement : array(mesh, "primitives")) {
+			
+			JsonObject primitive = primitiveElement.getAsJsonObject();
+			if (integer(primitive, "mode", MODE_TRIANGLES) != MODE_TRIANGLES) {
+				Logger.defaultLogger().logWarn("Skipping glTF primitive of mesh " + meshIndex + ", only triangles are supported!");
+				continue;
+			}
+			JsonObject attributes = primitive.getAsJsonObject("attributes");
+			if (attributes == null || !attributes.has("POSITION")) continue;
+			
+			int vertexCount = integer(element("accessors", attributes.get("POSITION").getAsInt()), "count", 0);
+			ModelData<R>.FragmentData fragment = modelData.new FragmentData(vertexCount);
+			
+			readAccessor(attributes.get("POSITION").getAsInt(), fragment.positions, 3, vertexCount);
+			if (attributes.has("NORMAL")) readAccessor(attributes.get("NORMAL").getAsInt(), fragment.normals, 3, vertexCount);
+			if (attributes.has("TEXCOORD_0")) {
+				readAccessor(attributes.get("TEXCOORD_0").getAsInt(), fragment.texcoords, 2, vertexCount);
+				// glTF has its texture origin in the upper left corner
+				for (int i = 1; i < fragment.texcoords.length; i += 2) fragment.texcoords[i] = 1 - fragment.texcoords[i];
+			}
+			Arrays.fill(fragment.colors, 1);
+			if (attributes.has("COLOR_0")) readAccessor(attributes.get("COLOR_0").getAsInt(), fragment.colors, 4, vertexCount);
+			
+			if (primitive.has("indices")) {
+				fragment.indecies = readIndices(primitive.get("indices").getAsInt(), vertexCount);
+			} else {
+				fragment.indecies = new int[vertexCount - vertexCount % 3];
+				for (int i = 0; i < fragment.indecies.length; i++) fragment.indecies[i] = i;
+			}
+			
+			if (attributes.has("TANGENT")) {
+				float[] tangents = new float[vertexCount * 4];
+				readAccessor(attributes.get("TANGENT").getAsInt(), tangents, 4, vertexCount);
+				for (int i = 0; i < vertexCount; i++) {
+					float w = tangents[i * 4 + 3] < 0 ? -1 : 1;
+					float nx = fragment.normals[i * 3], ny = fragment.normals[i * 3 + 1], nz = fragment.normals[i * 3 + 2];
+					float tx = tangents[i * 4], ty = tangents[i * 4 + 1], tz = tangents[i * 4 + 2];
+					fragment.tangents[i * 3] = tx;
+					fragment.tangents[i * 3 + 1] = ty;
+					fragment.tangents[i * 3 + 2] = tz;
+					fragment.bitangents[i * 3] = (ny * tz - nz * ty) * w;
+					fragment.bitangents[i * 3 + 1] = (nz * tx - nx * tz) * w;
+					fragment.bitangents[i * 3 + 2] = (nx * ty - ny * tx) * w;
+				}
+			} else if (attributes.has("TEXCOORD_0")) {
+				for (int i = 0; i < fragment.indecies.length; i += 3) {
+					OBJParser.addTangents(fragment.positions, fragment.texcoords, fragment.tangents, fragment.bitangents, fragment.indecies[i], fragment.indecies[i + 1], fragment.indecies[i + 2]);
+				}
+				OBJParser.normalizeAll(fragment.tangents);
+				OBJParser.normalizeAll(fragment.bitangents);
+			}
+			
+			if (!Arrays.equals(matrix, IDENTITY)) transformFragment(fragment, matrix);
+			
+			int material = integer(primitive, "material", -1);
+			fragment.shaderData = material >= 0 ? this.materials.get(material) : new ShaderData<>();
+			modelData.fragmentData.add(fragment);
+		
+		}
+	
+	}
+	
+	/**
+	 * Reads the elements of an accessor into the target array, converting them to floats.
+	 * Tightly packed float accessors are copied in bulk, components exceeding the target are ignored.
+	 */
+	protected void readAccessor(int accessorIndex, float[] target, int targetComponents, int vertexCount) throws IOException {
+		
+		JsonObject accessor = element("accessors", accessorIndex);
+		if (accessor.has("sparse")) Logger.defaultLogger().logWarn("Sparse glTF accessors are not supported, ignoring sparse values of accessor " + accessorIndex + "!");
+		if (!accessor.has("bufferView")) return; // accessors without buffer view are initialized with zeros
+		
+		int count = Math.min(integer(accessor, "count", 0), vertexCount);
+		int componentType = integer(accessor, "componentType", COMPONENT_FLOAT);
+		int components = componentCount(string(accessor, "type", "SCALAR"));
+		boolean normalized = accessor.has("normalized") && accessor.get("normalized").getAsBoolean();
+		int componentSize = componentSize(componentType);
+		
+		JsonObject view = element("bufferViews", accessor.get("bufferView").getAsInt());
+		ByteBuffer buffer = this.buffers.get(integer(view, "buffer", 0));
+		int stride = integer(view, "byteStride", components * componentSize);
+		int offset = integer(view, "byteOffset", 0) + integer(accessor, "byteOffset", 0);
+		if (count > 0 && (long) offset + (long) (count - 1) * stride + components * componentSize > buffer.limit()) {
+			throw new IOException("glTF accessor " + accessorIndex + " exceeds its buffer!");
+		}
+		
+		if (componentType == COMPONENT_FLOAT && components == targetComponents && stride == components * Float.BYTES) {
+			buffer.slice(offset, count * stride).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(target, 0, count * components);
+			return;
+		}
+		
+		int readComponents = Math.min(components, targetComponents);
+		for (int i = 0; i < count; i++) {
+			int elementOffset = offset + i * stride;
+			for (int c = 0; c < readComponents; c++) {
+				target[i * targetComponents + c] = readComponent(buffer, elementOffset + c * componentSize, componentType, normalized);
+			}
+		}
+	
+	}
+	
+	protected int[] readIndices(int accessorIndex, int vertexCount) throws IOException {
+		
+		JsonObject accessor = element("accessors", accessorIndex);
+		int count = integer(accessor, "count", 0);
+		int[] indices = new int[count - count % 3];
+		if (!accessor.has("bufferView")) return indices;
+		
+		int componentType = integer(accessor, "componentType", COMPONENT_UNSIGNED_INT);
+		int componentSize = componentSize(componentType);
+		JsonObject view = element("bufferViews", accessor.get("bufferView").getAsInt());
+		ByteBuffer buffer = this.buffers.get(integer(view, "buffer", 0));
+		int offset = integer(view, "byteOffset", 0) + integer(accessor, "byteOffset", 0);
+		if ((long) offset + (long) indices.length * componentSize > buffer.limit()) {
+			throw new IOException("glTF accessor " + accessorIndex + " exceeds its buffer!");
+		}
+		
+		for (int i = 0; i < indices.length; i++) {
+			int index = switch (componentType) {
+			case COMPONENT_UNSIGNED_BYTE -> buffer.get(offset + i) & 0xFF;
+			case COMPONENT_UNSIGNED_SHORT -> buffer.getShort(offset + i * 2) & 0xFFFF;
+			case COMPONENT_UNSIGNED_INT -> buffer.getInt(offset + i * 4);
+			default -> throw new IOException("Invalid glTF index component type " + componentType + "!");
+			};
+			if (index < 0 || index >= vertexCount) throw new IOException("glTF index " + index + " out of bounds!");
+			indices[i] = index;
+		}
+		return indices;
+	
+	}
+	
+	protected static float readComponent(ByteBuffer buffer, int offset, int componentType, boolean normalized) throws IOException {
+		return switch (componentType) {
+		case COMPONENT_FLOAT -> buffer.getFloat(offset);
+		case COMPONENT_BYTE -> normalized ? Math.max(buffer.get(offset) / 127F, -1F) : buffer.get(offset);
+		case COMPONENT_UNSIGNED_BYTE -> normalized ? (buffer.get(offset) & 0xFF) / 255F : buffer.get(offset) & 0xFF;
+		case COMPONENT_SHORT -> normalized ? Math.max(buffer.getShort(offset) / 32767F, -1F) : buffer.getShort(offset);
+		case COMPONENT_UNSIGNED_SHORT -> normalized ? (buffer.getShort(offset) & 0xFFFF) / 65535F : buffer.getShort(offset) & 0xFFFF;
+		case COMPONENT_UNSIGNED_INT -> buffer.getInt(offset) & 0xFFFFFFFFL;
+		default -> throw new IOException("Invalid glTF component type " + componentType + "!");
+		};
+	}
+	
+	protected static int componentSize(int componentType) throws IOException {
+		return switch (componentType) {
+		case COMPONENT_BYTE, COMPONENT_UNSIGNED_BYTE -> 1;
+		case COMPONENT_SHORT, COMPONENT_UNSIGNED_SHORT -> 2;
+		case COMPONENT_UNSIGNED_INT, COMPONENT_FLOAT -> 4;
+		default -> throw new IOException("Invalid glTF component type " + componentType + "!");
+		};
+	}
+	
+	protected static int componentCount(String type) throws IOException {
+		return switch (type) {
+		case "SCALAR" -> 1;
+		case "VEC2" -> 2;
+		case "VEC3" -> 3;
+		case "VEC4", "MAT2" -> 4;
+		case "MAT3" -> 9;
+		case "MAT4" -> 16;
+		default -> throw new IOException("Invalid glTF accessor type '" + type + "'!");
+		};
+	}
+	
+	/**
+	 * Maps a glTF PBR material onto the shader data.
+	 * The base color is used as diffuse color and dissolve, metallic and roughness are approximated by the specular color and exponent.
+	 * The metallic-roughness texture is used as specular map and the occlusion texture as ambient map.
+	 */
+	protected ShaderData<R> makeShaderData(JsonObject material, R modelFilesLocation) {
+		
+		ShaderData<R> shaderData = new ShaderData<>();
+		shaderData.dissolve = 1;
+		
+		JsonObject pbr = material.getAsJsonObject("pbrMetallicRoughness");
+		if (pbr != null) {
+			float[] baseColor = floats(pbr, "baseColorFactor", new float[] { 1, 1, 1, 1 });
+			float metallic = (float) number(pbr, "metallicFactor", 1);
+			float roughness = (float) number(pbr, "roughnessFactor", 1);
+			shaderData.diffuseColor = new Vec3f(baseColor[0], baseColor[1], baseColor[2]);
+			shaderData.dissolve = baseColor[3];
+			shaderData.specularColor = new Vec3f(
+					0.04F + (baseColor[0] - 0.04F) * metallic,
+					0.04F + (baseColor[1] - 0.04F) * metallic,
+					0.04F + (baseColor[2] - 0.04F) * metallic);
+			float alpha = roughness * roughness;
+			shaderData.specularExponent = alpha > 0 ? Math.min(2 / (alpha * alpha) - 2, 1000) : 1000;
+			shaderData.diffuesMap = textureLocation(pbr, "baseColorTexture", modelFilesLocation);
+			shaderData.specularMap = textureLocation(pbr, "metallicRoughnessTexture", modelFilesLocation);
+		}
+		shaderData.normalMap = textureLocation(material, "normalTexture", modelFilesLocation);
+		shaderData.ambientMap = textureLocation(material, "occlusionTexture", modelFilesLocation);
+		
+		return shaderData;
+	
+	}
+	
+	protected R textureLocation(JsonObject object, String name, R modelFilesLocation) {
+		JsonObject textureInfo = object.getAsJsonObject(name);
+		if (textureInfo == null || !textureInfo.has("index")) return null;
+		JsonObject texture = element("textures", textureInfo.get("index").getAsInt());
+		if (!texture.has("source")) return null;
+		JsonObject image = element("images", texture.get("source").getAsInt());
+		String uri = string(image, "uri", null);
+		if (uri == null || uri.startsWith("data:")) {
+			Logger.defaultLogger().logWarn("glTF textures embedded in the model file are not supported!");
+			return null;
+		}
+		return modelFilesLocation.locationOfFile(decodeUri(uri));
+	}
+	
+	protected static void transformFragment(ModelData<?>.FragmentData fragment, float[] matrix) {
+		
+		float[] normalMatrix = normalMatrix(matrix);
+		for (int i = 0; i < fragment.vertexCount; i++) {
+			transformVector(fragment.positions, i, matrix, true);
+			transformVector(fragment.normals, i, normalMatrix, false);
+			transformVector(fragment.tangents, i, matrix, false);
+			transformVector(fragment.bitangents, i, matrix, false);
+		}
+		OBJParser.normalizeAll(fragment.normals);
+		OBJParser.normalizeAll(fragment.tangents);
+		OBJParser.normalizeAll(fragment.bitangents);
+		
+		// mirroring transformations invert the winding order
+		if (determinant3(matrix) < 0) {
+			for (int i = 0; i < fragment.indecies.length; i += 3) {
+				int index = fragment.indecies[i + 1];
+				fragment.indecies[i + 1] = fragment.indecies[i + 2];
+				fragment.indecies[i + 2] = index;
+			}
+		}
+	
+	}
+	
+	/* Matrices are stored column major as float[16], as in the glTF file */
+	
+	protected static void transformVector(float[] vectors, int index, float[] m, boolean translate) {
+		float x = vectors[index * 3], y = vectors[index * 3 + 1], z = vectors[index * 3 + 2];
+		float w = translate ? 1 : 0;
+		vectors[index * 3] = m[0] * x + m[4] * y + m[8] * z + m[12] * w;
+		vectors[index * 3 + 1] = m[1] * x + m[5] * y + m[9] * z + m[13] * w;
+		vectors[index * 3 + 2] = m[2] * x + m[6] * y + m[10] * z + m[14] * w;
+	}
+	
+	protected static float[] mulMatrix(float[] a, float[] b) {
+		float[] r = new float[16];
+		for (int column = 0; column < 4; column++) {
+			for (int row = 0; row < 4; row++) {
+				float sum = 0;
+				for (int k = 0; k < 4; k++) sum += a[k * 4 + row] * b[column * 4 + k];
+				r[column * 4 + row] = sum;
+			}
+		}
+		return r;
+	}
+	
+	protected static float determinant3(float[] m) {
+		return m[0] * (m[5] * m[10] - m[9] * m[6]) - m[4] * (m[1] * m[10] - m[9] * m[2]) + m[8] * (m[1] * m[6] - m[5] * m[2]);
+	}
+	
+	/**
+	 * Calculates the inverse transpose of the upper 3x3 part of the matrix, used to transform normals.
+	 */
+	protected static float[] normalMatrix(float[] m) {
+		float determinant = determinant3(m);
+		if (determinant == 0) return m;
+		float[] r = new float[16];
+		// cofactor matrix divided by the determinant equals the inverse transpose
+		r[0] = (m[5] * m[10] - m[9] * m[6]) / determinant;
+		r[1] = (m[8] * m[6] - m[4] * m[10]) / determinant;
+		r[2] = (m[4] * m[9] - m[8] * m[5]) / determinant;
+		r[4] = (m[9] * m[2] - m[1] * m[10]) / determinant;
+		r[5] = (m[0] * m[10] - m[8] * m[2]) / determinant;
+		r[6] = (m[8] * m[1] - m[0] * m[9]) / determinant;
+		r[8] = (m[1] * m[6] - m[5] * m[2]) / determinant;
+		r[9] = (m[4] * m[2] - m[0] * m[6]) / determinant;
+		r[10] = (m[0] * m[5] - m[4] * m[1]) / determinant;
+		r[15] = 1;
+		return r;
+	}
+	
+	protected static float[] nodeMatrix(JsonObject node) {
+		if (node.has("matrix")) return floats(node, "matrix", IDENTITY);
+		float[] t = floats(node, "translation", new float[] { 0, 0, 0 });
+		float[] q = floats(node, "rotation", new float[] { 0, 0, 0, 1 });
+		float[] s = floats(node, "scale", new float[] { 1, 1, 1 });
+		float x = q[0], y = q[1], z = q[2], w = q[3];
+		return new float[] {
+				(1 - 2 * (y * y + z * z)) * s[0], 2 * (x * y + z * w) * s[0], 2 * (x * z - y * w) * s[0], 0,
+				2 * (x * y - z * w) * s[1], (1 - 2 * (x * x + z * z)) * s[1], 2 * (y * z + x * w) * s[1], 0,
+				2 * (x * z + y * w) * s[2], 2 * (y * z - x * w) * s[2], (1 - 2 * (x * x + y * y)) * s[2], 0,
+				t[0], t[1], t[2], 1
+		};
+	}
+	
+	protected JsonObject element(String arrayName, int index) {
+		return array(this.gltf, arrayName).get(index).getAsJsonObject();
+	}
+	
+	protected static JsonArray array(JsonObject object, String name) {
+		JsonElement element = object.get(name);
+		return element != null && element.isJsonArray() ? element.getAsJsonArray() : new JsonArray();
+	}
+	
+	protected static int integer(JsonObject object, String name, int fallback) {
+		JsonElement element = object.get(name);
+		return element != null && element.isJsonPrimitive() ? element.getAsInt() : fallback;
+	}
+	
+	protected static double number(JsonObject object, String name, double fallback) {
+		JsonElement element = object.get(name);
+		return element != null && element.isJsonPrimitive() ? element.getAsDouble() : fallback;
+	}
+	
+	protected static String string(JsonObject object, String name, String fallback) {
+		JsonElement element = object.get(name);
+		return element != null && element.isJsonPrimitive() ? element.getAsString() : fallback;
+	}
+	
+	protected static float[] floats(JsonObject object, String name, float[] fallback) {
+		JsonArray array = array(object, name);
+		if (array.size() != fallback.length) return fallback;
+		float[] values = new float[array.size()];
+		for (int i = 0; i < values.length; i++) values[i] = array.get(i).getAsFloat();
+		return values;
+	}
+	
+	protected static String decodeUri(String uri) {
+		return URLDecoder.decode(uri.replace("+", "%2B"), StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,330 @@
+package de.m_marvin.gframe.models;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.m_marvin.gframe.models.OBJParser.Material;
+import de.m_marvin.gframe.resources.IResourceProvider;
+import de.m_marvin.univec.impl.Vec3f;
+
+/**
+ * Reads and writes baked models, a compact binary representation of {@link ModelData} used to skip parsing the source files.
+ * A baked model stores the fragments with their vertex arrays and materials and a stamp of each source file it was created from.
+ * Texture maps are stored as file names relative to the model folder, the same way they are referenced in the source files.
+ *
+ * @author Marvin Köhler
+ */
+public class ModelCache {
+	
+	public static final String CACHE_FILE_FORMAT = "bmdl";
+	public static final int MAGIC = 0x4C444D42; // "BMDL"
+	public static final int VERSION = 1;
+	public static final String HASH_ALGORITHM = "SHA-256";
+	
+	/**
+	 * Identifies the content of one source file of a baked model.
+	 *
+	 * @param name The file name relative to the model folder
+	 * @param lastModified The modification time of the file or -1 if unknown
+	 * @param hash The hash of the file content
+	 */
+	public static record SourceStamp(String name, long lastModified, byte[] hash) {
+		
+		public boolean matchesContent(byte[] hash) {
+			return Arrays.equals(this.hash, hash);
+		}
+	
+	}
+	
+	/**
+	 * The content of a baked model file.
+	 */
+	public static record BakedModel<R extends IResourceProvider<R>>(List<SourceStamp> sources, ModelData<R> modelData) {}
+	
+	/**
+	 * Calculates the content hash of the remaining bytes of the buffer.
+	 * The position of the buffer is not modified.
+	 * @param buffer The content to hash
+	 * @return The content hash
+	 */
+	public static byte[] hash(ByteBuffer buffer) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+			digest.update(buffer.duplicate());
+			return digest.digest();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("The hash algorithm " + HASH_ALGORITHM + " is not available!", e);
+		}
+	}
+	
+	/**
+	 * Returns the location of the cache file of the given model inside the cache folder.
+	 * @param cacheFolder The cache folder
+	 * @param modelFile The location of the model, without file ending
+	 * @return The cache file
+	 */
+	public static File cacheFileOf(File cacheFolder, IResourceProvider<?> modelFile) {
+		String namespace = modelFile.getNamespace();
+		return new File(namespace == null ? cacheFolder : new File(cacheFolder, namespace), modelFile.getPath() + "." + CACHE_FILE_FORMAT);
+	}
+	
+	/**
+	 * Reads the source stamps of a baked model file without reading the model data.
+	 * @param cacheFile The baked model file
+	 * @return The source stamps or null if the file does not exist or has an incompatible format
+	 * @throws IOException If an error occurs reading the file
+	 */
+	public static List<SourceStamp> readSources(File cacheFile) throws IOException {
+		if (!cacheFile.isFile()) return null;
+		ByteBuffer buffer = mapFile(cacheFile);
+		if (!readHeader(buffer)) return null;
+		return readSources(buffer);
+	}
+	
+	/**
+	 * Reads a baked model file by mapping it into memory.
+	 * @param cacheFile The baked model file
+	 * @param modelFilesLocation The model folder, used to resolve the texture maps of the materials
+	 * @return The baked model or null if the file does not exist or has an incompatible format
+	 * @throws IOException If an error occurs reading the file
+	 */
+	public static <R extends IResourceProvider<R>> BakedModel<R> readModel(File cacheFile, R modelFilesLocation) throws IOException {
+		
+		if (!cacheFile.isFile()) return null;
+		ByteBuffer buffer = mapFile(cacheFile);
+		if (!readHeader(buffer)) return null;
+		
+		List<SourceStamp> sources = readSources(buffer);
+		
+		ModelData<R> modelData = new ModelData<>();
+		int fragmentCount = getCount(buffer, 1);
+		for (int i = 0; i < fragmentCount; i++) {
+			
+			Material material = buffer.get() != 0 ? readMaterial(buffer) : null;
+			
+			int vertexCount = getCount(buffer, Float.BYTES);
+			int indexCount = getCount(buffer, Integer.BYTES);
+			ModelData<R>.FragmentData fragment = modelData.new FragmentData(vertexCount);
+			readFloats(buffer, fragment.positions);
+			readFloats(buffer, fragment.normals);
+			readFloats(buffer, fragment.tangents);
+			readFloats(buffer, fragment.bitangents);
+			readFloats(buffer, fragment.texcoords);
+			readFloats(buffer, fragment.colors);
+			fragment.indecies = new int[indexCount];
+			buffer.asIntBuffer().get(fragment.indecies);
+			buffer.position(buffer.position() + indexCount * Integer.BYTES);
+			
+			fragment.shaderData = OBJParser.makeShaderData(material, modelFilesLocation);
+			modelData.fragmentData.add(fragment);
+		
+		}
+		
+		return new BakedModel<>(sources, modelData);
+	
+	}
+	
+	/**
+	 * Writes a baked model file.
+	 * The file is written to a temporary file first and then moved to its destination, so that readers never see partially written files.
+	 * @param cacheFile The baked model file
+	 * @param sources The stamps of the source files
+	 * @param modelData The model data
+	 * @param materials The materials of the fragments in the model data, null entries for fragments using the default material
+	 * @throws IOException If an error occurs writing the file
+	 */
+	static void writeModel(File cacheFile, List<SourceStamp> sources, ModelData<?> modelData, List<Material> materials) throws IOException {
+		
+		if (materials.size() != modelData.fragmentData.size()) throw new IllegalArgumentException("One material per fragment required!");
+		
+		List<byte[]> strings = new ArrayList<>();
+		int size = Integer.BYTES * 3;
+		for (SourceStamp source : sources) {
+			size += stringSize(source.name(), strings) + Long.BYTES + Integer.BYTES + source.hash().length;
+		}
+		size += Integer.BYTES;
+		for (int i = 0; i < materials.size(); i++) {
+			ModelData<?>.FragmentData fragment = modelData.fragmentData.get(i);
+			Material material = materials.get(i);
+			size += 1;
+			if (material != null) {
+				size += Float.BYTES * 12;
+				size += stringSize(material.ambientMap, strings);
+				size += stringSize(material.diffuesMap, strings);
+				size += stringSize(material.specularMap, strings);
+				size += stringSize(material.dissolveMap, strings);
+				size += stringSize(material.specularHighlightMap, strings);
+				size += stringSize(material.normalMap, strings);
+				size += stringSize(material.displacementMap, strings);
+			}
+			size += Integer.BYTES * 2 + fragment.vertexCount * 18 * Float.BYTES + fragment.indecies.length * Integer.BYTES;
+		}
+		
+		ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		int string = 0;
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(sources.size());
+		for (SourceStamp source : sources) {
+			putString(buffer, strings.get(string++));
+			buffer.putLong(source.lastModified());
+			buffer.putInt(source.hash().length);
+			buffer.put(source.hash());
+		}
+		buffer.putInt(materials.size());
+		for (int i = 0; i < materials.size(); i++) {
+			ModelData<?>.FragmentData fragment = modelData.fragmentData.get(i);
+			Material material = materials.get(i);
+			buffer.put((byte) (material != null ? 1 : 0));
+			if (material != null) {
+				putVec3f(buffer, material.ambientColor);
+				putVec3f(buffer, material.diffuseColor);
+				putVec3f(buffer, material.specularColor);
+				buffer.putFloat(material.specularExponent);
+				buffer.putFloat(material.opticalDensity);
+				buffer.putFloat(material.dissolve);
+				for (int j = 0; j < 7; j++) putString(buffer, strings.get(string++));
+			}
+			buffer.putInt(fragment.vertexCount);
+			buffer.putInt(fragment.indecies.length);
+			writeFloats(buffer, fragment.positions);
+			writeFloats(buffer, fragment.normals);
+			writeFloats(buffer, fragment.tangents);
+			writeFloats(buffer, fragment.bitangents);
+			writeFloats(buffer, fragment.texcoords);
+			writeFloats(buffer, fragment.colors);
+			buffer.asIntBuffer().put(fragment.indecies);
+			buffer.position(buffer.position() + fragment.indecies.length * Integer.BYTES);
+		}
+		buffer.flip();
+		
+		File folder = cacheFile.getAbsoluteFile().getParentFile();
+		if (!folder.isDirectory() && !folder.mkdirs()) throw new IOException("Failed to create cache folder " + folder);
+		File tempFile = File.createTempFile(cacheFile.getName(), ".tmp", folder);
+		try {
+			try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				while (buffer.hasRemaining()) channel.write(buffer);
+			}
+			Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			tempFile.delete();
+		}
+	
+	}
+	
+	protected static ByteBuffer mapFile(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			return buffer;
+		}
+	}
+	
+	protected static boolean readHeader(ByteBuffer buffer) {
+		if (buffer.remaining() < Integer.BYTES * 2) return false;
+		return buffer.getInt() == MAGIC && buffer.getInt() == VERSION;
+	}
+	
+	protected static List<SourceStamp> readSources(ByteBuffer buffer) throws IOException {
+		int sourceCount = getCount(buffer, 1);
+		List<SourceStamp> sources = new ArrayList<>(sourceCount);
+		for (int i = 0; i < sourceCount; i++) {
+			String name = getString(buffer);
+			long lastModified = buffer.getLong();
+			byte[] hash = new byte[getCount(buffer, 1)];
+			buffer.get(hash);
+			sources.add(new SourceStamp(name, lastModified, hash));
+		}
+		return sources;
+	}
+	
+	protected static Material readMaterial(ByteBuffer buffer) throws IOException {
+		Material material = new Material();
+		material.ambientColor = getVec3f(buffer);
+		material.diffuseColor = getVec3f(buffer);
+		material.specularColor = getVec3f(buffer);
+		material.specularExponent = buffer.getFloat();
+		material.opticalDensity = buffer.getFloat();
+		material.dissolve = buffer.getFloat();
+		material.ambientMap = getString(buffer);
+		material.diffuesMap = getString(buffer);
+		material.specularMap = getString(buffer);
+		material.dissolveMap = getString(buffer);
+		material.specularHighlightMap = getString(buffer);
+		material.normalMap = getString(buffer);
+		material.displacementMap = getString(buffer);
+		return material;
+	}
+	
+	protected static void readFloats(ByteBuffer buffer, float[] array) {
+		buffer.asFloatBuffer().get(array);
+		buffer.position(buffer.position() + array.length * Float.BYTES);
+	}
+	
+	protected static void writeFloats(ByteBuffer buffer, float[] array) {
+		buffer.asFloatBuffer().put(array);
+		buffer.position(buffer.position() + array.length * Float.BYTES);
+	}
+	
+	protected static Vec3f getVec3f(ByteBuffer buffer) {
+		return new Vec3f(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+	}
+	
+	protected static void putVec3f(ByteBuffer buffer, Vec3f vec) {
+		buffer.putFloat(vec.x);
+		buffer.putFloat(vec.y);
+		buffer.putFloat(vec.z);
+	}
+	
+	/* Strings are stored as byte length followed by the UTF-8 bytes, a length of -1 represents null */
+	protected static int stringSize(String string, List<byte[]> encoded) {
+		byte[] bytes = string == null ? null : string.getBytes(StandardCharsets.UTF_8);
+		encoded.add(bytes);
+		return Integer.BYTES + (bytes == null ? 0 : bytes.length);
+	}
+	
+	protected static void putString(ByteBuffer buffer, byte[] bytes) {
+		if (bytes == null) {
+			buffer.putInt(-1);
+		} else {
+			buffer.putInt(bytes.length);
+			buffer.put(bytes);
+		}
+	}
+	
+	/**
+	 * Reads the number of elements of an array and checks that they fit into the remaining file, so that corrupted files do not cause huge allocations.
+	 * @param buffer The buffer to read from
+	 * @param elementBytes The minimum number of bytes per element
+	 * @return The number of elements
+	 * @throws IOException If the number is negative or exceeds the remaining file
+	 */
+	protected static int getCount(ByteBuffer buffer, int elementBytes) throws IOException {
+		int count = buffer.getInt();
+		if (count < 0 || (long) count * elementBytes > buffer.remaining()) throw new IOException("Invalid element count " + count + " in baked model file!");
+		return count;
+	}
+	
+	protected static String getString(ByteBuffer buffer) throws IOException {
+		int length = buffer.getInt();
+		if (length < 0) return null;
+		if (length > buffer.remaining()) throw new IOException("Invalid string length " + length + " in baked model file!");
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
@@ -1,31 +1,163 @@
 package de.m_marvin.gframe.models;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
+import de.m_marvin.gframe.buffers.BufferBuilder;
 import de.m_marvin.gframe.resources.IResourceProvider;
+import de.m_marvin.gframe.utility.NumberFormat;
+import de.m_marvin.gframe.vertices.VertexFormat;
+import de.m_marvin.gframe.vertices.VertexFormat.VertexElement;
 import de.m_marvin.univec.impl.Vec2f;
 import de.m_marvin.univec.impl.Vec3f;
 import de.m_marvin.univec.impl.Vec4f;
 
 public class ModelData<R extends IResourceProvider<R>> {
 	
-	public class VertexData {
-		protected Vec3f vertex;
-		protected Vec3f normal;
-		protected Vec3f tangent;
-		protected Vec3f bitangent;
-		protected Vec2f texcoord;
-		protected Vec4f color;
-	}
+	/* Names of the vertex format elements filled by the bulk write methods */
+	public static final String ELEMENT_POSITION = "position";
+	public static final String ELEMENT_NORMAL = "normal";
+	public static final String ELEMENT_TANGENT = "tangent";
+	public static final String ELEMENT_BITANGENT = "bitangent";
+	public static final String ELEMENT_UV = "uv";
+	public static final String ELEMENT_COLOR = "color";
 	
+	/**
+	 * The vertex data of one fragment, stored as structure of arrays.
+	 * The attributes of vertex i are stored at index i * n in the array of the attribute with n components.
+	 * 
+	 * @author Marvin Köhler
+	 */
 	public class FragmentData {
 		
-		protected List<VertexData> vertecies = new ArrayList<>();
+		protected int vertexCount;
+		protected float[] positions;
+		protected float[] normals;
+		protected float[] tangents;
+		protected float[] bitangents;
+		protected float[] texcoords;
+		protected float[] colors;
 		protected int[] indecies;
 		
 		protected ShaderData<R> shaderData;
 		
+		public FragmentData(int vertexCount) {
+			this.vertexCount = vertexCount;
+			this.positions = new float[vertexCount * 3];
+			this.normals = new float[vertexCount * 3];
+			this.tangents = new float[vertexCount * 3];
+			this.bitangents = new float[vertexCount * 3];
+			this.texcoords = new float[vertexCount * 2];
+			this.colors = new float[vertexCount * 4];
+		}
+		
+		public int getVertexCount() {
+			return vertexCount;
+		}
+		public float[] getPositions() {
+			return positions;
+		}
+		public float[] getNormals() {
+			return normals;
+		}
+		public float[] getTangents() {
+			return tangents;
+		}
+		public float[] getBitangents() {
+			return bitangents;
+		}
+		public float[] getTexcoords() {
+			return texcoords;
+		}
+		public float[] getColors() {
+			return colors;
+		}
+		public int[] getIndecies() {
+			return indecies;
+		}
+		public ShaderData<R> getShaderData() {
+			return shaderData;
+		}
+		
+		/**
+		 * Returns the number of components stored per vertex for the given vertex format element.
+		 * @param name The name of the vertex format element
+		 * @return The number of components of the attribute or 0 if no attribute is stored for this name
+		 */
+		protected int componentCount(String name) {
+			return switch (name) {
+			case ELEMENT_POSITION, ELEMENT_NORMAL, ELEMENT_TANGENT, ELEMENT_BITANGENT -> 3;
+			case ELEMENT_UV -> 2;
+			case ELEMENT_COLOR -> 4;
+			default -> 0;
+			};
+		}
+		
+		protected float[] attribute(String name) {
+			return switch (name) {
+			case ELEMENT_POSITION -> this.positions;
+			case ELEMENT_NORMAL -> this.normals;
+			case ELEMENT_TANGENT -> this.tangents;
+			case ELEMENT_BITANGENT -> this.bitangents;
+			case ELEMENT_UV -> this.texcoords;
+			case ELEMENT_COLOR -> this.colors;
+			default -> null;
+			};
+		}
+		
+		/**
+		 * Writes the vertices and indices of this fragment directly into the buffer builder.
+		 * The buffer builder has to be building, the vertex format passed to {@link BufferBuilder#begin} decides which attributes are written.
+		 * Elements are matched by name ("position", "normal", "tangent", "bitangent", "uv" and "color") and have to use {@link NumberFormat#FLOAT}.
+		 * Elements with other names and components not stored in the model are filled with zeros.
+		 * The indices are offset by the vertices already written since the {@link BufferBuilder#begin} call.
+		 * Since the buffer builder does not accept vertices after indices, only one fragment can be written per {@link BufferBuilder#begin} call,
+		 * multiple fragments have to be written by {@link ModelData#writeToBuffer(BufferBuilder)}.
+		 * 
+		 * @param bufferBuilder The buffer builder to write to
+		 * @throws IllegalStateException If the vertex format contains non float elements or indices were already written
+		 */
+		public void writeToBuffer(BufferBuilder bufferBuilder) {
+			int firstIndex = writeVertecies(bufferBuilder);
+			if (firstIndex == 0) {
+				bufferBuilder.indecies(this.indecies);
+			} else {
+				for (int index : this.indecies) bufferBuilder.index(firstIndex + index);
+			}
+		}
+		
+		/**
+		 * Writes only the vertices of this fragment into the buffer builder, see {@link #writeToBuffer(BufferBuilder)}.
+		 * 
+		 * @param bufferBuilder The buffer builder to write to
+		 * @return The index of the first vertex written in the buffer builder
+		 * @throws IllegalStateException If the vertex format contains non float elements
+		 */
+		public int writeVertecies(BufferBuilder bufferBuilder) {
+			
+			VertexFormat format = bufferBuilder.getFormat();
+			int vertexSize = format.getSize();
+			int firstIndex = bufferBuilder.getVertexCount();
+			ByteBuffer buffer = bufferBuilder.reserveVertecies(this.vertexCount);
+			
+			for (VertexElement element : format.getElements()) {
+				if (element.format() != NumberFormat.FLOAT) throw new IllegalStateException("VertexFormat requires different number format!");
+				float[] attribute = attribute(element.name());
+				int components = componentCount(element.name());
+				int written = Math.min(components, element.count());
+				for (int i = 0; i < this.vertexCount; i++) {
+					int offset = i * vertexSize + element.offset();
+					for (int c = 0; c < element.count(); c++) {
+						buffer.putFloat(offset + c * Float.BYTES, c < written ? attribute[i * components + c] : 0F);
+					}
+				}
+			}
+			
+			return firstIndex;
+		
+		}
+	
 	}
 	
 	public static class ShaderData<R extends IResourceProvider<R>> {
@@ -103,12 +235,60 @@ public class ModelData<R extends IResourceProvider<R>> {
 	
 	protected List<FragmentData> fragmentData = new ArrayList<>();
 	
+	public List<FragmentData> getFragments() {
+		return fragmentData;
+	}
+	
+	/**
+	 * Returns the number of bytes occupied by the vertex and index arrays of all fragments.
+	 * @return The size of the model data in bytes
+	 */
+	public long getByteSize() {
+		long size = 0;
+		for (FragmentData fragment : this.fragmentData) {
+			size += (fragment.positions.length + fragment.normals.length + fragment.tangents.length + fragment.bitangents.length + fragment.texcoords.length + fragment.colors.length) * (long) Float.BYTES;
+			if (fragment.indecies != null) size += fragment.indecies.length * (long) Integer.BYTES;
+		}
+		return size;
+	}
+	
+	/**
+	 * Writes all fragments directly into the buffer builder, see {@link FragmentData#writeToBuffer(BufferBuilder)}.
+	 * The vertices of all fragments are written first, followed by their indices offset to the first vertex of their fragment.
+	 * 
+	 * @param bufferBuilder The buffer builder to write to
+	 * @throws IllegalStateException If the vertex format contains non float elements or indices were already written
+	 */
+	public void writeToBuffer(BufferBuilder bufferBuilder) {
+		
+		int[] firstIndecies = new int[this.fragmentData.size()];
+		for (int i = 0; i < firstIndecies.length; i++) {
+			firstIndecies[i] = this.fragmentData.get(i).writeVertecies(bufferBuilder);
+		}
+		for (int i = 0; i < firstIndecies.length; i++) {
+			for (int index : this.fragmentData.get(i).indecies) bufferBuilder.index(firstIndecies[i] + index);
+		}
+		
+	}
+	
+	/**
+	 * Writes all fragments to the fragment writer, vertex by vertex.
+	 * This allocates new vector objects for each vertex, {@link FragmentData#writeToBuffer(BufferBuilder)} should be preferred.
+	 * @param fragmentWriter The writer to pass the fragments to
+	 */
 	public void writeToBuffer(FragmentWriter<R> fragmentWriter) {
 		
 		for (FragmentData fragment : this.fragmentData) {
 			fragmentWriter.startFragment(fragment.shaderData);
-			for (VertexData vertex : fragment.vertecies) {
-				fragmentWriter.writeVertex(vertex.vertex, vertex.color, vertex.normal, vertex.tangent, vertex.bitangent, vertex.texcoord);
+			for (int i = 0; i < fragment.vertexCount; i++) {
+				fragmentWriter.writeVertex(
+						new Vec3f(fragment.positions[i * 3], fragment.positions[i * 3 + 1], fragment.positions[i * 3 + 2]),
+						new Vec4f(fragment.colors[i * 4], fragment.colors[i * 4 + 1], fragment.colors[i * 4 + 2], fragment.colors[i * 4 + 3]),
+						new Vec3f(fragment.normals[i * 3], fragment.normals[i * 3 + 1], fragment.normals[i * 3 + 2]),
+						new Vec3f(fragment.tangents[i * 3], fragment.tangents[i * 3 + 1], fragment.tangents[i * 3 + 2]),
+						new Vec3f(fragment.bitangents[i * 3], fragment.bitangents[i * 3 + 1], fragment.bitangents[i * 3 + 2]),
+						new Vec2f(fragment.texcoords[i * 2], fragment.texcoords[i * 2 + 1])
+					);
 			}
 			fragmentWriter.endFragment(fragment.indecies);
 		}
@@ -1,16 +1,23 @@
 package de.m_marvin.gframe.models;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 
+import de.m_marvin.gframe.buffers.IBufferSource;
+import de.m_marvin.gframe.models.ModelCache.SourceStamp;
+import de.m_marvin.gframe.models.ModelData.ShaderData;
+import de.m_marvin.gframe.models.OBJParser.Material;
+import de.m_marvin.gframe.resources.ByteBufferInputStream;
 import de.m_marvin.gframe.resources.IResourceProvider;
 import de.m_marvin.gframe.resources.ISourceFolder;
 import de.m_marvin.gframe.resources.ResourceLoader;
-import de.m_marvin.gframe.resources.defimpl.SimpleFileLoader;
-
-public class ModelLoader<R extends IResourceProvider<R>, FE extends ISourceFolder> extends SimpleFileLoader<R, FE, ModelData<R>> {
 
+public class ModelLoader<R extends IResourceProvider<R>, FE extends ISourceFolder> extends BakedModelLoader<R, FE> {
+	
 	public static final String MODEL_FILE_FORMAT = "obj";
 	
 	public ModelLoader(FE sourceFolder, ResourceLoader<R, FE> resourceLoader) {
@@ -18,28 +25,51 @@ public class ModelLoader<R extends IResourceProvider<R>, FE extends ISourceFolde
 	}
 
 	@Override
-	public ModelData<R> load(R modelFile) throws IOException {
+	protected ModelData<R> loadSource(R modelFile, List<SourceStamp> sources, List<Material> materials) throws IOException {
 		
-		InputStream input = this.resourceLoader.getAsStream(this.sourceFolder, modelFile.append("." + MODEL_FILE_FORMAT));
+		R objFile = modelFile.append("." + MODEL_FILE_FORMAT);
+		ByteBuffer buffer = readSource(objFile, fileName(objFile), sources);
 		
 		OBJParser<R> parser = new OBJParser<>();
 		
-		List<String> mtlFiles = parser.parseOBJFile(input);
+		List<String> mtlFiles = parser.parseOBJFile(buffer, ForkJoinPool.commonPool());
 		
 		for (String mtlFile : mtlFiles) {
 			
 			R mtlLoc = modelFile.getParent().locationOfFile(mtlFile);
 			
-			InputStream mtlInput = this.resourceLoader.getAsStream(this.sourceFolder, mtlLoc);
-			
-			parser.parseMTLFile(mtlInput);
+			ByteBuffer mtlBuffer = readSource(mtlLoc, mtlFile, sources);
 			
+			parser.parseMTLFile(new ByteBufferInputStream(mtlBuffer));
+		
 		}
 		
+		materials.addAll(parser.fragmentMaterials());
 		return parser.makeModelData(modelFile.getParent());
 		
 	}
-
 	
+	/**
+	 * Parses the model and writes its faces directly into the buffers of the buffer source, without creating a {@link ModelData}.
+	 * The faces are written as unindexed triangles while parsing, the memory required does not depend on the number of faces.
+	 * The model is neither cached by this loader nor baked, see {@link StreamingOBJParser}.
+	 * 
+	 * @param modelFile The location of the model
+	 * @param bufferSource The buffer source to write to
+	 * @param bufferTypes Maps the shader data of the materials to the buffer types to write them to
+	 * @return The buffer types that have been written, the buffers of these types are completed
+	 * @throws IOException If an error occurs reading the model files
+	 */
+	public <T> Set<T> streamModel(R modelFile, IBufferSource<T> bufferSource, Function<ShaderData<R>, T> bufferTypes) throws IOException {
+		
+		R modelFolder = modelFile.getParent();
+		StreamingOBJParser<R, T> parser = new StreamingOBJParser<>(bufferSource, bufferTypes, modelFolder, 
+				mtlFile -> this.resourceLoader.getAsStream(this.sourceFolder, modelFolder.locationOfFile(mtlFile)));
+		
+		parser.parseOBJFile(this.resourceLoader.getAsStream(this.sourceFolder, modelFile.append("." + MODEL_FILE_FORMAT)));
+		
+		return parser.getWrittenBuffers();
 	
+	}
+
 }
@@ -4,29 +4,71 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import de.m_marvin.gframe.models.ModelData.ShaderData;
 import de.m_marvin.gframe.resources.IResourceProvider;
-import de.m_marvin.univec.impl.Vec2f;
+import de.m_marvin.gframe.utility.ByteTokenizer;
+import de.m_marvin.gframe.utility.FloatArrayList;
+import de.m_marvin.gframe.utility.IntArrayList;
+import de.m_marvin.simplelogging.printing.Logger;
 import de.m_marvin.univec.impl.Vec3f;
-import de.m_marvin.univec.impl.Vec4f;
 
 public class OBJParser<R extends IResourceProvider<R>> {
-
-	protected static class Face {
-		protected String object = "";
-		protected String group = "";
-		protected String usemtl = "";
-		protected List<Integer> vertexIndecies = new ArrayList<>();
-		protected List<Integer> texcoordIndecies = new ArrayList<>();
-		protected List<Integer> normalIndecies = new ArrayList<>();
+	
+	protected static final byte[] KEYWORD_VERTEX = keyword("v");
+	protected static final byte[] KEYWORD_TEXCOORD = keyword("vt");
+	protected static final byte[] KEYWORD_NORMAL = keyword("vn");
+	protected static final byte[] KEYWORD_FACE = keyword("f");
+	protected static final byte[] KEYWORD_OBJECT = keyword("o");
+	protected static final byte[] KEYWORD_GROUP = keyword("g");
+	protected static final byte[] KEYWORD_USEMTL = keyword("usemtl");
+	protected static final byte[] KEYWORD_MTLLIB = keyword("mtllib");
+	
+	/* Chunks smaller than this are not worth the overhead of parallel parsing */
+	public static final int MIN_CHUNK_SIZE = 1 << 20;
+	/* Relative indices in chunk parsers are stored as this value plus the index relative to the chunk start */
+	protected static final int RELATIVE_INDEX_BASE = Integer.MIN_VALUE / 2;
+	
+	protected static byte[] keyword(String keyword) {
+		return keyword.getBytes(StandardCharsets.US_ASCII);
+	}
+	
+	/**
+	 * Assigns indices to names in the order of their first occurrence.
+	 */
+	protected static class NameTable {
+		protected List<String> names = new ArrayList<>();
+		protected Map<String, Integer> indecies = new HashMap<>();
+		
+		public int indexOf(String name) {
+			Integer index = this.indecies.get(name);
+			if (index == null) {
+				index = this.names.size();
+				this.names.add(name);
+				this.indecies.put(name, index);
+			}
+			return index;
+		}
+		
+		public String get(int index) {
+			return this.names.get(index);
+		}
+		
+		public int size() {
+			return this.names.size();
+		}
 	}
 	
-	protected static class Material {
+	public static class Material {
 		protected Vec3f ambientColor;
 		protected Vec3f diffuseColor;
 		protected Vec3f specularColor;
@@ -42,215 +84,580 @@ public class OBJParser<R extends IResourceProvider<R>> {
 		protected String displacementMap;
 	}
 	
-	protected List<Vec3f> vertecies = new ArrayList<>();
-	protected List<Vec3f> colors = new ArrayList<>();
-	protected List<Vec2f> texcoords = new ArrayList<>();
-	protected List<Vec3f> normals = new ArrayList<>();
-	protected List<Face> faces = new ArrayList<>();
+	/* Vertex attributes, packed as xyz, rgb, uv and xyz */
+	protected FloatArrayList vertecies = new FloatArrayList(1024);
+	protected FloatArrayList colors = new FloatArrayList(0);
+	protected FloatArrayList texcoords = new FloatArrayList(1024);
+	protected FloatArrayList normals = new FloatArrayList(1024);
+	
+	/* Faces, the corners are packed as vertex, texcoord and normal index (zero based, -1 if not defined) */
+	protected IntArrayList faceCorners = new IntArrayList(4096);
+	protected IntArrayList faceStarts = new IntArrayList(1024);
+	protected IntArrayList faceMaterials = new IntArrayList(1024);
+	protected IntArrayList faceObjects = new IntArrayList(1024);
+	protected IntArrayList faceGroups = new IntArrayList(1024);
+	
+	protected NameTable materialNames = new NameTable();
+	protected NameTable objectNames = new NameTable();
+	protected NameTable groupNames = new NameTable();
 	protected Map<String, Material> materials = new HashMap<>();
 	
-	public ModelData<R> makeModelData(R modelFilesLocation) {
+	public int vertexCount() {
+		return this.vertecies.size() / 3;
+	}
+	
+	public int texcoordCount() {
+		return this.texcoords.size() / 2;
+	}
+	
+	public int normalCount() {
+		return this.normals.size() / 3;
+	}
+	
+	public int faceCount() {
+		return this.faceStarts.size();
+	}
+	
+	protected int faceCornerCount(int face) {
+		int end = face + 1 < this.faceStarts.size() ? this.faceStarts.get(face + 1) : this.faceCorners.size() / 3;
+		return end - this.faceStarts.get(face);
+	}
+	
+	/**
+	 * Assigns indices to the unique (vertex, texcoord, normal) triples of the face corners.
+	 * Uses open addressing on primitive arrays to avoid boxing the triples.
+	 */
+	protected static class CornerTable {
+		/* Slots contain the index of the triple plus one, zero marks an empty slot */
+		protected int[] slots;
+		protected IntArrayList corners;
 		
-		ModelData<R> modelData = new ModelData<>();
+		public CornerTable(int expectedCorners) {
+			int capacity = Integer.highestOneBit(Math.max(expectedCorners, 8) * 2 - 1) << 1;
+			this.slots = new int[capacity];
+			this.corners = new IntArrayList(expectedCorners * 3);
+		}
 		
-		for (String material : this.materials.keySet()) {
-			
-			ModelData<R>.FragmentData fragment = modelData.new FragmentData();
-			
-			List<Face> faces = this.faces.stream().filter(f -> f.usemtl.equals(material)).toList();
-			
-			List<Integer> indecies = new ArrayList<>();
-			
-			for (Face face : faces) {
-
-				int indecieCount = face.vertexIndecies.size();
-				if (indecieCount > 3) indecieCount = 3 + (indecieCount - 3) * 3;
-
-				int firstFaceVertexIndex = fragment.vertecies.size();
-				
-				for (int i = 0; i < indecieCount; i++) {
-					
-					int index = i < 3 ? i : (i % 3) == 0 ? 0 : ((i % 3) == 1) ? 1 + (i / 3) : 2 + (i / 3);
-					indecies.add(firstFaceVertexIndex + index);
-					
-				}
-				
-				for (int i = 0; i < face.vertexIndecies.size(); i++) {
-					
-					ModelData<R>.VertexData vertexData = modelData.new VertexData();
-					
-					vertexData.vertex = face.vertexIndecies.get(i) < 1 ? new Vec3f(0, 0, 0) : this.vertecies.get(face.vertexIndecies.get(i) - 1);
-					Vec3f color = face.vertexIndecies.get(i) < 1 ? new Vec3f(1, 1, 1) : this.colors.get(face.vertexIndecies.get(i) - 1);
-					vertexData.color = new Vec4f(color.x, color.y, color.z, 1.0F);
-					vertexData.texcoord = face.texcoordIndecies.get(i) < 1 ? new Vec2f(0, 0) : this.texcoords.get(face.texcoordIndecies.get(i) - 1);
-					vertexData.normal = face.normalIndecies.get(i) < 1 ? new Vec3f(0, 0, 0) : this.normals.get(face.normalIndecies.get(i) - 1);
-					
-					// values calculated later
-					vertexData.tangent = new Vec3f(0, 0, 0);
-					vertexData.bitangent = new Vec3f(0, 0, 0);
-					
-					fragment.vertecies.add(vertexData);
-					
+		protected static int hash(int vertex, int texcoord, int normal) {
+			int hash = vertex * 0x9E3779B1 + texcoord * 0x85EBCA77 + normal * 0xC2B2AE3D;
+			return hash ^ (hash >>> 16);
+		}
+		
+		public int indexOf(int vertex, int texcoord, int normal) {
+			int mask = this.slots.length - 1;
+			int slot = hash(vertex, texcoord, normal) & mask;
+			while (true) {
+				int entry = this.slots[slot];
+				if (entry == 0) {
+					int index = size();
+					this.corners.add(vertex, texcoord, normal);
+					this.slots[slot] = index + 1;
+					if (size() * 2 > this.slots.length) rehash();
+					return index;
 				}
-				
+				int offset = (entry - 1) * 3;
+				if (this.corners.get(offset) == vertex && this.corners.get(offset + 1) == texcoord && this.corners.get(offset + 2) == normal) return entry - 1;
+				slot = (slot + 1) & mask;
 			}
-
-			// per triangle tangent and bitangent calculation
-			for (int tri = 0; tri < indecies.size() / 3; tri++) {
-				
-				ModelData<R>.VertexData vrtx1 = fragment.vertecies.get(indecies.get((tri * 3) + 0));
-				ModelData<R>.VertexData vrtx2 = fragment.vertecies.get(indecies.get((tri * 3) + 1));
-				ModelData<R>.VertexData vrtx3 = fragment.vertecies.get(indecies.get((tri * 3) + 2));
-				
-				Vec3f edge1 = vrtx2.vertex.sub(vrtx1.vertex);
-				Vec3f edge2 = vrtx3.vertex.sub(vrtx1.vertex);
-				Vec2f deltaUV1 = vrtx2.texcoord.sub(vrtx1.texcoord);
-				Vec2f deltaUV2 = vrtx3.texcoord.sub(vrtx1.texcoord);
-				
-				float f = 1 / (deltaUV1.x * deltaUV2.y - deltaUV2.x * deltaUV1.y);
-				
-				Vec3f tangent = new Vec3f(
-						f * (deltaUV2.y * edge1.x - deltaUV1.y * edge2.x),
-						f * (deltaUV2.y * edge1.y - deltaUV1.y * edge2.y),
-						f * (deltaUV2.y * edge1.z - deltaUV1.y * edge2.z)
-					);
-				
-				Vec3f bitangent = new Vec3f(
-						f * (-deltaUV2.x * edge1.x + deltaUV1.x * edge2.x),
-						f * (-deltaUV2.x * edge1.y + deltaUV1.x * edge2.y),
-						f * (-deltaUV2.x * edge1.z + deltaUV1.x * edge2.z)
-					);
-				
-				vrtx1.tangent.addI(tangent).normalizeI();
-				vrtx2.tangent.addI(tangent).normalizeI();
-				vrtx3.tangent.addI(tangent).normalizeI();
-				vrtx1.bitangent.addI(bitangent).normalizeI();
-				vrtx2.bitangent.addI(bitangent).normalizeI();
-				vrtx3.bitangent.addI(bitangent).normalizeI();
-				
+		}
+		
+		protected void rehash() {
+			this.slots = new int[this.slots.length * 2];
+			int mask = this.slots.length - 1;
+			for (int index = 0; index < size(); index++) {
+				int slot = hash(this.corners.get(index * 3), this.corners.get(index * 3 + 1), this.corners.get(index * 3 + 2)) & mask;
+				while (this.slots[slot] != 0) slot = (slot + 1) & mask;
+				this.slots[slot] = index + 1;
 			}
+		}
+		
+		public int size() {
+			return this.corners.size() / 3;
+		}
+		
+		public int vertex(int index) {
+			return this.corners.get(index * 3);
+		}
+		
+		public int texcoord(int index) {
+			return this.corners.get(index * 3 + 1);
+		}
+		
+		public int normal(int index) {
+			return this.corners.get(index * 3 + 2);
+		}
+	}
+	
+	public ModelData<R> makeModelData(R modelFilesLocation) {
+		
+		ModelData<R> modelData = new ModelData<>();
+		
+		// sort the faces by material in a single pass
+		int materialCount = this.materialNames.size();
+		int[] materialStarts = new int[materialCount + 1];
+		for (int face = 0; face < faceCount(); face++) materialStarts[this.faceMaterials.get(face) + 1]++;
+		for (int material = 0; material < materialCount; material++) materialStarts[material + 1] += materialStarts[material];
+		int[] sortedFaces = new int[faceCount()];
+		int[] fillPositions = Arrays.copyOf(materialStarts, materialCount);
+		for (int face = 0; face < faceCount(); face++) sortedFaces[fillPositions[this.faceMaterials.get(face)]++] = face;
+		
+		for (int material = 0; material < materialCount; material++) {
 			
-			if (fragment.vertecies.size() == 0) continue;
-			
-			fragment.indecies = new int[indecies.size()];
-			for (int i = 0; i < fragment.indecies.length; i++) fragment.indecies[i] = indecies.get(i);
-			
-			Material mtrl = this.materials.get(material);
+			if (materialStarts[material] == materialStarts[material + 1]) continue;
 			
-			fragment.shaderData = new ShaderData<>();
-			fragment.shaderData.ambientColor = 			mtrl.ambientColor;
-			fragment.shaderData.diffuseColor = 			mtrl.diffuseColor;
-			fragment.shaderData.specularColor = 		mtrl.specularColor;
-			fragment.shaderData.specularExponent = 		mtrl.specularExponent;
-			fragment.shaderData.opticalDensity = 		mtrl.opticalDensity;
-			fragment.shaderData.dissolve =				mtrl.dissolve;
-			fragment.shaderData.ambientMap = 			mtrl.ambientMap == null ? null : modelFilesLocation.locationOfFile(mtrl.ambientMap);
-			fragment.shaderData.diffuesMap = 			mtrl.diffuesMap == null ? null : modelFilesLocation.locationOfFile(mtrl.diffuesMap);
-			fragment.shaderData.specularMap = 			mtrl.specularMap == null ? null : modelFilesLocation.locationOfFile(mtrl.specularMap);
-			fragment.shaderData.dissolveMap =			mtrl.dissolveMap == null ? null : modelFilesLocation.locationOfFile(mtrl.dissolveMap);
-			fragment.shaderData.specularHighlightMap = 	mtrl.specularHighlightMap == null ? null : modelFilesLocation.locationOfFile(mtrl.specularHighlightMap);
-			fragment.shaderData.normalMap = 			mtrl.normalMap == null ? null : modelFilesLocation.locationOfFile(mtrl.normalMap);
-			fragment.shaderData.displacementMap =				mtrl.displacementMap == null ? null : modelFilesLocation.locationOfFile(mtrl.displacementMap);
+			String materialName = this.materialNames.get(material);
+			Material mtrl = this.materials.get(materialName);
+			if (mtrl == null && !materialName.isEmpty()) {
+				Logger.defaultLogger().logWarn("Material '" + materialName + "' is not defined, using default material!");
+			}
 			
+			ModelData<R>.FragmentData fragment = makeFragmentData(modelData, sortedFaces, materialStarts[material], materialStarts[material + 1]);
+			fragment.shaderData = makeShaderData(mtrl, modelFilesLocation);
 			modelData.fragmentData.add(fragment);
 			
 		}
-
-		ModelData<R>.FragmentData fragment = modelData.new FragmentData();
 		
-		List<Face> faces = this.faces.stream().filter(f -> f.usemtl == null || f.usemtl.isEmpty()).toList();
+		return modelData;
 		
-		for (Face face : faces) {
-
-			int indecieCount = face.vertexIndecies.size();
-			if (indecieCount > 3) indecieCount = 3 + (indecieCount - 3) * 3;
-			
-			fragment.indecies = new int[indecieCount];
-			for (int i = 0; i < indecieCount; i++) {
-				fragment.indecies[i] = fragment.vertecies.size() + (i % 3) + (i / 3);
-			}
-			
-			for (int i = 0; i < face.vertexIndecies.size(); i++) {
-				
-				ModelData<R>.VertexData vertexData = modelData.new VertexData();
-				
-				vertexData.vertex = face.vertexIndecies.get(i) < 1 ? new Vec3f(0, 0, 0) : this.vertecies.get(face.vertexIndecies.get(i) - 1);
-				vertexData.texcoord = face.texcoordIndecies.get(i) < 1 ? new Vec2f(0, 0) : this.texcoords.get(face.texcoordIndecies.get(i) - 1);
-				vertexData.normal = face.normalIndecies.get(i) < 1 ? new Vec3f(0, 0, 0) : this.vertecies.get(face.normalIndecies.get(i) - 1);
-				vertexData.color = new Vec4f(1, 1, 1, 1);
-				
-				fragment.vertecies.add(vertexData);
-				
+	}
+	
+	/**
+	 * Returns the materials of the fragments created by {@link #makeModelData(IResourceProvider)}, in the same order.
+	 * Fragments using the default material or an undefined material have a null entry.
+	 * @return The list of fragment materials
+	 */
+	protected List<Material> fragmentMaterials() {
+		boolean[] used = new boolean[this.materialNames.size()];
+		for (int face = 0; face < faceCount(); face++) used[this.faceMaterials.get(face)] = true;
+		List<Material> fragmentMaterials = new ArrayList<>();
+		for (int material = 0; material < used.length; material++) {
+			if (used[material]) fragmentMaterials.add(this.materials.get(this.materialNames.get(material)));
+		}
+		return fragmentMaterials;
+	}
+	
+	protected ModelData<R>.FragmentData makeFragmentData(ModelData<R> modelData, int[] faces, int start, int end) {
+		
+		int cornerCount = 0;
+		int indexCount = 0;
+		for (int i = start; i < end; i++) {
+			int corners = faceCornerCount(faces[i]);
+			cornerCount += corners;
+			indexCount += (corners - 2) * 3;
+		}
+		
+		// fan triangulation, equal corners share one vertex
+		CornerTable cornerTable = new CornerTable(cornerCount);
+		int[] indecies = new int[indexCount];
+		int indexPosition = 0;
+		for (int i = start; i < end; i++) {
+			int firstCorner = this.faceStarts.get(faces[i]);
+			int corners = faceCornerCount(faces[i]);
+			int firstVertex = 0;
+			int lastVertex = 0;
+			for (int c = 0; c < corners; c++) {
+				int corner = (firstCorner + c) * 3;
+				int vertex = cornerTable.indexOf(this.faceCorners.get(corner), this.faceCorners.get(corner + 1), this.faceCorners.get(corner + 2));
+				if (c == 0) {
+					firstVertex = vertex;
+				} else if (c >= 2) {
+					indecies[indexPosition++] = firstVertex;
+					indecies[indexPosition++] = lastVertex;
+					indecies[indexPosition++] = vertex;
+				}
+				lastVertex = vertex;
 			}
-
 		}
-
-		if (fragment.vertecies.size() == 0) return modelData;
 		
-		fragment.shaderData = new ShaderData<>();
+		int vertexCount = cornerTable.size();
+		ModelData<R>.FragmentData fragment = modelData.new FragmentData(vertexCount);
+		fragment.indecies = indecies;
+		for (int i = 0; i < vertexCount; i++) {
+			fillVertex(fragment, i, cornerTable.vertex(i), cornerTable.texcoord(i), cornerTable.normal(i));
+		}
+		
+		// per triangle tangent and bitangent calculation, accumulated per vertex and normalized afterwards
+		for (int i = 0; i < indecies.length; i += 3) {
+			addTangents(fragment.positions, fragment.texcoords, fragment.tangents, fragment.bitangents, indecies[i], indecies[i + 1], indecies[i + 2]);
+		}
+		normalizeAll(fragment.tangents);
+		normalizeAll(fragment.bitangents);
 		
-		modelData.fragmentData.add(fragment);
+		return fragment;
 		
-		return modelData;
+	}
+	
+	/**
+	 * Copies the attributes of a vertex into the fragment, attributes that are not defined are filled with default values.
+	 */
+	protected void fillVertex(ModelData<R>.FragmentData fragment, int i, int vertex, int texcoord, int normal) {
+		
+		if (vertex >= 0 && vertex < vertexCount()) {
+			System.arraycopy(this.vertecies.array(), vertex * 3, fragment.positions, i * 3, 3);
+		} else {
+			Arrays.fill(fragment.positions, i * 3, i * 3 + 3, 0);
+		}
+		if (texcoord >= 0 && texcoord < texcoordCount()) {
+			System.arraycopy(this.texcoords.array(), texcoord * 2, fragment.texcoords, i * 2, 2);
+		} else {
+			Arrays.fill(fragment.texcoords, i * 2, i * 2 + 2, 0);
+		}
+		if (normal >= 0 && normal < normalCount()) {
+			System.arraycopy(this.normals.array(), normal * 3, fragment.normals, i * 3, 3);
+		} else {
+			Arrays.fill(fragment.normals, i * 3, i * 3 + 3, 0);
+		}
+		if (vertex >= 0 && vertex * 3 < this.colors.size()) {
+			System.arraycopy(this.colors.array(), vertex * 3, fragment.colors, i * 4, 3);
+		} else {
+			Arrays.fill(fragment.colors, i * 4, i * 4 + 3, 1);
+		}
+		fragment.colors[i * 4 + 3] = 1;
+		
+	}
+	
+	/**
+	 * Calculates the tangent and bitangent of the triangle and adds them to the vectors of its three vertices.
+	 * Triangles with degenerated texture coordinates are skipped.
+	 */
+	protected static void addTangents(float[] positions, float[] uvs, float[] tangents, float[] bitangents, int i1, int i2, int i3) {
+		
+		float edge1x = positions[i2 * 3] - positions[i1 * 3];
+		float edge1y = positions[i2 * 3 + 1] - positions[i1 * 3 + 1];
+		float edge1z = positions[i2 * 3 + 2] - positions[i1 * 3 + 2];
+		float edge2x = positions[i3 * 3] - positions[i1 * 3];
+		float edge2y = positions[i3 * 3 + 1] - positions[i1 * 3 + 1];
+		float edge2z = positions[i3 * 3 + 2] - positions[i1 * 3 + 2];
+		float deltaU1 = uvs[i2 * 2] - uvs[i1 * 2];
+		float deltaV1 = uvs[i2 * 2 + 1] - uvs[i1 * 2 + 1];
+		float deltaU2 = uvs[i3 * 2] - uvs[i1 * 2];
+		float deltaV2 = uvs[i3 * 2 + 1] - uvs[i1 * 2 + 1];
+		
+		float f = 1 / (deltaU1 * deltaV2 - deltaU2 * deltaV1);
+		if (!Float.isFinite(f)) return;
+		
+		float tangentX = f * (deltaV2 * edge1x - deltaV1 * edge2x);
+		float tangentY = f * (deltaV2 * edge1y - deltaV1 * edge2y);
+		float tangentZ = f * (deltaV2 * edge1z - deltaV1 * edge2z);
+		float bitangentX = f * (-deltaU2 * edge1x + deltaU1 * edge2x);
+		float bitangentY = f * (-deltaU2 * edge1y + deltaU1 * edge2y);
+		float bitangentZ = f * (-deltaU2 * edge1z + deltaU1 * edge2z);
+		
+		addVector(tangents, i1, tangentX, tangentY, tangentZ);
+		addVector(tangents, i2, tangentX, tangentY, tangentZ);
+		addVector(tangents, i3, tangentX, tangentY, tangentZ);
+		addVector(bitangents, i1, bitangentX, bitangentY, bitangentZ);
+		addVector(bitangents, i2, bitangentX, bitangentY, bitangentZ);
+		addVector(bitangents, i3, bitangentX, bitangentY, bitangentZ);
 		
 	}
 	
-	protected String usemtl = "";
-	protected String object = "";
-	protected String group = "";
+	protected static void addVector(float[] vectors, int index, float x, float y, float z) {
+		vectors[index * 3] += x;
+		vectors[index * 3 + 1] += y;
+		vectors[index * 3 + 2] += z;
+	}
+	
+	protected static void normalizeAll(float[] vectors) {
+		for (int i = 0; i < vectors.length; i += 3) {
+			float length = (float) Math.sqrt(vectors[i] * vectors[i] + vectors[i + 1] * vectors[i + 1] + vectors[i + 2] * vectors[i + 2]);
+			if (length == 0) continue;
+			vectors[i] /= length;
+			vectors[i + 1] /= length;
+			vectors[i + 2] /= length;
+		}
+	}
+	
+	protected static <R extends IResourceProvider<R>> ShaderData<R> makeShaderData(Material mtrl, R modelFilesLocation) {
+		
+		ShaderData<R> shaderData = new ShaderData<>();
+		if (mtrl != null) {
+			shaderData.ambientColor = 			mtrl.ambientColor;
+			shaderData.diffuseColor = 			mtrl.diffuseColor;
+			shaderData.specularColor = 			mtrl.specularColor;
+			shaderData.specularExponent = 		mtrl.specularExponent;
+			shaderData.opticalDensity = 		mtrl.opticalDensity;
+			shaderData.dissolve =				mtrl.dissolve;
+			shaderData.ambientMap = 			mtrl.ambientMap == null ? null : modelFilesLocation.locationOfFile(mtrl.ambientMap);
+			shaderData.diffuesMap = 			mtrl.diffuesMap == null ? null : modelFilesLocation.locationOfFile(mtrl.diffuesMap);
+			shaderData.specularMap = 			mtrl.specularMap == null ? null : modelFilesLocation.locationOfFile(mtrl.specularMap);
+			shaderData.dissolveMap =			mtrl.dissolveMap == null ? null : modelFilesLocation.locationOfFile(mtrl.dissolveMap);
+			shaderData.specularHighlightMap = 	mtrl.specularHighlightMap == null ? null : modelFilesLocation.locationOfFile(mtrl.specularHighlightMap);
+			shaderData.normalMap = 				mtrl.normalMap == null ? null : modelFilesLocation.locationOfFile(mtrl.normalMap);
+			shaderData.displacementMap =		mtrl.displacementMap == null ? null : modelFilesLocation.locationOfFile(mtrl.displacementMap);
+		}
+		return shaderData;
+		
+	}
+	
+	protected int usemtl = this.materialNames.indexOf("");
+	protected int object = this.objectNames.indexOf("");
+	protected int group = this.groupNames.indexOf("");
 	protected List<String> mtllib = new ArrayList<>();
 	
+	/* Set for parsers that only parse a chunk of a file, see parseOBJFile(ByteBuffer, ForkJoinPool) */
+	protected boolean chunk = false;
+	
+	/**
+	 * Creates a parser for a chunk of an OBJ file.
+	 * The state (usemtl, o, g) is initialized with -1 to inherit it from the previous chunk.
+	 * Relative indices are stored encoded, relative to the first element of the chunk, see {@link #RELATIVE_INDEX_BASE}.
+	 */
+	protected OBJParser<R> makeChunkParser() {
+		OBJParser<R> parser = new OBJParser<>();
+		parser.chunk = true;
+		parser.usemtl = -1;
+		parser.object = -1;
+		parser.group = -1;
+		return parser;
+	}
+	
+	/**
+	 * Parses the OBJ file from the given input stream.
+	 * The complete file is read into memory and then parsed by {@link #parseOBJFile(ByteBuffer)}.
+	 * 
+	 * @param input The input stream of the OBJ file, gets closed after reading
+	 * @return A list of MTL files referenced by the OBJ file
+	 * @throws IOException If an error occurs reading the input stream
+	 */
 	public List<String> parseOBJFile(InputStream input) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(input.readAllBytes());
+		input.close();
+		return parseOBJFile(buffer);
+	}
+	
+	/**
+	 * Parses the OBJ file from the bytes between position and limit of the given buffer.
+	 * The file is split at line boundaries into chunks which are parsed concurrently on the given pool.
+	 * The results are merged in file order and are identical to the result of {@link #parseOBJFile(ByteBuffer)}.
+	 * 
+	 * @param buffer The buffer containing the OBJ file
+	 * @param pool The pool to execute the chunk parsers on
+	 * @return A list of MTL files referenced by the OBJ file
+	 */
+	public List<String> parseOBJFile(ByteBuffer buffer, ForkJoinPool pool) {
 		
-		BufferedReader reader = new BufferedReader(new InputStreamReader(input));
+		int start = buffer.position();
+		int end = buffer.limit();
+		int chunkSize = Math.max(MIN_CHUNK_SIZE, (end - start) / (pool.getParallelism() * 4));
+		if (end - start <= chunkSize) return parseOBJFile(buffer);
 		
-		String line;
-		while ((line = reader.readLine()) != null) {
-			
-			String[] lineSegments = line.split(" ");
-			
-			if (lineSegments.length == 0) continue;
-			if (lineSegments[0].startsWith("#")) continue;
-			
-			switch (lineSegments[0]) {
-			case "mtllib":
-				if (lineSegments.length > 1) this.mtllib.add(lineSegments[1]);
-				continue;
-			case "usemtl":
-				this.usemtl = lineSegments.length > 1 ? lineSegments[1] : "";
-				continue;
-			case "g":
-				this.group = lineSegments.length > 1 ? lineSegments[1] : "";
-				continue;
-			case "o":
-				this.object = lineSegments.length > 1 ? lineSegments[1] : "";
-				continue;
-			case "v":
-				this.vertecies.add(parseVec3f(lineSegments, 0));
-				if (lineSegments.length > 4) 
-					this.colors.add(parseVec3f(lineSegments, 3));
-				else
-					this.colors.add(new Vec3f(1, 1, 1));
-				continue;
-			case "vt":
-				this.texcoords.add(parseVec2f(lineSegments, 0));
-				continue;
-			case "vn":
-				this.normals.add(parseVec3f(lineSegments, 0).normalize());
-				continue;
-			case "f":
-				this.faces.add(parseFace(lineSegments));
-				continue;
-			}
-			
+		List<ForkJoinTask<OBJParser<R>>> chunks = new ArrayList<>();
+		while (start < end) {
+			int chunkEnd = Math.min(end, start + chunkSize);
+			while (chunkEnd < end && buffer.get(chunkEnd - 1) != '\n') chunkEnd++;
+			final int chunkStart = start;
+			final int chunkLimit = chunkEnd;
+			chunks.add(pool.submit(() -> parseChunk(buffer, chunkStart, chunkLimit)));
+			start = chunkEnd;
 		}
 		
-		reader.close();
+		for (ForkJoinTask<OBJParser<R>> chunk : chunks) {
+			mergeChunk(chunk.join());
+		}
+		
+		return this.mtllib;
+		
+	}
+	
+	protected OBJParser<R> parseChunk(ByteBuffer buffer, int start, int end) {
+		OBJParser<R> parser = makeChunkParser();
+		ByteTokenizer tokenizer = new ByteTokenizer(buffer, start, end);
+		while (tokenizer.hasRemaining()) {
+			parser.parseOBJLine(tokenizer);
+			tokenizer.nextLine();
+		}
+		return parser;
+	}
+	
+	/**
+	 * Appends the results of a chunk parser to this parser.
+	 * Resolves the relative indices and the inherited state of the chunk.
+	 * 
+	 * @param chunk The parser of the chunk following the data already in this parser
+	 */
+	protected void mergeChunk(OBJParser<R> chunk) {
+		
+		int vertexBase = vertexCount();
+		int texcoordBase = texcoordCount();
+		int normalBase = normalCount();
+		int cornerBase = this.faceCorners.size() / 3;
+		
+		if (!chunk.colors.isEmpty() || !this.colors.isEmpty()) {
+			while (this.colors.size() < vertexBase * 3) this.colors.add(1, 1, 1);
+			this.colors.addAll(chunk.colors);
+			while (this.colors.size() < (vertexBase + chunk.vertexCount()) * 3) this.colors.add(1, 1, 1);
+		}
+		this.vertecies.addAll(chunk.vertecies);
+		this.texcoords.addAll(chunk.texcoords);
+		this.normals.addAll(chunk.normals);
+		
+		int[] corners = chunk.faceCorners.array();
+		int cornerValues = chunk.faceCorners.size();
+		this.faceCorners.ensureCapacity(this.faceCorners.size() + cornerValues);
+		for (int i = 0; i < cornerValues; i += 3) {
+			this.faceCorners.add(
+					resolveChunkIndex(corners[i + 0], vertexBase), 
+					resolveChunkIndex(corners[i + 1], texcoordBase), 
+					resolveChunkIndex(corners[i + 2], normalBase));
+		}
+		
+		int[] materialMapping = mapNames(chunk.materialNames, this.materialNames);
+		int[] objectMapping = mapNames(chunk.objectNames, this.objectNames);
+		int[] groupMapping = mapNames(chunk.groupNames, this.groupNames);
+		for (int face = 0; face < chunk.faceCount(); face++) {
+			this.faceStarts.add(cornerBase + chunk.faceStarts.get(face));
+			int material = chunk.faceMaterials.get(face);
+			int object = chunk.faceObjects.get(face);
+			int group = chunk.faceGroups.get(face);
+			this.faceMaterials.add(material == -1 ? this.usemtl : materialMapping[material]);
+			this.faceObjects.add(object == -1 ? this.object : objectMapping[object]);
+			this.faceGroups.add(group == -1 ? this.group : groupMapping[group]);
+		}
+		if (chunk.usemtl != -1) this.usemtl = materialMapping[chunk.usemtl];
+		if (chunk.object != -1) this.object = objectMapping[chunk.object];
+		if (chunk.group != -1) this.group = groupMapping[chunk.group];
+		
+		this.mtllib.addAll(chunk.mtllib);
+		
+	}
+	
+	protected static int[] mapNames(NameTable source, NameTable target) {
+		int[] mapping = new int[source.size()];
+		for (int i = 0; i < mapping.length; i++) mapping[i] = target.indexOf(source.get(i));
+		return mapping;
+	}
+	
+	/**
+	 * Resolves an index encoded by a chunk parser, see {@link #resolveIndex(int, int)}.
+	 * 
+	 * @param index The index stored by the chunk parser
+	 * @param base The number of elements defined before the chunk
+	 * @return The zero based index or -1 if not defined
+	 */
+	protected static int resolveChunkIndex(int index, int base) {
+		if (index >= -1) return index;
+		int resolved = base + (index - RELATIVE_INDEX_BASE);
+		return resolved < 0 ? -1 : resolved;
+	}
+	
+	/**
+	 * Parses the OBJ file from the bytes between position and limit of the given buffer.
+	 * The text is tokenized directly on the bytes and all values are stored in primitive arrays.
+	 * 
+	 * @param buffer The buffer containing the OBJ file
+	 * @return A list of MTL files referenced by the OBJ file
+	 */
+	public List<String> parseOBJFile(ByteBuffer buffer) {
+		
+		ByteTokenizer tokenizer = new ByteTokenizer(buffer);
+		
+		while (tokenizer.hasRemaining()) {
+			parseOBJLine(tokenizer);
+			tokenizer.nextLine();
+		}
 		
 		return this.mtllib;
 		
 	}
 	
+	protected void parseOBJLine(ByteTokenizer tokenizer) {
+		
+		if (!tokenizer.hasToken()) return;
+		
+		if (tokenizer.matchToken(KEYWORD_VERTEX)) {
+			parseVertex(tokenizer);
+		} else if (tokenizer.matchToken(KEYWORD_TEXCOORD)) {
+			this.texcoords.add(tokenizer.nextFloat(0), tokenizer.nextFloat(0));
+		} else if (tokenizer.matchToken(KEYWORD_NORMAL)) {
+			parseNormal(tokenizer);
+		} else if (tokenizer.matchToken(KEYWORD_FACE)) {
+			parseFace(tokenizer);
+		} else if (tokenizer.matchToken(KEYWORD_USEMTL)) {
+			this.usemtl = this.materialNames.indexOf(tokenizer.nextString());
+		} else if (tokenizer.matchToken(KEYWORD_GROUP)) {
+			this.group = this.groupNames.indexOf(tokenizer.nextString());
+		} else if (tokenizer.matchToken(KEYWORD_OBJECT)) {
+			this.object = this.objectNames.indexOf(tokenizer.nextString());
+		} else if (tokenizer.matchToken(KEYWORD_MTLLIB)) {
+			while (tokenizer.hasToken()) this.mtllib.add(tokenizer.nextString());
+		}
+		
+	}
+	
+	protected void parseVertex(ByteTokenizer tokenizer) {
+		this.vertecies.add(tokenizer.nextFloat(0), tokenizer.nextFloat(0), tokenizer.nextFloat(0));
+		if (tokenizer.hasToken()) {
+			// the color list is only filled once the first vertex with color occurs
+			int vertexCount = vertexCount();
+			while (this.colors.size() < (vertexCount - 1) * 3) this.colors.add(1, 1, 1);
+			this.colors.add(tokenizer.nextFloat(1), tokenizer.nextFloat(1), tokenizer.nextFloat(1));
+		} else if (!this.colors.isEmpty()) {
+			this.colors.add(1, 1, 1);
+		}
+	}
+	
+	protected void parseNormal(ByteTokenizer tokenizer) {
+		float x = tokenizer.nextFloat(0);
+		float y = tokenizer.nextFloat(0);
+		float z = tokenizer.nextFloat(0);
+		float length = (float) Math.sqrt(x * x + y * y + z * z);
+		if (length > 0) {
+			x /= length;
+			y /= length;
+			z /= length;
+		}
+		this.normals.add(x, y, z);
+	}
+	
+	protected void parseFace(ByteTokenizer tokenizer) {
+		int firstCorner = this.faceCorners.size();
+		while (tokenizer.hasToken()) {
+			int vertex = tokenizer.nextInt(0);
+			int texcoord = 0;
+			int normal = 0;
+			if (tokenizer.matchChar('/')) {
+				texcoord = tokenizer.nextInt(0);
+				if (tokenizer.matchChar('/')) normal = tokenizer.nextInt(0);
+			}
+			tokenizer.skipToken();
+			this.faceCorners.add(
+					resolveIndex(vertex, vertexCount()), 
+					resolveIndex(texcoord, texcoordCount()), 
+					resolveIndex(normal, normalCount()));
+		}
+		if (this.faceCorners.size() - firstCorner < 9) {
+			// not a valid polygon, discard the corners
+			this.faceCorners.resize(firstCorner);
+			return;
+		}
+		this.faceStarts.add(firstCorner / 3);
+		this.faceMaterials.add(this.usemtl);
+		this.faceObjects.add(this.object);
+		this.faceGroups.add(this.group);
+	}
+	
+	/**
+	 * Converts an one based OBJ index into a zero based index.
+	 * Negative indices are relative to the end of the list they refer to.
+	 * Relative indices pointing before the first element of the file are not defined.
+	 * Chunk parsers do not know the number of elements in the previous chunks, so they store relative indices encoded with {@link #RELATIVE_INDEX_BASE}.
+	 * Since the element counts are always smaller than -{@link #RELATIVE_INDEX_BASE}, relative indices below that can not be defined in any chunk.
+	 * 
+	 * @param index The index as written in the file
+	 * @param count The number of elements defined until this index occurred
+	 * @return The zero based index or -1 if not defined
+	 */
+	protected int resolveIndex(int index, int count) {
+		if (index > 0) return index - 1;
+		if (index < 0) {
+			int relative = count + index;
+			if (this.chunk) return relative < RELATIVE_INDEX_BASE ? -1 : RELATIVE_INDEX_BASE + relative;
+			return relative < 0 ? -1 : relative;
+		}
+		return -1;
+	}
+	
 	protected String newmtl;
 	protected Vec3f ambientColor;
 	protected Vec3f diffuseColor;
@@ -372,30 +779,6 @@ public class OBJParser<R extends IResourceProvider<R>> {
 		return material;
 	}
 	
-	protected Face parseFace(String[] segments) {
-		Face face = new Face();
-		for (int i = 1; i < segments.length; i++) {
-			String[] indecies = segments[i].split("/");
-			face.vertexIndecies.add((indecies.length >= 1) ? safeParseInt(indecies[0]) : 0);
-			face.texcoordIndecies.add((indecies.length >= 2) ? safeParseInt(indecies[1]) : 0);
-			face.normalIndecies.add((indecies.length >= 3) ? safeParseInt(indecies[2]) : 0);
-		}
-		face.object = this.object;
-		face.group = this.group;
-		face.usemtl = this.usemtl;
-		return face;
-	}
-
-	protected Vec2f parseVec2f(String[] segments, int offset) {
-		if (segments.length >= 3 + offset) {
-			return new Vec2f(
-					(segments.length >= 1) ? safeParseFloat(segments[offset + 1]) : 0,
-					(segments.length >= 2) ? safeParseFloat(segments[offset + 2]) : 0
-					);
-		}
-		return new Vec2f();
-	}
-	
 	protected Vec3f parseVec3f(String[] segments, int offset) {
 		if (segments.length >= 4 + offset) {
 			return new Vec3f(
@@ -407,14 +790,6 @@ public class OBJParser<R extends IResourceProvider<R>> {
 		return new Vec3f();
 	}
 	
-	protected int safeParseInt(String s) {
-		try {
-			return Integer.parseInt(s);
-		} catch (NumberFormatException e) {
-			return 0;
-		}
-	}
-
 	protected float safeParseFloat(String s) {
 		try {
 			return Float.parseFloat(s);
@@ -0,0 +1,229 @@
+package de.m_marvin.gframe.models;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import de.m_marvin.gframe.buffers.BufferBuilder;
+import de.m_marvin.gframe.buffers.IBufferSource;
+import de.m_marvin.gframe.models.ModelData.ShaderData;
+import de.m_marvin.gframe.resources.IResourceProvider;
+import de.m_marvin.gframe.utility.ByteTokenizer;
+
+/**
+ * An OBJ parser that writes the faces directly into buffer builders while parsing, instead of collecting them for {@link #makeModelData(IResourceProvider)}.
+ * The file is read through a fixed size window and every face is written as triangles to the buffer of its material as soon as it is parsed, so the faces never need to be held in memory.
+ * Only the vertex attributes (v, vt and vn) are kept, since faces can reference any of them.
+ *
+ * The vertices are written unindexed with flat tangents per triangle, the render modes should use {@link de.m_marvin.gframe.vertices.RenderPrimitive#TRIANGLES}.
+ * MTL files are loaded as soon as they are referenced by a mtllib statement, so they have to be referenced before the materials are used.
+ *
+ * @author Marvin Köhler
+ *
+ * @param <R> The type of resource location used
+ * @param <T> The buffer type of the buffer source
+ */
+public class StreamingOBJParser<R extends IResourceProvider<R>, T> extends OBJParser<R> {
+	
+	public static final int WINDOW_SIZE = 1 << 16;
+	
+	/**
+	 * Opens the MTL files referenced by the OBJ file.
+	 */
+	@FunctionalInterface
+	public static interface MaterialSource {
+		public InputStream openMaterialFile(String mtlFile) throws IOException;
+	}
+	
+	protected final IBufferSource<T> bufferSource;
+	protected final Function<ShaderData<R>, T> bufferTypes;
+	protected final R modelFilesLocation;
+	protected final MaterialSource materialSource;
+	
+	protected Map<T, BufferBuilder> startedBuffers = new HashMap<>();
+	protected List<BufferBuilder> materialBuffers = new ArrayList<>();
+	protected ModelData<R>.FragmentData triangle;
+	
+	/**
+	 * Creates a new streaming OBJ parser.
+	 *
+	 * @param bufferSource The buffer source providing the buffer builders
+	 * @param bufferTypes Maps the shader data of a material to the buffer type it is written to
+	 * @param modelFilesLocation The model folder, used to resolve the texture maps of the materials
+	 * @param materialSource Opens the MTL files referenced by the OBJ file
+	 */
+	public StreamingOBJParser(IBufferSource<T> bufferSource, Function<ShaderData<R>, T> bufferTypes, R modelFilesLocation, MaterialSource materialSource) {
+		this.bufferSource = bufferSource;
+		this.bufferTypes = bufferTypes;
+		this.modelFilesLocation = modelFilesLocation;
+		this.materialSource = materialSource;
+		this.triangle = new ModelData<R>().new FragmentData(3);
+	}
+	
+	/**
+	 * Returns the buffer types to which faces have been written.
+	 * The buffers of these types are completed after parsing and can be popped from the builders.
+	 * @return The buffer types written by this parser
+	 */
+	public Set<T> getWrittenBuffers() {
+		return this.startedBuffers.keySet();
+	}
+	
+	/**
+	 * Parses the OBJ file from the input stream, reading it through a fixed size window.
+	 * The faces are written to the buffers as they are parsed, the buffers are completed afterwards.
+	 *
+	 * @param input The input stream of the OBJ file, gets closed after reading
+	 * @return A list of MTL files referenced by the OBJ file
+	 * @throws IOException If an error occurs reading the input stream or the MTL files
+	 */
+	@Override
+	public List<String> parseOBJFile(InputStream input) throws IOException {
+		
+		byte[] window = new byte[WINDOW_SIZE];
+		int filled = 0;
+		
+		try (input) {
+			while (true) {
+				
+				int read = input.read(window, filled, window.length - filled);
+				if (read == -1) {
+					parseLines(ByteBuffer.wrap(window, 0, filled));
+					break;
+				}
+				filled += read;
+				
+				int lineEnd = filled;
+				while (lineEnd > 0 && window[lineEnd - 1] != '\n') lineEnd--;
+				if (lineEnd == 0) {
+					// line longer than the window
+					if (filled == window.length) window = Arrays.copyOf(window, window.length * 2);
+					continue;
+				}
+				
+				parseLines(ByteBuffer.wrap(window, 0, lineEnd));
+				System.arraycopy(window, lineEnd, window, 0, filled - lineEnd);
+				filled -= lineEnd;
+			
+			}
+		}
+		
+		endBuffers();
+		return this.mtllib;
+	
+	}
+	
+	/**
+	 * Parses the OBJ file from the bytes between position and limit of the given buffer.
+	 * The faces are written to the buffers as they are parsed, the buffers are completed afterwards.
+	 *
+	 * @param buffer The buffer containing the OBJ file
+	 * @return A list of MTL files referenced by the OBJ file
+	 * @throws UncheckedIOException If an error occurs reading the MTL files
+	 */
+	@Override
+	public List<String> parseOBJFile(ByteBuffer buffer) {
+		try {
+			parseLines(buffer);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		endBuffers();
+		return this.mtllib;
+	}
+	
+	/**
+	 * Streaming does not support parallel parsing, the file is parsed sequentially.
+	 */
+	@Override
+	public List<String> parseOBJFile(ByteBuffer buffer, ForkJoinPool pool) {
+		return parseOBJFile(buffer);
+	}
+	
+	protected void parseLines(ByteBuffer buffer) throws IOException {
+		
+		ByteTokenizer tokenizer = new ByteTokenizer(buffer);
+		
+		while (tokenizer.hasRemaining()) {
+			int mtllibCount = this.mtllib.size();
+			parseOBJLine(tokenizer);
+			tokenizer.nextLine();
+			for (int i = mtllibCount; i < this.mtllib.size(); i++) {
+				parseMTLFile(this.materialSource.openMaterialFile(this.mtllib.get(i)));
+			}
+		}
+	
+	}
+	
+	@Override
+	protected void parseFace(ByteTokenizer tokenizer) {
+		
+		super.parseFace(tokenizer);
+		if (faceCount() == 0) return;
+		
+		BufferBuilder bufferBuilder = bufferOf(this.usemtl);
+		int corners = this.faceCorners.size() / 3;
+		for (int c = 2; c < corners; c++) {
+			writeTriangle(bufferBuilder, 0, c - 1, c);
+		}
+		
+		// the face is written, only the vertex attributes are kept
+		this.faceCorners.clear();
+		this.faceStarts.clear();
+		this.faceMaterials.clear();
+		this.faceObjects.clear();
+		this.faceGroups.clear();
+	
+	}
+	
+	protected void writeTriangle(BufferBuilder bufferBuilder, int c1, int c2, int c3) {
+		
+		fillVertex(this.triangle, 0, this.faceCorners.get(c1 * 3), this.faceCorners.get(c1 * 3 + 1), this.faceCorners.get(c1 * 3 + 2));
+		fillVertex(this.triangle, 1, this.faceCorners.get(c2 * 3), this.faceCorners.get(c2 * 3 + 1), this.faceCorners.get(c2 * 3 + 2));
+		fillVertex(this.triangle, 2, this.faceCorners.get(c3 * 3), this.faceCorners.get(c3 * 3 + 1), this.faceCorners.get(c3 * 3 + 2));
+		
+		Arrays.fill(this.triangle.tangents, 0);
+		Arrays.fill(this.triangle.bitangents, 0);
+		addTangents(this.triangle.positions, this.triangle.texcoords, this.triangle.tangents, this.triangle.bitangents, 0, 1, 2);
+		normalizeAll(this.triangle.tangents);
+		normalizeAll(this.triangle.bitangents);
+		
+		this.triangle.writeVertecies(bufferBuilder);
+	
+	}
+	
+	/**
+	 * Returns the buffer builder for the material, the buffer is started on the first use.
+	 * Multiple materials can share the same buffer if they map to the same buffer type.
+	 */
+	protected BufferBuilder bufferOf(int material) {
+		
+		while (this.materialBuffers.size() <= material) this.materialBuffers.add(null);
+		BufferBuilder bufferBuilder = this.materialBuffers.get(material);
+		if (bufferBuilder == null) {
+			ShaderData<R> shaderData = makeShaderData(this.materials.get(this.materialNames.get(material)), this.modelFilesLocation);
+			T bufferType = this.bufferTypes.apply(shaderData);
+			bufferBuilder = this.startedBuffers.computeIfAbsent(bufferType, this.bufferSource::startBuffer);
+			this.materialBuffers.set(material, bufferBuilder);
+		}
+		return bufferBuilder;
+	
+	}
+	
+	/**
+	 * Completes all buffers written by this parser.
+	 */
+	protected void endBuffers() {
+		for (BufferBuilder bufferBuilder : this.startedBuffers.values()) bufferBuilder.end();
+	}
+
+}
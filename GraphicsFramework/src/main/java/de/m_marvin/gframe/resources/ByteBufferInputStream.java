@@ -0,0 +1,53 @@
+package de.m_marvin.gframe.resources;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An InputStream reading the remaining bytes of a buffer, used to pass buffers returned by {@link ISourceFolder#getAsByteBuffer(String)} to stream based parsers.
+ * The position of the buffer is advanced while reading.
+ *
+ * @author Marvin Köhler
+ */
+public class ByteBufferInputStream extends InputStream {
+	
+	protected final ByteBuffer buffer;
+	
+	public ByteBufferInputStream(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+	
+	@Override
+	public int read() {
+		return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+	}
+	
+	@Override
+	public int read(byte[] bytes, int offset, int length) {
+		if (length == 0) return 0;
+		if (!this.buffer.hasRemaining()) return -1;
+		length = Math.min(length, this.buffer.remaining());
+		this.buffer.get(bytes, offset, length);
+		return length;
+	}
+	
+	@Override
+	public byte[] readAllBytes() {
+		byte[] bytes = new byte[this.buffer.remaining()];
+		this.buffer.get(bytes);
+		return bytes;
+	}
+	
+	@Override
+	public long skip(long count) {
+		int skipped = (int) Math.max(0, Math.min(count, this.buffer.remaining()));
+		this.buffer.position(this.buffer.position() + skipped);
+		return skipped;
+	}
+	
+	@Override
+	public int available() {
+		return this.buffer.remaining();
+	}
+
+}
@@ -1,10 +1,97 @@
 package de.m_marvin.gframe.resources;
 
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
 import java.util.function.Consumer;
 
 public class FileUtility {
 	
+	/* Files smaller than this are read instead of mapped, mapping small files costs more than copying them */
+	public static final int MAP_THRESHOLD = 64 * 1024;
+	
+	/**
+	 * Returns the content of the file as buffer, can be used to implement {@link ISourceFolder#getAsByteBuffer(String)}.
+	 * Large files are memory mapped read-only, small files are read into a heap buffer.
+	 * A mapped file must not be truncated while the buffer is in use.
+	 * 
+	 * @param file The file to read
+	 * @return A buffer containing the content of the file
+	 * @throws FileNotFoundException if the file does not exist
+	 * @throws IOException If an error occurs reading the file
+	 */
+	public static ByteBuffer mapFile(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) throw new IOException("Files larger than 2GB are not supported: " + file);
+			if (size >= MAP_THRESHOLD) return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			while (buffer.hasRemaining() && channel.read(buffer) != -1);
+			return buffer.flip();
+		} catch (NoSuchFileException e) {
+			throw new FileNotFoundException(file.toString());
+		}
+	}
+	
+	/**
+	 * Normalizes a path like {@link File#toString()} does, without creating a file object.
+	 * The separators are replaced by {@link File#separatorChar}, duplicate and trailing separators are removed.
+	 * Already normalized paths are returned unchanged.
+	 * 
+	 * @param path The path to normalize
+	 * @return The normalized path
+	 */
+	public static String normalizePath(String path) {
+		
+		char separator = File.separatorChar;
+		int length = path.length();
+		boolean normalized = true;
+		for (int i = 0; i < length; i++) {
+			char c = path.charAt(i);
+			if (c == '/' || c == separator) {
+				if (c != separator || i == length - 1 && i > 0 || i + 1 < length && isSeparator(path.charAt(i + 1))) {
+					normalized = false;
+					break;
+				}
+			}
+		}
+		if (normalized) return path;
+		
+		StringBuilder builder = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			char c = path.charAt(i);
+			if (isSeparator(c)) {
+				if (builder.length() > 0 && builder.charAt(builder.length() - 1) == separator) continue;
+				builder.append(separator);
+			} else {
+				builder.append(c);
+			}
+		}
+		if (builder.length() > 1 && builder.charAt(builder.length() - 1) == separator) builder.setLength(builder.length() - 1);
+		return builder.toString();
+	
+	}
+	
+	protected static boolean isSeparator(char c) {
+		return c == '/' || c == File.separatorChar;
+	}
+	
+	/**
+	 * Returns the parent of a normalized path like {@link File#getParent()} does, without creating a file object.
+	 * 
+	 * @param path The normalized path
+	 * @return The parent path or an empty string if the path has no parent
+	 */
+	public static String parentPath(String path) {
+		int separator = path.lastIndexOf(File.separatorChar);
+		if (separator > 0) return path.substring(0, separator);
+		return separator == 0 && path.length() > 1 ? File.separator : "";
+	}
+	
 	public static <R extends IResourceProvider<R>, FE extends ISourceFolder> void executeForEachFolder(ResourceLoader<R, FE> loader, FE folder, R location, Consumer<R> task) {
 		task.accept(location);
 		for (String entry : loader.listFoldersIn(folder, location)) {
@@ -0,0 +1,26 @@
+package de.m_marvin.gframe.resources;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Implemented by resource loaders that can reload single cached resources if their files change, see {@link ResourceWatcher}.
+ * The loaders track the files each resource was loaded from with a {@link ResourceDependencies}.
+ * 
+ * @author Marvin Köhler
+ *
+ * @param <R> The type of resource location used
+ */
+public interface IReloadableLoader<R> extends IClearableLoader {
+	
+	/**
+	 * Reloads all cached resources that depend on one of the changed files.
+	 * The reloaded resources replace the cached ones, resources that fail to reload keep their previous state.
+	 * Has to be called on the render thread, since replaced GPU objects are deleted.
+	 * 
+	 * @param changedFiles The locations of the changed, created or deleted files and the folders whose content changed
+	 * @return The locations of the reloaded resources
+	 */
+	public Set<R> reloadChanged(Collection<R> changedFiles);
+
+}
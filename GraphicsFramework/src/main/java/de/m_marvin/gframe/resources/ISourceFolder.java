@@ -3,6 +3,7 @@ package de.m_marvin.gframe.resources;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * This interface is intended to be implemented by an enum or something similar, that lists all resource-folders that are used in the application.
@@ -32,6 +33,32 @@ public interface ISourceFolder {
 	 */
 	public InputStream getAsStream(String path) throws IOException;
 	
+	/**
+	 * Returns the complete content of the given resource as buffer, from its position to its limit.
+	 * Implementations can return read-only or memory mapped buffers to avoid copying the content, the buffer must not be modified.
+	 * The default implementation reads the InputStream of the resource into a heap buffer.
+	 * 
+	 * @param path The path to the resource, in most cases the return value of getPath()
+	 * @return A buffer containing the content of the given resource
+	 * @throws FileNotFoundException if the resource does not exist
+	 */
+	public default ByteBuffer getAsByteBuffer(String path) throws IOException {
+		try (InputStream input = getAsStream(path)) {
+			return ByteBuffer.wrap(input.readAllBytes());
+		}
+	}
+	
+	/**
+	 * Returns the time of the last modification of the given resource, in milliseconds since the epoch.
+	 * Used to quickly check if data cached from the resource is still valid, without reading its content.
+	 * 
+	 * @param path The path to the resource
+	 * @return The modification time or -1 if the resource does not exist or the time is unknown
+	 */
+	public default long lastModified(String path) {
+		return -1;
+	}
+	
 	/**
 	 * Lists all files contained in the given folder.
 	 * Returns an empty array if the folder does not exist.
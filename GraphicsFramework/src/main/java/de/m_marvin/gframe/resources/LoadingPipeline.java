@@ -0,0 +1,309 @@
+package de.m_marvin.gframe.resources;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.LockSupport;
+
+import de.m_marvin.gframe.resources.defimpl.SimpleFileLoader;
+import de.m_marvin.simplelogging.printing.LogType;
+import de.m_marvin.simplelogging.printing.Logger;
+
+/**
+ * Loads resources in stages, so that a loading screen can keep rendering while the resources stream in.
+ * <ul>
+ * <li>{@link Stage#DISCOVER} lists the resources to load, using the {@link ResourceIndex}, and submits the tasks of the later stages</li>
+ * <li>{@link Stage#READ} reads the files on the I/O executor, in parallel</li>
+ * <li>{@link Stage#DECODE} decodes the file contents on the CPU executor, in parallel</li>
+ * <li>{@link Stage#UPLOAD} creates the GPU objects on the render thread, time-sliced by {@link #processUploads(long)}</li>
+ * </ul>
+ * A failed task is logged and skips its later stages, the other tasks continue.
+ * The loaders provide methods submitting their resources to a pipeline, like {@link de.m_marvin.gframe.shaders.ShaderLoader#loadShadersIn(LoadingPipeline, IResourceProvider, int)}.
+ *
+ * @author Marvin Köhler
+ */
+public class LoadingPipeline {
+	
+	public static enum Stage {
+		DISCOVER,
+		READ,
+		DECODE,
+		UPLOAD;
+	}
+	
+	@FunctionalInterface
+	public static interface IOTask<T> {
+		public T run() throws IOException;
+	}
+	
+	@FunctionalInterface
+	public static interface IOFunction<T, R> {
+		public R apply(T value) throws IOException;
+	}
+	
+	@FunctionalInterface
+	public static interface IOConsumer<T> {
+		public void accept(T value) throws IOException;
+	}
+	
+	/**
+	 * Called on the render thread by {@link LoadingPipeline#processUploads(long)} if tasks completed since the last call.
+	 */
+	@FunctionalInterface
+	public static interface ProgressListener {
+		public void onProgress(LoadingPipeline pipeline, int completedTasks, int totalTasks);
+	}
+	
+	/**
+	 * The timing metrics of a stage.
+	 * @param tasks The number of submitted tasks
+	 * @param completed The number of completed tasks, including the failed ones
+	 * @param failed The number of failed tasks
+	 * @param busyNanos The summed up run time of the tasks
+	 * @param wallNanos The time from the start of the first to the end of the last task
+	 */
+	public static record StageMetrics(Stage stage, int tasks, int completed, int failed, long busyNanos, long wallNanos) {}
+	
+	protected static class StageCounters {
+		protected int tasks;
+		protected int completed;
+		protected int failed;
+		protected long busyNanos;
+		protected long firstStart = -1;
+		protected long lastEnd = -1;
+	}
+	
+	protected final Executor ioExecutor;
+	protected final Executor cpuExecutor;
+	protected final Queue<Runnable> uploads = new ConcurrentLinkedQueue<>();
+	protected final Map<Stage, StageCounters> counters = new EnumMap<>(Stage.class);
+	protected final List<ProgressListener> progressListeners = new CopyOnWriteArrayList<>();
+	protected int reportedTasks = -1;
+	
+	/**
+	 * Creates a new pipeline reading on the default file loader executor and decoding on the common pool.
+	 */
+	public LoadingPipeline() {
+		this(SimpleFileLoader.getDefaultExecutor(), ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Creates a new pipeline.
+	 * @param ioExecutor The executor for the discover and read stages, should allow more threads than cores since the tasks are I/O bound
+	 * @param cpuExecutor The executor for the decode stage
+	 */
+	public LoadingPipeline(Executor ioExecutor, Executor cpuExecutor) {
+		this.ioExecutor = ioExecutor;
+		this.cpuExecutor = cpuExecutor;
+		for (Stage stage : Stage.values()) this.counters.put(stage, new StageCounters());
+	}
+	
+	public void addProgressListener(ProgressListener listener) {
+		this.progressListeners.add(listener);
+	}
+	
+	public void removeProgressListener(ProgressListener listener) {
+		this.progressListeners.remove(listener);
+	}
+	
+	/**
+	 * Submits a task that lists resources and submits their tasks.
+	 * The tasks have to be submitted before the discover task returns, so that the pipeline does not complete early.
+	 *
+	 * @param name The name of the task used in the log messages
+	 * @param task The task
+	 * @return A future completing after the task
+	 */
+	public CompletableFuture<Void> discover(String name, IOConsumer<LoadingPipeline> task) {
+		return submit(Stage.DISCOVER, name, this.ioExecutor, () -> {
+			task.accept(this);
+			return null;
+		});
+	}
+	
+	/**
+	 * Submits a task reading files.
+	 *
+	 * @param name The name of the task used in the log messages
+	 * @param task The task, returning the content of the files
+	 * @return A future completing with the result of the task
+	 */
+	public <T> CompletableFuture<T> read(String name, IOTask<T> task) {
+		return submit(Stage.READ, name, this.ioExecutor, task);
+	}
+	
+	/**
+	 * Submits a task decoding the result of a previous stage.
+	 *
+	 * @param name The name of the task used in the log messages
+	 * @param input The result to decode
+	 * @param decoder The task, decoding the input
+	 * @return A future completing with the decoded result
+	 */
+	public <T, R> CompletableFuture<R> decode(String name, CompletableFuture<T> input, IOFunction<T, R> decoder) {
+		return submit(Stage.DECODE, name, input, this.cpuExecutor, decoder);
+	}
+	
+	/**
+	 * Submits a task that reads and decodes in one step, like the loaders of {@link SimpleFileLoader}.
+	 *
+	 * @param name The name of the task used in the log messages
+	 * @param task The task
+	 * @return A future completing with the result of the task
+	 */
+	public <T> CompletableFuture<T> decode(String name, IOTask<T> task) {
+		return submit(Stage.DECODE, name, this.cpuExecutor, task);
+	}
+	
+	/**
+	 * Submits a task uploading the result of a previous stage to the GPU, the task runs on the render thread in {@link #processUploads(long)}.
+	 *
+	 * @param name The name of the task used in the log messages
+	 * @param input The result to upload
+	 * @param uploader The task
+	 * @return A future completing after the upload
+	 */
+	public <T> CompletableFuture<Void> upload(String name, CompletableFuture<T> input, IOConsumer<T> uploader) {
+		return submit(Stage.UPLOAD, name, input, this.uploads::add, value -> {
+			uploader.accept(value);
+			return null;
+		});
+	}
+	
+	protected <T> CompletableFuture<T> submit(Stage stage, String name, Executor executor, IOTask<T> task) {
+		return submit(stage, name, CompletableFuture.completedFuture(null), executor, value -> task.run());
+	}
+	
+	protected <T, R> CompletableFuture<R> submit(Stage stage, String name, CompletableFuture<T> input, Executor executor, IOFunction<T, R> task) {
+		
+		StageCounters counters = this.counters.get(stage);
+		synchronized (this) {
+			counters.tasks++;
+		}
+		
+		CompletableFuture<R> result = input.thenApplyAsync(value -> {
+			long start = System.nanoTime();
+			boolean failed = true;
+			try {
+				R output = task.apply(value);
+				failed = false;
+				return output;
+			} catch (IOException | RuntimeException e) {
+				Logger.defaultLogger().logWarn("Failed to " + stage.name().toLowerCase() + " " + name + "!");
+				Logger.defaultLogger().printException(LogType.WARN, e);
+				throw new CompletionException(e);
+			} finally {
+				complete(counters, start, System.nanoTime(), failed);
+			}
+		}, executor);
+		
+		// skipped because an earlier stage failed
+		result.exceptionally(e -> {
+			if (input.isCompletedExceptionally()) complete(counters, -1, -1, true);
+			return null;
+		});
+		return result;
+	
+	}
+	
+	protected synchronized void complete(StageCounters counters, long start, long end, boolean failed) {
+		counters.completed++;
+		if (failed) counters.failed++;
+		if (start == -1) return;
+		counters.busyNanos += end - start;
+		if (counters.firstStart == -1 || start < counters.firstStart) counters.firstStart = start;
+		if (end > counters.lastEnd) counters.lastEnd = end;
+	}
+	
+	/**
+	 * Runs the pending uploads until the time budget is used up, at least one upload is run per call.
+	 * Has to be called on the render thread, every frame while the pipeline is loading.
+	 * Calls the progress listeners if tasks completed since the last call.
+	 *
+	 * @param timeBudgetNanos The time available for uploads in this frame
+	 * @return true if all tasks of the pipeline are completed
+	 */
+	public boolean processUploads(long timeBudgetNanos) {
+		
+		long start = System.nanoTime();
+		Runnable upload;
+		while ((upload = this.uploads.poll()) != null) {
+			upload.run();
+			if (System.nanoTime() - start >= timeBudgetNanos) break;
+		}
+		
+		int completed = getCompletedTasks();
+		int total = getTotalTasks();
+		if (completed != this.reportedTasks) {
+			this.reportedTasks = completed;
+			for (ProgressListener listener : this.progressListeners) listener.onProgress(this, completed, total);
+		}
+		return completed == total;
+	
+	}
+	
+	/**
+	 * Blocks until all tasks are completed, running the uploads on the calling thread.
+	 * Used if no loading screen is rendered, has to be called on the render thread.
+	 */
+	public void awaitCompletion() {
+		while (!processUploads(Long.MAX_VALUE)) {
+			if (this.uploads.isEmpty()) LockSupport.parkNanos(1000000);
+		}
+	}
+	
+	public synchronized int getTotalTasks() {
+		int tasks = 0;
+		for (StageCounters counters : this.counters.values()) tasks += counters.tasks;
+		return tasks;
+	}
+	
+	public synchronized int getCompletedTasks() {
+		int completed = 0;
+		for (StageCounters counters : this.counters.values()) completed += counters.completed;
+		return completed;
+	}
+	
+	public synchronized int getFailedTasks() {
+		int failed = 0;
+		for (StageCounters counters : this.counters.values()) failed += counters.failed;
+		return failed;
+	}
+	
+	/**
+	 * Returns the progress of the pipeline, tasks submitted later by discover tasks are not known in advance.
+	 * @return The fraction of completed tasks, between 0 and 1
+	 */
+	public synchronized float getProgress() {
+		int total = getTotalTasks();
+		return total == 0 ? 1 : getCompletedTasks() / (float) total;
+	}
+	
+	public boolean isCompleted() {
+		return getCompletedTasks() == getTotalTasks();
+	}
+	
+	public synchronized StageMetrics getMetrics(Stage stage) {
+		StageCounters counters = this.counters.get(stage);
+		return new StageMetrics(stage, counters.tasks, counters.completed, counters.failed, counters.busyNanos, counters.firstStart == -1 ? 0 : counters.lastEnd - counters.firstStart);
+	}
+	
+	/**
+	 * Logs the timing metrics of all stages.
+	 */
+	public void logMetrics() {
+		for (Stage stage : Stage.values()) {
+			StageMetrics metrics = getMetrics(stage);
+			Logger.defaultLogger().logInfo(String.format("Loading stage %s: %d tasks, %d failed, %.1f ms busy, %.1f ms wall time", stage, metrics.tasks(), metrics.failed(), metrics.busyNanos() / 1000000.0, metrics.wallNanos() / 1000000.0));
+		}
+	}
+
+}
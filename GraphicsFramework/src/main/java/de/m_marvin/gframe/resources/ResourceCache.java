@@ -0,0 +1,252 @@
+package de.m_marvin.gframe.resources;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A cache for loaded resources, bounded by the total weight of its entries.
+ * If the total weight exceeds the maximum weight, the least recently used entries are evicted, except for pinned entries and the entry that is being cached.
+ * The weight is defined by a weigher, for example the number of bytes an entry occupies in CPU or GPU memory.
+ *
+ * Evicted entries and entries removed by {@link #clear()} are passed to the eviction listener, which can release their resources.
+ * Entries removed by {@link #remove(Object)} are not, the caller takes over their ownership.
+ * The listener is called on the thread modifying the cache, listeners releasing GPU objects have to pass them on to the render thread.
+ * The cache is thread safe, null values are not supported.
+ *
+ * @author Marvin Köhler
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the cached values
+ */
+public class ResourceCache<K, V> {
+	
+	@FunctionalInterface
+	public static interface Weigher<V> {
+		public long weigh(V value);
+	}
+	
+	@FunctionalInterface
+	public static interface EvictionListener<K, V> {
+		public void onEvicted(K key, V value);
+	}
+	
+	public static record Metrics(long hits, long misses, long evictions, int size, long weight, long maxWeight) {
+		public double hitRate() {
+			long requests = this.hits + this.misses;
+			return requests == 0 ? 0 : this.hits / (double) requests;
+		}
+	}
+	
+	/* Access ordered, the first entry is the least recently used one */
+	protected final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75F, true);
+	protected final Map<K, Long> weights = new HashMap<>();
+	protected final Map<K, Integer> pins = new HashMap<>();
+	
+	protected Weigher<? super V> weigher;
+	protected EvictionListener<? super K, ? super V> evictionListener;
+	protected long maxWeight;
+	protected long weight;
+	
+	protected long hits;
+	protected long misses;
+	protected long evictions;
+	
+	/**
+	 * Creates a new unbounded cache, every entry has the weight one.
+	 */
+	public ResourceCache() {
+		this(Long.MAX_VALUE, value -> 1, (key, value) -> {});
+	}
+	
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param maxWeight The maximum total weight of the entries
+	 * @param weigher Calculates the weight of the entries
+	 * @param evictionListener Called for evicted entries, can be used to release their resources
+	 */
+	public ResourceCache(long maxWeight, Weigher<? super V> weigher, EvictionListener<? super K, ? super V> evictionListener) {
+		this.maxWeight = maxWeight;
+		this.weigher = weigher;
+		this.evictionListener = evictionListener;
+	}
+	
+	/**
+	 * Sets the maximum total weight and evicts entries if it is exceeded.
+	 * @param maxWeight The maximum total weight, {@link Long#MAX_VALUE} for an unbounded cache
+	 */
+	public synchronized void setMaxWeight(long maxWeight) {
+		this.maxWeight = maxWeight;
+		evict(null);
+	}
+	
+	public synchronized long getMaxWeight() {
+		return maxWeight;
+	}
+	
+	/**
+	 * Sets the weigher, the weight of entries that are already cached does not change.
+	 * @param weigher Calculates the weight of the entries
+	 */
+	public synchronized void setWeigher(Weigher<? super V> weigher) {
+		this.weigher = weigher;
+	}
+	
+	public synchronized void setEvictionListener(EvictionListener<? super K, ? super V> evictionListener) {
+		this.evictionListener = evictionListener;
+	}
+	
+	/**
+	 * Returns the value cached under the key and marks it as recently used.
+	 * @param key The key of the value
+	 * @return The cached value or null if no value is cached under the key
+	 */
+	public synchronized V get(K key) {
+		V value = this.entries.get(key);
+		if (value != null) {
+			this.hits++;
+		} else {
+			this.misses++;
+		}
+		return value;
+	}
+	
+	/**
+	 * Same as {@link #get(Object)} but does not count as hit or miss.
+	 */
+	public synchronized V peek(K key) {
+		return this.entries.get(key);
+	}
+	
+	public synchronized boolean containsKey(K key) {
+		return this.entries.containsKey(key);
+	}
+	
+	/**
+	 * Caches the value under the key and evicts the least recently used entries if the maximum weight is exceeded.
+	 * The value itself is not evicted, even if it alone exceeds the maximum weight.
+	 * A different value that was cached under the key before is passed to the eviction listener.
+	 *
+	 * @param key The key of the value
+	 * @param value The value to cache
+	 */
+	public synchronized void put(K key, V value) {
+		if (value == null) throw new NullPointerException("null values are not supported");
+		V replaced = this.entries.put(key, value);
+		Long replacedWeight = this.weights.put(key, this.weigher.weigh(value));
+		if (replacedWeight != null) this.weight -= replacedWeight;
+		this.weight += this.weights.get(key);
+		if (replaced != null && replaced != value) this.evictionListener.onEvicted(key, replaced);
+		evict(key);
+	}
+	
+	/**
+	 * Removes the value from the cache without passing it to the eviction listener.
+	 * @param key The key of the value
+	 * @return The removed value or null if no value was cached under the key
+	 */
+	public synchronized V remove(K key) {
+		V value = this.entries.remove(key);
+		Long weight = this.weights.remove(key);
+		if (weight != null) this.weight -= weight;
+		return value;
+	}
+	
+	/**
+	 * Removes all values and passes them to the eviction listener, pinned values are removed too.
+	 */
+	public synchronized void clear() {
+		List<Map.Entry<K, V>> removed = new ArrayList<>(this.entries.entrySet());
+		this.entries.clear();
+		this.weights.clear();
+		this.weight = 0;
+		for (Map.Entry<K, V> entry : removed) this.evictionListener.onEvicted(entry.getKey(), entry.getValue());
+	}
+	
+	/**
+	 * Pins the key, values cached under pinned keys are not evicted.
+	 * A key can be pinned multiple times and has to be unpinned as often.
+	 * @param key The key to pin
+	 */
+	public synchronized void pin(K key) {
+		this.pins.merge(key, 1, Integer::sum);
+	}
+	
+	/**
+	 * Unpins the key and evicts entries if the maximum weight is exceeded.
+	 * @param key The key to unpin
+	 */
+	public synchronized void unpin(K key) {
+		this.pins.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+		evict(null);
+	}
+	
+	public synchronized boolean isPinned(K key) {
+		return this.pins.containsKey(key);
+	}
+	
+	/**
+	 * Returns a copy of the keys, ordered from the least to the most recently used.
+	 * @return A set of the cached keys
+	 */
+	public synchronized Set<K> keys() {
+		return new LinkedHashSet<>(this.entries.keySet());
+	}
+	
+	/**
+	 * Returns a copy of the values, ordered from the least to the most recently used.
+	 * @return A list of the cached values
+	 */
+	public synchronized List<V> values() {
+		return new ArrayList<>(this.entries.values());
+	}
+	
+	public synchronized int size() {
+		return this.entries.size();
+	}
+	
+	public synchronized long getWeight() {
+		return weight;
+	}
+	
+	public synchronized Metrics metrics() {
+		return new Metrics(this.hits, this.misses, this.evictions, this.entries.size(), this.weight, this.maxWeight);
+	}
+	
+	public synchronized void resetMetrics() {
+		this.hits = 0;
+		this.misses = 0;
+		this.evictions = 0;
+	}
+	
+	/**
+	 * Evicts the least recently used entries until the weight is below the maximum weight.
+	 * @param insertedKey The key of the entry that is being cached, it is not evicted, or null
+	 */
+	protected void evict(K insertedKey) {
+		
+		if (this.weight <= this.maxWeight) return;
+		
+		List<Map.Entry<K, V>> evicted = new ArrayList<>();
+		Iterator<Map.Entry<K, V>> iterator = this.entries.entrySet().iterator();
+		while (this.weight > this.maxWeight && iterator.hasNext()) {
+			Map.Entry<K, V> entry = iterator.next();
+			if (this.pins.containsKey(entry.getKey()) || entry.getKey().equals(insertedKey)) continue;
+			iterator.remove();
+			this.weight -= this.weights.remove(entry.getKey());
+			this.evictions++;
+			evicted.add(entry);
+		}
+		
+		// the listener is called after the iteration, so that it can access the cache
+		for (Map.Entry<K, V> entry : evicted) this.evictionListener.onEvicted(entry.getKey(), entry.getValue());
+	
+	}
+
+}
@@ -0,0 +1,90 @@
+package de.m_marvin.gframe.resources;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tracks which files a loaded resource was built from, like the MTL files of an OBJ model or the included GLSL files of a shader.
+ * Used to find the resources that have to be reloaded if a file changes, see {@link IReloadableLoader}.
+ * Folders can be tracked too, they change if files are added to or removed from them.
+ * The tracker is thread safe.
+ *
+ * @author Marvin Köhler
+ *
+ * @param <R> The type of resource location used
+ */
+public class ResourceDependencies<R> {
+	
+	/* The resources depending on a file */
+	protected final Map<R, Set<R>> dependents = new HashMap<>();
+	/* The files a resource depends on */
+	protected final Map<R, Set<R>> dependencies = new HashMap<>();
+	
+	/**
+	 * Adds the file to the dependencies of the resource.
+	 * @param resource The location of the loaded resource
+	 * @param file The location of the file or folder the resource depends on
+	 */
+	public synchronized void addDependency(R resource, R file) {
+		this.dependencies.computeIfAbsent(resource, r -> new HashSet<>()).add(file);
+		this.dependents.computeIfAbsent(file, f -> new HashSet<>()).add(resource);
+	}
+	
+	/**
+	 * Replaces the dependencies of the resource.
+	 * @param resource The location of the loaded resource
+	 * @param files The locations of the files and folders the resource depends on
+	 */
+	public synchronized void setDependencies(R resource, Collection<R> files) {
+		remove(resource);
+		for (R file : files) addDependency(resource, file);
+	}
+	
+	/**
+	 * Removes all dependencies of the resource, should be called if the resource is unloaded.
+	 * @param resource The location of the resource
+	 */
+	public synchronized void remove(R resource) {
+		Set<R> files = this.dependencies.remove(resource);
+		if (files == null) return;
+		for (R file : files) {
+			Set<R> resources = this.dependents.get(file);
+			resources.remove(resource);
+			if (resources.isEmpty()) this.dependents.remove(file);
+		}
+	}
+	
+	public synchronized void clear() {
+		this.dependencies.clear();
+		this.dependents.clear();
+	}
+	
+	public synchronized boolean hasDependencies(R resource) {
+		return this.dependencies.containsKey(resource);
+	}
+	
+	/**
+	 * Returns a copy of the files the resource depends on.
+	 * @param resource The location of the resource
+	 * @return The locations of the files, empty if the resource is not tracked
+	 */
+	public synchronized Set<R> getDependencies(R resource) {
+		return new HashSet<>(this.dependencies.getOrDefault(resource, Collections.emptySet()));
+	}
+	
+	/**
+	 * Returns the resources that depend on at least one of the files.
+	 * @param files The locations of the changed files
+	 * @return The locations of the resources to reload
+	 */
+	public synchronized Set<R> getDependents(Collection<R> files) {
+		Set<R> resources = new HashSet<>();
+		for (R file : files) resources.addAll(this.dependents.getOrDefault(file, Collections.emptySet()));
+		return resources;
+	}
+
+}
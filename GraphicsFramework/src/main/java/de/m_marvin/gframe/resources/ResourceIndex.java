@@ -0,0 +1,123 @@
+package de.m_marvin.gframe.resources;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the directory listings of a source folder, as a trie of namespaces, folders and their entries.
+ * Every folder is listed only once, on its first query, later queries return the cached entries without accessing the source folder.
+ * The listings are immutable, if files are added or removed the index has to be invalidated, see {@link #invalidate(IResourceProvider)}.
+ *
+ * @author Marvin Köhler
+ *
+ * @param <R> The type of resource location used
+ * @param <FE> The type of source folder used
+ */
+public class ResourceIndex<R extends IResourceProvider<R>, FE extends ISourceFolder> {
+	
+	protected static final String[] EMPTY = new String[0];
+	
+	protected static class Node {
+		protected final Map<String, Node> children = new ConcurrentHashMap<>();
+		protected volatile String[] files;
+		protected volatile String[] folders;
+	}
+	
+	protected final ResourceLoader<R, FE> resourceLoader;
+	protected final FE sourceFolder;
+	
+	protected volatile String[] namespaces;
+	protected final Map<String, Node> namespaceRoots = new ConcurrentHashMap<>();
+	
+	public ResourceIndex(ResourceLoader<R, FE> resourceLoader, FE sourceFolder) {
+		this.resourceLoader = resourceLoader;
+		this.sourceFolder = sourceFolder;
+	}
+	
+	/**
+	 * Returns the namespaces of the source folder, see {@link ISourceFolder#listNamespaces()}.
+	 * @return The cached namespaces
+	 */
+	public String[] listNamespaces() {
+		String[] namespaces = this.namespaces;
+		if (namespaces == null) {
+			namespaces = this.sourceFolder.listNamespaces();
+			if (namespaces == null) namespaces = EMPTY;
+			this.namespaces = namespaces;
+		}
+		return namespaces;
+	}
+	
+	/**
+	 * Returns the names of the files in the folder, see {@link ISourceFolder#listFiles(String)}.
+	 * @param location The location of the folder
+	 * @return The cached file names, the array must not be modified
+	 */
+	public String[] listFiles(R location) {
+		Node node = node(location, true);
+		String[] files = node.files;
+		if (files == null) {
+			files = this.sourceFolder.listFiles(this.resourceLoader.resolveLocation(this.sourceFolder, location));
+			if (files == null) files = EMPTY;
+			node.files = files;
+		}
+		return files;
+	}
+	
+	/**
+	 * Returns the names of the sub-folders in the folder, see {@link ISourceFolder#listFolders(String)}.
+	 * @param location The location of the folder
+	 * @return The cached folder names, the array must not be modified
+	 */
+	public String[] listFolders(R location) {
+		Node node = node(location, true);
+		String[] folders = node.folders;
+		if (folders == null) {
+			folders = this.sourceFolder.listFolders(this.resourceLoader.resolveLocation(this.sourceFolder, location));
+			if (folders == null) folders = EMPTY;
+			node.folders = folders;
+		}
+		return folders;
+	}
+	
+	/**
+	 * Drops all cached listings, including the namespaces.
+	 */
+	public void invalidate() {
+		this.namespaces = null;
+		this.namespaceRoots.clear();
+	}
+	
+	/**
+	 * Drops the cached listings of the folder and all its sub-folders.
+	 * Has to be called for the parent folder if a file or folder is added or removed.
+	 * @param location The location of the folder
+	 */
+	public void invalidate(R location) {
+		Node node = node(location, false);
+		if (node == null) return;
+		node.files = null;
+		node.folders = null;
+		node.children.clear();
+	}
+	
+	protected Node node(R location, boolean create) {
+		
+		String namespace = location.getNamespace();
+		Node node = create ? this.namespaceRoots.computeIfAbsent(namespace == null ? "" : namespace, n -> new Node()) : this.namespaceRoots.get(namespace == null ? "" : namespace);
+		
+		String path = location.getPath();
+		int start = 0;
+		while (node != null && start < path.length()) {
+			int end = start;
+			while (end < path.length() && path.charAt(end) != '/' && path.charAt(end) != '\\') end++;
+			String segment = path.substring(start, end);
+			start = end + 1;
+			if (segment.isEmpty() || segment.equals(".")) continue;
+			node = create ? node.children.computeIfAbsent(segment, s -> new Node()) : node.children.get(segment);
+		}
+		return node;
+	
+	}
+
+}
@@ -5,9 +5,9 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Array;
-import java.util.stream.Stream;
-
-import de.m_marvin.gframe.utility.Utility;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Provides different methods to access files on the disc.
@@ -23,6 +23,39 @@ public class ResourceLoader<R extends IResourceProvider<R>, FE extends ISourceFo
 	
 	public static String runFolder = null;
 	
+	protected Map<FE, ResourceIndex<R, FE>> indices = new ConcurrentHashMap<>();
+	
+	/**
+	 * Returns the index caching the directory listings of the source folder.
+	 * All listing methods of this loader use the index, so every folder is only listed once.
+	 * 
+	 * @param sourceFolder The resource folder
+	 * @return The index of the resource folder
+	 */
+	public ResourceIndex<R, FE> getIndex(FE sourceFolder) {
+		return this.indices.computeIfAbsent(sourceFolder, folder -> new ResourceIndex<>(this, folder));
+	}
+	
+	/**
+	 * Drops the cached listings of all resource folders.
+	 * Has to be called if files are added to or removed from the resource folders.
+	 */
+	public void invalidateIndices() {
+		this.indices.values().forEach(ResourceIndex::invalidate);
+	}
+	
+	/**
+	 * Drops the cached listings of the given folder and its sub-folders.
+	 * Has to be called for the parent folder if a file or folder is added or removed.
+	 * 
+	 * @param sourceFolder The resource folder in which the location points
+	 * @param resourceProvider The resource location to the folder
+	 */
+	public void invalidateIndex(FE sourceFolder, R resourceProvider) {
+		ResourceIndex<R, FE> index = this.indices.get(sourceFolder);
+		if (index != null) index.invalidate(resourceProvider);
+	}
+	
 	/**
 	 * Returns the path (relative to the point defined by the ISourceFolder implementation) to the given source folder without an namespace.
 	 * @implNote Passes an empty string as namespace to the {@link ISourceFolder#getPath(ResourceLoader, String)} method and 
@@ -69,6 +102,29 @@ public class ResourceLoader<R extends IResourceProvider<R>, FE extends ISourceFo
 		return sourceFolder.getAsStream(resolveLocation(sourceFolder, resourceProvider));
 	}
 	
+	/**
+	 * Returns the content of the given resource as buffer, see {@link ISourceFolder#getAsByteBuffer(String)}.
+	 * 
+	 * @param sourceFolder The resource folder in which the location points
+	 * @param resourceProvider The resource location to get the content of
+	 * @return A buffer containing the content of the given resource, must not be modified
+	 * @throws FileNotFoundException if the resource does not exist
+	 */
+	public ByteBuffer getAsByteBuffer(FE sourceFolder, R resourceProvider) throws IOException {
+		return sourceFolder.getAsByteBuffer(resolveLocation(sourceFolder, resourceProvider));
+	}
+	
+	/**
+	 * Returns the time of the last modification of the given resource.
+	 * 
+	 * @param sourceFolder The resource folder in which the location points
+	 * @param resourceProvider The resource location
+	 * @return The modification time in milliseconds since the epoch or -1 if unknown
+	 */
+	public long lastModified(FE sourceFolder, R resourceProvider) {
+		return sourceFolder.lastModified(resolveLocation(sourceFolder, resourceProvider));
+	}
+	
 	/**
 	 * Lists all files in the given folder
 	 * 
@@ -77,7 +133,7 @@ public class ResourceLoader<R extends IResourceProvider<R>, FE extends ISourceFo
 	 * @return A array of file names in the folder
 	 */
 	public String[] listFilesIn(FE sourceFolder, R resourceProvider) {
-		return sourceFolder.listFiles(resolveLocation(sourceFolder, resourceProvider));
+		return getIndex(sourceFolder).listFiles(resourceProvider).clone();
 	}
 
 	/**
@@ -88,7 +144,7 @@ public class ResourceLoader<R extends IResourceProvider<R>, FE extends ISourceFo
 	 * @return A array of folder names in the folder
 	 */
 	public String[] listFoldersIn(FE sourceFolder, R resourceProvider) {
-		return sourceFolder.listFolders(resolveLocation(sourceFolder, resourceProvider));
+		return getIndex(sourceFolder).listFolders(resourceProvider).clone();
 	}
 	
 	/**
@@ -98,16 +154,8 @@ public class ResourceLoader<R extends IResourceProvider<R>, FE extends ISourceFo
 	 * @param resourceProvider The resource location to the folder, namespace is ignored
 	 * @return A array of all files in the given location in all namespaces
 	 */
-	@SuppressWarnings("unchecked")
 	public R[] listFilesInAllNamespaces(FE sourceFolder, R resourceProvider) {
-		return Stream.of(sourceFolder.listNamespaces())
-				.map(resourceProvider::withNamespace)
-				.map(loc -> Stream
-						.of(sourceFolder.listFiles(resolveLocation(sourceFolder, loc)))
-						.map(loc::locationOfFile)
-						.toArray(i -> (R[]) Array.newInstance(IResourceProvider.class, i))
-				)
-				.reduce((a, b) -> Utility.concatArr(a, b, IResourceProvider.class)).orElseGet(() -> (R[]) new Object[0]);
+		return listInAllNamespaces(sourceFolder, resourceProvider, false);
 	}
 	
 	/**
@@ -117,16 +165,33 @@ public class ResourceLoader<R extends IResourceProvider<R>, FE extends ISourceFo
 	 * @param resourceProvider The resource location to the folder, namespace is ignored
 	 * @return A array of all sub-folders in the given location in all namespaces
 	 */
-	@SuppressWarnings("unchecked")
 	public R[] listFoldersInAllNamespaces(FE sourceFolder, R resourceProvider) {
-		return Stream.of(sourceFolder.listNamespaces())
-				.map(resourceProvider::withNamespace)
-				.map(loc -> Stream
-						.of(sourceFolder.listFolders(resolveLocation(sourceFolder, loc)))
-						.map(loc::locationOfFile)
-						.toArray(i -> (R[]) Array.newInstance(IResourceProvider.class, i))
-				)
-				.reduce((a, b) -> Utility.concatArr(a, b, IResourceProvider.class)).get();
+		return listInAllNamespaces(sourceFolder, resourceProvider, true);
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected R[] listInAllNamespaces(FE sourceFolder, R resourceProvider, boolean folders) {
+		
+		ResourceIndex<R, FE> index = getIndex(sourceFolder);
+		String[] namespaces = index.listNamespaces();
+		
+		R[] locations = (R[]) Array.newInstance(resourceProvider.getClass(), namespaces.length);
+		String[][] names = new String[namespaces.length][];
+		int count = 0;
+		for (int i = 0; i < namespaces.length; i++) {
+			locations[i] = resourceProvider.withNamespace(namespaces[i]);
+			names[i] = folders ? index.listFolders(locations[i]) : index.listFiles(locations[i]);
+			count += names[i].length;
+		}
+		
+		// typed by the location implementation, so that the array can be assigned to arrays of the implementation type
+		R[] entries = (R[]) Array.newInstance(resourceProvider.getClass(), count);
+		int entry = 0;
+		for (int i = 0; i < namespaces.length; i++) {
+			for (String name : names[i]) entries[entry++] = locations[i].locationOfFile(name);
+		}
+		return entries;
+	
 	}
 	
 	/**
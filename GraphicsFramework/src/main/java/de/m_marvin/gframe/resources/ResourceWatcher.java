@@ -0,0 +1,262 @@
+package de.m_marvin.gframe.resources;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import de.m_marvin.simplelogging.printing.LogType;
+import de.m_marvin.simplelogging.printing.Logger;
+
+/**
+ * Watches the directories of source folders and reloads the resources affected by changed files, see {@link IReloadableLoader}.
+ * The file system events are collected on a background thread and mapped back to resource locations.
+ * They are processed by {@link #processChanges()}, which has to be called regularly on the render thread, since GPU objects are replaced while reloading.
+ * Changes are processed once no further events occurred for the settle time, since editors often write files in multiple steps.
+ *
+ * Created and deleted files invalidate the listings of their folders in the {@link ResourceIndex} and are reported as change of the folder too.
+ * Source folders that are not backed by directories, like packed resources, are ignored, namespaces created after registering the source folder are not watched.
+ *
+ * @author Marvin Köhler
+ *
+ * @param <R> The type of resource location used
+ * @param <FE> The type of source folder used
+ */
+public class ResourceWatcher<R extends IResourceProvider<R>, FE extends ISourceFolder> implements Closeable {
+	
+	public static final long DEFAULT_SETTLE_TIME = 100;
+	
+	protected static record WatchedDirectory<FE>(FE sourceFolder, String namespace, Path namespaceRoot, Path directory) {}
+	protected static record Change<R, FE>(FE sourceFolder, R location, boolean listingChanged) {}
+	
+	protected final ResourceLoader<R, FE> resourceLoader;
+	protected final R rootLocation;
+	protected final WatchService watchService;
+	protected final Thread watchThread;
+	
+	protected final Map<FE, List<IReloadableLoader<R>>> loaders = new ConcurrentHashMap<>();
+	protected final Map<WatchKey, List<WatchedDirectory<FE>>> watchedDirectories = new HashMap<>();
+	protected final Set<Change<R, FE>> pendingChanges = new LinkedHashSet<>();
+	/* Source folders that lost events, their listings are invalidated completely */
+	protected final Set<FE> overflowedFolders = new HashSet<>();
+	protected long lastEventTime;
+	protected long settleTime = DEFAULT_SETTLE_TIME;
+	
+	/**
+	 * Creates a new watcher and starts its background thread.
+	 *
+	 * @param resourceLoader The resource loader used by the loaders
+	 * @param rootLocation An empty location of the location implementation, used to create the locations of changed files
+	 * @throws IOException If the watch service could not be created
+	 */
+	public ResourceWatcher(ResourceLoader<R, FE> resourceLoader, R rootLocation) throws IOException {
+		this.resourceLoader = resourceLoader;
+		this.rootLocation = rootLocation;
+		this.watchService = FileSystems.getDefault().newWatchService();
+		this.watchThread = new Thread(this::watchLoop, "ResourceWatcher");
+		this.watchThread.setDaemon(true);
+		this.watchThread.start();
+	}
+	
+	/**
+	 * Sets the time that has to pass without further events before changes are processed.
+	 * @param settleTime The settle time in milliseconds
+	 */
+	public void setSettleTime(long settleTime) {
+		this.settleTime = settleTime;
+	}
+	
+	public long getSettleTime() {
+		return settleTime;
+	}
+	
+	/**
+	 * Starts watching the directories of all namespaces of the source folder and registers the loaders to reload on changes.
+	 * Can be called multiple times for the same source folder to add more loaders.
+	 *
+	 * @param sourceFolder The source folder to watch
+	 * @param loaders The loaders loading from the source folder
+	 * @throws IOException If an error occurs registering the directories
+	 */
+	@SafeVarargs
+	public final void watch(FE sourceFolder, IReloadableLoader<R>... loaders) throws IOException {
+		
+		boolean registered = this.loaders.containsKey(sourceFolder);
+		// copied into a typed list instead of passing the varargs array on
+		List<IReloadableLoader<R>> added = new ArrayList<>(loaders.length);
+		for (IReloadableLoader<R> loader : loaders) added.add(loader);
+		this.loaders.computeIfAbsent(sourceFolder, folder -> new CopyOnWriteArrayList<>()).addAll(added);
+		if (registered) return;
+		
+		if (this.rootLocation.getNamespace() == null) {
+			watchNamespace(sourceFolder, null);
+		} else {
+			for (String namespace : sourceFolder.listNamespaces()) watchNamespace(sourceFolder, namespace);
+		}
+	
+	}
+	
+	protected void watchNamespace(FE sourceFolder, String namespace) throws IOException {
+		Path namespaceRoot = Path.of(this.resourceLoader.getResourceFolderPath(sourceFolder, namespace));
+		if (!Files.isDirectory(namespaceRoot)) return;
+		synchronized (this) {
+			registerTree(new WatchedDirectory<>(sourceFolder, namespace, namespaceRoot, namespaceRoot), false);
+		}
+	}
+	
+	/**
+	 * Registers the directory and all its sub-directories.
+	 * @param directory The root of the directory tree
+	 * @param reportContent If the content of the tree should be reported as created, used for directories created while watching
+	 */
+	protected void registerTree(WatchedDirectory<FE> directory, boolean reportContent) throws IOException {
+		
+		List<Path> paths;
+		try (Stream<Path> stream = Files.walk(directory.directory())) {
+			paths = stream.toList();
+		}
+		
+		for (Path path : paths) {
+			if (Files.isDirectory(path)) {
+				WatchKey key = path.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+				List<WatchedDirectory<FE>> directories = this.watchedDirectories.computeIfAbsent(key, k -> new ArrayList<>());
+				WatchedDirectory<FE> watched = new WatchedDirectory<>(directory.sourceFolder(), directory.namespace(), directory.namespaceRoot(), path);
+				if (!directories.contains(watched)) directories.add(watched);
+				if (reportContent && !path.equals(directory.directory())) this.pendingChanges.add(new Change<>(directory.sourceFolder(), locationOf(directory, path), true));
+			} else if (reportContent) {
+				this.pendingChanges.add(new Change<>(directory.sourceFolder(), locationOf(directory, path), false));
+			}
+		}
+	
+	}
+	
+	protected R locationOf(WatchedDirectory<FE> directory, Path path) {
+		String relativePath = directory.namespaceRoot().relativize(path).toString();
+		R namespaceRoot = this.rootLocation.withNamespace(directory.namespace());
+		return relativePath.isEmpty() ? namespaceRoot : namespaceRoot.locationOfFile(relativePath);
+	}
+	
+	protected void watchLoop() {
+		try {
+			while (true) {
+				WatchKey key = this.watchService.take();
+				synchronized (this) {
+					handleEvents(key);
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// the watcher was closed
+		}
+	}
+	
+	protected void handleEvents(WatchKey key) {
+		
+		List<WatchedDirectory<FE>> directories = this.watchedDirectories.getOrDefault(key, Collections.emptyList());
+		
+		for (WatchEvent<?> event : key.pollEvents()) {
+			for (WatchedDirectory<FE> directory : directories) {
+				
+				if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+					this.overflowedFolders.add(directory.sourceFolder());
+					continue;
+				}
+				
+				Path path = directory.directory().resolve((Path) event.context());
+				if (event.kind() == StandardWatchEventKinds.ENTRY_MODIFY) {
+					// modifications of directories are reported as created and deleted entries
+					if (!Files.isDirectory(path)) this.pendingChanges.add(new Change<>(directory.sourceFolder(), locationOf(directory, path), false));
+					continue;
+				}
+				
+				this.pendingChanges.add(new Change<>(directory.sourceFolder(), locationOf(directory, path), false));
+				this.pendingChanges.add(new Change<>(directory.sourceFolder(), locationOf(directory, directory.directory()), true));
+				if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+					try {
+						registerTree(new WatchedDirectory<>(directory.sourceFolder(), directory.namespace(), directory.namespaceRoot(), path), true);
+					} catch (IOException e) {
+						Logger.defaultLogger().logWarn("Failed to watch created directory " + path + "!");
+						Logger.defaultLogger().printException(LogType.WARN, e);
+					}
+				}
+			
+			}
+		}
+		
+		this.lastEventTime = System.nanoTime();
+		if (!key.reset()) this.watchedDirectories.remove(key);
+	
+	}
+	
+	/**
+	 * Reloads the resources affected by the changes collected since the last call.
+	 * Does nothing if events occurred within the settle time, has to be called on the render thread.
+	 *
+	 * @return The locations of the reloaded resources
+	 */
+	public Set<R> processChanges() {
+		
+		List<Change<R, FE>> changes;
+		Set<FE> overflowed;
+		synchronized (this) {
+			if (this.pendingChanges.isEmpty() && this.overflowedFolders.isEmpty()) return Collections.emptySet();
+			if (System.nanoTime() - this.lastEventTime < TimeUnit.MILLISECONDS.toNanos(this.settleTime)) return Collections.emptySet();
+			changes = new ArrayList<>(this.pendingChanges);
+			overflowed = new HashSet<>(this.overflowedFolders);
+			this.pendingChanges.clear();
+			this.overflowedFolders.clear();
+		}
+		
+		Set<R> reloaded = new HashSet<>();
+		for (Map.Entry<FE, List<IReloadableLoader<R>>> entry : this.loaders.entrySet()) {
+			
+			FE sourceFolder = entry.getKey();
+			if (overflowed.contains(sourceFolder)) {
+				Logger.defaultLogger().logWarn("Lost file events for " + sourceFolder + ", some changes might not be reloaded!");
+				this.resourceLoader.getIndex(sourceFolder).invalidate();
+			}
+			
+			Set<R> changedFiles = new HashSet<>();
+			for (Change<R, FE> change : changes) {
+				if (!change.sourceFolder().equals(sourceFolder)) continue;
+				if (change.listingChanged()) this.resourceLoader.invalidateIndex(sourceFolder, change.location());
+				changedFiles.add(change.location());
+			}
+			if (changedFiles.isEmpty()) continue;
+			
+			for (IReloadableLoader<R> loader : entry.getValue()) reloaded.addAll(loader.reloadChanged(changedFiles));
+		
+		}
+		
+		if (!reloaded.isEmpty()) Logger.defaultLogger().logInfo("Reloaded " + reloaded.size() + " changed resources");
+		return reloaded;
+	
+	}
+	
+	/**
+	 * Stops watching, pending changes are discarded.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.watchService.close();
+		this.watchThread.interrupt();
+	}
+
+}
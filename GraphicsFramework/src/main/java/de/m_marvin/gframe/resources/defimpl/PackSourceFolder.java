@@ -0,0 +1,85 @@
+package de.m_marvin.gframe.resources.defimpl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.stream.Stream;
+
+import de.m_marvin.gframe.resources.ISourceFolder;
+import de.m_marvin.gframe.resources.ResourceLoader;
+
+/**
+ * A source folder reading its resources from a {@link ResourcePack}.
+ * The pack contains the namespaces as top level folders, the source folder is a folder inside each namespace, like the folders of a resource directory tree.
+ * Multiple source folders can share the same pack, for example "shaders", "textures" and "models".
+ *
+ * @author Marvin Köhler
+ */
+public class PackSourceFolder implements ISourceFolder {
+	
+	protected final ResourcePack pack;
+	protected final String folder;
+	
+	/**
+	 * Creates a new source folder for a folder in the pack.
+	 *
+	 * @param pack The resource pack
+	 * @param folder The folder inside the namespace folders, or an empty string for the namespace folders itself
+	 */
+	public PackSourceFolder(ResourcePack pack, String folder) {
+		this.pack = pack;
+		this.folder = ResourcePack.normalizePath(folder);
+	}
+	
+	public ResourcePack getPack() {
+		return pack;
+	}
+	
+	@Override
+	public String getPath(ResourceLoader<?, ?> loader, String namespace) {
+		if (namespace == null) return this.folder;
+		return this.folder.isEmpty() ? namespace : namespace + "/" + this.folder;
+	}
+	
+	@Override
+	public InputStream getAsStream(String path) throws IOException {
+		return this.pack.getAsStream(path);
+	}
+	
+	/**
+	 * Returns the resource as read-only slice of the mapped pack file, without copying it.
+	 */
+	@Override
+	public ByteBuffer getAsByteBuffer(String path) throws IOException {
+		return this.pack.getAsByteBuffer(path);
+	}
+	
+	@Override
+	public long lastModified(String path) {
+		return this.pack.lastModified(path);
+	}
+	
+	@Override
+	public String[] listFiles(String path) {
+		return this.pack.listFiles(path);
+	}
+	
+	@Override
+	public String[] listFolders(String path) {
+		return this.pack.listFolders(path);
+	}
+	
+	/**
+	 * Lists the top level folders of the pack that contain this source folder.
+	 */
+	@Override
+	public String[] listNamespaces() {
+		return Stream.of(this.pack.listFolders("")).filter(namespace -> this.pack.isFolder(getPath(null, namespace))).toArray(String[]::new);
+	}
+	
+	@Override
+	public String toString() {
+		return "PackSourceFolder{" + this.pack.getPackFile() + ":" + this.folder + "}";
+	}
+
+}
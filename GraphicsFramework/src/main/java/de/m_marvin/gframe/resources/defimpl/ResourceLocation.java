@@ -2,8 +2,12 @@
 package de.m_marvin.gframe.resources.defimpl;
 
 import java.io.File;
+import java.lang.ref.WeakReference;
+import java.util.Map;
 import java.util.Objects;
+import java.util.WeakHashMap;
 
+import de.m_marvin.gframe.resources.FileUtility;
 import de.m_marvin.gframe.resources.IResourceProvider;
 
 /**
@@ -11,13 +15,24 @@ import de.m_marvin.gframe.resources.IResourceProvider;
  * Consists of a namespace and a path.
  * The resulting path of a namespace path combination is ".../namespace/path" (path is placed inside the namaspace-folder).
  * 
+ * Locations are often used as keys of the caches, so the hash is computed once on creation.
+ * Locations created with {@link #of(String, String)} or {@link #intern()} are interned,
+ * equal interned locations are the same instance and are compared by identity.
+ * Locations derived from other locations are not interned, so that the loaders do not contend on the pool while resolving files.
+ * 
  * @author Marvin Köhler
  *
  */
 public class ResourceLocation implements IResourceProvider<ResourceLocation> {
 	
+	/* The interned locations, they are dropped once no longer referenced elsewhere */
+	private static final Map<ResourceLocation, WeakReference<ResourceLocation>> INTERNED = new WeakHashMap<>();
+	
 	private final String namespace;
 	private final String path;
+	private final int hash;
+	/* Not volatile, it is only ever set to true, a stale false makes intern() take the lock and equals() compare the strings */
+	private boolean interned;
 	
 	/**
 	 * Creates a new ResourceLocation from a namespace and a path string.
@@ -26,7 +41,8 @@ public class ResourceLocation implements IResourceProvider<ResourceLocation> {
 	 */
 	public ResourceLocation(String namespace, String path) {
 		this.namespace = namespace;
-		this.path = new File(path).toString();
+		this.path = FileUtility.normalizePath(path);
+		this.hash = 31 * Objects.hashCode(this.namespace) + this.path.hashCode();
 	}
 	
 	/**
@@ -38,7 +54,34 @@ public class ResourceLocation implements IResourceProvider<ResourceLocation> {
 		String[] parts = namespaceAndPath.split(":");
 		if (parts.length != 2) throw new IllegalArgumentException("The namespace and path must be seperated by one ':' to be a valid format!");
 		this.namespace = parts[0];
-		this.path = new File(parts[1]).toString();
+		this.path = FileUtility.normalizePath(parts[1]);
+		this.hash = 31 * Objects.hashCode(this.namespace) + this.path.hashCode();
+	}
+	
+	/**
+	 * Returns the interned ResourceLocation of the namespace and path.
+	 * @param namespace The namespace string
+	 * @param path The path string
+	 * @return The interned location
+	 */
+	public static ResourceLocation of(String namespace, String path) {
+		return new ResourceLocation(namespace, path).intern();
+	}
+	
+	/**
+	 * Returns the interned location equal to this one, this location is interned if there is none yet.
+	 * @return The interned location
+	 */
+	public ResourceLocation intern() {
+		if (this.interned) return this;
+		synchronized (INTERNED) {
+			WeakReference<ResourceLocation> reference = INTERNED.get(this);
+			ResourceLocation location = reference != null ? reference.get() : null;
+			if (location != null) return location;
+			this.interned = true;
+			INTERNED.put(this, new WeakReference<>(this));
+			return this;
+		}
 	}
 	
 	@Override
@@ -60,6 +103,7 @@ public class ResourceLocation implements IResourceProvider<ResourceLocation> {
 	@Override
 	public ResourceLocation withNamespace(String namespace) {
 		if (namespace == null) return null;
+		if (namespace.equals(this.namespace)) return this;
 		return new ResourceLocation(namespace, this.path);
 	}
 	
@@ -71,13 +115,12 @@ public class ResourceLocation implements IResourceProvider<ResourceLocation> {
 
 	@Override
 	public ResourceLocation getParent() {
-		String parent = new File(this.path).getParent();
-		return new ResourceLocation(this.namespace, parent == null ? "" : parent);
+		return new ResourceLocation(this.namespace, FileUtility.parentPath(this.path));
 	}
 	
 	@Override
 	public int hashCode() {
-		return Objects.hash(namespace, path);
+		return this.hash;
 	}
 	
 	@Override
@@ -89,6 +132,11 @@ public class ResourceLocation implements IResourceProvider<ResourceLocation> {
 		if (getClass() != obj.getClass())
 			return false;
 		ResourceLocation other = (ResourceLocation) obj;
+		if (this.hash != other.hash)
+			return false;
+		// equal interned locations are the same instance
+		if (this.interned && other.interned)
+			return false;
 		return Objects.equals(namespace, other.namespace) && Objects.equals(path, other.path);
 	}
 	
@@ -0,0 +1,184 @@
+package de.m_marvin.gframe.resources.defimpl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.m_marvin.gframe.resources.ByteBufferInputStream;
+
+/**
+ * A pack file containing a complete resource directory tree, see {@link ResourcePacker} for creating packs.
+ * The pack file is memory mapped once, the resources are served as slices of the mapped region without copying.
+ * The index of all entries is kept in memory, so lookups and directory listings do not access the file.
+ *
+ * The pack format is uncompressed, all values are little endian:
+ * <pre>
+ * int magic "GPAK", int version, int entry count, int index size
+ * per entry: short path length, UTF-8 path (separated by '/'), long data offset, long size, long last modified
+ * the data of the entries, each aligned to {@link #ALIGNMENT} bytes
+ * </pre>
+ *
+ * @author Marvin Köhler
+ */
+public class ResourcePack implements Closeable {
+	
+	public static final String PACK_FILE_FORMAT = "gpak";
+	public static final int MAGIC = 0x4B415047; // "GPAK"
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 16;
+	public static final int ALIGNMENT = 16;
+	
+	public static record Entry(String path, long offset, int size, long lastModified) {}
+	
+	protected final File packFile;
+	protected final FileChannel channel;
+	protected final MappedByteBuffer data;
+	protected final Map<String, Entry> entries = new HashMap<>();
+	protected final Map<String, List<String>> folderFiles = new HashMap<>();
+	protected final Map<String, Set<String>> folderFolders = new HashMap<>();
+	
+	/**
+	 * Opens and maps the pack file and reads its index.
+	 *
+	 * @param packFile The pack file
+	 * @throws IOException If an error occurs reading the file or the file is not a valid pack
+	 */
+	public ResourcePack(File packFile) throws IOException {
+		
+		this.packFile = packFile;
+		this.channel = FileChannel.open(packFile.toPath(), StandardOpenOption.READ);
+		
+		try {
+			
+			if (this.channel.size() > Integer.MAX_VALUE) throw new IOException("Pack files larger than 2GB are not supported: " + packFile);
+			this.data = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.channel.size());
+			this.data.order(ByteOrder.LITTLE_ENDIAN);
+			
+			if (this.data.remaining() < HEADER_SIZE || this.data.getInt(0) != MAGIC) throw new IOException("Not a resource pack: " + packFile);
+			if (this.data.getInt(4) != VERSION) throw new IOException("Unsupported resource pack version " + this.data.getInt(4) + ": " + packFile);
+			int entryCount = this.data.getInt(8);
+			
+			ByteBuffer index = this.data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+			index.position(HEADER_SIZE);
+			for (int i = 0; i < entryCount; i++) {
+				byte[] pathBytes = new byte[Short.toUnsignedInt(index.getShort())];
+				index.get(pathBytes);
+				Entry entry = new Entry(new String(pathBytes, StandardCharsets.UTF_8), index.getLong(), (int) index.getLong(), index.getLong());
+				if (entry.offset() < 0 || entry.offset() + entry.size() > this.data.capacity()) throw new IOException("Corrupted resource pack entry '" + entry.path() + "': " + packFile);
+				this.entries.put(entry.path(), entry);
+				addToFolders(entry.path());
+			}
+		
+		} catch (IOException | RuntimeException e) {
+			this.channel.close();
+			throw e instanceof IOException ? (IOException) e : new IOException("Corrupted resource pack: " + packFile, e);
+		}
+	
+	}
+	
+	protected void addToFolders(String path) {
+		int separator = path.lastIndexOf('/');
+		String folder = separator == -1 ? "" : path.substring(0, separator);
+		this.folderFiles.computeIfAbsent(folder, f -> new ArrayList<>()).add(path.substring(separator + 1));
+		while (separator != -1) {
+			String name = folder.substring(folder.lastIndexOf('/') + 1);
+			separator = folder.lastIndexOf('/');
+			folder = separator == -1 ? "" : folder.substring(0, separator);
+			if (!this.folderFolders.computeIfAbsent(folder, f -> new LinkedHashSet<>()).add(name)) break;
+		}
+	}
+	
+	/**
+	 * Converts a path to the form used in the pack, separated by '/' and without leading separators.
+	 */
+	public static String normalizePath(String path) {
+		String normalized = path.replace('\\', '/');
+		while (normalized.startsWith("./")) normalized = normalized.substring(2);
+		while (normalized.startsWith("/")) normalized = normalized.substring(1);
+		while (normalized.endsWith("/")) normalized = normalized.substring(0, normalized.length() - 1);
+		return normalized;
+	}
+	
+	public File getPackFile() {
+		return packFile;
+	}
+	
+	public Entry getEntry(String path) {
+		return this.entries.get(normalizePath(path));
+	}
+	
+	public boolean exists(String path) {
+		return getEntry(path) != null;
+	}
+	
+	/**
+	 * Returns the content of the resource as read-only slice of the mapped pack file.
+	 *
+	 * @param path The path of the resource in the pack
+	 * @return A read-only buffer containing the content of the resource
+	 * @throws FileNotFoundException If the resource does not exist in the pack
+	 */
+	public ByteBuffer getAsByteBuffer(String path) throws FileNotFoundException {
+		Entry entry = getEntry(path);
+		if (entry == null) throw new FileNotFoundException("Resource '" + path + "' not found in pack " + this.packFile);
+		return this.data.slice((int) entry.offset(), entry.size()).asReadOnlyBuffer();
+	}
+	
+	/**
+	 * Opens an InputStream reading the resource from the mapped pack file.
+	 *
+	 * @param path The path of the resource in the pack
+	 * @return An InputStream of the resource
+	 * @throws FileNotFoundException If the resource does not exist in the pack
+	 */
+	public InputStream getAsStream(String path) throws FileNotFoundException {
+		return new ByteBufferInputStream(getAsByteBuffer(path));
+	}
+	
+	/**
+	 * Returns the modification time the resource had when the pack was built.
+	 * @param path The path of the resource in the pack
+	 * @return The modification time or -1 if the resource does not exist
+	 */
+	public long lastModified(String path) {
+		Entry entry = getEntry(path);
+		return entry == null ? -1 : entry.lastModified();
+	}
+	
+	public String[] listFiles(String path) {
+		return this.folderFiles.getOrDefault(normalizePath(path), Collections.emptyList()).toArray(String[]::new);
+	}
+	
+	public String[] listFolders(String path) {
+		return this.folderFolders.getOrDefault(normalizePath(path), Collections.emptySet()).toArray(String[]::new);
+	}
+	
+	public boolean isFolder(String path) {
+		String folder = normalizePath(path);
+		return this.folderFiles.containsKey(folder) || this.folderFolders.containsKey(folder);
+	}
+	
+	/**
+	 * Closes the file channel, buffers returned by the pack stay valid until they are garbage collected.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+}
@@ -0,0 +1,112 @@
+package de.m_marvin.gframe.resources.defimpl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Builds {@link ResourcePack} files from resource directory trees.
+ * Can be used from the command line: <code>ResourcePacker &lt;resource folder&gt; &lt;pack file&gt;</code>
+ *
+ * @author Marvin Köhler
+ */
+public class ResourcePacker {
+	
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: ResourcePacker <resource folder> <pack file>");
+			System.exit(1);
+		}
+		int entryCount = pack(new File(args[0]), new File(args[1]));
+		System.out.println("Packed " + entryCount + " files into " + args[1]);
+	}
+	
+	/**
+	 * Packs all files in the folder and its sub-folders into the pack file, with their paths relative to the folder.
+	 * The entries are sorted by their path, so the same tree always results in the same pack file.
+	 *
+	 * @param resourceFolder The root folder of the resources
+	 * @param packFile The pack file to write, replaced if it already exists
+	 * @return The number of packed files
+	 * @throws IOException If an error occurs reading the resources or writing the pack
+	 */
+	public static int pack(File resourceFolder, File packFile) throws IOException {
+		
+		Path root = resourceFolder.toPath();
+		if (!Files.isDirectory(root)) throw new IOException("Not a folder: " + resourceFolder);
+		
+		// compared as absolute paths, since the folder and the pack file can be given relative to different directories
+		Path packPath = packFile.toPath().toAbsolutePath().normalize();
+		List<Path> files;
+		try (Stream<Path> stream = Files.walk(root)) {
+			files = stream.filter(Files::isRegularFile).filter(path -> !path.toAbsolutePath().normalize().equals(packPath)).sorted().toList();
+		}
+		
+		List<byte[]> paths = new ArrayList<>(files.size());
+		int indexSize = 0;
+		for (Path file : files) {
+			byte[] path = ResourcePack.normalizePath(root.relativize(file).toString()).getBytes(StandardCharsets.UTF_8);
+			if (path.length > 0xFFFF) throw new IOException("Path too long: " + file);
+			paths.add(path);
+			indexSize += 2 + path.length + 24;
+		}
+		
+		ByteBuffer index = ByteBuffer.allocate(ResourcePack.HEADER_SIZE + indexSize).order(ByteOrder.LITTLE_ENDIAN);
+		index.putInt(ResourcePack.MAGIC);
+		index.putInt(ResourcePack.VERSION);
+		index.putInt(files.size());
+		index.putInt(indexSize);
+		
+		// written to a temporary file first, so that a failed pack does not replace the existing one
+		File tempFile = new File(packFile.getPath() + ".tmp");
+		if (packFile.getAbsoluteFile().getParentFile() != null) packFile.getAbsoluteFile().getParentFile().mkdirs();
+		try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			
+			// the files are copied first and the index is written afterwards, so that it records the copied lengths
+			channel.position(align(index.capacity()));
+			for (int i = 0; i < files.size(); i++) {
+				long position = align(channel.position());
+				channel.position(position);
+				long lastModified = Files.getLastModifiedTime(files.get(i)).toMillis();
+				long size = 0;
+				try (FileChannel input = FileChannel.open(files.get(i), StandardOpenOption.READ)) {
+					long expectedSize = input.size();
+					while (size < expectedSize) {
+						long transferred = input.transferTo(size, expectedSize - size, channel);
+						if (transferred == 0) throw new IOException("File changed while packing: " + files.get(i));
+						size += transferred;
+					}
+				}
+				index.putShort((short) paths.get(i).length);
+				index.put(paths.get(i));
+				index.putLong(position);
+				index.putLong(size);
+				index.putLong(lastModified);
+			}
+			if (channel.position() > Integer.MAX_VALUE) throw new IOException("Pack files larger than 2GB are not supported");
+			
+			index.flip();
+			while (index.hasRemaining()) channel.write(index, index.position());
+		
+		}
+		Files.move(tempFile.toPath(), packFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		
+		return files.size();
+	
+	}
+	
+	protected static long align(long offset) {
+		return (offset + ResourcePack.ALIGNMENT - 1) / ResourcePack.ALIGNMENT * ResourcePack.ALIGNMENT;
+	}
+
+}
@@ -2,6 +2,7 @@ package de.m_marvin.gframe.resources.defimpl;
 
 import java.io.File;
 
+import de.m_marvin.gframe.resources.FileUtility;
 import de.m_marvin.gframe.resources.IResourceProvider;
 
 /**
@@ -20,7 +21,7 @@ public class ResourcePath implements IResourceProvider<ResourcePath> {
 	 * @param path The path string
 	 */
 	public ResourcePath(String path) {
-		this.path = new File(path).toString();
+		this.path = FileUtility.normalizePath(path);
 	}
 	
 	/**
@@ -73,8 +74,7 @@ public class ResourcePath implements IResourceProvider<ResourcePath> {
 	
 	@Override
 	public ResourcePath getParent() {
-		String parent = new File(this.path).getParent();
-		return new ResourcePath(parent == null ? "" : parent);
+		return new ResourcePath(FileUtility.parentPath(this.path));
 	}
 	
 	@Override
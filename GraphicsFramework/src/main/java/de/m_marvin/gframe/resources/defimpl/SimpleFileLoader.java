@@ -2,13 +2,28 @@ package de.m_marvin.gframe.resources.defimpl;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import de.m_marvin.gframe.resources.IClearableLoader;
+import de.m_marvin.gframe.resources.IReloadableLoader;
 import de.m_marvin.gframe.resources.IResourceProvider;
 import de.m_marvin.gframe.resources.ISourceFolder;
+import de.m_marvin.gframe.resources.LoadingPipeline;
+import de.m_marvin.gframe.resources.ResourceCache;
+import de.m_marvin.gframe.resources.ResourceDependencies;
 import de.m_marvin.gframe.resources.ResourceLoader;
 import de.m_marvin.simplelogging.printing.LogType;
 import de.m_marvin.simplelogging.printing.Logger;
@@ -17,19 +32,49 @@ import de.m_marvin.simplelogging.printing.Logger;
  * Handles loading of simple files from resources.
  * Intended to be extended.
  * 
+ * The files can be loaded asynchronously, concurrent requests for the same location share one load.
+ * The loaded items are kept in a {@link ResourceCache}, which is unbounded by default.
+ * The {@link #load(IResourceProvider)} implementation therefore has to be thread safe and must not depend on a GL context.
+ * The files each item was loaded from are tracked, so that only the affected items are reloaded if files change, see {@link #reloadChanged(Collection)}.
+ * 
  * @author Marvin Köhler
  *
  * @param <R>
  * @param <FE>
  */
-public abstract class SimpleFileLoader<R extends IResourceProvider<R>, FE extends ISourceFolder, T> implements IClearableLoader {
+public abstract class SimpleFileLoader<R extends IResourceProvider<R>, FE extends ISourceFolder, T> implements IReloadableLoader<R> {
+	
+	/* Threads of the default executor, file loading is mostly I/O bound so more threads than cores are used */
+	public static final int DEFAULT_LOADER_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+	protected static final ExecutorService DEFAULT_EXECUTOR = Executors.newFixedThreadPool(DEFAULT_LOADER_THREADS, new LoaderThreadFactory());
+	
+	/**
+	 * Creates the daemon threads of the default executor, so that pending loads do not keep the application alive.
+	 */
+	protected static class LoaderThreadFactory implements ThreadFactory {
+		protected final AtomicInteger threadCount = new AtomicInteger();
+		
+		@Override
+		public Thread newThread(Runnable task) {
+			Thread thread = new Thread(task, "FileLoader-" + this.threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
 	
 	protected String itemName;
 	protected String fileFormat;
 	protected FE sourceFolder;
 	protected ResourceLoader<R, FE> resourceLoader;
 
-	protected Map<R, T> itemCache = new HashMap<>();
+	protected Executor executor = DEFAULT_EXECUTOR;
+	protected ResourceCache<R, T> itemCache = new ResourceCache<>(Long.MAX_VALUE, this::weigh, (location, item) -> {});
+	/* In-flight loads, removed after the item is cached */
+	protected Map<R, CompletableFuture<T>> loadingItems = new ConcurrentHashMap<>();
+	/* Locations already reported as missing */
+	protected Set<R> missingItems = ConcurrentHashMap.newKeySet();
+	/* The files the items were loaded from, recorded by the load implementations or the item file by default */
+	protected ResourceDependencies<R> dependencies = new ResourceDependencies<>();
 	
 	/**
 	 * Creates a new file loader.
@@ -46,9 +91,95 @@ public abstract class SimpleFileLoader<R extends IResourceProvider<R>, FE extend
 		this.resourceLoader = resourceLoader;
 	}
 	
+	/**
+	 * Returns the executor shared by all loaders that do not set their own executor.
+	 * @return The default executor
+	 */
+	public static Executor getDefaultExecutor() {
+		return DEFAULT_EXECUTOR;
+	}
+	
+	/**
+	 * Sets the executor used for asynchronous loading, the default is a bounded thread pool shared by all loaders.
+	 * @param executor The executor to run the loads on
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+	
+	public Executor getExecutor() {
+		return executor;
+	}
+	
+	/**
+	 * Returns the cache of the loaded items.
+	 * It can be used to limit the cache weight, to pin items that are in use and to query the cache metrics.
+	 * @return The item cache
+	 */
+	public ResourceCache<R, T> getItemCache() {
+		return itemCache;
+	}
+	
+	/**
+	 * Returns the weight of the item used by the item cache, one by default.
+	 * Loaders can override this to limit the cache to a memory size instead of a number of items.
+	 * @param item The item to weigh
+	 * @return The weight of the item
+	 */
+	protected long weigh(T item) {
+		return 1;
+	}
+	
+	public ResourceDependencies<R> getDependencies() {
+		return dependencies;
+	}
+	
 	@Override
 	public void clearCached() {
 		this.itemCache.clear();
+		this.missingItems.clear();
+		this.dependencies.clear();
+	}
+	
+	/**
+	 * Reloads the cached items that depend on one of the changed files.
+	 * The files are loaded in parallel on the executor, the items are replaced in the cache on the calling thread.
+	 * Items that fail to reload stay cached in their previous state.
+	 * 
+	 * @param changedFiles The locations of the changed files
+	 * @return The locations of the reloaded items
+	 */
+	@Override
+	public Set<R> reloadChanged(Collection<R> changedFiles) {
+		
+		Set<R> locations = this.dependencies.getDependents(changedFiles);
+		locations.removeIf(location -> !this.itemCache.containsKey(location));
+		
+		Map<R, CompletableFuture<T>> reloads = new HashMap<>();
+		for (R location : locations) {
+			reloads.put(location, CompletableFuture.supplyAsync(() -> {
+				try {
+					return loadTracked(location);
+				} catch (IOException e) {
+					throw new CompletionException(e);
+				}
+			}, this.executor));
+		}
+		
+		Set<R> reloaded = new HashSet<>();
+		for (Map.Entry<R, CompletableFuture<T>> reload : reloads.entrySet()) {
+			try {
+				T item = reload.getValue().join();
+				if (item == null) continue;
+				this.itemCache.put(reload.getKey(), item);
+				reloaded.add(reload.getKey());
+			} catch (CompletionException e) {
+				Logger.defaultLogger().logWarn("Failed to reload " + this.itemName + " file " + reload.getKey() + ", keeping the loaded one!");
+				Logger.defaultLogger().printException(LogType.WARN, e.getCause());
+			}
+		}
+		return reloaded;
+	
 	}
 	
 	/**
@@ -69,6 +200,7 @@ public abstract class SimpleFileLoader<R extends IResourceProvider<R>, FE extend
 	/**
 	 * Loads all files in the given folder and caches them.
 	 * Non-catch-block version of {@link #loadFilesIn(loadModelsIn)}.
+	 * The files are loaded in parallel on the executor, this method returns after all of them are loaded.
 	 * 
 	 * @param folderLocation The location of the folder
 	 * @param recursive How deep to search in sub-folders
@@ -76,22 +208,56 @@ public abstract class SimpleFileLoader<R extends IResourceProvider<R>, FE extend
 	 */
 	public void loadFilesIn0(R folderLocation, int recursive) throws IOException {
 		
+		List<R> locations = new ArrayList<>();
+		listFilesIn(folderLocation, recursive, locations);
+		
+		List<CompletableFuture<T>> loads = new ArrayList<>(locations.size());
+		for (R location : locations) loads.add(loadFileAsync(location));
+		
+		for (int i = 0; i < loads.size(); i++) {
+			if (loads.get(i).join() == null) {
+				Logger.defaultLogger().logWarn("Failed to load " + this.itemName + " file '" + locations.get(i).nameString() + "'!");
+			}
+		}
+	
+	}
+	
+	/**
+	 * Submits the files in the given folder to the loading pipeline, they are loaded and cached in its decode stage.
+	 * 
+	 * @param pipeline The loading pipeline
+	 * @param folderLocation The location of the folder
+	 * @param recursive How deep to search in sub-folders
+	 */
+	public void loadFilesIn(LoadingPipeline pipeline, R folderLocation, int recursive) {
+		pipeline.discover(this.itemName + " files in " + folderLocation.nameString(), p -> {
+			List<R> locations = new ArrayList<>();
+			listFilesIn(folderLocation, recursive, locations);
+			for (R location : locations) {
+				p.decode(this.itemName + " " + location.nameString(), () -> {
+					T item = loadFileAsync(location, Runnable::run).join();
+					if (item == null) throw new IOException("Failed to load " + this.itemName + " file '" + location.nameString() + "'!");
+					return item;
+				});
+			}
+		});
+	}
+	
+	protected void listFilesIn(R folderLocation, int recursive, List<R> locations) throws IOException {
+		
 		for (R fileLoc : this.resourceLoader.listFilesInAllNamespaces(sourceFolder, folderLocation)) {
 			
 			String filePath = fileLoc.getPath();
 			String fileName = filePath.substring(filePath.lastIndexOf(File.separatorChar) + 1);
 			if (!fileName.endsWith(this.fileFormat)) continue;
 			
-			R locationName = folderLocation.locationOfFile(fileName.substring(0, fileName.lastIndexOf('.')));
-			if (loadFile(locationName) == null) {
-				Logger.defaultLogger().logWarn("Failed to load " + this.itemName + " file '" + fileName + "'!");
-			}
+			locations.add(folderLocation.locationOfFile(fileName.substring(0, fileName.lastIndexOf('.'))));
 			
 		}
 		
 		if (recursive > 0) {
 			for (R folderLoc : this.resourceLoader.listFoldersInAllNamespaces(sourceFolder, folderLocation)) {
-				loadFilesIn0(folderLoc, recursive--);
+				listFilesIn(folderLoc, recursive - 1, locations);
 			}
 		}
 		
@@ -99,48 +265,108 @@ public abstract class SimpleFileLoader<R extends IResourceProvider<R>, FE extend
 
 	/**
 	 * Returns the item cached under the given name.
+	 * If the item is currently loading, this method waits for the load to complete.
 	 * 
 	 * @param location The model name
 	 * @return The item under the given name or null if no item was found
 	 */
 	public T getItem(R location) {
-		if (!this.itemCache.containsKey(location)) {
+		T item = this.itemCache.get(location);
+		if (item != null) return item;
+		CompletableFuture<T> loading = this.loadingItems.get(location);
+		if (loading != null) return loading.join();
+		// the load might have completed in between
+		item = this.itemCache.peek(location);
+		if (item == null && this.missingItems.add(location)) {
 			Logger.defaultLogger().logWarn(this.itemName + " " + location.nameString() + " does not exist!");
-			this.itemCache.put(location, null);
 		}
-		return this.itemCache.get(location);
+		return item;
 	}
 	
 	/**
 	 * Returns a set containing the resource locations of all loaded items.
+	 * Items that are currently loading are included.
 	 * 
 	 * @return A set containing the resource locations of all loaded items
 	 */
 	public Set<R> getCachedItems() {
-		return this.itemCache.keySet();
+		Set<R> locations = this.itemCache.keys();
+		locations.addAll(this.loadingItems.keySet());
+		return locations;
 	}
 	
 	/**
 	 * Loads the model at the given location and stores it in the cache.
+	 * The file is loaded on the calling thread, unless it is already loading on an other thread.
 	 * 
 	 * @param location The location of the item file
-	 * @return The loaded and cached item
+	 * @return The loaded and cached item or null if the item could not be loaded
 	 */
 	public T loadFile(R location) {
-		if (!this.itemCache.containsKey(location)) {
+		return loadFileAsync(location, Runnable::run).join();
+	}
+	
+	/**
+	 * Loads the model at the given location asynchronously and stores it in the cache.
+	 * If the file is already loaded or loading, the existing load is returned.
+	 * 
+	 * @param location The location of the item file
+	 * @return A future completing with the loaded item or null if the item could not be loaded
+	 */
+	public CompletableFuture<T> loadFileAsync(R location) {
+		return loadFileAsync(location, this.executor);
+	}
+	
+	protected CompletableFuture<T> loadFileAsync(R location, Executor executor) {
+		
+		T item = this.itemCache.get(location);
+		if (item != null) return CompletableFuture.completedFuture(item);
+		
+		CompletableFuture<T> created = new CompletableFuture<>();
+		CompletableFuture<T> loading = this.loadingItems.putIfAbsent(location, created);
+		if (loading != null) return loading;
+		
+		executor.execute(() -> {
 			try {
-				T item = load(location);
-				this.itemCache.put(location, item);
-			} catch (IOException e) {
+				// an other load might have completed before this one was registered
+				T loaded = this.itemCache.peek(location);
+				if (loaded == null) {
+					loaded = loadTracked(location);
+					if (loaded != null) this.itemCache.put(location, loaded);
+				}
+				created.complete(loaded);
+			} catch (Exception e) {
 				Logger.defaultLogger().logWarn("Failed to load " + this.itemName + " file " + location);
 				Logger.defaultLogger().printException(LogType.WARN, e);
+				created.complete(null);
+			} finally {
+				this.loadingItems.remove(location, created);
 			}
+		});
+		return created;
+	
+	}
+	
+	/**
+	 * Loads the file by {@link #load(IResourceProvider)} and replaces the dependencies of the item.
+	 * If the load does not record any dependencies, the item file itself is recorded.
+	 * 
+	 * @param location The location of the item file
+	 * @return The loaded item
+	 * @throws IOException If an error occurs accessing the files
+	 */
+	protected T loadTracked(R location) throws IOException {
+		this.dependencies.remove(location);
+		try {
+			return load(location);
+		} finally {
+			if (!this.dependencies.hasDependencies(location)) this.dependencies.addDependency(location, location.append("." + this.fileFormat));
 		}
-		return this.itemCache.get(location);
 	}
 	
 	/**
 	 * Loads but does not cache the file from the resources.
+	 * Implementations can record the files the item is loaded from in {@link #dependencies}.
 	 * 
 	 * @param fileLoc The file location
 	 * @return The loaded item
@@ -199,6 +199,14 @@ public class ShaderInstance {
 			this.type.set(location, value.toFloatArr());
 		}
 		
+		/**
+		 * Type specific setter for the uniform value, like the packed frame matrices of the texture maps.
+		 * @param value The new value, packed in column-major order
+		 */
+		public void setMatrix3f(float[] value) {
+			this.type.set(location, value);
+		}
+		
 		/**
 		 * Type specific setter for the uniform value.
 		 * @param value The new value
@@ -1,13 +1,17 @@
 package de.m_marvin.gframe.shaders;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -15,9 +19,12 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
-import de.m_marvin.gframe.resources.IClearableLoader;
+import de.m_marvin.gframe.resources.IReloadableLoader;
 import de.m_marvin.gframe.resources.IResourceProvider;
 import de.m_marvin.gframe.resources.ISourceFolder;
+import de.m_marvin.gframe.resources.LoadingPipeline;
+import de.m_marvin.gframe.resources.ResourceCache;
+import de.m_marvin.gframe.resources.ResourceDependencies;
 import de.m_marvin.gframe.resources.ResourceLoader;
 import de.m_marvin.gframe.utility.NumberFormat;
 import de.m_marvin.gframe.vertices.VertexFormat;
@@ -32,7 +39,7 @@ import de.m_marvin.simplelogging.printing.Logger;
  * @param <R> The type of the resource locations
  * @param <FE> The implementation of the source folder list
  */
-public class ShaderLoader<R extends IResourceProvider<R>, FE extends ISourceFolder> implements IClearableLoader {
+public class ShaderLoader<R extends IResourceProvider<R>, FE extends ISourceFolder> implements IReloadableLoader<R> {
 	
 	public static final String VERTEX_SHADER_FORMAT = "vsh";
 	public static final String FRAGMENT_SHADER_FORMAT = "fsh";
@@ -41,12 +48,20 @@ public class ShaderLoader<R extends IResourceProvider<R>, FE extends ISourceFold
 	public static final String SHADER_LIB_FORMAT = "glsl";
 	protected static final String INCLUDE_LINE = "#include ";
 
+	public static record ShaderSource(JsonObject json, String vertexShaderSource, String fragmentShaderSource, Optional<String> geometryShaderSource, VertexFormat attributeFormat) {}
+	
 	protected static final Gson GSON = new GsonBuilder().create();
 	
 	protected final FE sourceFolder;
 	protected final ResourceLoader<R, FE> resourceLoader;
-
-	protected Map<R, ShaderInstance> shaderCache = new HashMap<>();
+	
+	protected ResourceCache<R, ShaderInstance> shaderCache = new ResourceCache<>(Long.MAX_VALUE, shader -> 1, (location, shader) -> shader.delete());
+	/* Locations already reported as missing */
+	protected Set<R> missingShaders = new HashSet<>();
+	/* The vertex formats the cached shaders were loaded with, required to reload them */
+	protected Map<R, Optional<VertexFormat>> shaderFormats = new HashMap<>();
+	/* The JSON, GLSL and included library files of the shaders */
+	protected ResourceDependencies<R> dependencies = new ResourceDependencies<>();
 	
 	/**
 	 * Creates a new shader loader.
@@ -59,10 +74,50 @@ public class ShaderLoader<R extends IResourceProvider<R>, FE extends ISourceFold
 		this.resourceLoader = resourceLoader;
 	}
 	
+	/**
+	 * Returns the cache of the loaded shaders.
+	 * It can be used to limit the number of cached shaders, to pin shaders that are in use and to query the cache metrics.
+	 * Evicted shaders are deleted, so the cache should only be modified on the render thread.
+	 * @return The shader cache
+	 */
+	public ResourceCache<R, ShaderInstance> getShaderCache() {
+		return shaderCache;
+	}
+	
+	public ResourceDependencies<R> getDependencies() {
+		return dependencies;
+	}
+	
 	@Override
 	public void clearCached() {
-		this.shaderCache.values().forEach(s -> { if (s != null) s.delete(); });
 		this.shaderCache.clear();
+		this.missingShaders.clear();
+		this.shaderFormats.clear();
+		this.dependencies.clear();
+	}
+	
+	/**
+	 * Reloads the cached shaders that depend on one of the changed files, including the shaders that include a changed library.
+	 * The new shader instance replaces the cached one and the previous one is deleted, shaders that fail to compile keep their previous instance.
+	 * 
+	 * @param changedFiles The locations of the changed files
+	 * @return The locations of the reloaded shaders
+	 */
+	@Override
+	public Set<R> reloadChanged(Collection<R> changedFiles) {
+		Set<R> reloaded = new HashSet<>();
+		for (R shaderLocation : this.dependencies.getDependents(changedFiles)) {
+			if (!this.shaderCache.containsKey(shaderLocation)) continue;
+			try {
+				ShaderInstance shader = load(shaderLocation, this.shaderFormats.getOrDefault(shaderLocation, Optional.empty()));
+				this.shaderCache.put(shaderLocation, shader);
+				reloaded.add(shaderLocation);
+			} catch (IOException e) {
+				Logger.defaultLogger().logWarn("Failed to reload shader " + shaderLocation.nameString() + ", keeping the loaded one!");
+				Logger.defaultLogger().printException(LogType.WARN, e);
+			}
+		}
+		return reloaded;
 	}
 	
 	/**
@@ -89,20 +144,50 @@ public class ShaderLoader<R extends IResourceProvider<R>, FE extends ISourceFold
 	 */
 	public void loadShadersIn0(R shaderFolderLocation, int recursive) throws IOException {
 		
+		List<R> locations = new ArrayList<>();
+		listShadersIn(shaderFolderLocation, recursive, locations);
+		for (R location : locations) loadShader(location, Optional.empty());
+	
+	}
+	
+	/**
+	 * Submits the shaders in the given folder to the loading pipeline.
+	 * The sources are read in its read stage, the shaders are created and cached in its upload stage.
+	 * 
+	 * @param pipeline The loading pipeline
+	 * @param shaderFolderLocation The location of the folder
+	 * @param recursive How deep to search in sub-folders
+	 */
+	public void loadShadersIn(LoadingPipeline pipeline, R shaderFolderLocation, int recursive) {
+		pipeline.discover("shaders in " + shaderFolderLocation.nameString(), p -> {
+			List<R> locations = new ArrayList<>();
+			listShadersIn(shaderFolderLocation, recursive, locations);
+			for (R location : locations) {
+				if (this.shaderCache.containsKey(location)) continue;
+				CompletableFuture<ShaderSource> source = p.read("shader " + location.nameString(), () -> readShader(location, Optional.empty()));
+				p.upload("shader " + location.nameString(), source, s -> {
+					this.shaderCache.put(location, compileShader(location, s));
+					this.shaderFormats.put(location, Optional.empty());
+				});
+			}
+		});
+	}
+	
+	protected void listShadersIn(R shaderFolderLocation, int recursive, List<R> locations) throws IOException {
+		
 		for (R shaderLoc : resourceLoader.listFilesInAllNamespaces(sourceFolder, shaderFolderLocation)) {
 			
 			String shaderPath = shaderLoc.getPath();
 			String shaderName = shaderPath.substring(shaderPath.lastIndexOf(File.separatorChar) + 1);
-			if (!shaderName.endsWith(".json")) continue;
+			if (!shaderName.endsWith("." + SHADER_META_FORMAT)) continue;
 			
-			R locationName = shaderLoc.getParent().locationOfFile(shaderName.substring(0, shaderName.lastIndexOf('.')));
-			loadShader(locationName, Optional.empty());
+			locations.add(shaderLoc.getParent().locationOfFile(shaderName.substring(0, shaderName.lastIndexOf('.'))));
 			
 		}
 		
 		if (recursive > 0) {
 			for (R folderLoc : resourceLoader.listFoldersInAllNamespaces(sourceFolder, shaderFolderLocation)) {
-				loadShadersIn0(folderLoc, recursive--);
+				listShadersIn(folderLoc, recursive - 1, locations);
 			}
 		}
 		
@@ -119,16 +204,19 @@ public class ShaderLoader<R extends IResourceProvider<R>, FE extends ISourceFold
 	 * @return The loaded and cached shader instance
 	 */
 	public ShaderInstance loadShader(R shaderLocation, Optional<VertexFormat> format) {
-		if (!shaderCache.containsKey(shaderLocation)) {
+		ShaderInstance shader = shaderCache.get(shaderLocation);
+		if (shader == null) {
 			try {
-				shaderCache.put(shaderLocation, load(shaderLocation, format));
+				shader = load(shaderLocation, format);
+				shaderCache.put(shaderLocation, shader);
+				shaderFormats.put(shaderLocation, format);
 			} catch (IOException e) {
 				Logger.defaultLogger().logWarn("Failed to load shader " + shaderLocation.nameString());
 				Logger.defaultLogger().printException(LogType.WARN, e);
 				return null;
 			}
 		}
-		return shaderCache.get(shaderLocation);
+		return shader;
 	}
 	
 	/**
@@ -138,10 +226,7 @@ public class ShaderLoader<R extends IResourceProvider<R>, FE extends ISourceFold
 	 * @return The shader under the given name or null if no shader was found
 	 */
 	public ShaderInstance getOrLoadShader(R shaderName, Optional<VertexFormat> format) {
-		if (!this.shaderCache.containsKey(shaderName)) {
-			return loadShader(shaderName, format);
-		}
-		return this.shaderCache.get(shaderName);
+		return loadShader(shaderName, format);
 	}
 	
 	/**
@@ -151,11 +236,11 @@ public class ShaderLoader<R extends IResourceProvider<R>, FE extends ISourceFold
 	 * @return The shader under the given name or null if no shader was found
 	 */
 	public ShaderInstance getShader(R shaderName) {
-		if (!this.shaderCache.containsKey(shaderName)) {
+		ShaderInstance shader = this.shaderCache.get(shaderName);
+		if (shader == null && this.missingShaders.add(shaderName)) {
 			Logger.defaultLogger().logWarn("Shader " + shaderName.nameString() + " does not exist!");
-			this.shaderCache.put(shaderName, null);
 		}
-		return this.shaderCache.get(shaderName);
+		return shader;
 	}
 	
 	/**
@@ -164,12 +249,13 @@ public class ShaderLoader<R extends IResourceProvider<R>, FE extends ISourceFold
 	 * @return A set containing the resource locations of all loaded shaders
 	 */
 	public Set<R> getCachedShaders() {
-		return this.shaderCache.keySet();
+		return this.shaderCache.keys();
 	}
 	
 	/**
 	 * Loads the shader under the given path with the given vertex format.
 	 * If no vertex format is specified the default from the shader JSON is applied.
+	 * The files the shader is loaded from are recorded in the dependencies of the shader.
 	 * 
 	 * @param shaderLocation The path to the shader JSON (without the .json ending)
 	 * @param vertexFormat The (optional) applied vertex format
@@ -177,19 +263,34 @@ public class ShaderLoader<R extends IResourceProvider<R>, FE extends ISourceFold
 	 * @throws IOException If an error occurs accessing the files
 	 */
 	public ShaderInstance load(R shaderLocation, Optional<VertexFormat> vertexFormat) throws IOException {
+		return compileShader(shaderLocation, readShader(shaderLocation, vertexFormat));
+	}
+	
+	/**
+	 * Reads the shader JSON and the GLSL sources with all #includes resolved, without creating the shader.
+	 * Does not require a GL context and can be called on any thread.
+	 * 
+	 * @param shaderLocation The path to the shader JSON (without the .json ending)
+	 * @param vertexFormat The (optional) applied vertex format
+	 * @return The sources of the shader
+	 * @throws IOException If an error occurs accessing the files
+	 */
+	public ShaderSource readShader(R shaderLocation, Optional<VertexFormat> vertexFormat) throws IOException {
 		
 		try {
 			
-			InputStreamReader inputStream = new InputStreamReader(resourceLoader.getAsStream(sourceFolder, shaderLocation.append("." + SHADER_META_FORMAT)));
-			
-			JsonObject json = GSON.fromJson(inputStream, JsonObject.class);
+			Set<R> files = new HashSet<>();
+			R shaderMeta = shaderLocation.append("." + SHADER_META_FORMAT);
+			files.add(shaderMeta);
+			JsonObject json = GSON.fromJson(loadTextFile(shaderMeta), JsonObject.class);
 			
 			String vertexShaderFile = json.get("VertexShaderFile").getAsString();
 			String fragmentShaderFile = json.get("FragmentShaderFile").getAsString();
 			Optional<String> geometryShaderFile = json.has("GeometryShaderFile") ? Optional.of(json.get("GeometryShaderFile").getAsString()) : Optional.empty();
-			String vertexShaderSource = loadGLSLFile(shaderLocation.getParent().locationOfFile(vertexShaderFile + "." + VERTEX_SHADER_FORMAT));
-			String fragmentShaderSource = loadGLSLFile(shaderLocation.getParent().locationOfFile(fragmentShaderFile + "." + FRAGMENT_SHADER_FORMAT));
-			Optional<String> geometryShaderSource = geometryShaderFile.isPresent() ? Optional.of(loadGLSLFile(shaderLocation.getParent().locationOfFile(geometryShaderFile.get() + "." + GEOMETRY_SHADER_FORMAT))) : Optional.empty();
+			String vertexShaderSource = loadGLSLFile(shaderLocation.getParent().locationOfFile(vertexShaderFile + "." + VERTEX_SHADER_FORMAT), files);
+			String fragmentShaderSource = loadGLSLFile(shaderLocation.getParent().locationOfFile(fragmentShaderFile + "." + FRAGMENT_SHADER_FORMAT), files);
+			Optional<String> geometryShaderSource = geometryShaderFile.isPresent() ? Optional.of(loadGLSLFile(shaderLocation.getParent().locationOfFile(geometryShaderFile.get() + "." + GEOMETRY_SHADER_FORMAT), files)) : Optional.empty();
+			this.dependencies.setDependencies(shaderLocation, files);
 			
 			VertexFormat attributeFormat = vertexFormat.isPresent() ? vertexFormat.get() : null;
 			if (vertexFormat.isEmpty()) {
@@ -210,25 +311,37 @@ public class ShaderLoader<R extends IResourceProvider<R>, FE extends ISourceFold
 				
 			}
 			
-			try {
-				
-				ShaderInstance shaderInstance = new ShaderInstance(vertexShaderSource, fragmentShaderSource, geometryShaderSource, attributeFormat);
-				
-				JsonArray uniformArray = json.get("Uniforms").getAsJsonArray();
-				parseUniforms(uniformArray, shaderInstance, null);
-				
-				inputStream.close();
-				
-				return shaderInstance;
-				
-			} catch (Exception e) {
-				throw new IOException("Failed to load shader '" + shaderLocation.nameString() + "' with exception:\n" + e.getMessage());
-			}
-			
+			return new ShaderSource(json, vertexShaderSource, fragmentShaderSource, geometryShaderSource, attributeFormat);
+		
 		} catch (NullPointerException e) {
 			throw new IOException("Failed to load shader definition file '" + shaderLocation.nameString() + "'! Maleformed JSON!");
 		}
+	
+	}
+	
+	/**
+	 * Creates the shader from its sources, has to be called on the render thread.
+	 * 
+	 * @param shaderLocation The path to the shader JSON, used in the error messages
+	 * @param source The sources read by {@link #readShader(IResourceProvider, Optional)}
+	 * @return The uncached shader instance
+	 * @throws IOException If the shader can not be compiled
+	 */
+	public ShaderInstance compileShader(R shaderLocation, ShaderSource source) throws IOException {
 		
+		try {
+			
+			ShaderInstance shaderInstance = new ShaderInstance(source.vertexShaderSource(), source.fragmentShaderSource(), source.geometryShaderSource(), source.attributeFormat());
+			
+			JsonArray uniformArray = source.json().get("Uniforms").getAsJsonArray();
+			parseUniforms(uniformArray, shaderInstance, null);
+			
+			return shaderInstance;
+		
+		} catch (Exception e) {
+			throw new IOException("Failed to load shader '" + shaderLocation.nameString() + "' with exception:\n" + e.getMessage());
+		}
+	
 	}
 	
 	protected void parseUniforms(JsonArray uniformArray, ShaderInstance shaderInstance, String parentField) {
@@ -281,24 +394,34 @@ public class ShaderLoader<R extends IResourceProvider<R>, FE extends ISourceFold
 	 * Used by {@link #load(File, Optional)}.
 	 * 
 	 * @param fileLocation The name of the library to load
+	 * @param files The set to add the locations of the file and the included files to
 	 * @return The GLSL code of the library with all #includes resolved
 	 * @throws IOException If an error occurs accessing the files
 	 */
-	protected String loadGLSLFile(R fileLocation) throws IOException {
-		String line;
-		BufferedReader vertexShaderInputStream = new BufferedReader(new InputStreamReader(resourceLoader.getAsStream(sourceFolder, fileLocation)));
+	protected String loadGLSLFile(R fileLocation, Set<R> files) throws IOException {
+		files.add(fileLocation);
 		StringBuilder stringBuilder = new StringBuilder();
-		while ((line = vertexShaderInputStream.readLine()) != null) {
+		for (String line : loadTextFile(fileLocation).lines().toList()) {
 			if (line.startsWith(INCLUDE_LINE)) {
 				R fileLoc = fileLocation.getParent().locationOfFile(new File(line.substring(INCLUDE_LINE.length()) + "." + SHADER_LIB_FORMAT).toString());
-				String includeCode = loadGLSLFile(fileLoc);
+				String includeCode = loadGLSLFile(fileLoc, files);
 				stringBuilder.append(includeCode);
 			} else {
 				stringBuilder.append(line + "\n");
 			}
 		}
-		vertexShaderInputStream.close();
 		return stringBuilder.toString();
 	}
 	
+	/**
+	 * Decodes the content of the UTF-8 text file directly from the buffer of the source folder, see {@link ResourceLoader#getAsByteBuffer(ISourceFolder, IResourceProvider)}.
+	 * 
+	 * @param fileLocation The location of the file
+	 * @return The content of the file
+	 * @throws IOException If an error occurs accessing the file
+	 */
+	protected String loadTextFile(R fileLocation) throws IOException {
+		return StandardCharsets.UTF_8.decode(resourceLoader.getAsByteBuffer(sourceFolder, fileLocation)).toString();
+	}
+
 }
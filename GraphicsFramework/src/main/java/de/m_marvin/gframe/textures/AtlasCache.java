@@ -0,0 +1,294 @@
+package de.m_marvin.gframe.textures;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import de.m_marvin.gframe.textures.utility.TextureImage;
+import de.m_marvin.univec.impl.Vec4f;
+
+/**
+ * Stores composed texture atlases on disk, so that unchanged atlases do not have to be decoded, packed and composed again on the next start.
+ * Each atlas is stored in its own file together with a key, the atlas is only loaded if the key matches the key of the current inputs.
+ * The key is a hash over everything the atlas is built from, see {@link #newKey()}.
+ *
+ * @author Marvin Köhler
+ */
+public class AtlasCache {
+	
+	/**
+	 * The cached state of an atlas.
+	 * @param uvs The UV coordinates of the textures, by the name strings of their locations, the key null is the fallback texture
+	 * @param frames The number of frames of the atlas
+	 * @param frametime The number of ticks a frame lasts
+	 * @param interpolate If the textures of the atlas are interpolated
+	 * @param image The atlas image, containing the first frame of the animated textures and its mip levels
+	 */
+	public static record CachedAtlas(Map<String, Vec4f> uvs, int frames, int frametime, boolean interpolate, TextureImage image) {}
+	
+	public static final String CACHE_FILE_FORMAT = "atlas";
+	/* Has to be changed if the file format or the way the atlases are composed changes, to invalidate existing cache files */
+	public static final int FORMAT_VERSION = 3;
+	protected static final int MAGIC = 0x47464143; // GFAC
+	protected static final int KEY_LENGTH = 32;
+	/* The maximum texture size OpenGL 4 implementations have to support */
+	public static final int DEFAULT_MAX_SIZE = 16384;
+	
+	protected final File cacheFolder;
+	protected boolean compress = true;
+	protected int maxSize = DEFAULT_MAX_SIZE;
+	
+	/**
+	 * Creates a new atlas cache storing the atlases in the given folder, the folder is created when the first atlas is stored.
+	 * @param cacheFolder The folder to store the cache files in
+	 */
+	public AtlasCache(File cacheFolder) {
+		this.cacheFolder = cacheFolder;
+	}
+	
+	public File getCacheFolder() {
+		return cacheFolder;
+	}
+	
+	/**
+	 * Sets if the pixels of the atlases are compressed when written to the cache.
+	 * Compressed files are smaller but take longer to write and read, compressed and uncompressed files can be read either way.
+	 * @param compress True if the pixels should be compressed
+	 */
+	public void setCompress(boolean compress) {
+		this.compress = compress;
+	}
+	
+	public boolean isCompress() {
+		return compress;
+	}
+	
+	/**
+	 * Sets the maximum width and height of the cached atlases, larger atlases in the cache files are treated as corrupted.
+	 * Should be set to the GL_MAX_TEXTURE_SIZE of the context, the cache itself is used without a context.
+	 * @param maxSize The maximum width and height in pixels
+	 */
+	public void setMaxSize(int maxSize) {
+		if (maxSize < 1) throw new IllegalArgumentException("The maximum size has to be positive!");
+		this.maxSize = maxSize;
+	}
+	
+	public int getMaxSize() {
+		return maxSize;
+	}
+	
+	/**
+	 * Creates the digest to calculate the key of an atlas with.
+	 * Everything that has influence on the atlas has to be passed to the digest, like the texture files, their metadata and the build parameters.
+	 * @return A SHA-256 digest
+	 */
+	public static MessageDigest newKey() {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(ByteBuffer.allocate(4).putInt(0, FORMAT_VERSION));
+			return digest;
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available!", e);
+		}
+	}
+	
+	protected File cacheFile(String atlasName) {
+		return new File(this.cacheFolder, atlasName.replaceAll("[^A-Za-z0-9._-]", "_") + "." + CACHE_FILE_FORMAT);
+	}
+	
+	/**
+	 * Loads the atlas from the cache, if it was stored with the same key.
+	 * @param atlasName The name of the atlas
+	 * @param key The key of the current inputs of the atlas
+	 * @return The cached atlas or null if the atlas is not cached or was stored with a different key
+	 * @throws IOException If an error occurs reading the cache file or if it is corrupted
+	 */
+	public CachedAtlas load(String atlasName, byte[] key) throws IOException {
+		
+		File cacheFile = cacheFile(atlasName);
+		// the counts and sizes are checked against the file length before allocating, so that corrupted files do not cause huge allocations
+		long fileLength = cacheFile.length();
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+			
+			if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) return null;
+			byte[] cachedKey = new byte[KEY_LENGTH];
+			input.readFully(cachedKey);
+			if (!Arrays.equals(cachedKey, key)) return null;
+			
+			int width = input.readInt();
+			int height = input.readInt();
+			int frames = input.readInt();
+			int frametime = input.readInt();
+			boolean interpolate = input.readBoolean();
+			checkSize(width, height);
+			if (frames < 1 || frametime < 1) throw new IOException("Invalid animation of the cached atlas: " + frames + " frames of " + frametime + " ticks!");
+			
+			int uvCount = input.readInt();
+			if (uvCount < 0 || uvCount > fileLength / (Float.BYTES * 4)) throw new IOException("Invalid number of textures in the cached atlas: " + uvCount);
+			Map<String, Vec4f> uvs = new HashMap<>(uvCount * 2);
+			for (int i = 0; i < uvCount; i++) {
+				String location = input.readBoolean() ? input.readUTF() : null;
+				uvs.put(location, new Vec4f(input.readFloat(), input.readFloat(), input.readFloat(), input.readFloat()));
+			}
+			
+			TextureImage image = readImage(input, width, height, fileLength);
+			int mipmapCount = input.readInt();
+			if (mipmapCount < 0 || mipmapCount >= Integer.SIZE || Math.max(width, height) >> mipmapCount == 0) throw new IOException("Invalid number of mip levels of the cached atlas: " + mipmapCount);
+			TextureImage[] mipmaps = new TextureImage[mipmapCount];
+			for (int i = 0; i < mipmaps.length; i++) {
+				int mipmapWidth = input.readInt();
+				int mipmapHeight = input.readInt();
+				if (mipmapWidth != Math.max(1, width >> (i + 1)) || mipmapHeight != Math.max(1, height >> (i + 1))) throw new IOException("Invalid size of mip level " + (i + 1) + " of the cached atlas: " + mipmapWidth + "x" + mipmapHeight);
+				mipmaps[i] = readImage(input, mipmapWidth, mipmapHeight, fileLength);
+			}
+			image.setMipmaps(mipmaps);
+			
+			return new CachedAtlas(uvs, frames, frametime, interpolate, image);
+		
+		} catch (FileNotFoundException e) {
+			return null;
+		}
+	
+	}
+	
+	/**
+	 * Stores the atlas in the cache, replacing the previously cached version.
+	 * The file is written to a temporary file first, so that an interrupted write does not leave a broken cache file.
+	 * @param atlasName The name of the atlas
+	 * @param key The key of the inputs of the atlas
+	 * @param atlas The atlas to store
+	 * @throws IOException If an error occurs writing the cache file
+	 */
+	public void store(String atlasName, byte[] key, CachedAtlas atlas) throws IOException {
+		
+		if (key.length != KEY_LENGTH) throw new IllegalArgumentException("The key has to be " + KEY_LENGTH + " bytes long!");
+		if (!this.cacheFolder.isDirectory() && !this.cacheFolder.mkdirs()) throw new IOException("Could not create the cache folder " + this.cacheFolder + "!");
+		
+		File cacheFile = cacheFile(atlasName);
+		File tempFile = new File(cacheFile.getPath() + ".tmp");
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+			
+			output.writeInt(MAGIC);
+			output.writeInt(FORMAT_VERSION);
+			output.write(key);
+			
+			output.writeInt(atlas.image().getWidth());
+			output.writeInt(atlas.image().getHeight());
+			output.writeInt(atlas.frames());
+			output.writeInt(atlas.frametime());
+			output.writeBoolean(atlas.interpolate());
+			
+			output.writeInt(atlas.uvs().size());
+			for (Map.Entry<String, Vec4f> uv : atlas.uvs().entrySet()) {
+				output.writeBoolean(uv.getKey() != null);
+				if (uv.getKey() != null) output.writeUTF(uv.getKey());
+				output.writeFloat(uv.getValue().x());
+				output.writeFloat(uv.getValue().y());
+				output.writeFloat(uv.getValue().z());
+				output.writeFloat(uv.getValue().w());
+			}
+			
+			writeImage(output, atlas.image());
+			output.writeInt(atlas.image().getMipmaps().length);
+			for (TextureImage mipmap : atlas.image().getMipmaps()) {
+				output.writeInt(mipmap.getWidth());
+				output.writeInt(mipmap.getHeight());
+				writeImage(output, mipmap);
+			}
+		
+		}
+		Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	
+	}
+	
+	protected void checkSize(int width, int height) throws IOException {
+		if (width < 1 || height < 1 || width > this.maxSize || height > this.maxSize) throw new IOException("Invalid size of the cached atlas: " + width + "x" + height);
+	}
+	
+	protected TextureImage readImage(DataInputStream input, int width, int height, long fileLength) throws IOException {
+		
+		boolean compressed = input.readBoolean();
+		int dataLength = input.readInt();
+		if (dataLength < 0 || dataLength > fileLength) throw new IOException("Invalid length of the pixel data of the cached atlas: " + dataLength);
+		byte[] data = new byte[dataLength];
+		input.readFully(data);
+		
+		TextureImage image = TextureImage.allocate(width, height);
+		if (compressed) {
+			Inflater inflater = new Inflater();
+			try {
+				inflater.setInput(data);
+				ByteBuffer pixels = image.getPixels().duplicate();
+				while (pixels.hasRemaining() && !inflater.finished()) {
+					if (inflater.inflate(pixels) == 0 && inflater.needsInput()) break;
+				}
+				if (pixels.hasRemaining()) throw new IOException("The pixel data of the cached atlas is incomplete!");
+			} catch (DataFormatException e) {
+				throw new IOException("The pixel data of the cached atlas is corrupted!", e);
+			} finally {
+				inflater.end();
+			}
+		} else {
+			if (data.length != width * height * 4) throw new IOException("The pixel data of the cached atlas is incomplete!");
+			image.getPixels().put(0, data);
+		}
+		return image;
+		
+	}
+	
+	protected void writeImage(DataOutputStream output, TextureImage image) throws IOException {
+		
+		ByteBuffer pixels = image.getPixels().duplicate();
+		output.writeBoolean(this.compress);
+		if (this.compress) {
+			Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+			try {
+				deflater.setInput(pixels);
+				deflater.finish();
+				ByteArrayOutputStream data = new ByteArrayOutputStream(pixels.remaining() / 4);
+				byte[] buffer = new byte[65536];
+				while (!deflater.finished()) {
+					data.write(buffer, 0, deflater.deflate(buffer));
+				}
+				output.writeInt(data.size());
+				data.writeTo(output);
+			} finally {
+				deflater.end();
+			}
+		} else {
+			byte[] data = new byte[image.getWidth() * image.getHeight() * 4];
+			pixels.get(data);
+			output.writeInt(data.length);
+			output.write(data);
+		}
+	
+	}
+	
+	/**
+	 * Deletes all cached atlases.
+	 */
+	public void clear() {
+		File[] files = this.cacheFolder.listFiles((folder, name) -> name.endsWith("." + CACHE_FILE_FORMAT));
+		if (files == null) return;
+		for (File file : files) file.delete();
+	}
+
+}
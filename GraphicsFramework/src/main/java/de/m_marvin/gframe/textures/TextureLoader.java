@@ -1,20 +1,31 @@
 package de.m_marvin.gframe.textures;
 
 import java.awt.Color;
-import java.awt.geom.AffineTransform;
-import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
@@ -27,17 +38,29 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSyntaxException;
 
-import de.m_marvin.gframe.resources.IClearableLoader;
+import de.m_marvin.gframe.resources.ByteBufferInputStream;
+import de.m_marvin.gframe.resources.IReloadableLoader;
 import de.m_marvin.gframe.resources.IResourceProvider;
 import de.m_marvin.gframe.resources.ISourceFolder;
+import de.m_marvin.gframe.resources.LoadingPipeline;
+import de.m_marvin.gframe.resources.LoadingPipeline.IOFunction;
+import de.m_marvin.gframe.resources.ResourceCache;
+import de.m_marvin.gframe.resources.ResourceDependencies;
 import de.m_marvin.gframe.resources.ResourceLoader;
+import de.m_marvin.gframe.resources.defimpl.SimpleFileLoader;
+import de.m_marvin.gframe.textures.AtlasCache.CachedAtlas;
 import de.m_marvin.gframe.textures.maps.AbstractTextureMap;
+import de.m_marvin.gframe.textures.maps.AnimationScheduler;
 import de.m_marvin.gframe.textures.maps.AtlasTextureMap;
 import de.m_marvin.gframe.textures.maps.SingleTextureMap;
+import de.m_marvin.gframe.textures.maps.Sprite;
+import de.m_marvin.gframe.textures.utility.PNGDecoder;
 import de.m_marvin.gframe.textures.utility.TextureDataFormat;
 import de.m_marvin.gframe.textures.utility.TextureFormat;
+import de.m_marvin.gframe.textures.utility.TextureImage;
 import de.m_marvin.simplelogging.printing.LogType;
 import de.m_marvin.simplelogging.printing.Logger;
+import de.m_marvin.univec.impl.Vec4f;
 
 /**
  * Handles the loading of textures from files.
@@ -47,10 +70,15 @@ import de.m_marvin.simplelogging.printing.Logger;
  * @param <R> The type of the resource locations
  * @param <FE> The implementation of the source folder list
  */
-public class TextureLoader<R extends IResourceProvider<R>, FE extends ISourceFolder> implements IClearableLoader {
+public class TextureLoader<R extends IResourceProvider<R>, FE extends ISourceFolder> implements IReloadableLoader<R> {
 	
 	public static record TextureMetaData(int frametime, int[] frames, boolean interpolate, boolean gammaCorrect, String fileFormat) {}
-	public static record TexturePack(TextureMetaData metaData, BufferedImage texture) {}
+	public static record TexturePack(TextureMetaData metaData, TextureImage texture) {}
+	public static record TextureFile(TextureMetaData metaData, ByteBuffer image) {}
+	public static record AtlasSource<R>(R textureFolderLocation, boolean prioritizeAtlasHeight, boolean selectInterpolatedTextures, int recursive, boolean gammaCorrect) {}
+	/* A composed atlas that is ready for upload, with the locations of its textures */
+	protected static record ComposedAtlas<R extends IResourceProvider<R>>(AtlasTextureMap<R> map, TextureImage image, List<R> locations) {}
+	protected static record EvictedMap<R extends IResourceProvider<R>>(R mapName, AbstractTextureMap<R> textureMap) {}
 	
 	public static final String TEXTURE_META_DATA_FORMAT = "json";
 	public static final String DEFAULT_TEXTURE_FORMAT = "png";
@@ -67,14 +95,32 @@ public class TextureLoader<R extends IResourceProvider<R>, FE extends ISourceFol
 			image.setRGB(0, 0, 2, 2, INVALID_TEXTURE_FALLBACK_PIXELS, 0, 2);
 			return image;
 	};
-	public static final TexturePack INVALID_TEXTURE_FALLBACK_PACK = new TexturePack(DEFAULT_META_DATA, INVALID_TEXTURE_FALLBACK_IMAGE.get());
+	public static final TexturePack INVALID_TEXTURE_FALLBACK_PACK = new TexturePack(DEFAULT_META_DATA, TextureImage.fromARGB(2, 2, INVALID_TEXTURE_FALLBACK_PIXELS));
 	public static final Supplier<SingleTextureMap<?>> INVALID_TEXTURE_FALLBACK = () -> new SingleTextureMap<>(TextureFormat.RED_GREEN_BLUE_ALPHA, 2, 2, new int[] {0}, 1, TextureDataFormat.INT_RGBA_8_8_8_8, INVALID_TEXTURE_FALLBACK_PIXELS, false);
 	
 	protected final FE sourceFolder;
 	protected final ResourceLoader<R, FE> resourceLoader;
 	
-	protected LinkedHashMap<R, AbstractTextureMap<R>> textureCache = new LinkedHashMap<>();
+	/* The texture maps, cached under their map names */
+	protected ResourceCache<R, AbstractTextureMap<R>> textureCache = new ResourceCache<>(Long.MAX_VALUE, AbstractTextureMap::getByteSize, this::onEvicted);
 	protected Set<R> textureMapNames = new HashSet<>();
+	/* The names of textures placed in a texture map that is cached under a different name, like the textures of an atlas */
+	protected Map<R, R> textureAliases = new HashMap<>();
+	/* The parameters the atlases were built with, required to rebuild them */
+	protected Map<R, AtlasSource<R>> atlasSources = new HashMap<>();
+	/* The texture and metadata files of the texture maps and the folders of the atlases */
+	protected ResourceDependencies<R> dependencies = new ResourceDependencies<>();
+	protected Executor executor = SimpleFileLoader.getDefaultExecutor();
+	protected AtlasCache atlasCache = null;
+	protected AnimationScheduler animationScheduler = new AnimationScheduler();
+	protected int mipmapLevels = 1;
+	/* Returned for missing textures, it is not cached under their names so that they can still be loaded */
+	protected AbstractTextureMap<R> invalidTextureMap = null;
+	protected Set<R> missingTextures = ConcurrentHashMap.newKeySet();
+	/* Evicted maps are discarded on the render thread, the cache can evict them on any thread */
+	protected Queue<EvictedMap<R>> evictedMaps = new ConcurrentLinkedQueue<>();
+	/* The evicted maps that were queried since, mapped to true once their rebuild was submitted */
+	protected Map<R, Boolean> requestedMaps = new ConcurrentHashMap<>();
 	
 	/**
 	 * Creates a new texture loader.
@@ -86,11 +132,184 @@ public class TextureLoader<R extends IResourceProvider<R>, FE extends ISourceFol
 		this.resourceLoader = resourceLoader;
 	}
 	
+	/**
+	 * Returns the cache of the texture maps, weighted by their size in GPU memory.
+	 * It can be used to limit the GPU memory used by the textures, to pin texture maps that are in use and to query the cache metrics.
+	 * Evicted texture maps are discarded by {@link #discardEvicted()}, which has to be called on the render thread if the cache is modified directly.
+	 * Maps loaded from texture files can be rebuilt with {@link #reloadEvicted(LoadingPipeline)}, maps and sprites held across frames should be pinned.
+	 * @return The texture map cache
+	 */
+	public ResourceCache<R, AbstractTextureMap<R>> getTextureCache() {
+		return textureCache;
+	}
+	
+	/**
+	 * Sets the executor the textures are read and decoded on, the default is the executor shared by the file loaders.
+	 * The textures are uploaded on the calling thread.
+	 * @param executor The executor to run the decoding on
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+	
+	public Executor getExecutor() {
+		return executor;
+	}
+	
+	/**
+	 * Sets the cache the composed atlases are stored in, atlases whose textures, metadata and parameters did not change are then loaded from it instead of being built again.
+	 * The atlas cache is disabled by default.
+	 * @param atlasCache The atlas cache or null to disable it
+	 */
+	public void setAtlasCache(AtlasCache atlasCache) {
+		this.atlasCache = atlasCache;
+	}
+	
+	public AtlasCache getAtlasCache() {
+		return atlasCache;
+	}
+	
+	public ResourceDependencies<R> getDependencies() {
+		return dependencies;
+	}
+	
+	/**
+	 * Returns the scheduler animating the cached texture maps.
+	 * It has to be ticked and notified about the end of each render frame on the render thread, see {@link AnimationScheduler}.
+	 * @return The animation scheduler
+	 */
+	public AnimationScheduler getAnimationScheduler() {
+		return animationScheduler;
+	}
+	
+	/**
+	 * Sets the number of mip levels generated for the texture maps loaded afterwards, the levels are generated on the CPU while decoding the textures.
+	 * The levels of animated single textures are limited so that their frames do not bleed into each other, see {@link AtlasTextureMap#setMipmapLevels(int)} for the atlases.
+	 * The default is 1, which disables mipmaps.
+	 * @param mipmapLevels The number of levels including level 0
+	 */
+	public void setMipmapLevels(int mipmapLevels) {
+		if (mipmapLevels < 1) throw new IllegalArgumentException("At least one mip level is required!");
+		this.mipmapLevels = mipmapLevels;
+	}
+	
+	public int getMipmapLevels() {
+		return mipmapLevels;
+	}
+	
+	protected void onEvicted(R mapName, AbstractTextureMap<R> textureMap) {
+		this.evictedMaps.add(new EvictedMap<>(mapName, textureMap));
+	}
+	
+	/**
+	 * Discards the texture maps evicted from the cache since the last call, has to be called on the render thread.
+	 * The loader calls it when it caches texture maps, it only has to be called if the cache is modified directly, for example by lowering its maximum weight.
+	 */
+	public void discardEvicted() {
+		EvictedMap<R> evicted;
+		while ((evicted = this.evictedMaps.poll()) != null) {
+			evicted.textureMap().discard();
+			this.animationScheduler.unregister(evicted.textureMap());
+			// the map might have been replaced by a reloaded one
+			if (this.textureCache.containsKey(evicted.mapName())) continue;
+			// maps loaded from files keep their sources and can be rebuilt by reloadEvicted
+			if (this.atlasSources.containsKey(evicted.mapName()) || this.dependencies.hasDependencies(evicted.mapName())) continue;
+			forgetMap(evicted.mapName());
+		}
+	}
+	
+	protected void forgetMap(R mapName) {
+		this.requestedMaps.remove(mapName);
+		this.textureMapNames.remove(mapName);
+		this.textureAliases.values().removeIf(mapName::equals);
+		this.atlasSources.remove(mapName);
+		this.dependencies.remove(mapName);
+	}
+	
 	@Override
 	public void clearCached() {
-		this.textureCache.values().forEach(AbstractTextureMap::discard);
 		this.textureCache.clear();
+		discardEvicted();
+		this.animationScheduler.clear();
 		this.textureMapNames.clear();
+		this.textureAliases.clear();
+		this.atlasSources.clear();
+		this.dependencies.clear();
+		this.missingTextures.clear();
+		this.requestedMaps.clear();
+		if (this.invalidTextureMap != null) this.invalidTextureMap.discard();
+		this.invalidTextureMap = null;
+	}
+	
+	/**
+	 * Reloads the cached texture maps that depend on one of the changed files.
+	 * Atlases are rebuilt if one of their textures changed or if textures were added to or removed from their folders.
+	 * The new texture map replaces the cached one and the previous one is discarded, maps that fail to reload keep their previous state.
+	 * 
+	 * @param changedFiles The locations of the changed files and folders
+	 * @return The names of the reloaded texture maps
+	 */
+	@Override
+	public Set<R> reloadChanged(Collection<R> changedFiles) {
+		Set<R> reloaded = new HashSet<>();
+		for (R mapName : this.dependencies.getDependents(changedFiles)) {
+			if (!this.textureCache.containsKey(mapName)) continue;
+			try {
+				rebuildMap(mapName);
+				reloaded.add(mapName);
+			} catch (IOException e) {
+				Logger.defaultLogger().logWarn("Failed to reload texture " + mapName.nameString() + ", keeping the loaded one!");
+				Logger.defaultLogger().printException(LogType.WARN, e);
+			}
+		}
+		return reloaded;
+	}
+	
+	/**
+	 * Builds the texture map again from its atlas source or texture file and caches it under its name.
+	 * 
+	 * @param mapName The name of the texture map
+	 * @throws IOException If an error occurs accessing the texture files
+	 */
+	protected void rebuildMap(R mapName) throws IOException {
+		AtlasSource<R> atlas = this.atlasSources.get(mapName);
+		if (atlas != null) {
+			buildAtlasMapFromTexutes0(atlas.textureFolderLocation(), mapName, atlas.prioritizeAtlasHeight(), atlas.selectInterpolatedTextures(), atlas.recursive(), atlas.gammaCorrect());
+		} else {
+			buildSingleMap(mapName, singleMapTexture(mapName));
+		}
+	}
+	
+	protected R singleMapTexture(R mapName) {
+		String texturePath = mapName.getPath();
+		String textureName = texturePath.substring(texturePath.lastIndexOf(File.separatorChar) + 1);
+		return mapName.getParent().locationOfFile(textureName.substring(0, textureName.lastIndexOf('.')));
+	}
+	
+	/**
+	 * Submits the evicted texture maps that were queried since the last call to the pipeline, to rebuild them from their texture files.
+	 * The invalid-texture is returned for them until they are cached again by {@link LoadingPipeline#processUploads(long)}.
+	 * Evicted maps that fail to load are requested again when they are queried the next time.
+	 * 
+	 * @param pipeline The pipeline to load the textures with
+	 */
+	public void reloadEvicted(LoadingPipeline pipeline) {
+		for (R mapName : this.requestedMaps.keySet()) {
+			if (!this.requestedMaps.replace(mapName, false, true)) continue;
+			AtlasSource<R> atlas = this.atlasSources.get(mapName);
+			if (atlas == null && !this.dependencies.hasDependencies(mapName)) {
+				this.requestedMaps.remove(mapName);
+				continue;
+			}
+			// the request is removed once the rebuild completed or failed, so that a failed rebuild is requested again
+			pipeline.discover("evicted texture map " + mapName.nameString(), p -> {
+				CompletableFuture<Void> rebuilt = atlas != null ? submitAtlasMap(p, mapName, atlas) : submitSingleMap(p, mapName, singleMapTexture(mapName));
+				rebuilt.whenComplete((result, e) -> this.requestedMaps.remove(mapName));
+			}).exceptionally(e -> {
+				this.requestedMaps.remove(mapName);
+				return null;
+			});
+		}
 	}
 	
 	/**
@@ -143,37 +362,136 @@ public class TextureLoader<R extends IResourceProvider<R>, FE extends ISourceFol
 	 */
 	public void buildSingleMapsFromTextures0(R textureFolderLocation, int recursive) throws IOException {
 		
-		for (R textureLoc : resourceLoader.listFilesInAllNamespaces(this.sourceFolder, textureFolderLocation)) {
-
-			String texturePath = textureLoc.getPath();
-			String textureName = texturePath.substring(texturePath.lastIndexOf(File.separatorChar) + 1);
-			R locationName = textureLoc.getParent().locationOfFile(textureName.substring(0, textureName.lastIndexOf('.')));
+		Set<R> textureLocations = new LinkedHashSet<>();
+		listTexturesIn(textureFolderLocation, recursive, textureLocations, new HashSet<>());
+		
+		// decoded in parallel, but uploaded in the order of the listing
+		for (Map.Entry<R, TexturePack> texture : loadTextures(textureLocations).entrySet()) {
+			R mapName = textureFile(texture.getKey(), texture.getValue().metaData());
+			if (textureCache.containsKey(mapName) || textureAliases.containsKey(mapName)) continue;
+			cacheSingleMap(mapName, texture.getKey(), texture.getValue());
+		}
+	
+	}
+	
+	/**
+	 * Submits the textures in the given folder to the pipeline, see {@link #buildSingleMapsFromTextures(IResourceProvider, int)}.
+	 * The texture files are read and decoded in parallel, the texture maps are created in the upload stage.
+	 * 
+	 * @param pipeline The pipeline to load the textures with
+	 * @param textureFolderLocation The texture folder location of the textures to load
+	 * @param recursive How deep to search in sub-folders
+	 */
+	public void buildSingleMapsFromTextures(LoadingPipeline pipeline, R textureFolderLocation, int recursive) {
+		pipeline.discover("textures in " + textureFolderLocation.nameString(), p -> {
 			
-			if (textureCache.containsKey(locationName)) continue;
+			Set<R> textureLocations = new LinkedHashSet<>();
+			listTexturesIn(textureFolderLocation, recursive, textureLocations, new HashSet<>());
 			
-			try {
-				
-				TexturePack textureData = loadTexture(locationName);
-				
-				SingleTextureMap<R> map = new SingleTextureMap<R>(
-						textureData.metaData().gammaCorrect() ? TextureFormat.RED_GREEN_BLUE_ALPHA_GAMMACORRECT : TextureFormat.RED_GREEN_BLUE_ALPHA,
-						textureData.texture(), 
-						textureData.metaData().frames(), 
-						textureData.metaData().frametime(), 
-						textureData.metaData().interpolate());
-				this.textureCache.put(textureLoc, map);
-				this.textureMapNames.add(textureLoc);
-				
-			} catch (FileNotFoundException e) {
-				Logger.defaultLogger().logWarn("Warning: A texture could not be loaded!");
-				Logger.defaultLogger().printException(LogType.WARN, e);	
+			for (R locationName : textureLocations) submitSingleMap(p, null, locationName);
+		
+		});
+	}
+	
+	/**
+	 * Submits the read, decode and upload tasks of a single texture map to the pipeline.
+	 * 
+	 * @param pipeline The pipeline to load the texture with
+	 * @param mapName The name under which the map is cached, replacing the cached map, or null to use the name of the texture file and to skip it if a map is already cached under that name
+	 * @param textureLocation The location of the texture, without file ending
+	 * @return A future completing after the upload
+	 */
+	protected CompletableFuture<Void> submitSingleMap(LoadingPipeline pipeline, R mapName, R textureLocation) {
+		String taskName = "texture " + textureLocation.nameString();
+		CompletableFuture<TexturePack> textureData = pipeline.decode(taskName, pipeline.read(taskName, () -> readTexture(textureLocation)), textureFile -> generateMipmaps(decodeTexture(textureFile)));
+		return pipeline.upload(taskName, textureData, texture -> {
+			if (mapName != null) {
+				cacheSingleMap(mapName, textureLocation, texture);
+				return;
 			}
-			
+			R fileName = textureFile(textureLocation, texture.metaData());
+			if (textureCache.containsKey(fileName) || textureAliases.containsKey(fileName)) return;
+			cacheSingleMap(fileName, textureLocation, texture);
+		});
+	}
+	
+	/**
+	 * Loads the texture and caches it as {@link SingleTextureMap}, replacing the map cached under the name.
+	 * 
+	 * @param mapName The name under which the map is cached
+	 * @param textureLocation The location of the texture, without file ending
+	 * @throws IOException If an error occurs accessing the texture files
+	 */
+	protected void buildSingleMap(R mapName, R textureLocation) throws IOException {
+		cacheSingleMap(mapName, textureLocation, loadTexture(textureLocation));
+	}
+	
+	protected void cacheSingleMap(R mapName, R textureLocation, TexturePack textureData) {
+		
+		generateMipmaps(textureData);
+		SingleTextureMap<R> map = new SingleTextureMap<R>(
+				textureData.metaData().gammaCorrect() ? TextureFormat.RED_GREEN_BLUE_ALPHA_GAMMACORRECT : TextureFormat.RED_GREEN_BLUE_ALPHA,
+				textureData.texture(), 
+				textureData.metaData().frames(), 
+				textureData.metaData().frametime(), 
+				textureData.metaData().interpolate());
+		this.textureCache.put(mapName, map);
+		this.animationScheduler.register(map);
+		this.textureMapNames.add(mapName);
+		this.dependencies.setDependencies(mapName, textureFiles(textureLocation, textureData.metaData()));
+		discardEvicted();
+	
+	}
+	
+	/**
+	 * Generates the mip levels of a texture of a single texture map, if they were not generated yet.
+	 * The number of levels is limited so that the frames of animated textures do not bleed into each other.
+	 * 
+	 * @param textureData The texture to generate the levels for
+	 * @return The same texture pack
+	 */
+	protected TexturePack generateMipmaps(TexturePack textureData) {
+		
+		TextureImage image = textureData.texture();
+		if (this.mipmapLevels <= 1 || image.getMipmaps().length > 0) return textureData;
+		int frameCount = IntStream.of(textureData.metaData().frames()).max().getAsInt() + 1;
+		int frameHeight = image.getHeight() / frameCount;
+		int levels = frameCount > 1 ? Math.min(this.mipmapLevels, Integer.numberOfTrailingZeros(frameHeight) + 1) : this.mipmapLevels;
+		image.generateMipmaps(levels, textureData.metaData().gammaCorrect());
+		return textureData;
+	
+	}
+	
+	protected R textureFile(R textureLocation, TextureMetaData metaData) {
+		return textureLocation.append("." + metaData.fileFormat());
+	}
+	
+	protected List<R> textureFiles(R textureLocation, TextureMetaData metaData) {
+		return List.of(textureLocation.append("." + TEXTURE_META_DATA_FORMAT), textureFile(textureLocation, metaData));
+	}
+	
+	/**
+	 * Lists the textures in the folder, a texture with a metadata-json is only listed once.
+	 * 
+	 * @param textureFolderLocation The texture folder location of the textures to list
+	 * @param recursive How deep to search in sub-folders
+	 * @param textureLocations The set to add the locations of the textures to, without file ending
+	 * @param folders The set to add the listed folders to
+	 */
+	protected void listTexturesIn(R textureFolderLocation, int recursive, Set<R> textureLocations, Set<R> folders) {
+		
+		for (String namespace : this.resourceLoader.getIndex(this.sourceFolder).listNamespaces()) folders.add(textureFolderLocation.withNamespace(namespace));
+		
+		for (R textureLoc : this.resourceLoader.listFilesInAllNamespaces(this.sourceFolder, textureFolderLocation)) {
+			String texturePath = textureLoc.getPath();
+			String textureName = texturePath.substring(texturePath.lastIndexOf(File.separatorChar) + 1);
+			if (textureName.lastIndexOf('.') == -1) continue;
+			textureLocations.add(textureLoc.getParent().locationOfFile(textureName.substring(0, textureName.lastIndexOf('.'))));
 		}
 		
 		if (recursive > 0) {
-			for (R folderName : this.resourceLoader.listFoldersInAllNamespaces(sourceFolder, textureFolderLocation)) {
-				buildSingleMapsFromTextures0(folderName, recursive--);
+			for (R folderName : this.resourceLoader.listFoldersInAllNamespaces(this.sourceFolder, textureFolderLocation)) {
+				listTexturesIn(folderName, recursive - 1, textureLocations, folders);
 			}
 		}
 		
@@ -191,7 +509,132 @@ public class TextureLoader<R extends IResourceProvider<R>, FE extends ISourceFol
 	 */
 	public void buildAtlasMapFromTexutes0(R textureFolderLocation, R atlasName, boolean prioritizeAtlasHeight, boolean selectInterpolatedTextures, int recursive, boolean gammaCorrect) throws IOException {
 		
-		AtlasTextureMap<R> map = new AtlasTextureMap<>(gammaCorrect ? TextureFormat.RED_GREEN_BLUE_ALPHA_GAMMACORRECT : TextureFormat.RED_GREEN_BLUE_ALPHA);
+		Set<R> textureLocations = new LinkedHashSet<>();
+		Set<R> files = new HashSet<>();
+		// the folders are tracked too, so that added and removed textures are detected
+		listTexturesIn(textureFolderLocation, recursive, textureLocations, files);
+		
+		AtlasSource<R> source = new AtlasSource<>(textureFolderLocation, prioritizeAtlasHeight, selectInterpolatedTextures, recursive, gammaCorrect);
+		if (this.atlasCache == null) {
+			cacheAtlasMap(atlasName, source, composeAtlasMap(source, loadTextures(textureLocations), files), files);
+			return;
+		}
+		
+		// the files are only decoded if the atlas is not cached
+		Map<R, TextureFile> textureFiles = readTextures(textureLocations);
+		byte[] key = atlasCacheKey(source, textureFiles);
+		ComposedAtlas<R> atlas = loadCachedAtlasMap(atlasName, source, textureFiles, files, key);
+		if (atlas == null) {
+			atlas = composeAtlasMap(source, decodeTextures(textureFiles), files);
+			storeCachedAtlasMap(atlasName, key, atlas);
+		}
+		cacheAtlasMap(atlasName, source, atlas, files);
+	
+	}
+	
+	/**
+	 * Submits the textures in the given folder to the pipeline, see {@link #buildAtlasMapFromTextures(IResourceProvider, IResourceProvider, boolean, boolean, int, boolean)}.
+	 * The texture files are read and decoded in parallel, the atlas is built in the upload stage once all textures are decoded.
+	 * Textures that fail to load are left out of the atlas.
+	 * 
+	 * @param pipeline The pipeline to load the textures with
+	 * @param textureFolderLocation The texture folder location of the textures to load
+	 * @param atlasName The additional custom name for the atlas
+	 * @param prioritizeAtlasHeight Decides if the alignment of the images in the atlas are oriented on the x or y axis
+	 * @param selectInterpolatedTextures If true, only interpolated textures are loaded into the atlas, if false only non interpolated textures are loaded, mixing is not allowed
+	 * @param recursive How deep to search in sub-folders
+	 */
+	public void buildAtlasMapFromTextures(LoadingPipeline pipeline, R textureFolderLocation, R atlasName, boolean prioritizeAtlasHeight, boolean selectInterpolatedTextures, int recursive, boolean gammaCorrect) {
+		AtlasSource<R> source = new AtlasSource<>(textureFolderLocation, prioritizeAtlasHeight, selectInterpolatedTextures, recursive, gammaCorrect);
+		pipeline.discover("texture atlas " + atlasName.nameString(), p -> submitAtlasMap(p, atlasName, source));
+	}
+	
+	/**
+	 * Lists the textures of the atlas and submits the read, decode and upload tasks of the atlas to the pipeline.
+	 * Has to be called from a discover task of the pipeline.
+	 * 
+	 * @param pipeline The pipeline to load the textures with
+	 * @param atlasName The additional custom name for the atlas
+	 * @param source The parameters of the atlas
+	 * @return A future completing after the upload
+	 */
+	protected CompletableFuture<Void> submitAtlasMap(LoadingPipeline pipeline, R atlasName, AtlasSource<R> source) {
+		
+		Set<R> textureLocations = new LinkedHashSet<>();
+		Set<R> files = new HashSet<>();
+		listTexturesIn(source.textureFolderLocation(), source.recursive(), textureLocations, files);
+		
+		String atlasTaskName = "texture atlas " + atlasName.nameString();
+		CompletableFuture<ComposedAtlas<R>> atlas;
+		
+		if (this.atlasCache == null) {
+			
+			Map<R, CompletableFuture<TexturePack>> textureFutures = new LinkedHashMap<>();
+			for (R locationName : textureLocations) {
+				String taskName = "texture " + locationName.nameString();
+				textureFutures.put(locationName, pipeline.decode(taskName, pipeline.read(taskName, () -> readTexture(locationName)), this::decodeTexture));
+			}
+			atlas = pipeline.decode(atlasTaskName, completedOf(textureFutures), textures -> composeAtlasMap(source, textures, files));
+		
+		} else {
+			
+			Map<R, CompletableFuture<TextureFile>> fileFutures = new LinkedHashMap<>();
+			for (R locationName : textureLocations) {
+				fileFutures.put(locationName, pipeline.read("texture " + locationName.nameString(), () -> readTexture(locationName)));
+			}
+			
+			// the files are only decoded if the atlas is not cached
+			atlas = completedOf(fileFutures).thenCompose(textureFiles -> {
+				byte[] key = atlasCacheKey(source, textureFiles);
+				ComposedAtlas<R> cached = loadCachedAtlasMap(atlasName, source, textureFiles, files, key);
+				if (cached != null) return CompletableFuture.completedFuture(cached);
+				
+				Map<R, CompletableFuture<TexturePack>> textureFutures = new LinkedHashMap<>();
+				textureFiles.forEach((locationName, textureFile) -> textureFutures.put(locationName, pipeline.decode("texture " + locationName.nameString(), CompletableFuture.completedFuture(textureFile), this::decodeTexture)));
+				return pipeline.decode(atlasTaskName, completedOf(textureFutures), textures -> {
+					ComposedAtlas<R> composed = composeAtlasMap(source, textures, files);
+					storeCachedAtlasMap(atlasName, key, composed);
+					return composed;
+				});
+			});
+		
+		}
+		
+		return pipeline.upload(atlasTaskName, atlas, composed -> cacheAtlasMap(atlasName, source, composed, files));
+	
+	}
+	
+	/**
+	 * Combines the futures of the pipeline tasks, failed tasks are left out since they are already reported by the pipeline.
+	 * 
+	 * @param futures The futures, by the locations of the textures
+	 * @return A future completing with the results of the successful tasks, in the order of the locations
+	 */
+	protected static <R, T> CompletableFuture<Map<R, T>> completedOf(Map<R, CompletableFuture<T>> futures) {
+		return CompletableFuture
+				.allOf(futures.values().stream().map(future -> future.handle((value, e) -> value)).toArray(CompletableFuture[]::new))
+				.thenApply(v -> {
+					Map<R, T> completed = new LinkedHashMap<>();
+					futures.forEach((location, future) -> {
+						if (!future.isCompletedExceptionally()) completed.put(location, future.join());
+					});
+					return completed;
+				});
+	}
+	
+	/**
+	 * Places the selected textures in a new atlas and composes the atlas image, the atlas is uploaded and cached by {@link #cacheAtlasMap(IResourceProvider, AtlasSource, ComposedAtlas, Set)}.
+	 * Does not require the render thread.
+	 * 
+	 * @param source The parameters of the atlas
+	 * @param textures The loaded textures, by their locations without file ending
+	 * @param files The files and folders the atlas depends on, the texture files are added to it
+	 * @return The composed atlas or null if none of the textures is selected
+	 */
+	protected ComposedAtlas<R> composeAtlasMap(AtlasSource<R> source, Map<R, TexturePack> textures, Set<R> files) {
+		
+		AtlasTextureMap<R> map = new AtlasTextureMap<>(source.gammaCorrect() ? TextureFormat.RED_GREEN_BLUE_ALPHA_GAMMACORRECT : TextureFormat.RED_GREEN_BLUE_ALPHA);
+		map.setMipmapLevels(this.mipmapLevels);
 		List<R> locationsToLink = new ArrayList<>();
 		
 		// Put fallback texture as with location "null" as default into the atlas
@@ -202,72 +645,180 @@ public class TextureLoader<R extends IResourceProvider<R>, FE extends ISourceFol
 				fallbackData.texture().getHeight(),
 				fallbackData.metaData.frames,
 				fallbackData.metaData.frametime,
-				fallbackData.texture().getRGB(0, 0, fallbackData.texture().getWidth(), fallbackData.texture.getHeight(), null, 0, fallbackData.texture().getWidth())
+				fallbackData.texture().getARGB()
 		);
 		
-		boolean addedImages = fillAttlasMap(textureFolderLocation, selectInterpolatedTextures, map, locationsToLink, recursive);
-		
-		if (addedImages) {
-
-			map.buildAtlas(prioritizeAtlasHeight, selectInterpolatedTextures);
-			this.textureCache.put(atlasName, map);
-			this.textureMapNames.add(atlasName);
-			for (R location : locationsToLink) this.textureCache.put(location, map);
+		for (Map.Entry<R, TexturePack> texture : textures.entrySet()) {
 			
-		}
-		
-	}
-
-	protected boolean fillAttlasMap(R textureFolderLocation, boolean selectInterpolatedTextures, AtlasTextureMap<R> map, List<R> locationsToLink, int recursive) throws IOException {
-
-		boolean addedImages = false;
-		for (R textureLoc : this.resourceLoader.listFilesInAllNamespaces(this.sourceFolder, textureFolderLocation)) {
+			TexturePack textureData = texture.getValue();
+			files.addAll(textureFiles(texture.getKey(), textureData.metaData()));
 			
-			try {
-				
-				String texturePath = textureLoc.getPath();
-				String textureName = texturePath.substring(texturePath.lastIndexOf(File.separatorChar) + 1);
-				R locationName = textureLoc.getParent().locationOfFile(textureName.substring(0, textureName.lastIndexOf('.')));
-				
-				if (locationsToLink.contains(locationName)) continue;
+			if (textureData.metaData().interpolate() == source.selectInterpolatedTextures()) {
 				
-				TexturePack textureData = loadTexture(locationName);
+				TextureImage image = textureData.texture();
+				int width = image.getWidth();
+				int height= image.getHeight();
+				int[] pixels = image.getARGB();
 				
-				if (textureData.metaData().interpolate() == selectInterpolatedTextures) {
-					
-					BufferedImage image = textureData.texture();
-					int width = image.getWidth();
-					int height= image.getHeight();
-					int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
-					
-					addedImages = true;
-					map.addTexture(
-							textureLoc,
-							width,
-							height,
-							textureData.metaData.frames,
-							textureData.metaData.frametime,
-							pixels
-					);
-					locationsToLink.add(textureLoc);
-					
-				}
-					
-			} catch (FileNotFoundException e) {
-				Logger.defaultLogger().logWarn("Warning: A texture could not be loaded!");
-				Logger.defaultLogger().printException(LogType.WARN, e);	
-			}
+				R textureLoc = textureFile(texture.getKey(), textureData.metaData());
+				map.addTexture(
+						textureLoc,
+						width,
+						height,
+						textureData.metaData.frames,
+						textureData.metaData.frametime,
+						pixels
+				);
+				locationsToLink.add(textureLoc);
 			
+			}
+		
 		}
 		
-		if (recursive > 0) {
-			for (R folderName : this.resourceLoader.listFoldersInAllNamespaces(this.sourceFolder, textureFolderLocation)) {
-				if (fillAttlasMap(folderName, selectInterpolatedTextures, map, locationsToLink, recursive--)) addedImages = true;
+		if (locationsToLink.isEmpty()) return null;
+		
+		TextureImage image = map.composeAtlas(source.prioritizeAtlasHeight(), source.selectInterpolatedTextures());
+		return new ComposedAtlas<>(map, image, locationsToLink);
+	
+	}
+	
+	/**
+	 * Uploads the composed atlas and caches it, replacing the atlas cached under the name.
+	 * Nothing is cached if the atlas is null, because none of the textures was selected.
+	 * 
+	 * @param atlasName The additional custom name for the atlas
+	 * @param source The parameters of the atlas
+	 * @param atlas The composed atlas
+	 * @param files The files and folders the atlas depends on
+	 */
+	protected void cacheAtlasMap(R atlasName, AtlasSource<R> source, ComposedAtlas<R> atlas, Set<R> files) {
+		
+		if (atlas == null) return;
+		
+		AtlasTextureMap<R> map = atlas.map();
+		map.upload(atlas.image());
+		this.textureCache.put(atlasName, map);
+		this.animationScheduler.register(map);
+		this.textureMapNames.add(atlasName);
+		// a rebuilt atlas might not contain all textures of the previous one
+		this.textureAliases.values().removeIf(atlasName::equals);
+		for (R location : atlas.locations()) this.textureAliases.put(location, atlasName);
+		this.atlasSources.put(atlasName, source);
+		this.dependencies.setDependencies(atlasName, files);
+		discardEvicted();
+	
+	}
+	
+	/**
+	 * Calculates the key of the atlas for the {@link AtlasCache}, from the atlas parameters and the content and metadata of the texture files.
+	 * 
+	 * @param source The parameters of the atlas
+	 * @param textureFiles The read texture files, by their locations without file ending
+	 * @return The key of the atlas
+	 */
+	protected byte[] atlasCacheKey(AtlasSource<R> source, Map<R, TextureFile> textureFiles) {
+		
+		MessageDigest key = AtlasCache.newKey();
+		key.update(new byte[] { (byte) (source.prioritizeAtlasHeight() ? 1 : 0), (byte) (source.selectInterpolatedTextures() ? 1 : 0), (byte) (source.gammaCorrect() ? 1 : 0), (byte) this.mipmapLevels });
+		
+		for (Map.Entry<R, TextureFile> texture : textureFiles.entrySet()) {
+			TextureMetaData metaData = texture.getValue().metaData();
+			key.update(texture.getKey().nameString().getBytes(StandardCharsets.UTF_8));
+			key.update(metaData.fileFormat().getBytes(StandardCharsets.UTF_8));
+			ByteBuffer metaBuffer = ByteBuffer.allocate(10 + metaData.frames().length * 4);
+			metaBuffer.putInt(metaData.frametime()).put((byte) (metaData.interpolate() ? 1 : 0)).put((byte) (metaData.gammaCorrect() ? 1 : 0)).putInt(metaData.frames().length);
+			for (int frame : metaData.frames()) metaBuffer.putInt(frame);
+			key.update(metaBuffer.flip());
+			key.update(texture.getValue().image().duplicate());
+		}
+		return key.digest();
+	
+	}
+	
+	/**
+	 * Loads the atlas from the {@link AtlasCache} if it was cached with the same key.
+	 * Errors are reported and handled like a missing cache entry.
+	 * 
+	 * @param atlasName The additional custom name for the atlas
+	 * @param source The parameters of the atlas
+	 * @param textureFiles The read texture files, by their locations without file ending
+	 * @param files The files and folders the atlas depends on, the texture files are added to it
+	 * @param key The key of the atlas
+	 * @return The composed atlas or null if it is not cached
+	 */
+	protected ComposedAtlas<R> loadCachedAtlasMap(R atlasName, AtlasSource<R> source, Map<R, TextureFile> textureFiles, Set<R> files, byte[] key) {
+		
+		try {
+			
+			CachedAtlas cached = this.atlasCache.load(atlasName.nameString(), key);
+			if (cached == null) return null;
+			
+			Map<String, R> locations = new LinkedHashMap<>();
+			Map<R, TextureFile> animatedTextures = new HashMap<>();
+			for (Map.Entry<R, TextureFile> texture : textureFiles.entrySet()) {
+				TextureMetaData metaData = texture.getValue().metaData();
+				files.addAll(textureFiles(texture.getKey(), metaData));
+				if (metaData.interpolate() != source.selectInterpolatedTextures()) continue;
+				R textureLoc = textureFile(texture.getKey(), metaData);
+				locations.put(textureLoc.nameString(), textureLoc);
+				if (metaData.frames().length > 1) animatedTextures.put(textureLoc, texture.getValue());
 			}
+			
+			Map<R, Vec4f> location2uv = new HashMap<>();
+			for (Map.Entry<String, Vec4f> uv : cached.uvs().entrySet()) {
+				R location = uv.getKey() == null ? null : locations.get(uv.getKey());
+				if (uv.getKey() != null && location == null) return null;
+				location2uv.put(location, uv.getValue());
+			}
+			
+			AtlasTextureMap<R> map = new AtlasTextureMap<>(source.gammaCorrect() ? TextureFormat.RED_GREEN_BLUE_ALPHA_GAMMACORRECT : TextureFormat.RED_GREEN_BLUE_ALPHA);
+			map.setMipmapLevels(this.mipmapLevels);
+			map.restoreAtlas(location2uv, cached.image().getWidth(), cached.image().getHeight(), cached.frames(), cached.frametime(), cached.interpolate());
+			
+			// the atlas only contains the first frame, the other frames are required to animate the textures
+			// decoded on the calling thread, which might be one of the executor threads already
+			for (Map.Entry<R, TextureFile> texture : animatedTextures.entrySet()) {
+				TexturePack textureData = decodeTexture(texture.getValue());
+				map.restoreAnimatedTexture(
+						texture.getKey(), 
+						textureData.texture().getWidth(), 
+						textureData.texture().getHeight(), 
+						textureData.metaData().frames(), 
+						textureData.metaData().frametime(), 
+						textureData.texture().getARGB()
+				);
+			}
+			return new ComposedAtlas<>(map, cached.image(), new ArrayList<>(locations.values()));
+		
+		} catch (IOException | RuntimeException e) {
+			// a corrupted cache file is treated as missing, it is replaced once the atlas is rebuilt
+			Logger.defaultLogger().logWarn("Failed to load cached texture atlas " + atlasName.nameString() + ", rebuilding it!");
+			Logger.defaultLogger().printException(LogType.WARN, e);
+			return null;
 		}
+	
+	}
+	
+	/**
+	 * Stores the composed atlas in the {@link AtlasCache}, errors are reported but do not prevent the atlas from being used.
+	 * 
+	 * @param atlasName The additional custom name for the atlas
+	 * @param key The key of the atlas
+	 * @param atlas The composed atlas, nothing is stored if it is null
+	 */
+	protected void storeCachedAtlasMap(R atlasName, byte[] key, ComposedAtlas<R> atlas) {
 		
-		return addedImages;
+		if (atlas == null) return;
 		
+		Map<String, Vec4f> uvs = new HashMap<>();
+		atlas.map().getLocationUVs().forEach((location, uv) -> uvs.put(location == null ? null : location.nameString(), uv));
+		try {
+			this.atlasCache.store(atlasName.nameString(), key, new CachedAtlas(uvs, atlas.map().getFrameCount(), atlas.map().getFrametime(), atlas.map().doFrameInterpolation(), atlas.image()));
+		} catch (IOException e) {
+			Logger.defaultLogger().logWarn("Failed to store texture atlas " + atlasName.nameString() + " in the cache!");
+			Logger.defaultLogger().printException(LogType.WARN, e);
+		}
+	
 	}
 	
 	/**
@@ -280,6 +831,8 @@ public class TextureLoader<R extends IResourceProvider<R>, FE extends ISourceFol
 	public void cacheTextureMap(R atlasName, AbstractTextureMap<R> textureMap) {
 		this.textureMapNames.add(atlasName);
 		this.textureCache.put(atlasName, textureMap);
+		this.animationScheduler.register(textureMap);
+		discardEvicted();
 	}
 
 	/**
@@ -290,9 +843,84 @@ public class TextureLoader<R extends IResourceProvider<R>, FE extends ISourceFol
 	 * @param textureMap The textures's texture map
 	 */
 	public void cacheTexture(R textureName, AbstractTextureMap<R> textureMap) {
+		for (R mapName : this.textureMapNames) {
+			if (this.textureCache.peek(mapName) == textureMap) {
+				this.textureAliases.put(textureName, mapName);
+				return;
+			}
+		}
 		this.textureCache.put(textureName, textureMap);
 	}
 	
+	/**
+	 * Loads the textures in parallel on the executor, see {@link #loadTexture(IResourceProvider)}.
+	 * Textures that do not exist are reported and left out, the other errors are thrown after all textures completed loading.
+	 * 
+	 * @param textureLocations The locations of the textures, without file ending
+	 * @return The loaded textures, in the order of the locations
+	 * @throws IOException If an error occurs accessing the files
+	 */
+	public Map<R, TexturePack> loadTextures(Collection<R> textureLocations) throws IOException {
+		return runParallel(textureLocations, this::loadTexture);
+	}
+		
+	/**
+	 * Reads the texture files in parallel on the executor without decoding them, see {@link #readTexture(IResourceProvider)}.
+	 * Textures that do not exist are reported and left out, the other errors are thrown after all textures completed loading.
+	 * 
+	 * @param textureLocations The locations of the textures, without file ending
+	 * @return The read texture files, in the order of the locations
+	 * @throws IOException If an error occurs accessing the files
+	 */
+	public Map<R, TextureFile> readTextures(Collection<R> textureLocations) throws IOException {
+		return runParallel(textureLocations, this::readTexture);
+	}
+	
+	/**
+	 * Decodes the texture files in parallel on the executor, see {@link #decodeTexture(TextureFile)}.
+	 * 
+	 * @param textureFiles The texture files, by their locations without file ending
+	 * @return The decoded textures, in the order of the files
+	 * @throws IOException If one of the images could not be decoded
+	 */
+	public Map<R, TexturePack> decodeTextures(Map<R, TextureFile> textureFiles) throws IOException {
+		return runParallel(textureFiles.keySet(), location -> decodeTexture(textureFiles.get(location)));
+	}
+	
+	protected <T> Map<R, T> runParallel(Collection<R> textureLocations, IOFunction<R, T> task) throws IOException {
+		
+		Map<R, CompletableFuture<T>> futures = new LinkedHashMap<>();
+		for (R textureLocation : textureLocations) {
+			futures.put(textureLocation, CompletableFuture.supplyAsync(() -> {
+				try {
+					return task.apply(textureLocation);
+				} catch (IOException e) {
+					throw new CompletionException(e);
+				}
+			}, this.executor));
+		}
+		
+		Map<R, T> results = new LinkedHashMap<>();
+		IOException error = null;
+		for (Map.Entry<R, CompletableFuture<T>> future : futures.entrySet()) {
+			try {
+				results.put(future.getKey(), future.getValue().join());
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof FileNotFoundException) {
+					Logger.defaultLogger().logWarn("Warning: A texture could not be loaded!");
+					Logger.defaultLogger().printException(LogType.WARN, e.getCause());
+				} else if (e.getCause() instanceof IOException ioException) {
+					if (error == null) error = ioException;
+				} else {
+					throw e;
+				}
+			}
+		}
+		if (error != null) throw error;
+		return results;
+	
+	}
+	
 	/**
 	 * Loads a given textures meta-json and texture and returns it as {@link TexturePack}.
 	 * The returned texture pack is used to construct the implementations of {@link AbstractMethodError}.
@@ -302,35 +930,58 @@ public class TextureLoader<R extends IResourceProvider<R>, FE extends ISourceFol
 	 * @throws IOException If an error occurs accessing the files
 	 */
 	public TexturePack loadTexture(R textureLocation) throws IOException {
+		return decodeTexture(readTexture(textureLocation));
+	}
+	
+	/**
+	 * Reads the meta-json and the content of the texture file, without decoding the image.
+	 * 
+	 * @param textureLocation The location of the texture, without file ending
+	 * @return The metadata and the content of the texture file
+	 * @throws IOException If an error occurs accessing the files
+	 */
+	public TextureFile readTexture(R textureLocation) throws IOException {
 		R textureMeta = textureLocation.append("." + TEXTURE_META_DATA_FORMAT);
 		TextureMetaData metaData = DEFAULT_META_DATA;
 		try {
-			metaData = loadJsonMetaData(resourceLoader.getAsStream(sourceFolder, textureMeta));
+			metaData = loadJsonMetaData(new ByteBufferInputStream(resourceLoader.getAsByteBuffer(sourceFolder, textureMeta)));
 		} catch (NullPointerException | JsonSyntaxException | JsonIOException e) {
 			throw new IOException("Failed to load texture metadata '" + textureLocation.nameString() + "'", e);
 		} catch (FileNotFoundException e) {}
 		R textureFile = textureLocation.append("." + metaData.fileFormat());
 		try {
-			BufferedImage texture = loadBufferedTexture(resourceLoader.getAsStream(sourceFolder, textureFile));
-			return new TexturePack(metaData, texture);
+			return new TextureFile(metaData, resourceLoader.getAsByteBuffer(sourceFolder, textureFile));
 		} catch (FileNotFoundException e) {
 			throw new FileNotFoundException("The texture file " + textureFile.nameString() + " does not exist!");
 		}
 	}
 	
 	/**
-	 * Loads a texture from an input stream.
-	 * @param inputStream The {@link InputStream} to read from
-	 * @return The texture as {@link BufferedImage}
-	 * @throws IOException If an error occurs accessing the input stream
+	 * Decodes the image of a texture file read by {@link #readTexture(IResourceProvider)}.
+	 * 
+	 * @param textureFile The content of the texture file
+	 * @return A {@link TexturePack} containing all informations about the texture
+	 * @throws IOException If the image could not be decoded
 	 */
-	public static BufferedImage loadBufferedTexture(InputStream inputStream) throws IOException {
-		BufferedImage image = ImageIO.read(inputStream);
-		final AffineTransform tx = AffineTransform.getScaleInstance(1, -1);
-        tx.translate(0, -image.getHeight());
-        final AffineTransformOp op = new AffineTransformOp(tx, AffineTransformOp.TYPE_NEAREST_NEIGHBOR);
-        image = op.filter(image, null);
-        return image;
+	public TexturePack decodeTexture(TextureFile textureFile) throws IOException {
+		return new TexturePack(textureFile.metaData(), loadTextureImage(textureFile.image()));
+	}
+	
+	/**
+	 * Decodes a texture image, PNG images are decoded directly into native memory by the {@link PNGDecoder}.
+	 * Other formats and interlaced PNG images are decoded using {@link ImageIO}.
+	 * @param buffer The content of the image file
+	 * @return The texture, with the rows bottom-up
+	 * @throws IOException If the image could not be decoded
+	 */
+	public static TextureImage loadTextureImage(ByteBuffer buffer) throws IOException {
+		if (PNGDecoder.isPNG(buffer)) {
+			PNGDecoder decoder = new PNGDecoder(buffer);
+			if (!decoder.isInterlaced()) return decoder.decode();
+		}
+		BufferedImage image = ImageIO.read(new ByteBufferInputStream(buffer));
+		if (image == null) throw new IOException("Unsupported texture image format!");
+		return TextureImage.fromBufferedImage(image);
 	}
 	
 	/**
@@ -346,6 +997,7 @@ public class TextureLoader<R extends IResourceProvider<R>, FE extends ISourceFol
 		inputStream.close();
 		
 		int frameTime = metaJson.has("FrameTime") ? metaJson.get("FrameTime").getAsInt() : DEFAULT_META_DATA.frametime();
+		if (frameTime < 1) throw new JsonSyntaxException("The FrameTime has to be at least 1 tick!");
 		
 		int[] frames = null;
 		if (metaJson.has("Frames")) {
@@ -370,8 +1022,7 @@ public class TextureLoader<R extends IResourceProvider<R>, FE extends ISourceFol
 	/**
 	 * Returns the texture map cached under the given name.
 	 * Also if the map contains multiple texture, selects the required one by calling {@link AbstractTextureMap#activateTexture(IResourceProvider)}.
-	 * If no texture is cached under the name, a default texture is created with {@link #INVALID_TEXTURE_FALLBACK}.
-	 * The default texture is then cached under that name.
+	 * If no texture is cached under the name, the invalid-texture is returned, see {@link #getTextureMap(IResourceProvider)}.
 	 * 
 	 * @param resourceLocation The location/name of the texture
 	 * @return The texture map cached under that name or the invalid-texture if no texture was found
@@ -382,37 +1033,69 @@ public class TextureLoader<R extends IResourceProvider<R>, FE extends ISourceFol
 		return texture;
 	}
 
+	/**
+	 * Returns an immutable handle to the texture, see {@link Sprite}.
+	 * The sprite should be resolved once and then be reused, it remains valid until the texture map is reloaded or evicted from the cache.
+	 * If no texture is cached under the name, the sprite of the invalid-texture is returned, see {@link #getTextureMap(IResourceProvider)}.
+	 * 
+	 * @param resourceLocation The location/name of the texture
+	 * @return The sprite of the texture
+	 */
+	public Sprite getSprite(R resourceLocation) {
+		return findTextureMap(resourceLocation).getSprite(resourceLocation);
+	}
+	
 	/**
 	 * Returns the texture map cached under the given name.
-	 * If no texture is cached under the name, a default texture is created with {@link #INVALID_TEXTURE_FALLBACK}.
-	 * The default texture is then cached under that name.
+	 * If no texture is cached under the name, a default texture created with {@link #INVALID_TEXTURE_FALLBACK} is returned.
+	 * The default texture is not cached under the name, so the texture can still be loaded later.
+	 * For texture maps that were evicted from the cache, the default texture is returned until they are rebuilt by {@link #reloadEvicted(LoadingPipeline)}.
 	 * 
 	 * @param resourceLocation The location/name of the texture
 	 * @return The texture map cached under that name or the invalid-texture if no texture was found
 	 */
-	@SuppressWarnings("unchecked")
 	public AbstractTextureMap<R> getTextureMap(R resourceLocation) {
-		if (!this.textureCache.containsKey(resourceLocation)) {
-			Logger.defaultLogger().logWarn("Texture " + resourceLocation.nameString() + " does not exist!");
-			this.textureCache.put(resourceLocation, (AbstractTextureMap<R>) INVALID_TEXTURE_FALLBACK.get());
-		}
-		AbstractTextureMap<R> texture = this.textureCache.get(resourceLocation);
+		AbstractTextureMap<R> texture = findTextureMap(resourceLocation);
 		texture.activateTexture(null);
 		return texture;
 	}
 	
 	/**
-	 * Returns all textures currently cached in the texture loader.
+	 * Same as {@link #getTextureMap(IResourceProvider)} but does not change the active texture of the map.
+	 */
+	protected AbstractTextureMap<R> findTextureMap(R resourceLocation) {
+		R mapName = this.textureAliases.getOrDefault(resourceLocation, resourceLocation);
+		AbstractTextureMap<R> texture = this.textureCache.get(mapName);
+		if (texture == null) {
+			if (this.textureMapNames.contains(mapName)) {
+				this.requestedMaps.putIfAbsent(mapName, false);
+			} else if (this.missingTextures.add(resourceLocation)) {
+				Logger.defaultLogger().logWarn("Texture " + resourceLocation.nameString() + " does not exist!");
+			}
+			texture = getInvalidTextureMap();
+		}
+		return texture;
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected AbstractTextureMap<R> getInvalidTextureMap() {
+		if (this.invalidTextureMap == null) this.invalidTextureMap = (AbstractTextureMap<R>) INVALID_TEXTURE_FALLBACK.get();
+		return this.invalidTextureMap;
+	}
+	
+	/**
+	 * Returns all textures currently cached in the texture loader, evicted texture maps are not included.
 	 * 
 	 * @return A Collection of all textures currently cached
 	 */
 	public Collection<AbstractTextureMap<R>> getTextureMaps() {
-		return this.textureMapNames.stream().map(this::getTextureMap).toList();
+		return this.textureMapNames.stream().map(this.textureCache::peek).filter(Objects::nonNull).toList();
 	}
 
 	/**
 	 * Returns the names of all texture-maps currently cached in the texture loader.
 	 * A texture map can consist of multiple textures packed into an atlas.
+	 * Evicted texture maps that can be rebuilt by {@link #reloadEvicted(LoadingPipeline)} are included.
 	 * 
 	 * @return A Collection of the names of all texture-maps currently cached
 	 */
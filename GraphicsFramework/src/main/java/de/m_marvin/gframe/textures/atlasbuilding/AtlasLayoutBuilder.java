@@ -1,16 +1,15 @@
 package de.m_marvin.gframe.textures.atlasbuilding;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 
-import de.m_marvin.simplelogging.printing.Logger;
-import de.m_marvin.univec.impl.Vec2i;
-
 /**
- * Provides an algorithm that tries to place the images into a single texture atlas.
- * Sometimes this can fail if the sizes of the textures are to different.
- * 
+ * Provides a skyline packing algorithm that places the images into texture atlases.
+ * The images are sorted by height and placed one after another at the position where their top edge ends up lowest.
+ * The atlas size can be limited to a maximum size and to power of two dimensions.
+ * If the images do not fit into one atlas, {@link #buildLayouts(boolean)} distributes them on multiple pages.
+ *
  * @author Marvin Köhler
  *
  * @param <T> Type of the textures
@@ -19,11 +18,37 @@ public class AtlasLayoutBuilder<T> {
 	
 	public static record AtlasImage<T>(int width, int height, T image) {}
 	public static record AtlasImageLayout<T>(int x, int y, AtlasImage<T> image) {}
-	public static record AtlasLayout<T>(List<AtlasImageLayout<T>> imageLayouts, int width, int height) {}
+	public static record AtlasLayout<T>(List<AtlasImageLayout<T>> imageLayouts, int width, int height) {
+		
+		/**
+		 * Returns the packing efficiency of the layout.
+		 * @return The fraction of the atlas area that is covered by images, between 0 and 1
+		 */
+		public float efficiency() {
+			long imageArea = 0;
+			for (AtlasImageLayout<T> layout : this.imageLayouts) imageArea += (long) layout.image().width() * layout.image().height();
+			return imageArea / (float) ((long) this.width * this.height);
+		}
+	
+	}
+	
+	/* A horizontal segment of the skyline, the top edge of the images placed below it */
+	protected static class SkylineNode {
+		protected int x;
+		protected int y;
+		protected int width;
+		
+		protected SkylineNode(int x, int y, int width) {
+			this.x = x;
+			this.y = y;
+			this.width = width;
+		}
+	}
 	
 	protected List<AtlasImage<T>> atlasImages = new ArrayList<>();
-	protected List<AtlasImageLayout<T>> atlasLayout = new ArrayList<>();
-	protected List<Vec2i> pastePoints = new ArrayList<>();
+	protected int maxWidth = Integer.MAX_VALUE;
+	protected int maxHeight = Integer.MAX_VALUE;
+	protected boolean powerOfTwo = false;
 	
 	/**
 	 * Adds the image to the list of images to place in the atlas.
@@ -44,212 +69,193 @@ public class AtlasLayoutBuilder<T> {
 	}
 	
 	/**
-	 * Tries to build the atlas layout from the added images.
-	 * @param prioritizeHeight Determines the arrangement of the textures (x or y axis).
-	 * @return If successful the layout for the atlas
-	 * @throws IllegalStateException if the building of the layout fails
+	 * Limits the size of the atlas, like to the maximum texture size of the GPU.
+	 * @param maxWidth The maximum width of the atlas
+	 * @param maxHeight The maximum height of the atlas
+	 */
+	public void setMaxSize(int maxWidth, int maxHeight) {
+		if (maxWidth <= 0 || maxHeight <= 0) throw new IllegalArgumentException("The maximum atlas size has to be positive!");
+		this.maxWidth = maxWidth;
+		this.maxHeight = maxHeight;
+	}
+	
+	/**
+	 * Sets if the width and height of the atlas have to be powers of two.
+	 * @param powerOfTwo True if the atlas size is rounded up to the next power of two
+	 */
+	public void setPowerOfTwo(boolean powerOfTwo) {
+		this.powerOfTwo = powerOfTwo;
+	}
+	
+	/**
+	 * Builds the atlas layout from the added images, all images are placed into one atlas.
+	 * @param prioritizeHeight Determines the arrangement of the textures, if true the images are placed in columns instead of rows
+	 * @return The layout for the atlas
+	 * @throws IllegalStateException if the images do not fit into an atlas of the maximum size
 	 */
 	public AtlasLayout<T> buildLayout(boolean prioritizeHeight) {
+		List<AtlasLayout<T>> layouts = buildLayouts(prioritizeHeight);
+		if (layouts.size() > 1) throw new IllegalStateException("Could not place all images in one atlas of the maximum size " + this.maxWidth + "x" + this.maxHeight + ", " + layouts.size() + " atlases are required!");
+		return layouts.get(0);
+	}
+	
+	/**
+	 * Builds the atlas layouts from the added images, images that do not fit into the first atlas are placed on additional pages.
+	 * @param prioritizeHeight Determines the arrangement of the textures, if true the images are placed in columns instead of rows
+	 * @return The layouts of the atlas pages
+	 * @throws IllegalStateException if no images have been added or an image is larger than the maximum size
+	 */
+	public List<AtlasLayout<T>> buildLayouts(boolean prioritizeHeight) {
 		
 		if (this.atlasImages.size() == 0) throw new IllegalStateException("Can't build layout with zero images! (Would not make any sense ...)");
 		
-		// Relay simple layout ...
-		if (this.atlasImages.size() == 1) {
-			AtlasImage<T> image = this.atlasImages.get(0);
-			AtlasImageLayout<T> imageLayout = new AtlasImageLayout<T>(0, 0, image);
-			AtlasLayout<T> layout = new AtlasLayout<T>(Arrays.asList(imageLayout), image.width, image.height);
-			this.atlasImages = new ArrayList<>();
-			return layout;
+		// Columns are packed as rows with swapped axes
+		int pageWidth = prioritizeHeight ? this.maxHeight : this.maxWidth;
+		int pageHeight = prioritizeHeight ? this.maxWidth : this.maxHeight;
+		for (AtlasImage<T> image : this.atlasImages) {
+			if (width(image, prioritizeHeight) > pageWidth || height(image, prioritizeHeight) > pageHeight)
+				throw new IllegalStateException("The image " + image + " is larger than the maximum atlas size " + this.maxWidth + "x" + this.maxHeight + "!");
 		}
 		
-		// Calculate the plane size of all images combined
-		int planeSize = 0;
-		for (AtlasImage<T> image : this.atlasImages) planeSize += image.width * image.height;
+		// Sort all images after height and width, so that rows of similar height are formed
+		List<AtlasImage<T>> remaining = new ArrayList<>(this.atlasImages);
+		remaining.sort(Comparator.<AtlasImage<T>>comparingInt(image -> height(image, prioritizeHeight)).thenComparingInt(image -> width(image, prioritizeHeight)).reversed());
+		this.atlasImages = new ArrayList<>();
 		
-		// Calculate the minimum required size of the atlas, assuming 100% efficiency when combine the images
-		int minWidth = (int) Math.sqrt(planeSize);
-		int minHeight = minWidth;
+		List<AtlasLayout<T>> layouts = new ArrayList<>();
+		while (!remaining.isEmpty()) {
+			List<AtlasImage<T>> overflow = new ArrayList<>();
+			layouts.add(packPage(remaining, overflow, prioritizeHeight, pageWidth, pageHeight));
+			remaining = overflow;
+		}
+		return layouts;
+	
+	}
+	
+	protected int width(AtlasImage<T> image, boolean swapAxes) {
+		return swapAxes ? image.height() : image.width();
+	}
+	
+	protected int height(AtlasImage<T> image, boolean swapAxes) {
+		return swapAxes ? image.width() : image.height();
+	}
+	
+	protected static int nextPowerOfTwo(int value) {
+		return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+	}
+	
+	/**
+	 * Places the images on one atlas page.
+	 * @param images The images to place, sorted
+	 * @param overflow The list to add the images to that do not fit on the page
+	 * @return The layout of the page
+	 */
+	protected AtlasLayout<T> packPage(List<AtlasImage<T>> images, List<AtlasImage<T>> overflow, boolean swapAxes, int maxPageWidth, int maxPageHeight) {
 		
-		// Set the starting point of the algorithm
-		pastePoints.add(new Vec2i(0, 0));
-		 
-		// Sort all images after width and height into a new list
-		this.atlasImages.sort((img2, img1) -> {
-			int c = prioritizeHeight ? Integer.compare(img1.width, img2.width) : Integer.compare(img1.height, img2.height);
-			if (c == 0) return prioritizeHeight ? Integer.compare(img1.height, img2.height) : Integer.compare(img1.width, img2.width);
-			return c;
-		});
+		// Calculate the plane size of all images combined, the page is made about as wide as high
+		long planeSize = 0;
+		int widestImage = 0;
+		for (AtlasImage<T> image : images) {
+			planeSize += (long) image.width() * image.height();
+			widestImage = Math.max(widestImage, width(image, swapAxes));
+		}
+		int pageWidth = (int) Math.min(maxPageWidth, Math.max(widestImage, Math.ceil(Math.sqrt(planeSize))));
+		if (this.powerOfTwo) pageWidth = Math.min(maxPageWidth, nextPowerOfTwo(pageWidth));
 		
-		// Begin layout algorithm and continue until all images are placed
-		while (this.atlasImages.size() > 0) {
-			
-			if (pastePoints.size() == 0) break; // An error occurred and no paste points could be found anymore!
+		List<SkylineNode> skyline = new ArrayList<>();
+		skyline.add(new SkylineNode(0, 0, pageWidth));
+		
+		List<AtlasImageLayout<T>> imageLayouts = new ArrayList<>(images.size());
+		int usedWidth = 0;
+		int usedHeight = 0;
+		for (AtlasImage<T> image : images) {
 			
-			// Find next available paste point for the next image
-			Vec2i lowestPoint = this.pastePoints.stream()
-					.sorted((vec1, vec2) -> prioritizeHeight ? Integer.compare(vec1.x(), vec2.x()) : Integer.compare(vec1.y(), vec2.y()))
-					.findFirst().get();
-			int lowest = prioritizeHeight ? lowestPoint.x() : lowestPoint.y();
-			Vec2i nextPoint = this.pastePoints.stream()
-					.sorted((vec1, vec2) -> prioritizeHeight ? Integer.compare(vec1.x(), vec2.x()) : Integer.compare(vec1.y(), vec2.y()))
-					.filter((vec) -> prioritizeHeight ? vec.x() == lowest : vec.y() == lowest)
-					.sorted((vec1, vec2) -> prioritizeHeight ? Integer.compare(vec1.y(), vec2.y()) : Integer.compare(vec1.x(), vec2.x()))
-					.findFirst().get();
-			this.pastePoints.remove(nextPoint);
+			int width = width(image, swapAxes);
+			int height = height(image, swapAxes);
 			
-			AtlasImage<T> fittingImage = null;
-			if (prioritizeHeight) {
-				
-				// Calculate maximum height of the image for that point
-				int maxY = nextPoint.y();
-				for (; maxY < minHeight; maxY++) {
-					boolean occupied = false;
-					for (AtlasImageLayout<T> layout : this.atlasLayout) {
-						
-						// Check if layout occupies the position
-						float y = maxY;
-						float x = nextPoint.x();
-						if (layout.y <= y && layout.y + layout.image.height > y && layout.x <= x && layout.x + layout.image.width > x)  {
-							occupied = true;
-							break;
-						}
-						
-					}
-					if (occupied) break;
-				}
-				int maxHeight = maxY - nextPoint.y();
-				
-				// Try to find a image that fits at this position
-				for (AtlasImage<T> image : this.atlasImages) {
-					if (image.height <= maxHeight) {
-						fittingImage = image;
-						break;
-					}
+			// Find the position where the top edge of the image is lowest, the leftmost one if multiple
+			int bestNode = -1;
+			int bestY = Integer.MAX_VALUE;
+			for (int i = 0; i < skyline.size(); i++) {
+				int y = fitImage(skyline, i, width, pageWidth);
+				if (y >= 0 && y + height <= maxPageHeight && y < bestY) {
+					bestNode = i;
+					bestY = y;
 				}
-								
-			} else {
-				
-				// Calculate maximum width of the image for that point
-				int maxX = nextPoint.x();
-				for (; maxX < minWidth; maxX++) {
-					boolean occupied = false;
-					for (AtlasImageLayout<T> layout : this.atlasLayout) {
-						
-						// Check if layout occupies the position
-						float x = maxX;
-						float y = nextPoint.y();
-						if (layout.x <= x && layout.x + layout.image.width > x && layout.y <= y && layout.y + layout.image.height > y)  {
-							occupied = true;
-							break;
-						}
-						
-					}
-					if (occupied) break;
-				}
-				int maxWidth = maxX - nextPoint.x();
-
-				// Try to find a image that fits at this position
-				for (AtlasImage<T> image : this.atlasImages) {
-					if (image.width <= maxWidth) {
-						fittingImage = image;
-						break;
-					}
-				}
-								
 			}
 			
-			// If found, place image layout
-			if (fittingImage != null) {
-				
-				this.atlasLayout.add(new AtlasImageLayout<T>(nextPoint.x(), nextPoint.y(), fittingImage));
-
-				// Modify height/size if required
-				if (prioritizeHeight) {
-					int x = nextPoint.x() + fittingImage.width;
-					if (x > minWidth) minWidth = x;
-				} else {
-					int y = nextPoint.y() + fittingImage.height;
-					if (y > minHeight) minHeight = y;
-				}
-				
-				// Calculate new paste points resulting from the placed image
-				if (prioritizeHeight) {
-
-					// If this image is the first in the column, add bottom right corner of this image as paste point
-					if (nextPoint.y() == 0) {
-						pastePoints.add(nextPoint.add(fittingImage.width, 0));
-					} else {
-						
-						// Find image behind this image
-						AtlasImageLayout<T> image = this.atlasLayout.stream()
-								.filter((layout) -> layout.x <= nextPoint.x() && layout.x + layout.image.width > nextPoint.x())
-								.filter((layout) -> layout.y + layout.image.height <= nextPoint.y())
-								.sorted((layout1, layout2) -> Integer.compare(layout1.y(), layout2.y()))
-								.reduce((f, s) -> s).get();
-						
-						// If image is taller than this one, add bottom right corner of this image as paste point
-						if (image.x + image.image.width > nextPoint.x() + fittingImage.width) {
-							this.pastePoints.add(nextPoint.add(fittingImage.width, 0));
-						}
-						
-					}
-					
-					// Add top left corner of this image as paste point
-					pastePoints.add(nextPoint.add(0, fittingImage.height));
-					
-				} else {
-					
-					// If this image is the first in the row, add top left corner of this image as paste point
-					if (nextPoint.x() == 0) {
-						pastePoints.add(nextPoint.add(0, fittingImage.height));
-					} else {
-						
-						// Find image behind this image
-						AtlasImageLayout<T> image = this.atlasLayout.stream()
-								.filter((layout) -> layout.y <= nextPoint.y() && layout.y + layout.image.height > nextPoint.y())
-								.filter((layout) -> layout.x + layout.image.width <= nextPoint.x())
-								.sorted((layout1, layout2) -> Integer.compare(layout1.x(), layout2.x()))
-								.reduce((f, s) -> s).get();
-						
-						// If image is taller than this one, add top left corner of this image as paste point
-						if (image.y + image.image.height > nextPoint.y() + fittingImage.height) {
-							this.pastePoints.add(nextPoint.add(0, fittingImage.height));
-						}
-						
-					}
-					
-					// Add bottom right corner of this image as paste point
-					pastePoints.add(nextPoint.add(fittingImage.width, 0));
-					
-				}
-				
-				// Remove image from list
-				this.atlasImages.remove(fittingImage);
-				
+			if (bestNode == -1) {
+				overflow.add(image);
+				continue;
 			}
 			
-			// Continue with next point
-			
-		}
- 		
-		if (this.atlasImages.size() == 0) {
-			
-			// Everything placed, cleanup
-			this.pastePoints.clear();
-			List<AtlasImageLayout<T>> layout = this.atlasLayout;
-			this.atlasLayout = new ArrayList<>();
-			
-			return new AtlasLayout<T>(layout, minWidth, minHeight);
-			
-		} else {
-
-			// Could not place all images, something must be wrong!
-			System.err.println("Remaining images " + this.atlasImages.size() + ", Paste-Points " + pastePoints.size());
-			this.atlasImages.forEach((image) -> Logger.defaultLogger().logWarn("Remaining image >  " + image));
-			throw new IllegalStateException("Could not place all images in the layout, maybe to large differences in the image formats?");
-			
+			int x = skyline.get(bestNode).x;
+			placeImage(skyline, bestNode, x, bestY + height, width);
+			imageLayouts.add(swapAxes ? new AtlasImageLayout<T>(bestY, x, image) : new AtlasImageLayout<T>(x, bestY, image));
+			usedWidth = Math.max(usedWidth, x + width);
+			usedHeight = Math.max(usedHeight, bestY + height);
+		
 		}
 		
+		if (this.powerOfTwo) {
+			usedWidth = Math.min(maxPageWidth, nextPowerOfTwo(usedWidth));
+			usedHeight = Math.min(maxPageHeight, nextPowerOfTwo(usedHeight));
+		}
+		return swapAxes ? new AtlasLayout<T>(imageLayouts, usedHeight, usedWidth) : new AtlasLayout<T>(imageLayouts, usedWidth, usedHeight);
+	
 	}
 	
+	/**
+	 * Returns the y position an image would be placed at if its left edge is aligned with the skyline node.
+	 * @return The y position, or -1 if the image does not fit between the node and the right edge of the page
+	 */
+	protected static int fitImage(List<SkylineNode> skyline, int nodeIndex, int width, int pageWidth) {
+		SkylineNode node = skyline.get(nodeIndex);
+		if (node.x + width > pageWidth) return -1;
+		int y = node.y;
+		int remainingWidth = width - node.width;
+		for (int i = nodeIndex + 1; remainingWidth > 0; i++) {
+			SkylineNode next = skyline.get(i);
+			y = Math.max(y, next.y);
+			remainingWidth -= next.width;
+		}
+		return y;
+	}
+	
+	/**
+	 * Raises the skyline above the placed image.
+	 */
+	protected static void placeImage(List<SkylineNode> skyline, int nodeIndex, int x, int top, int width) {
+		
+		skyline.add(nodeIndex, new SkylineNode(x, top, width));
+		
+		// Cut the nodes covered by the image
+		int right = x + width;
+		int i = nodeIndex + 1;
+		while (i < skyline.size()) {
+			SkylineNode node = skyline.get(i);
+			if (node.x >= right) break;
+			if (node.x + node.width <= right) {
+				skyline.remove(i);
+			} else {
+				node.width -= right - node.x;
+				node.x = right;
+				break;
+			}
+		}
+		
+		// Merge neighboring nodes of the same height
+		for (int j = Math.max(0, nodeIndex - 1); j < Math.min(skyline.size() - 1, nodeIndex + 1); ) {
+			SkylineNode node = skyline.get(j);
+			SkylineNode next = skyline.get(j + 1);
+			if (node.y == next.y) {
+				node.width += next.width;
+				skyline.remove(j + 1);
+			} else {
+				j++;
+			}
+		}
+	
+	}
+
 }
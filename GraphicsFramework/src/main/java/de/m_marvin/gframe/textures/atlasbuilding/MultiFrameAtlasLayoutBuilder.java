@@ -2,8 +2,6 @@ package de.m_marvin.gframe.textures.atlasbuilding;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import de.m_marvin.gframe.textures.atlasbuilding.AtlasLayoutBuilder.AtlasImageLayout;
@@ -22,8 +20,52 @@ public class MultiFrameAtlasLayoutBuilder<T> {
 	public static record AtlasMultiFrameImage<T>(int width, int height, int frameCount, int[] frames, int frametime, T image) {}
 	public static record AtlasFrameLayout<T>(int x, int y, int framey, int width, int frameHeight, int frame, int nextFrame, float subframe, T image) {}
 	public static record AtlasMultiFrameLayout<T>(int width, int height, int frames, int frametime, List<List<AtlasFrameLayout<T>>> frameLayouts) {}
+	public static record AtlasAnimatedLayout<T>(int width, int height, int frames, int frametime, List<AtlasImageLayout<AtlasMultiFrameImage<T>>> imageLayouts) {}
 	
 	protected List<AtlasMultiFrameImage<T>> atlasImages = new ArrayList<>();
+	protected int padding = 0;
+	protected int alignment = 1;
+	
+	/**
+	 * Sets the space around each image and the alignment of the cells the images are placed in.
+	 * The layouts returned by {@link #buildAnimatedLayout(boolean)} contain the cells, the images are placed at the padding inside them.
+	 * Used to prevent the images from bleeding into each other when the atlas is filtered, like for mipmaps.
+	 * @param padding The number of pixels on each side of the images
+	 * @param alignment The size and position of the cells are multiples of it
+	 */
+	public void setPadding(int padding, int alignment) {
+		if (padding < 0 || alignment < 1) throw new IllegalArgumentException("Invalid padding or alignment!");
+		this.padding = padding;
+		this.alignment = alignment;
+	}
+	
+	public int getPadding() {
+		return padding;
+	}
+	
+	public int getAlignment() {
+		return alignment;
+	}
+	
+	/**
+	 * Returns the size of the cell an image of the given size is placed in, see {@link #setPadding(int, int)}.
+	 * @param size The width or height of one frame of the image
+	 * @return The width or height of the cell
+	 */
+	public int cellSize(int size) {
+		return cellSize(size, this.padding, this.alignment);
+	}
+	
+	/**
+	 * Returns the size of the cell an image of the given size is placed in.
+	 * @param size The width or height of one frame of the image
+	 * @param padding The number of pixels on each side of the image
+	 * @param alignment The size of the cell is a multiple of it
+	 * @return The width or height of the cell
+	 */
+	public static int cellSize(int size, int padding, int alignment) {
+		return (size + padding * 2 + alignment - 1) / alignment * alignment;
+	}
 	
 	/**
 	 * Adds the image to the list of images to place in the atlas.
@@ -55,6 +97,54 @@ public class MultiFrameAtlasLayoutBuilder<T> {
 	 */
 	public AtlasMultiFrameLayout<T> buildLayout(boolean prioritizeHeight) {
 		
+		AtlasAnimatedLayout<T> animatedLayout = buildAnimatedLayout(prioritizeHeight);
+		int atlasFrametime = animatedLayout.frametime();
+		int atlasFrameCount = animatedLayout.frames();
+		AtlasLayout<AtlasMultiFrameImage<T>> frameLayout = new AtlasLayout<>(animatedLayout.imageLayouts(), animatedLayout.width(), animatedLayout.height());
+		
+		// Calculate atlas format
+		int atlasWidth = frameLayout.width();
+		int atlasHeight = frameLayout.height() * atlasFrameCount;
+		
+		// Build frame layouts
+		List<List<AtlasFrameLayout<T>>> multiFrameLayouts = new ArrayList<>();
+		for (int atlasFrameIndex = 0; atlasFrameIndex < atlasFrameCount; atlasFrameIndex++) {
+			List<AtlasFrameLayout<T>> frameImages = new ArrayList<>();
+			for (AtlasImageLayout<AtlasMultiFrameImage<T>> layout : frameLayout.imageLayouts()) {
+				int framesPerImageFrame = framesPerImageFrame(layout.image().image(), atlasFrametime);
+				int imageFrameIndex = (atlasFrameIndex / framesPerImageFrame) % layout.image().image().frames().length;
+				int nextImageFrameIngex = (imageFrameIndex + 1) % layout.image().image().frames().length;
+				frameImages.add(
+						new AtlasFrameLayout<T>(
+								layout.x() + this.padding, 
+								layout.y() + this.padding + frameLayout.height() * atlasFrameIndex,
+								layout.y() + this.padding,
+								layout.image().image().width(),
+								layout.image().image().height() / layout.image().image().frameCount(),
+								layout.image().image().frames()[imageFrameIndex],
+								layout.image().image().frames()[nextImageFrameIngex],
+								((atlasFrameIndex % framesPerImageFrame) / (float) framesPerImageFrame),
+								layout.image().image().image()
+							));
+			}
+			multiFrameLayouts.add(frameImages);
+		}
+		
+		// Complete, cleanup
+		return new AtlasMultiFrameLayout<>(atlasWidth, atlasHeight, atlasFrameCount, atlasFrametime, multiFrameLayouts);
+	
+	}
+	
+	/**
+	 * Tries to build the layout of one frame of the atlas from the added images, the frames of the images are not placed in the atlas.
+	 * Used for atlases that update their animated images at runtime instead of containing all frames.
+	 * The image layouts describe the cells of the images, including the padding, see {@link #setPadding(int, int)}.
+	 * @param prioritizeHeight Determines the arrangement of the textures (x or y axis).
+	 * @return If successful the layout of the frame, with the number of frames required for all images to complete a full number of cycles and the tick-count one frame lasts
+	 * @throws IllegalStateException if the building of the layout fails
+	 */
+	public AtlasAnimatedLayout<T> buildAnimatedLayout(boolean prioritizeHeight) {
+		
 		if (this.atlasImages.isEmpty()) throw new IllegalStateException("No images have ban added to the builder!");
 		
 		// Calculate required frame time for atlas
@@ -76,19 +166,16 @@ public class MultiFrameAtlasLayoutBuilder<T> {
 			.filter((i) -> divs.stream().filter((list) -> list.contains(i)).count() == divs.size())
 			.max().getAsInt();
 		
-		// Calculate atlas frames per image frame
-		Map<AtlasMultiFrameImage<T>, Integer> atlasFramesPerImageFrame = this.atlasImages.stream().collect(Collectors.toMap((image) -> image, (image) -> image.frames().length > 1 ? image.frametime / atlasFrametime : 1));
-		
 		// Calculate frames required for all images to complete a full number of cycles
-		int[] imageFrames = this.atlasImages.stream().mapToInt((image) -> image.frames().length * atlasFramesPerImageFrame.get(image)).toArray();
-		int atlasFrameCount = this.atlasImages.stream().mapToInt((image) -> image.frames().length * atlasFramesPerImageFrame.get(image)).max().getAsInt();
+		int[] imageFrames = this.atlasImages.stream().mapToInt((image) -> image.frames().length * framesPerImageFrame(image, atlasFrametime)).toArray();
+		int atlasFrameCount = IntStream.of(imageFrames).max().getAsInt();
 		boolean  modified = true;
 		while (modified) {
 			modified = false;
 			atlasFrameCount = IntStream.of(imageFrames).max().getAsInt();
 			for (int i = 0; i < imageFrames.length; i++) {
 				if (imageFrames[i] < atlasFrameCount && this.atlasImages.get(i).frames().length > 1) {
-					imageFrames[i] += this.atlasImages.get(i).frames().length * atlasFramesPerImageFrame.get(this.atlasImages.get(i));
+					imageFrames[i] += this.atlasImages.get(i).frames().length * framesPerImageFrame(this.atlasImages.get(i), atlasFrametime);
 					modified = true;
 				}
 			}
@@ -97,43 +184,19 @@ public class MultiFrameAtlasLayoutBuilder<T> {
 		// Build atlas frame layout
 		AtlasLayoutBuilder<AtlasMultiFrameImage<T>> layoutBuilder = new AtlasLayoutBuilder<>();
 		for (AtlasMultiFrameImage<T> image : this.atlasImages) {
-			layoutBuilder.addAtlasImage(image.width, image.height / image.frameCount, image);
+			layoutBuilder.addAtlasImage(cellSize(image.width), cellSize(image.height / image.frameCount), image);
 		}
 		AtlasLayout<AtlasMultiFrameImage<T>> frameLayout = layoutBuilder.buildLayout(prioritizeHeight);
 
-		// Calculate atlas format
-		int atlasWidth = frameLayout.width();
-		int atlasHeight = frameLayout.height() * atlasFrameCount;
-		
-		// Build frame layouts
-		List<List<AtlasFrameLayout<T>>> multiFrameLayouts = new ArrayList<>();
-		for (int atlasFrameIndex = 0; atlasFrameIndex < atlasFrameCount; atlasFrameIndex++) {
-			List<AtlasFrameLayout<T>> frameImages = new ArrayList<>();
-			for (AtlasImageLayout<AtlasMultiFrameImage<T>> layout : frameLayout.imageLayouts()) {
-				int framesPerImageFrame = atlasFramesPerImageFrame.get(layout.image().image());
-				int imageFrameIndex = (atlasFrameIndex / framesPerImageFrame) % layout.image().image().frames().length;
-				int nextImageFrameIngex = (imageFrameIndex + 1) % layout.image().image().frames().length;
-				frameImages.add(
-						new AtlasFrameLayout<T>(
-								layout.x(), 
-								layout.y() + frameLayout.height() * atlasFrameIndex,
-								layout.y(),
-								layout.image().width(),
-								layout.image().height(),
-								layout.image().image().frames()[imageFrameIndex],
-								layout.image().image().frames()[nextImageFrameIngex],
-								((atlasFrameIndex % framesPerImageFrame) / (float) framesPerImageFrame),
-								layout.image().image().image()
-							));
-			}
-			multiFrameLayouts.add(frameImages);
-		}
-		
 		// Complete, cleanup
-		AtlasMultiFrameLayout<T> layout = new AtlasMultiFrameLayout<>(atlasWidth, atlasHeight, atlasFrameCount, atlasFrametime, multiFrameLayouts);
 		this.atlasImages.clear();
-		return layout;
+		return new AtlasAnimatedLayout<>(frameLayout.width(), frameLayout.height(), atlasFrameCount, atlasFrametime, frameLayout.imageLayouts());
+		
+	}
 		
+	/* The number of atlas frames one frame of the image lasts */
+	protected static int framesPerImageFrame(AtlasMultiFrameImage<?> image, int atlasFrametime) {
+		return image.frames().length > 1 ? image.frametime() / atlasFrametime : 1;
 	}
 	
 }
@@ -0,0 +1,185 @@
+package de.m_marvin.gframe.textures.atlasbuilding;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Allocates rectangles of a fixed size area one after another, and allows to free them again.
+ * Implements the MaxRects algorithm, the free space is tracked as list of maximal free rectangles that may overlap each other.
+ * New rectangles are placed in the free rectangle they fit best on their shorter side.
+ * Freed rectangles are merged with neighboring free space, so that they can be reused for larger rectangles.
+ * Only the free rectangles touching the freed one are merged, a fragmented area can be consolidated by allocating all rectangles again.
+ *
+ * @author Marvin Köhler
+ */
+public class RectangleAllocator {
+	
+	public static record Rect(int x, int y, int width, int height) {
+		
+		public int area() {
+			return this.width * this.height;
+		}
+		
+		public boolean contains(Rect other) {
+			return other.x >= this.x && other.y >= this.y && other.x + other.width <= this.x + this.width && other.y + other.height <= this.y + this.height;
+		}
+		
+		public boolean intersects(Rect other) {
+			return other.x < this.x + this.width && other.x + other.width > this.x && other.y < this.y + this.height && other.y + other.height > this.y;
+		}
+	
+	}
+	
+	protected final int width;
+	protected final int height;
+	protected List<Rect> freeRects = new ArrayList<>();
+	protected int usedArea;
+	
+	/**
+	 * Creates a new allocator with the complete area free.
+	 * @param width The width of the area
+	 * @param height The height of the area
+	 */
+	public RectangleAllocator(int width, int height) {
+		this.width = width;
+		this.height = height;
+		reset();
+	}
+	
+	/**
+	 * Frees all allocated rectangles.
+	 */
+	public void reset() {
+		this.freeRects.clear();
+		this.freeRects.add(new Rect(0, 0, this.width, this.height));
+		this.usedArea = 0;
+	}
+	
+	public int getWidth() {
+		return width;
+	}
+	
+	public int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * Returns the area covered by allocated rectangles.
+	 * @return The used area in pixels
+	 */
+	public int getUsedArea() {
+		return usedArea;
+	}
+	
+	/**
+	 * Returns the area not covered by allocated rectangles, it might be fragmented so that no rectangle of that area can be allocated.
+	 * @return The free area in pixels
+	 */
+	public int getFreeArea() {
+		return this.width * this.height - this.usedArea;
+	}
+	
+	/**
+	 * Allocates a rectangle of the given size.
+	 * @param width The width of the rectangle
+	 * @param height The height of the rectangle
+	 * @return The allocated rectangle or null if there is no free space large enough
+	 */
+	public Rect allocate(int width, int height) {
+		
+		if (width <= 0 || height <= 0) throw new IllegalArgumentException("The rectangle size has to be positive!");
+		
+		// Best short side fit, the long side decides on ties
+		Rect best = null;
+		int bestShortSide = Integer.MAX_VALUE;
+		int bestLongSide = Integer.MAX_VALUE;
+		for (Rect free : this.freeRects) {
+			if (free.width() < width || free.height() < height) continue;
+			int leftoverX = free.width() - width;
+			int leftoverY = free.height() - height;
+			int shortSide = Math.min(leftoverX, leftoverY);
+			int longSide = Math.max(leftoverX, leftoverY);
+			if (shortSide < bestShortSide || (shortSide == bestShortSide && longSide < bestLongSide)) {
+				best = free;
+				bestShortSide = shortSide;
+				bestLongSide = longSide;
+			}
+		}
+		if (best == null) return null;
+		
+		Rect rect = new Rect(best.x(), best.y(), width, height);
+		
+		// Split all free rectangles overlapping the allocated one into the maximal rectangles around it
+		List<Rect> splitRects = new ArrayList<>();
+		for (int i = 0; i < this.freeRects.size(); i++) {
+			Rect free = this.freeRects.get(i);
+			if (!free.intersects(rect)) continue;
+			this.freeRects.remove(i--);
+			if (rect.x() > free.x()) splitRects.add(new Rect(free.x(), free.y(), rect.x() - free.x(), free.height()));
+			if (rect.x() + rect.width() < free.x() + free.width()) splitRects.add(new Rect(rect.x() + rect.width(), free.y(), free.x() + free.width() - rect.x() - rect.width(), free.height()));
+			if (rect.y() > free.y()) splitRects.add(new Rect(free.x(), free.y(), free.width(), rect.y() - free.y()));
+			if (rect.y() + rect.height() < free.y() + free.height()) splitRects.add(new Rect(free.x(), rect.y() + rect.height(), free.width(), free.y() + free.height() - rect.y() - rect.height()));
+		}
+		for (Rect split : splitRects) addFreeRect(split);
+		
+		this.usedArea += rect.area();
+		return rect;
+	
+	}
+	
+	/**
+	 * Frees a previously allocated rectangle, so that its space can be reused.
+	 * @param rect The rectangle returned by {@link #allocate(int, int)}
+	 */
+	public void free(Rect rect) {
+		
+		this.usedArea -= rect.area();
+		if (this.usedArea == 0) {
+			reset();
+			return;
+		}
+		addFreeRect(rect);
+		
+		// Merge the freed rectangle with the free rectangles it forms a rectangle with, and the results again
+		// only unions involving the freed space are searched, the other free rectangles were merged before
+		Deque<Rect> pending = new ArrayDeque<>();
+		pending.add(rect);
+		while (!pending.isEmpty()) {
+			Rect merging = pending.poll();
+			if (!this.freeRects.contains(merging)) continue;
+			for (int i = 0; i < this.freeRects.size(); i++) {
+				Rect union = union(merging, this.freeRects.get(i));
+				if (union == null || union.equals(merging) || union.equals(this.freeRects.get(i))) continue;
+				addFreeRect(union);
+				pending.add(union);
+				if (!this.freeRects.contains(merging)) break;
+			}
+		}
+	
+	}
+	
+	/* Returns the union of two rectangles that share the full edge on one axis and touch or overlap on the other, null if the union is not a rectangle */
+	protected static Rect union(Rect a, Rect b) {
+		if (a.x() == b.x() && a.width() == b.width() && a.y() <= b.y() + b.height() && b.y() <= a.y() + a.height()) {
+			int y = Math.min(a.y(), b.y());
+			return new Rect(a.x(), y, a.width(), Math.max(a.y() + a.height(), b.y() + b.height()) - y);
+		}
+		if (a.y() == b.y() && a.height() == b.height() && a.x() <= b.x() + b.width() && b.x() <= a.x() + a.width()) {
+			int x = Math.min(a.x(), b.x());
+			return new Rect(x, a.y(), Math.max(a.x() + a.width(), b.x() + b.width()) - x, a.height());
+		}
+		return null;
+	}
+	
+	/* Adds the rectangle to the free rectangles, unless it is already contained in one, and removes the free rectangles contained in it */
+	protected void addFreeRect(Rect rect) {
+		for (Rect free : this.freeRects) {
+			if (free.contains(rect)) return;
+		}
+		this.freeRects.removeIf(rect::contains);
+		this.freeRects.add(rect);
+	}
+
+}
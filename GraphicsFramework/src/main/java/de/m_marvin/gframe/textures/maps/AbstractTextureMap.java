@@ -1,5 +1,7 @@
 package de.m_marvin.gframe.textures.maps;
 
+import java.nio.ByteBuffer;
+
 import de.m_marvin.gframe.resources.IResourceProvider;
 import de.m_marvin.gframe.textures.texture.Texture;
 import de.m_marvin.gframe.textures.utility.TextureDataFormat;
@@ -16,13 +18,18 @@ import de.m_marvin.unimat.impl.Matrix3f;
  */
 public abstract class AbstractTextureMap<R extends IResourceProvider<R>> extends Texture implements IUVModifyer {
 	
+	/* The frame matrices packed in column-major order, as expected by glUniformMatrix3fv */
+	protected final float[] animationMatrixLastData = new float[] { 1, 0, 0, 0, 1, 0, 0, 0, 1 };
+	protected final float[] animationMatrixData = new float[] { 1, 0, 0, 0, 1, 0, 0, 0, 1 };
 	protected Matrix3f animationMatrixLast;
 	protected Matrix3f animationMatrix;
+	protected boolean animationStarted;
 	protected int frameHeight;
 	protected int[] frames;
 	protected int frametime;
 	protected int activeFrame;
 	protected boolean interpolate;
+	protected boolean referenced;
 
 	public AbstractTextureMap(TextureFormat format) {
 		super(format);
@@ -34,6 +41,16 @@ public abstract class AbstractTextureMap<R extends IResourceProvider<R>> extends
 	 */
 	public abstract void activateTexture(R textureLoc);
 	
+	/**
+	 * Returns an immutable handle to the texture, that can be used instead of selecting it with {@link #activateTexture(IResourceProvider)}.
+	 * The default implementation returns a sprite covering the entire texture map.
+	 * @param textureLoc The texture name of the texture
+	 * @return The sprite of the texture
+	 */
+	public Sprite getSprite(R textureLoc) {
+		return new Sprite(this, 0, 0, 1, 1);
+	}
+	
 	/**
 	 * Returns the number of ticks each frame of the animation lasts.
 	 * @return The number of ticks per frame
@@ -67,11 +84,32 @@ public abstract class AbstractTextureMap<R extends IResourceProvider<R>> extends
 	 * Updates the frame matrices for the animation.
 	 * This method is automatically called after {@link #nextFrame()} and {@link #setFrame(int)}.
 	 * The matrices are passed to the shader to modify the UV parameters and select to correct frame in the texture.
+	 * The packed matrices are updated in place, the {@link Matrix3f} instances are only created when requested.
 	 */
 	public void updateMatrix() {
-		this.animationMatrixLast = this.animationMatrix;
-		this.animationMatrix = Matrix3f.createScaleMatrix(1, (float) frameHeight / height).mul(Matrix3f.createTranslationMatrix(0, frames[activeFrame]));
-		if (this.animationMatrixLast == null) this.animationMatrixLast = this.animationMatrix;
+		System.arraycopy(this.animationMatrixData, 0, this.animationMatrixLastData, 0, 9);
+		// scale(1, frameHeight / height) * translation(0, frame)
+		float scale = (float) this.frameHeight / this.height;
+		this.animationMatrixData[4] = scale;
+		this.animationMatrixData[7] = scale * this.frames[this.activeFrame];
+		if (!this.animationStarted) System.arraycopy(this.animationMatrixData, 0, this.animationMatrixLastData, 0, 9);
+		this.animationStarted = true;
+		this.animationMatrixLast = null;
+		this.animationMatrix = null;
+	}
+	
+	/**
+	 * Marks the texture map as referenced for the current render frame, maps that are not referenced are not animated by the {@link AnimationScheduler}.
+	 * This method is automatically called when the map is bound.
+	 */
+	public void markReferenced() {
+		this.referenced = true;
+	}
+	
+	@Override
+	public void bind() {
+		this.referenced = true;
+		super.bind();
 	}
 	
 	@Override
@@ -80,6 +118,12 @@ public abstract class AbstractTextureMap<R extends IResourceProvider<R>> extends
 		updateMatrix();
 	}
 	
+	@Override
+	public void upload(int width, int height, TextureDataFormat format, ByteBuffer pixels) {
+		super.upload(width, height, format, pixels);
+		updateMatrix();
+	}
+	
 	/**
 	 * Gets the width of the currently activated texture of this map.
 	 * @return The width in pixels
@@ -108,6 +152,7 @@ public abstract class AbstractTextureMap<R extends IResourceProvider<R>> extends
 	 */
 	@Override
 	public Matrix3f frameMatrix() {
+		if (this.animationMatrix == null) this.animationMatrix = unpackMatrix(this.animationMatrixData);
 		return this.animationMatrix;
 	}
 	
@@ -117,7 +162,31 @@ public abstract class AbstractTextureMap<R extends IResourceProvider<R>> extends
 	 */
 	@Override
 	public Matrix3f lastFrameMatrix() {
-		return doFrameInterpolation() ? this.animationMatrixLast : this.animationMatrix;
+		if (!doFrameInterpolation()) return frameMatrix();
+		if (this.animationMatrixLast == null) this.animationMatrixLast = unpackMatrix(this.animationMatrixLastData);
+		return this.animationMatrixLast;
+	}
+	
+	/**
+	 * The matrix for the current frame, packed in column-major order ready for the upload to the shader.
+	 * The array is updated in place when the frame changes and must not be modified.
+	 * @return The packed matrix for the current frame
+	 */
+	public float[] frameMatrixData() {
+		return this.animationMatrixData;
+	}
+	
+	/**
+	 * The matrix for the last frame, packed in column-major order ready for the upload to the shader.
+	 * The array is updated in place when the frame changes and must not be modified.
+	 * @return The packed matrix for the last frame for interpolated textures and the matrix for the current frame otherwise
+	 */
+	public float[] lastFrameMatrixData() {
+		return doFrameInterpolation() ? this.animationMatrixLastData : this.animationMatrixData;
+	}
+	
+	protected static Matrix3f unpackMatrix(float[] m) {
+		return new Matrix3f(m[0], m[3], m[6], m[1], m[4], m[7], m[2], m[5], m[8]);
 	}
 	
 	/**
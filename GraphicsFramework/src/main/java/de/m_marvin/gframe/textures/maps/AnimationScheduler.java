@@ -0,0 +1,132 @@
+package de.m_marvin.gframe.textures.maps;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Advances the animations of all registered texture maps from a single tick clock, instead of calling {@link AbstractTextureMap#nextFrame()} on each map.
+ * The frame of each map is derived from the clock and its frame time, so maps with different frame times stay in sync.
+ * Maps that have not been referenced in the last render frames are not updated, they jump to the correct frame when they are referenced again.
+ * Since updating a frame can upload texture data, the scheduler has to be used on the render thread.
+ *
+ * @author Marvin Köhler
+ */
+public class AnimationScheduler {
+	
+	public static final int DEFAULT_VISIBILITY_FRAMES = 4;
+	
+	protected static class ScheduledMap {
+		protected final AbstractTextureMap<?> map;
+		protected long referencedFrame;
+		
+		protected ScheduledMap(AbstractTextureMap<?> map, long referencedFrame) {
+			this.map = map;
+			this.referencedFrame = referencedFrame;
+		}
+	}
+	
+	protected final int visibilityFrames;
+	protected List<ScheduledMap> maps = new ArrayList<>();
+	protected long tick;
+	protected long frame;
+	
+	/**
+	 * Creates a new scheduler, that skips maps not referenced in the last {@link #DEFAULT_VISIBILITY_FRAMES} frames.
+	 */
+	public AnimationScheduler() {
+		this(DEFAULT_VISIBILITY_FRAMES);
+	}
+	
+	/**
+	 * Creates a new scheduler.
+	 * @param visibilityFrames The number of render frames a map is still updated after it was referenced the last time
+	 */
+	public AnimationScheduler(int visibilityFrames) {
+		if (visibilityFrames < 1) throw new IllegalArgumentException("The visibility frames have to be at least 1!");
+		this.visibilityFrames = visibilityFrames;
+	}
+	
+	/**
+	 * Registers the map to be animated by this scheduler, maps without animation are ignored.
+	 * The map is moved to the frame of the current tick and treated as referenced in the current frame.
+	 * @param map The texture map
+	 */
+	public void register(AbstractTextureMap<?> map) {
+		if (map.frames.length <= 1 || contains(map)) return;
+		this.maps.add(new ScheduledMap(map, this.frame));
+		update(map);
+	}
+	
+	/**
+	 * Removes the map from this scheduler, its animation stays at the current frame.
+	 * @param map The texture map
+	 */
+	public void unregister(AbstractTextureMap<?> map) {
+		this.maps.removeIf(scheduled -> scheduled.map == map);
+	}
+	
+	/**
+	 * Removes all maps from this scheduler.
+	 */
+	public void clear() {
+		this.maps.clear();
+	}
+	
+	public boolean contains(AbstractTextureMap<?> map) {
+		for (int i = 0; i < this.maps.size(); i++) {
+			if (this.maps.get(i).map == map) return true;
+		}
+		return false;
+	}
+	
+	public int getMapCount() {
+		return this.maps.size();
+	}
+	
+	public long getTick() {
+		return tick;
+	}
+	
+	/**
+	 * Advances the clock by one tick and updates the frames of the referenced maps.
+	 */
+	public void tick() {
+		advance(1);
+	}
+	
+	/**
+	 * Advances the clock by the given number of ticks and updates the frames of the referenced maps.
+	 * Maps whose frame did not change are not touched.
+	 * @param ticks The number of ticks to advance
+	 */
+	public void advance(int ticks) {
+		this.tick += ticks;
+		for (int i = 0; i < this.maps.size(); i++) {
+			ScheduledMap scheduled = this.maps.get(i);
+			if (this.frame - scheduled.referencedFrame > this.visibilityFrames && !scheduled.map.referenced) continue;
+			update(scheduled.map);
+		}
+	}
+	
+	/**
+	 * Has to be called at the end of each render frame, collects the maps referenced during the frame.
+	 * Maps that become referenced again are moved to the frame of the current tick immediately.
+	 */
+	public void endFrame() {
+		for (int i = 0; i < this.maps.size(); i++) {
+			ScheduledMap scheduled = this.maps.get(i);
+			if (!scheduled.map.referenced) continue;
+			scheduled.map.referenced = false;
+			if (this.frame - scheduled.referencedFrame > this.visibilityFrames) update(scheduled.map);
+			scheduled.referencedFrame = this.frame;
+		}
+		this.frame++;
+	}
+	
+	protected void update(AbstractTextureMap<?> map) {
+		// maps created with a frame time of 0 are animated as if it was 1
+		int frame = (int) ((this.tick / Math.max(map.frametime, 1)) % map.frames.length);
+		if (frame != map.activeFrame) map.setFrame(frame);
+	}
+
+}
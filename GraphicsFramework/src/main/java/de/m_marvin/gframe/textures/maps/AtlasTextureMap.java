@@ -1,18 +1,20 @@
 package de.m_marvin.gframe.textures.maps;
 
-import java.awt.image.BufferedImage;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.IntStream;
 
 import de.m_marvin.gframe.resources.IResourceProvider;
+import de.m_marvin.gframe.textures.AtlasCache;
+import de.m_marvin.gframe.textures.atlasbuilding.AtlasLayoutBuilder.AtlasImageLayout;
 import de.m_marvin.gframe.textures.atlasbuilding.MultiFrameAtlasLayoutBuilder;
-import de.m_marvin.gframe.textures.atlasbuilding.MultiFrameAtlasLayoutBuilder.AtlasFrameLayout;
-import de.m_marvin.gframe.textures.atlasbuilding.MultiFrameAtlasLayoutBuilder.AtlasMultiFrameLayout;
-import de.m_marvin.gframe.textures.utility.TextureDataFormat;
+import de.m_marvin.gframe.textures.atlasbuilding.MultiFrameAtlasLayoutBuilder.AtlasAnimatedLayout;
+import de.m_marvin.gframe.textures.atlasbuilding.MultiFrameAtlasLayoutBuilder.AtlasMultiFrameImage;
 import de.m_marvin.gframe.textures.utility.TextureFormat;
+import de.m_marvin.gframe.textures.utility.TextureImage;
 import de.m_marvin.simplelogging.printing.Logger;
 import de.m_marvin.univec.impl.Vec4f;
 
@@ -20,6 +22,7 @@ import de.m_marvin.univec.impl.Vec4f;
  * The multi texture implementation of the {@link AbstractTextureMap}.
  * Contains multiple textures and reduces the number of texture uploads to the GPU.
  * Can not contains mixed interpolated and non interpolated textures.
+ * The atlas contains only one frame, the animated textures are updated on the GPU when the frame of the atlas changes.
  * 
  * @author Marivn Köhler
  *
@@ -33,6 +36,63 @@ public class AtlasTextureMap<R extends IResourceProvider<R>> extends AbstractTex
 	protected record LayoutPair<R>(R location, int[] pixels) {};
 	protected MultiFrameAtlasLayoutBuilder<LayoutPair<R>> layoutBuilder;
 	protected boolean building;
+	protected List<AnimatedTexture> animatedTextures = new ArrayList<>();
+	protected int generateMipmapLevels = 1;
+	protected int padding = 0;
+	protected int alignment = 1;
+	
+	/* An animated texture in the atlas, with the pixels of all its frames */
+	protected static class AnimatedTexture {
+		protected final int x;
+		protected final int y;
+		protected final int width;
+		protected final int frameHeight;
+		protected final int cellWidth;
+		protected final int cellHeight;
+		protected final int padding;
+		protected final int[] frames;
+		protected final int frametime;
+		protected final int[] pixels;
+		protected int uploadedState;
+		protected TextureImage uploadImage;
+		/* Reused for the pixels of each update, the updates do not allocate */
+		protected final int[] cellPixels;
+		
+		protected AnimatedTexture(int x, int y, int width, int frameHeight, int cellWidth, int cellHeight, int padding, int[] frames, int frametime, int[] pixels) {
+			this.x = x;
+			this.y = y;
+			this.width = width;
+			this.frameHeight = frameHeight;
+			this.cellWidth = cellWidth;
+			this.cellHeight = cellHeight;
+			this.padding = padding;
+			this.frames = frames;
+			this.frametime = frametime;
+			this.pixels = pixels;
+			this.cellPixels = new int[cellWidth * cellHeight];
+		}
+		
+		/* Identifies the pixels shown at the tick, the pixels only have to be uploaded if the state changes */
+		protected int state(int tick, boolean interpolate) {
+			return interpolate ? tick % (this.frames.length * this.frametime) : (tick / this.frametime) % this.frames.length;
+		}
+		
+		/* The pixels of the whole cell of the texture, the padding is filled with the edges of the texture, the returned array is reused */
+		protected int[] cellPixels(int tick, boolean interpolate) {
+			int frameIndex = (tick / this.frametime) % this.frames.length;
+			int frame = this.frames[frameIndex] * this.frameHeight * this.width;
+			int nextFrame = this.frames[(frameIndex + 1) % this.frames.length] * this.frameHeight * this.width;
+			float interpolation = interpolate ? (tick % this.frametime) / (float) this.frametime : 0;
+			for (int y = 0; y < this.cellHeight; y++) {
+				int row = Math.min(Math.max(y - this.padding, 0), this.frameHeight - 1) * this.width;
+				for (int x = 0; x < this.cellWidth; x++) {
+					int pixel = row + Math.min(Math.max(x - this.padding, 0), this.width - 1);
+					this.cellPixels[y * this.cellWidth + x] = interpolation > 0 ? interpolatePixel(this.pixels[frame + pixel], this.pixels[nextFrame + pixel], interpolation) : this.pixels[frame + pixel];
+				}
+			}
+			return this.cellPixels;
+		}
+	}
 	
 	/**
 	 * Creates a new atlas map, ready for adding textures to it.
@@ -55,6 +115,7 @@ public class AtlasTextureMap<R extends IResourceProvider<R>> extends AbstractTex
 	 */
 	public void addTexture(R location, int width, int height, int[] frames, int frametime, int[] pixels) {
 		if (!building) throw new IllegalStateException("The atlas is already compiled, no more textures can be added!");
+		if (frametime < 1) throw new IllegalArgumentException("The frame time has to be at least 1 tick!");
 		layoutBuilder.addAtlasImage(
 			width, 
 			height, 
@@ -64,6 +125,21 @@ public class AtlasTextureMap<R extends IResourceProvider<R>> extends AbstractTex
 		);
 	}
 	
+	/**
+	 * Sets the number of mip levels generated for the atlas, has to be called before the atlas is composed.
+	 * Each texture is placed in a cell that is padded with its edge pixels and aligned to the size of one pixel of the lowest level, so that the textures do not bleed into each other.
+	 * The padding grows with the number of levels, about 4 levels are enough for most textures.
+	 * @param levels The number of levels including level 0, 1 for no mipmaps
+	 */
+	public void setMipmapLevels(int levels) {
+		if (!building) throw new IllegalStateException("The atlas is already compiled!");
+		this.generateMipmapLevels = Math.max(levels, 1);
+		this.alignment = 1 << (this.generateMipmapLevels - 1);
+		// one pixel of the lowest level, for linear filtering at the edges of the textures
+		this.padding = this.generateMipmapLevels > 1 ? this.alignment : 0;
+		this.layoutBuilder.setPadding(this.padding, this.alignment);
+	}
+	
 	/**
 	 * Tries to place all textures in the atlas and makes the texture ready for use.
 	 * After this method is called, no more textures can be added.
@@ -71,91 +147,180 @@ public class AtlasTextureMap<R extends IResourceProvider<R>> extends AbstractTex
 	 * @param interpolate True if the textures of the atlas need to be interpolated
 	 */
 	public void buildAtlas(boolean prioritizeAtlasHeight, boolean interpolate) {
+		upload(composeAtlas(prioritizeAtlasHeight, interpolate));
+	}
+	
+	/**
+	 * Places all textures in the atlas and composes the atlas image, without uploading it to the GPU.
+	 * After this method is called, no more textures can be added and the returned image has to be uploaded with {@link #upload(TextureImage)}.
+	 * The image contains the first frame of the animated textures, the pixels of their other frames are kept to update them at runtime.
+	 * Does not require the render thread.
+	 * @param prioritizeAtlasHeight Determines the if the textures are aligned on the x or y axis
+	 * @param interpolate True if the textures of the atlas need to be interpolated
+	 * @return The atlas image
+	 */
+	public TextureImage composeAtlas(boolean prioritizeAtlasHeight, boolean interpolate) {
 		if (!building) throw new IllegalStateException("The atlas is already compiled!");
 		
-		AtlasMultiFrameLayout<LayoutPair<R>> layout = layoutBuilder.buildLayout(prioritizeAtlasHeight);
-		BufferedImage atlasImage = new BufferedImage(layout.width(), layout.height(), BufferedImage.TYPE_INT_ARGB);
+		AtlasAnimatedLayout<LayoutPair<R>> layout = layoutBuilder.buildAnimatedLayout(prioritizeAtlasHeight);
+		TextureImage atlasImage = TextureImage.allocate(layout.width(), layout.height());
 		
-		for (List<AtlasFrameLayout<LayoutPair<R>>> frameLayout : layout.frameLayouts()) {
-			for (AtlasFrameLayout<LayoutPair<R>> imageLayout : frameLayout) {
+		for (AtlasImageLayout<AtlasMultiFrameImage<LayoutPair<R>>> imageLayout : layout.imageLayouts()) {
 				
-				int pixels[] = framePixels(imageLayout.image().pixels(), imageLayout.frame(), imageLayout.frameHeight(), imageLayout.width());
-				
-				if (interpolate) {
-					int[] nextPixels = framePixels(imageLayout.image().pixels, imageLayout.nextFrame(), imageLayout.frameHeight(), imageLayout.width());
-					pixels = interpolatePixels(pixels, nextPixels, imageLayout.subframe());
-				}
+			AtlasMultiFrameImage<LayoutPair<R>> image = imageLayout.image().image();
+			int cellWidth = imageLayout.image().width();
+			int cellHeight = imageLayout.image().height();
+			int width = image.width();
+			int frameHeight = image.height() / image.frameCount();
 				
-				atlasImage.setRGB(imageLayout.x(), imageLayout.y(), imageLayout.width(), imageLayout.frameHeight(), pixels, 0, imageLayout.width());
-				if (!location2uv.containsKey(imageLayout.image().location())) {
-					location2uv.put(
-							imageLayout.image().location(), 
-							new Vec4f(
-								imageLayout.x() / (float) layout.width(), 
-								imageLayout.framey() / (float) (layout.height() / layout.frames()),
-								imageLayout.width() / (float) layout.width(), 
-								imageLayout.frameHeight() / (float) (layout.height() / layout.frames())
-							)
-					);
-				}
+			AnimatedTexture texture = new AnimatedTexture(imageLayout.x(), imageLayout.y(), width, frameHeight, cellWidth, cellHeight, this.padding, image.frames(), image.frametime(), image.image().pixels());
+			atlasImage.setARGB(imageLayout.x(), imageLayout.y(), cellWidth, cellHeight, texture.cellPixels(0, interpolate));
+			if (image.frames().length > 1) {
+				texture.uploadedState = texture.state(0, interpolate);
+				this.animatedTextures.add(texture);
+			}
 				
+			if (!location2uv.containsKey(image.image().location())) {
+				location2uv.put(
+						image.image().location(), 
+						new Vec4f(
+							(imageLayout.x() + this.padding) / (float) layout.width(), 
+							(imageLayout.y() + this.padding) / (float) layout.height(),
+							width / (float) layout.width(), 
+							frameHeight / (float) layout.height()
+						)
+				);
 			}
+				
 		}
 		
-		building = false;
+		// interpolated textures are blended every tick, the others only change with the frames of the atlas
+		int frametime = interpolate ? 1 : layout.frametime();
+		compiled(layout.width(), layout.height(), layout.frames() * layout.frametime() / frametime, frametime, interpolate);
 		
-		this.frames = IntStream.range(0, layout.frames()).toArray();
-		this.frameHeight = this.height / (IntStream.of(this.frames).max().getAsInt() + 1);
-		this.frametime = layout.frametime();
-		this.interpolate = interpolate;
-		
-		int width = layout.width();
-		int height = layout.height();
-		int[] pixels = atlasImage.getRGB(0, 0, width, height, null, 0, width);
-		upload(width, height, TextureDataFormat.INT_RGBA_8_8_8_8, pixels);
+		if (this.generateMipmapLevels > 1) atlasImage.generateMipmaps(this.generateMipmapLevels, this.format == TextureFormat.RED_GREEN_BLUE_ALPHA_GAMMACORRECT);
+		return atlasImage;
 	}
 
 	/**
-	 * Helper method to interpolate between two frames.
-	 * @param pixels1 Pixel data array of frame 1
-	 * @param pixels2 Pixel data array of frame 2
-	 * @param interpolation Float value between 0 and 1 to describe the interpolation
-	 * @return The interpolated pixel data array
+	 * Restores a previously composed atlas, like from the {@link AtlasCache}, instead of placing the added textures.
+	 * After this method is called, no more textures can be added and the atlas image has to be uploaded with {@link #upload(TextureImage)}.
+	 * The animated textures have to be restored with {@link #restoreAnimatedTexture(IResourceProvider, int, int, int[], int, int[])}.
+	 * @param location2uv The UV coordinates of the textures in the atlas, as returned by {@link #getLocationUVs()}
+	 * @param width The width of the atlas image
+	 * @param height The height of the atlas image
+	 * @param frames The number of frames of the atlas
+	 * @param frametime The number of ticks a frame lasts
+	 * @param interpolate True if the textures of the atlas are interpolated
 	 */
-	protected static int[] interpolatePixels(int[] pixels1, int[] pixels2, float interpolation) {
-		int[] pixels = new int[pixels1.length];
-		for (int i = 0; i < pixels1.length; i++) {
-			byte a1 = (byte) (pixels1[i] >> 24);
-			byte r1 = (byte) (pixels1[i] >> 16);
-			byte g1 = (byte) (pixels1[i] >> 8);
-			byte b1 = (byte) (pixels1[i] >> 0);
-			byte a2 = (byte) (pixels2[i] >> 24);
-			byte r2 = (byte) (pixels2[i] >> 16);
-			byte g2 = (byte) (pixels2[i] >> 8);
-			byte b2 = (byte) (pixels2[i] >> 0);
-			byte a = (byte) (a1 * (1F - interpolation) + a2 * interpolation);
-			byte r = (byte) (r1 * (1F - interpolation) + r2 * interpolation);
-			byte g = (byte) (g1 * (1F - interpolation) + g2 * interpolation);
-			byte b = (byte) (b1 * (1F - interpolation) + b2 * interpolation);
-			pixels[i] = ((a & 0xFF) << 24) | ((r & 0xFF) << 16) | ((g & 0xFF) << 8) | ((b & 0xFF) << 0);
-		}
-		return pixels;
+	public void restoreAtlas(Map<R, Vec4f> location2uv, int width, int height, int frames, int frametime, boolean interpolate) {
+		if (!building) throw new IllegalStateException("The atlas is already compiled!");
+		this.location2uv.putAll(location2uv);
+		compiled(width, height, frames, frametime, interpolate);
 	}
 	
 	/**
-	 * Helper method to get a array with pixel data of a specific frame copied from the pixel data array of the complete texture.
-	 * @param pixels The pixel data array of the texture
-	 * @param frame The id of the frame, 0 is the first top frame
-	 * @param frameHeight The height of one frame in the texture
-	 * @param width The width of the texture
-	 * @return The pixel data array of the frame
+	 * Restores the frames of an animated texture of a restored atlas, the atlas image has to contain the first frame of the texture.
+	 * The mip levels have to be set as for the composition of the atlas, see {@link #setMipmapLevels(int)}.
+	 * @param location The name under which the texture is stored in the atlas
+	 * @param width The width of the texture in pixels
+	 * @param height The complete height of the texture in pixels (not the height of one frame)
+	 * @param frames The frames id array describing the order of animation frames
+	 * @param frametime The number of ticks a frame lasts
+	 * @param pixels The RGBA pixel data array
 	 */
-	protected static int[] framePixels(int[] pixels, int frame, int frameHeight, int width) {
+	public void restoreAnimatedTexture(R location, int width, int height, int[] frames, int frametime, int[] pixels) {
+		if (building) throw new IllegalStateException("The atlas has to be restored first!");
+		Vec4f uv = this.location2uv.get(location);
+		if (uv == null) throw new IllegalArgumentException("The texture '" + location + "' does not exist in the atlas!");
+		if (frames.length <= 1) return;
+		if (frametime < 1) throw new IllegalArgumentException("The frame time has to be at least 1 tick!");
 		
-		int begin = frame * frameHeight * width;
-		int end = begin + frameHeight * width;
-		return Arrays.copyOfRange(pixels, begin, end);
+		int frameHeight = height / (IntStream.of(frames).max().getAsInt() + 1);
+		int cellWidth = MultiFrameAtlasLayoutBuilder.cellSize(width, this.padding, this.alignment);
+		int cellHeight = MultiFrameAtlasLayoutBuilder.cellSize(frameHeight, this.padding, this.alignment);
+		int x = Math.round(uv.x() * this.width) - this.padding;
+		int y = Math.round(uv.y() * this.height) - this.padding;
+		AnimatedTexture texture = new AnimatedTexture(x, y, width, frameHeight, cellWidth, cellHeight, this.padding, frames, frametime, pixels);
+		texture.uploadedState = texture.state(0, this.interpolate);
+		this.animatedTextures.add(texture);
+	}
+	
+	protected void compiled(int width, int height, int frames, int frametime, boolean interpolate) {
+		building = false;
+		layoutBuilder = null;
 		
+		// the size is known before the upload, the animated textures are placed relative to it
+		this.width = width;
+		this.height = height;
+		this.frames = new int[frames];
+		this.frameHeight = height;
+		this.frametime = frametime;
+		this.interpolate = interpolate;
+	}
+	
+	/**
+	 * Updates the animated textures for the active frame of the atlas, only the regions of the textures that changed are uploaded.
+	 * The frame matrices select the whole atlas, since it contains only one frame.
+	 */
+	@Override
+	public void updateMatrix() {
+		super.updateMatrix();
+		if (this.textureId == -1) return;
+		
+		int tick = this.activeFrame * this.frametime;
+		for (AnimatedTexture texture : this.animatedTextures) {
+			int state = texture.state(tick, this.interpolate);
+			if (state == texture.uploadedState) continue;
+			if (texture.uploadImage == null) {
+				texture.uploadImage = TextureImage.allocate(texture.cellWidth, texture.cellHeight);
+				texture.uploadImage.generateMipmaps(this.mipmapLevels, false);
+			}
+			// the cell is aligned to the lowest mip level, its levels can be uploaded separately
+			texture.uploadImage.setARGB(texture.cellPixels(tick, this.interpolate));
+			texture.uploadImage.updateMipmaps(this.format == TextureFormat.RED_GREEN_BLUE_ALPHA_GAMMACORRECT);
+			uploadRegion(texture.x, texture.y, texture.uploadImage);
+			texture.uploadedState = state;
+		}
+	}
+	
+	/**
+	 * Returns the UV coordinates of all textures in the atlas, the texture with location null is the fallback texture.
+	 * @return The UV coordinates as (u, v, width, height)
+	 */
+	public Map<R, Vec4f> getLocationUVs() {
+		return Collections.unmodifiableMap(location2uv);
+	}
+	
+	/**
+	 * Returns the number of animation frames of the atlas, after which all animated textures completed a full number of cycles.
+	 * @return The number of frames
+	 */
+	public int getFrameCount() {
+		return this.frames.length;
+	}
+
+	/**
+	 * Helper method to interpolate between the pixels of two frames.
+	 * @param pixel1 The ARGB pixel of frame 1
+	 * @param pixel2 The ARGB pixel of frame 2
+	 * @param interpolation Float value between 0 and 1 to describe the interpolation
+	 * @return The interpolated ARGB pixel
+	 */
+	protected static int interpolatePixel(int pixel1, int pixel2, float interpolation) {
+		int a1 = (pixel1 >> 24) & 0xFF;
+		int r1 = (pixel1 >> 16) & 0xFF;
+		int g1 = (pixel1 >> 8) & 0xFF;
+		int b1 = (pixel1 >> 0) & 0xFF;
+		int a2 = (pixel2 >> 24) & 0xFF;
+		int r2 = (pixel2 >> 16) & 0xFF;
+		int g2 = (pixel2 >> 8) & 0xFF;
+		int b2 = (pixel2 >> 0) & 0xFF;
+		int a = Math.round(a1 * (1F - interpolation) + a2 * interpolation);
+		int r = Math.round(r1 * (1F - interpolation) + r2 * interpolation);
+		int g = Math.round(g1 * (1F - interpolation) + g2 * interpolation);
+		int b = Math.round(b1 * (1F - interpolation) + b2 * interpolation);
+		return (a << 24) | (r << 16) | (g << 8) | (b << 0);
 	}
 	
 	@Override
@@ -168,6 +333,21 @@ public class AtlasTextureMap<R extends IResourceProvider<R>> extends AbstractTex
 		}
 	}
 
+	/**
+	 * Returns an immutable handle to the texture in the atlas, the fallback texture is returned if the texture does not exist.
+	 * @param textureLoc The texture name of the texture
+	 * @return The sprite of the texture
+	 */
+	@Override
+	public Sprite getSprite(R textureLoc) {
+		Vec4f uv = location2uv.get(textureLoc);
+		if (uv == null) {
+			Logger.defaultLogger().logWarn("The texture '" + textureLoc + "' does not exist in the atlas!");
+			uv = location2uv.get(null);
+		}
+		return new Sprite(this, uv);
+	}
+	
 	@Override
 	public float mapU(float u) {
 		Vec4f texUV = getUV();
@@ -0,0 +1,129 @@
+package de.m_marvin.gframe.textures.maps;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.m_marvin.gframe.resources.IResourceProvider;
+import de.m_marvin.gframe.textures.utility.TextureFormat;
+import de.m_marvin.gframe.textures.utility.TextureImage;
+
+/**
+ * A set of {@link DynamicAtlasTextureMap} pages of the same size, textures can be added and removed at any time.
+ * A texture is placed on the first page with enough free space, if none has, the pages with enough free area are defragmented.
+ * If the texture still does not fit, a new page is created. Pages that become empty are discarded, except for the first one.
+ *
+ * @author Marvin Köhler
+ *
+ * @param <R> The type of the resource locations
+ */
+public class DynamicAtlas<R extends IResourceProvider<R>> {
+	
+	protected final TextureFormat format;
+	protected final int pageWidth;
+	protected final int pageHeight;
+	protected List<DynamicAtlasTextureMap<R>> pages = new ArrayList<>();
+	protected Map<R, DynamicAtlasTextureMap<R>> location2page = new HashMap<>();
+	
+	/**
+	 * Creates a new dynamic atlas, the first page is allocated on the GPU when the first texture is added.
+	 * @param format The format of the pages on the GPU
+	 * @param pageWidth The width of the pages in pixels
+	 * @param pageHeight The height of the pages in pixels
+	 */
+	public DynamicAtlas(TextureFormat format, int pageWidth, int pageHeight) {
+		this.format = format;
+		this.pageWidth = pageWidth;
+		this.pageHeight = pageHeight;
+	}
+	
+	/**
+	 * Adds a texture to the atlas, a texture already added under the location is replaced.
+	 * @param location The name under which the texture should be stored in the atlas
+	 * @param image The texture image
+	 * @return The page the texture was placed on
+	 * @throws IllegalArgumentException If the texture does not fit on an empty page, which also contains the invalid texture fallback
+	 */
+	public DynamicAtlasTextureMap<R> addTexture(R location, TextureImage image) {
+		
+		if (image.getWidth() > this.pageWidth || image.getHeight() > this.pageHeight) throw new IllegalArgumentException("The texture " + location + " is larger than the atlas pages!");
+		
+		// the texture is replaced in place if possible
+		DynamicAtlasTextureMap<R> previous = this.location2page.get(location);
+		if (previous != null && previous.addTexture(location, image)) return previous;
+		if (previous != null) removeTexture(location);
+		
+		for (DynamicAtlasTextureMap<R> page : this.pages) {
+			if (page.addTexture(location, image)) return placed(location, page);
+		}
+		
+		int area = image.getWidth() * image.getHeight();
+		for (DynamicAtlasTextureMap<R> page : this.pages) {
+			if (page.getFreeArea() < area) continue;
+			if (page.defragment() && page.addTexture(location, image)) return placed(location, page);
+		}
+		
+		DynamicAtlasTextureMap<R> page = new DynamicAtlasTextureMap<>(this.format, this.pageWidth, this.pageHeight);
+		if (!page.addTexture(location, image)) {
+			page.discard();
+			throw new IllegalArgumentException("The texture " + location + " does not fit on an empty atlas page!");
+		}
+		this.pages.add(page);
+		return placed(location, page);
+	
+	}
+	
+	protected DynamicAtlasTextureMap<R> placed(R location, DynamicAtlasTextureMap<R> page) {
+		this.location2page.put(location, page);
+		return page;
+	}
+	
+	/**
+	 * Removes the texture from the atlas.
+	 * @param location The name of the texture
+	 * @return true if the texture was in the atlas
+	 */
+	public boolean removeTexture(R location) {
+		DynamicAtlasTextureMap<R> page = this.location2page.remove(location);
+		if (page == null) return false;
+		page.removeTexture(location);
+		if (page.getTextureCount() == 0 && this.pages.get(0) != page) {
+			this.pages.remove(page);
+			page.discard();
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns the page the texture is placed on.
+	 * The page can change when the texture is added again, its position on the page when the page is defragmented.
+	 * @param location The name of the texture
+	 * @return The page containing the texture or null if the texture is not in the atlas
+	 */
+	public DynamicAtlasTextureMap<R> getPage(R location) {
+		return this.location2page.get(location);
+	}
+	
+	public List<DynamicAtlasTextureMap<R>> getPages() {
+		return Collections.unmodifiableList(pages);
+	}
+	
+	/**
+	 * Defragments all pages, see {@link DynamicAtlasTextureMap#defragment()}.
+	 */
+	public void defragment() {
+		for (DynamicAtlasTextureMap<R> page : this.pages) page.defragment();
+	}
+	
+	/**
+	 * Deletes all pages from the GPU memory.
+	 */
+	public void discard() {
+		for (DynamicAtlasTextureMap<R> page : this.pages) page.discard();
+		this.pages.clear();
+		this.location2page.clear();
+	}
+
+}
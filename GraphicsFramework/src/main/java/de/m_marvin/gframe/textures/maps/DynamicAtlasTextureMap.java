@@ -0,0 +1,243 @@
+package de.m_marvin.gframe.textures.maps;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.m_marvin.gframe.resources.IResourceProvider;
+import de.m_marvin.gframe.textures.TextureLoader;
+import de.m_marvin.gframe.textures.atlasbuilding.RectangleAllocator;
+import de.m_marvin.gframe.textures.atlasbuilding.RectangleAllocator.Rect;
+import de.m_marvin.gframe.textures.utility.TextureDataFormat;
+import de.m_marvin.gframe.textures.utility.TextureFormat;
+import de.m_marvin.gframe.textures.utility.TextureImage;
+import de.m_marvin.simplelogging.printing.Logger;
+import de.m_marvin.univec.impl.Vec4f;
+
+/**
+ * A texture atlas of fixed size that allows to add and remove textures at any time.
+ * Added textures are placed in a free region of the atlas and only that region is uploaded to the GPU, removed textures free their region for new textures.
+ * The images of the textures are kept in memory, so that they can be moved when the atlas is defragmented.
+ * Like the {@link AtlasTextureMap}, the atlas contains the invalid texture fallback, which is used for textures that do not exist in it.
+ * Does not support animated textures, see {@link DynamicAtlas} for a set of atlases that grows as required.
+ *
+ * @author Marvin Köhler
+ *
+ * @param <R> The type of the resource locations
+ */
+public class DynamicAtlasTextureMap<R extends IResourceProvider<R>> extends AbstractTextureMap<R> {
+	
+	protected record AtlasEntry(Rect rect, TextureImage image) {}
+	
+	protected RectangleAllocator allocator;
+	protected Map<R, AtlasEntry> entries = new LinkedHashMap<>();
+	protected Map<R, Vec4f> location2uv = new HashMap<>();
+	protected R activeTexture = null;
+	protected Rect fallbackRect;
+	protected Vec4f fallbackUV;
+	
+	/**
+	 * Creates a new empty atlas and allocates it on the GPU.
+	 * @param format The format of the texture on the GPU
+	 * @param width The width of the atlas in pixels
+	 * @param height The height of the atlas in pixels
+	 */
+	public DynamicAtlasTextureMap(TextureFormat format, int width, int height) {
+		super(format);
+		this.allocator = new RectangleAllocator(width, height);
+		this.frames = new int[] {0};
+		this.frameHeight = height;
+		this.frametime = 1;
+		this.interpolate = false;
+		upload(width, height, TextureDataFormat.INT_RGBA_8_8_8_8, (ByteBuffer) null);
+		this.fallbackRect = this.allocator.allocate(fallbackImage().getWidth(), fallbackImage().getHeight());
+		if (this.fallbackRect == null) throw new IllegalArgumentException("The atlas is too small for the invalid texture fallback!");
+		placeFallback();
+	}
+	
+	protected TextureImage fallbackImage() {
+		return TextureLoader.INVALID_TEXTURE_FALLBACK_PACK.texture();
+	}
+	
+	protected void placeFallback() {
+		this.fallbackUV = uvOf(this.fallbackRect);
+		uploadRegion(this.fallbackRect.x(), this.fallbackRect.y(), fallbackImage());
+	}
+	
+	/**
+	 * Adds a texture to the atlas and uploads it into its region, a texture already added under the location is replaced.
+	 * @param location The name under which the texture should be stored in the atlas
+	 * @param image The texture image
+	 * @return true if the texture was added, false if there is no free region large enough for it, a replaced texture of different size is removed in that case
+	 */
+	public boolean addTexture(R location, TextureImage image) {
+		
+		AtlasEntry previous = this.entries.get(location);
+		if (previous != null && previous.rect().width() == image.getWidth() && previous.rect().height() == image.getHeight()) {
+			this.entries.put(location, new AtlasEntry(previous.rect(), image));
+			uploadRegion(previous.rect().x(), previous.rect().y(), image);
+			return true;
+		}
+		
+		if (previous != null) removeTexture(location);
+		Rect rect = this.allocator.allocate(image.getWidth(), image.getHeight());
+		if (rect == null) return false;
+		
+		this.entries.put(location, new AtlasEntry(rect, image));
+		this.location2uv.put(location, uvOf(rect));
+		uploadRegion(rect.x(), rect.y(), image);
+		return true;
+	
+	}
+	
+	/**
+	 * Removes the texture from the atlas, its region is reused for new textures.
+	 * @param location The name of the texture
+	 * @return true if the texture was in the atlas
+	 */
+	public boolean removeTexture(R location) {
+		AtlasEntry entry = this.entries.remove(location);
+		if (entry == null) return false;
+		this.location2uv.remove(location);
+		this.allocator.free(entry.rect());
+		if (location.equals(this.activeTexture)) this.activeTexture = null;
+		return true;
+	}
+	
+	/**
+	 * Places all textures again, to merge the free space fragmented by removed textures.
+	 * The moved textures are uploaded again, their UV coordinates change.
+	 * @return true if the textures where rearranged, false if they did not fit into the atlas in the new arrangement, in which case the atlas is left unchanged
+	 */
+	public boolean defragment() {
+		
+		List<Map.Entry<R, AtlasEntry>> sorted = new ArrayList<>(this.entries.entrySet());
+		sorted.sort(Comparator.<Map.Entry<R, AtlasEntry>>comparingInt(entry -> entry.getValue().rect().height()).thenComparingInt(entry -> entry.getValue().rect().width()).reversed());
+		
+		RectangleAllocator allocator = new RectangleAllocator(this.allocator.getWidth(), this.allocator.getHeight());
+		Rect fallbackRect = allocator.allocate(this.fallbackRect.width(), this.fallbackRect.height());
+		Map<R, AtlasEntry> entries = new LinkedHashMap<>();
+		for (Map.Entry<R, AtlasEntry> entry : sorted) {
+			TextureImage image = entry.getValue().image();
+			Rect rect = allocator.allocate(image.getWidth(), image.getHeight());
+			if (rect == null) return false;
+			entries.put(entry.getKey(), new AtlasEntry(rect, image));
+		}
+		
+		this.allocator = allocator;
+		this.entries = entries;
+		this.fallbackRect = fallbackRect;
+		placeFallback();
+		for (Map.Entry<R, AtlasEntry> entry : entries.entrySet()) {
+			Rect rect = entry.getValue().rect();
+			this.location2uv.put(entry.getKey(), uvOf(rect));
+			uploadRegion(rect.x(), rect.y(), entry.getValue().image());
+		}
+		return true;
+	
+	}
+	
+	protected Vec4f uvOf(Rect rect) {
+		return new Vec4f(
+				rect.x() / (float) this.width,
+				rect.y() / (float) this.height,
+				rect.width() / (float) this.width,
+				rect.height() / (float) this.height
+		);
+	}
+	
+	public boolean containsTexture(R location) {
+		return this.entries.containsKey(location);
+	}
+	
+	public int getTextureCount() {
+		return this.entries.size();
+	}
+	
+	/**
+	 * Returns the area of the atlas not covered by textures, it might be fragmented.
+	 * @return The free area in pixels
+	 */
+	public int getFreeArea() {
+		return this.allocator.getFreeArea();
+	}
+	
+	/**
+	 * Returns the area of the atlas covered by textures.
+	 * @return The used area in pixels
+	 */
+	public int getUsedArea() {
+		return this.allocator.getUsedArea();
+	}
+	
+	@Override
+	public void activateTexture(R textureLoc) {
+		if (location2uv.containsKey(textureLoc)) {
+			activeTexture = textureLoc;
+		} else {
+			Logger.defaultLogger().logWarn("The texture '" + textureLoc + "' does not exist in the atlas!");
+			activeTexture = null;
+		}
+	}
+	
+	/**
+	 * Returns an immutable handle to the texture in the atlas, the fallback texture is returned if the texture does not exist.
+	 * The sprite has to be resolved again after the atlas was defragmented or the texture was added again.
+	 * @param textureLoc The texture name of the texture
+	 * @return The sprite of the texture
+	 */
+	@Override
+	public Sprite getSprite(R textureLoc) {
+		Vec4f uv = location2uv.get(textureLoc);
+		if (uv == null) {
+			Logger.defaultLogger().logWarn("The texture '" + textureLoc + "' does not exist in the atlas!");
+			uv = fallbackUV;
+		}
+		return new Sprite(this, uv);
+	}
+	
+	@Override
+	public float mapU(float u) {
+		Vec4f texUV = getUV();
+		return texUV.x() + texUV.z() * u;
+	}
+	
+	@Override
+	public float mapV(float v) {
+		Vec4f texUV = getUV();
+		return texUV.y() + texUV.w() * v;
+	}
+	
+	@Override
+	public Vec4f getUV() {
+		Vec4f uv = location2uv.get(activeTexture);
+		return uv == null ? fallbackUV : uv;
+	}
+	
+	@Override
+	public int getImageWidth() {
+		AtlasEntry entry = this.entries.get(this.activeTexture);
+		return entry == null ? fallbackRect.width() : entry.rect().width();
+	}
+	
+	@Override
+	public int getImageHeight() {
+		AtlasEntry entry = this.entries.get(this.activeTexture);
+		return entry == null ? fallbackRect.height() : entry.rect().height();
+	}
+	
+	@Override
+	public int getMapWidth() {
+		return width;
+	}
+	
+	@Override
+	public int getMapHeight() {
+		return height;
+	}
+
+}
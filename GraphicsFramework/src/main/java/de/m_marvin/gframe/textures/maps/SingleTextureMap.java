@@ -6,6 +6,7 @@ import java.util.stream.IntStream;
 import de.m_marvin.gframe.resources.IResourceProvider;
 import de.m_marvin.gframe.textures.utility.TextureDataFormat;
 import de.m_marvin.gframe.textures.utility.TextureFormat;
+import de.m_marvin.gframe.textures.utility.TextureImage;
 import de.m_marvin.univec.impl.Vec4f;
 
 /**
@@ -40,6 +41,24 @@ public class SingleTextureMap<R extends IResourceProvider<R>> extends AbstractTe
 		updateMatrix();
 	}
 	
+	/**
+	 * Creates a new single texture map and fully initializes it with the given texture data.
+	 * 
+	 * @param format The format of the texture on the GPU
+	 * @param image The decoded texture
+	 * @param frames The frames id array describing the order of animation frames
+	 * @param frametime The number of ticks a frame lasts
+	 * @param interpolate True if the texture has to be interpolated
+	 */
+	public SingleTextureMap(TextureFormat format, TextureImage image, int[] frames, int frametime, boolean interpolate) {
+		super(format);
+		this.frames = frames;
+		this.frameHeight = image.getHeight() / (IntStream.of(this.frames).max().getAsInt() + 1);
+		this.frametime = frametime;
+		this.interpolate = interpolate;
+		upload(image);
+	}
+	
 	/**
 	 * Creates a new single texture map and fully initializes it with the given texture data.
 	 * 
@@ -0,0 +1,61 @@
+package de.m_marvin.gframe.textures.maps;
+
+import de.m_marvin.unimat.impl.Matrix3f;
+import de.m_marvin.univec.impl.Vec4f;
+
+/**
+ * An immutable handle to a texture in a texture map, carrying the UV rectangle of the texture.
+ * Unlike selecting the texture with {@link AbstractTextureMap#activateTexture(de.m_marvin.gframe.resources.IResourceProvider)}, a sprite does not modify the texture map.
+ * Sprites are resolved once with {@link AbstractTextureMap#getSprite(de.m_marvin.gframe.resources.IResourceProvider)} and can then be used from multiple threads, like to build geometry in parallel.
+ * The animation matrices are still provided by the texture map.
+ *
+ * @author Marvin Köhler
+ *
+ * @param map The texture map containing the texture
+ * @param u The U position of the low corner of the texture in the map
+ * @param v The V position of the low corner of the texture in the map
+ * @param width The width of the texture in UV coordinates
+ * @param height The height of the texture in UV coordinates
+ */
+public record Sprite(AbstractTextureMap<?> map, float u, float v, float width, float height) implements IUVModifyer {
+	
+	/**
+	 * Creates a sprite from the UV position and size packed as Vec4f, as returned by {@link IUVModifyer#getUV()}.
+	 * @param map The texture map containing the texture
+	 * @param uv The UV position and size of the texture
+	 */
+	public Sprite(AbstractTextureMap<?> map, Vec4f uv) {
+		this(map, uv.x(), uv.y(), uv.z(), uv.w());
+	}
+	
+	@Override
+	public Vec4f getUV() {
+		return new Vec4f(this.u, this.v, this.width, this.height);
+	}
+	
+	@Override
+	public float mapU(float u) {
+		return this.u + this.width * u;
+	}
+	
+	@Override
+	public float mapV(float v) {
+		return this.v + this.height * v;
+	}
+	
+	@Override
+	public Matrix3f frameMatrix() {
+		return this.map.frameMatrix();
+	}
+	
+	@Override
+	public Matrix3f lastFrameMatrix() {
+		return this.map.lastFrameMatrix();
+	}
+	
+	@Override
+	public boolean doFrameInterpolation() {
+		return this.map.doFrameInterpolation();
+	}
+
+}
@@ -1,11 +1,14 @@
 package de.m_marvin.gframe.textures.texture;
 
+import java.nio.ByteBuffer;
+
 import org.lwjgl.opengl.GL33;
 
 import de.m_marvin.gframe.GLStateManager;
 import de.m_marvin.gframe.textures.utility.TextureDataFormat;
 import de.m_marvin.gframe.textures.utility.TextureFilter;
 import de.m_marvin.gframe.textures.utility.TextureFormat;
+import de.m_marvin.gframe.textures.utility.TextureImage;
 
 /**
  * Base class of the different textures.
@@ -20,6 +23,7 @@ public class Texture implements ITextureSampler {
 	protected TextureFormat format;
 	protected TextureFilter minFilter = TextureFilter.NEAREST;
 	protected TextureFilter magFilter = TextureFilter.NEAREST;
+	protected int mipmapLevels = 1;
 	protected int textureId = -1;
 	
 	public Texture(TextureFormat format) {
@@ -50,6 +54,26 @@ public class Texture implements ITextureSampler {
 		return height;
 	}
 	
+	/**
+	 * Returns the approximated size of the texture in GPU memory, zero if it has not been uploaded yet.
+	 * @return The size of the texture in bytes
+	 */
+	public long getByteSize() {
+		long size = 0;
+		for (int level = 0; level < this.mipmapLevels; level++) {
+			size += (long) Math.max(this.width >> level, 1) * Math.max(this.height >> level, 1) * this.format.bytesPerPixel();
+		}
+		return size;
+	}
+	
+	/**
+	 * Returns the number of mip levels uploaded to the GPU, including level 0.
+	 * @return The number of mip levels, 1 if the texture has no mipmaps
+	 */
+	public int getMipmapLevels() {
+		return mipmapLevels;
+	}
+	
 	/**
 	 * Uploads the given texture data to the GPU.<br>
 	 * <b>NOTE:</b> The texture is not actually created on the GPU before this function is called.
@@ -59,16 +83,109 @@ public class Texture implements ITextureSampler {
 	 * @param pixels The pixel data or null if initialization with 0 is required
 	 */
 	public void upload(int width, int height, TextureDataFormat format, int[] pixels) {
+		prepareUpload(width, height);
+		GLStateManager.uploadTexture(GL33.GL_TEXTURE_2D, 0, this.format.glType(), format.glPixelFormat(), this.width, this.height, 0, format.glFormat(), pixels);
+		setFilterParameters();
+	}
+	
+	/**
+	 * Uploads the given texture data to the GPU, directly from native memory.<br>
+	 * <b>NOTE:</b> The texture is not actually created on the GPU before this function is called.
+	 * @param width The width of the texture image
+	 * @param height The height of the texture image
+	 * @param format The format of the pixel data in the buffer
+	 * @param pixels The pixel data, starting at the buffer's position, or null if initialization with 0 is required
+	 */
+	public void upload(int width, int height, TextureDataFormat format, ByteBuffer pixels) {
+		prepareUpload(width, height);
+		GLStateManager.uploadTexture(GL33.GL_TEXTURE_2D, 0, this.format.glType(), format.glPixelFormat(), this.width, this.height, 0, format.glFormat(), pixels);
+		setFilterParameters();
+	}
+	
+	/**
+	 * Uploads the decoded image to the GPU, together with its mip levels if it has any, see {@link TextureImage#getMipmaps()}.
+	 * @param image The image to upload
+	 */
+	public void upload(TextureImage image) {
+		upload(image.getWidth(), image.getHeight(), TextureDataFormat.INT_RGBA_8_8_8_8, image.getPixels());
+		TextureImage[] mipmaps = image.getMipmaps();
+		if (mipmaps.length == 0) return;
+		for (int level = 1; level <= mipmaps.length; level++) {
+			TextureImage mipmap = mipmaps[level - 1];
+			GLStateManager.uploadTexture(GL33.GL_TEXTURE_2D, level, this.format.glType(), TextureDataFormat.INT_RGBA_8_8_8_8.glPixelFormat(), mipmap.getWidth(), mipmap.getHeight(), 0, TextureDataFormat.INT_RGBA_8_8_8_8.glFormat(), mipmap.getPixels());
+		}
+		this.mipmapLevels = mipmaps.length + 1;
+		setFilterParameters();
+	}
+	
+	/**
+	 * Replaces a region of the already uploaded texture, the rest of the texture is left unchanged.
+	 * @param x The x position of the region in the texture
+	 * @param y The y position of the region in the texture
+	 * @param width The width of the region
+	 * @param height The height of the region
+	 * @param format The format of the pixel data in the buffer
+	 * @param pixels The pixel data of the region, starting at the buffer's position
+	 */
+	public void uploadRegion(int x, int y, int width, int height, TextureDataFormat format, ByteBuffer pixels) {
+		uploadRegion(0, x, y, width, height, format, pixels);
+	}
+	
+	/**
+	 * Replaces a region of a mip level of the already uploaded texture, the rest of the texture is left unchanged.
+	 * @param level The mip level, 0 for the full size texture
+	 * @param x The x position of the region in the level
+	 * @param y The y position of the region in the level
+	 * @param width The width of the region
+	 * @param height The height of the region
+	 * @param format The format of the pixel data in the buffer
+	 * @param pixels The pixel data of the region, starting at the buffer's position
+	 */
+	public void uploadRegion(int level, int x, int y, int width, int height, TextureDataFormat format, ByteBuffer pixels) {
+		GLStateManager.assertOnRenderThread();
+		assert this.textureId > -1 : "this texture has not yet been initialized on the GPU!";
+		if (level < 0 || level >= this.mipmapLevels) throw new IndexOutOfBoundsException("The texture has only " + this.mipmapLevels + " mip levels!");
+		int levelWidth = Math.max(this.width >> level, 1);
+		int levelHeight = Math.max(this.height >> level, 1);
+		if (x < 0 || y < 0 || x + width > levelWidth || y + height > levelHeight) throw new IndexOutOfBoundsException("The region " + width + "x" + height + " at " + x + "|" + y + " is outside of the texture!");
+		bind();
+		GLStateManager.uploadSubTexture(GL33.GL_TEXTURE_2D, level, x, y, width, height, format.glPixelFormat(), format.glFormat(), pixels);
+	}
+	
+	/**
+	 * Replaces a region of the already uploaded texture with the image.
+	 * The mip levels of the image are uploaded to the same region in the mip levels of the texture, as far as the texture has them.
+	 * For the levels to line up, the position has to be a multiple of 2 to the power of the number of mip levels of the image.
+	 * @param x The x position of the image in the texture
+	 * @param y The y position of the image in the texture
+	 * @param image The image to upload
+	 */
+	public void uploadRegion(int x, int y, TextureImage image) {
+		uploadRegion(0, x, y, image.getWidth(), image.getHeight(), TextureDataFormat.INT_RGBA_8_8_8_8, image.getPixels());
+		TextureImage[] mipmaps = image.getMipmaps();
+		for (int level = 1; level <= mipmaps.length && level < this.mipmapLevels; level++) {
+			TextureImage mipmap = mipmaps[level - 1];
+			uploadRegion(level, x >> level, y >> level, mipmap.getWidth(), mipmap.getHeight(), TextureDataFormat.INT_RGBA_8_8_8_8, mipmap.getPixels());
+		}
+	}
+	
+	protected void prepareUpload(int width, int height) {
 		GLStateManager.assertOnRenderThread();
 		this.width = width;
 		this.height = height;
+		this.mipmapLevels = 1;
 		if (this.textureId == -1) {
 			this.textureId = GLStateManager.genTexture();
 		}
 		bind();
-		GLStateManager.uploadTexture(GL33.GL_TEXTURE_2D, 0, this.format.glType(), format.glPixelFormat(), this.width, this.height, 0, format.glFormat(), pixels);
-		GLStateManager.textureParameter(GL33.GL_TEXTURE_2D, GL33.GL_TEXTURE_MIN_FILTER, this.minFilter.glType());
+	}
+	
+	protected void setFilterParameters() {
+		// textures with mipmaps are sampled from them when minified, the levels above the uploaded ones are excluded
+		TextureFilter minFilter = this.mipmapLevels > 1 ? this.minFilter.mipmapped() : this.minFilter;
+		GLStateManager.textureParameter(GL33.GL_TEXTURE_2D, GL33.GL_TEXTURE_MIN_FILTER, minFilter.glType());
 		GLStateManager.textureParameter(GL33.GL_TEXTURE_2D, GL33.GL_TEXTURE_MAG_FILTER, this.magFilter.glType());
+		GLStateManager.textureParameter(GL33.GL_TEXTURE_2D, GL33.GL_TEXTURE_MAX_LEVEL, this.mipmapLevels - 1);
 	}
 	
 	/**
@@ -0,0 +1,137 @@
+package de.m_marvin.gframe.textures.utility;
+
+import java.nio.ByteBuffer;
+import java.util.stream.IntStream;
+
+/**
+ * Generates the mip levels of a {@link TextureImage} on the CPU, each level is filtered from the previous one with a 2x2 box filter.
+ * The colors are weighted by their alpha, so that fully transparent pixels do not darken the edges of the textures.
+ * For gamma corrected textures the colors are averaged in linear space, averaging the sRGB values directly would darken the lower levels.
+ * Larger levels are filtered in parallel, row by row.
+ *
+ * @author Marvin Köhler
+ */
+public class MipmapGenerator {
+	
+	/* The minimum number of pixels of a level to filter it in parallel */
+	protected static final int PARALLEL_THRESHOLD = 128 * 128;
+	
+	protected static final float[] SRGB_TO_LINEAR = new float[256];
+	/* Linear to sRGB, with 12 bit precision for the linear value */
+	protected static final byte[] LINEAR_TO_SRGB = new byte[4096];
+	
+	static {
+		for (int i = 0; i < SRGB_TO_LINEAR.length; i++) {
+			float c = i / 255F;
+			SRGB_TO_LINEAR[i] = c <= 0.04045F ? c / 12.92F : (float) Math.pow((c + 0.055F) / 1.055F, 2.4F);
+		}
+		for (int i = 0; i < LINEAR_TO_SRGB.length; i++) {
+			float c = i / (float) (LINEAR_TO_SRGB.length - 1);
+			float s = c <= 0.0031308F ? c * 12.92F : 1.055F * (float) Math.pow(c, 1 / 2.4F) - 0.055F;
+			LINEAR_TO_SRGB[i] = (byte) Math.round(s * 255);
+		}
+	}
+	
+	/**
+	 * Returns the number of levels of a complete mip chain, down to a size of 1x1 pixels.
+	 * @param width The width of the image
+	 * @param height The height of the image
+	 * @return The number of levels, including the image itself
+	 */
+	public static int maxLevels(int width, int height) {
+		return 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+	}
+	
+	/**
+	 * Generates the lower mip levels of the image, the size of each level is half the size of the previous level, rounded down but at least one pixel.
+	 * @param image The image of level 0
+	 * @param levels The number of levels including level 0, limited to {@link #maxLevels(int, int)}
+	 * @param gammaCorrect True if the pixels are sRGB encoded, as for {@link TextureFormat#RED_GREEN_BLUE_ALPHA_GAMMACORRECT}
+	 * @return The images of the levels 1 to levels - 1
+	 */
+	public static TextureImage[] generate(TextureImage image, int levels, boolean gammaCorrect) {
+		levels = Math.min(levels, maxLevels(image.getWidth(), image.getHeight()));
+		TextureImage[] mipmaps = new TextureImage[Math.max(levels - 1, 0)];
+		TextureImage level = image;
+		for (int i = 0; i < mipmaps.length; i++) {
+			level = mipmaps[i] = downsample(level, gammaCorrect);
+		}
+		return mipmaps;
+	}
+	
+	/**
+	 * Filters the image down to the next mip level.
+	 * @param image The image of the previous level
+	 * @param gammaCorrect True if the pixels are sRGB encoded
+	 * @return The image of the next level
+	 */
+	public static TextureImage downsample(TextureImage image, boolean gammaCorrect) {
+		TextureImage level = TextureImage.allocate(Math.max(image.getWidth() / 2, 1), Math.max(image.getHeight() / 2, 1));
+		downsample(image, level, gammaCorrect);
+		return level;
+	}
+	
+	/**
+	 * Filters the image down into the existing image of the next mip level.
+	 * @param image The image of the previous level
+	 * @param level The image of the next level, half the size of the previous level
+	 * @param gammaCorrect True if the pixels are sRGB encoded
+	 */
+	public static void downsample(TextureImage image, TextureImage level, boolean gammaCorrect) {
+		IntStream rows = IntStream.range(0, level.getHeight());
+		if (level.getWidth() * level.getHeight() >= PARALLEL_THRESHOLD) rows = rows.parallel();
+		rows.forEach(y -> downsampleRow(image, level, y, gammaCorrect));
+	}
+	
+	protected static void downsampleRow(TextureImage source, TextureImage target, int y, boolean gammaCorrect) {
+		
+		ByteBuffer src = source.getPixels();
+		ByteBuffer dst = target.getPixels();
+		int srcWidth = source.getWidth();
+		int srcStart = src.position();
+		int y0 = Math.min(y * 2, source.getHeight() - 1);
+		int y1 = Math.min(y * 2 + 1, source.getHeight() - 1);
+		
+		for (int x = 0; x < target.getWidth(); x++) {
+			
+			int x0 = Math.min(x * 2, srcWidth - 1);
+			int x1 = Math.min(x * 2 + 1, srcWidth - 1);
+			
+			float r = 0, g = 0, b = 0, a = 0;
+			float ur = 0, ug = 0, ub = 0;
+			for (int i = 0; i < 4; i++) {
+				int index = srcStart + (((i < 2 ? y0 : y1) * srcWidth) + ((i & 1) == 0 ? x0 : x1)) * 4;
+				float alpha = (src.get(index + 3) & 0xFF) / 255F;
+				float cr = channel(src.get(index + 0), gammaCorrect);
+				float cg = channel(src.get(index + 1), gammaCorrect);
+				float cb = channel(src.get(index + 2), gammaCorrect);
+				r += cr * alpha;
+				g += cg * alpha;
+				b += cb * alpha;
+				ur += cr;
+				ug += cg;
+				ub += cb;
+				a += alpha;
+			}
+			
+			// fully transparent texels get the unweighted average, the target might still contain the colors of a previous frame
+			int index = dst.position() + (y * target.getWidth() + x) * 4;
+			dst.put(index + 0, encode(a > 0 ? r / a : ur / 4, gammaCorrect));
+			dst.put(index + 1, encode(a > 0 ? g / a : ug / 4, gammaCorrect));
+			dst.put(index + 2, encode(a > 0 ? b / a : ub / 4, gammaCorrect));
+			dst.put(index + 3, (byte) Math.round(a / 4 * 255));
+		
+		}
+	
+	}
+	
+	protected static float channel(byte value, boolean gammaCorrect) {
+		return gammaCorrect ? SRGB_TO_LINEAR[value & 0xFF] : (value & 0xFF) / 255F;
+	}
+	
+	protected static byte encode(float value, boolean gammaCorrect) {
+		value = Math.min(Math.max(value, 0), 1);
+		return gammaCorrect ? LINEAR_TO_SRGB[Math.round(value * (LINEAR_TO_SRGB.length - 1))] : (byte) Math.round(value * 255);
+	}
+
+}
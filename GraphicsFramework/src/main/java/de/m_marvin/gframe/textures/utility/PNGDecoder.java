@@ -0,0 +1,369 @@
+package de.m_marvin.gframe.textures.utility;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decodes PNG images directly into a {@link TextureImage}, without the copies made by {@link javax.imageio.ImageIO}.
+ * The scanlines are inflated and unfiltered one by one and written as RGBA into the image, bottom-up.
+ * All color types and bit depths are supported, 16 bit samples are reduced to 8 bit.
+ * Interlaced images are not supported, {@link #isInterlaced()} can be used to fall back to another decoder.
+ *
+ * @author Marvin Köhler
+ */
+public class PNGDecoder {
+	
+	public static final byte[] SIGNATURE = new byte[] {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+	
+	public static final int COLOR_GRAYSCALE = 0;
+	public static final int COLOR_TRUECOLOR = 2;
+	public static final int COLOR_INDEXED = 3;
+	public static final int COLOR_GRAYSCALE_ALPHA = 4;
+	public static final int COLOR_TRUECOLOR_ALPHA = 6;
+	
+	protected static final int CHUNK_IHDR = 0x49484452;
+	protected static final int CHUNK_PLTE = 0x504C5445;
+	protected static final int CHUNK_TRNS = 0x74524E53;
+	protected static final int CHUNK_IDAT = 0x49444154;
+	protected static final int CHUNK_IEND = 0x49454E44;
+	
+	protected final ByteBuffer source;
+	protected int width;
+	protected int height;
+	protected int bitDepth;
+	protected int colorType;
+	protected int interlace;
+	/* The palette as RGBA, including the alpha values of the tRNS chunk */
+	protected byte[] palette;
+	/* The transparent sample values of the tRNS chunk for grayscale and truecolor images */
+	protected int[] transparentColor;
+	/* The position of the first IDAT chunk */
+	protected int dataStart = -1;
+	
+	/**
+	 * Checks if the buffer starts with the PNG signature.
+	 * @param buffer The buffer to check, its position is not changed
+	 * @return true if the buffer contains a PNG image
+	 */
+	public static boolean isPNG(ByteBuffer buffer) {
+		if (buffer.remaining() < SIGNATURE.length) return false;
+		for (int i = 0; i < SIGNATURE.length; i++) {
+			if (buffer.get(buffer.position() + i) != SIGNATURE[i]) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Reads the header and palette of the PNG image, the image data is decoded by {@link #decode()}.
+	 * @param buffer The buffer containing the PNG file, its position is not changed
+	 * @throws IOException If the buffer does not contain a valid PNG image
+	 */
+	public PNGDecoder(ByteBuffer buffer) throws IOException {
+		
+		if (!isPNG(buffer)) throw new IOException("Not a PNG image!");
+		this.source = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+		
+		int position = SIGNATURE.length;
+		while (this.dataStart == -1) {
+			
+			if (position + 8 > this.source.limit()) throw new IOException("Unexpected end of PNG image!");
+			int length = this.source.getInt(position);
+			int type = this.source.getInt(position + 4);
+			int data = position + 8;
+			if (length < 0 || data + length + 4 > this.source.limit()) throw new IOException("Invalid PNG chunk length!");
+			
+			switch (type) {
+				case CHUNK_IHDR:
+					readHeader(data, length);
+					break;
+				case CHUNK_PLTE:
+					readPalette(data, length);
+					break;
+				case CHUNK_TRNS:
+					readTransparency(data, length);
+					break;
+				case CHUNK_IDAT:
+					this.dataStart = position;
+					break;
+				case CHUNK_IEND:
+					throw new IOException("PNG image contains no image data!");
+			}
+			if (this.width == 0) throw new IOException("PNG image has no header!");
+			
+			position = data + length + 4;
+		
+		}
+		
+		if (this.colorType == COLOR_INDEXED && this.palette == null) throw new IOException("Indexed PNG image has no palette!");
+	
+	}
+	
+	protected void readHeader(int data, int length) throws IOException {
+		if (length < 13) throw new IOException("Invalid PNG header!");
+		this.width = this.source.getInt(data);
+		this.height = this.source.getInt(data + 4);
+		this.bitDepth = this.source.get(data + 8) & 0xFF;
+		this.colorType = this.source.get(data + 9) & 0xFF;
+		this.interlace = this.source.get(data + 12) & 0xFF;
+		if (this.width <= 0 || this.height <= 0 || (long) this.width * this.height * 4 > Integer.MAX_VALUE) throw new IOException("Invalid PNG image size " + this.width + "x" + this.height + "!");
+		boolean validDepth = switch (this.colorType) {
+			case COLOR_GRAYSCALE -> this.bitDepth == 1 || this.bitDepth == 2 || this.bitDepth == 4 || this.bitDepth == 8 || this.bitDepth == 16;
+			case COLOR_INDEXED -> this.bitDepth == 1 || this.bitDepth == 2 || this.bitDepth == 4 || this.bitDepth == 8;
+			case COLOR_TRUECOLOR, COLOR_GRAYSCALE_ALPHA, COLOR_TRUECOLOR_ALPHA -> this.bitDepth == 8 || this.bitDepth == 16;
+			default -> false;
+		};
+		if (!validDepth) throw new IOException("Invalid PNG color type " + this.colorType + " with bit depth " + this.bitDepth + "!");
+	}
+	
+	protected void readPalette(int data, int length) throws IOException {
+		if (length % 3 != 0 || length > 256 * 3) throw new IOException("Invalid PNG palette!");
+		this.palette = new byte[256 * 4];
+		for (int i = 0; i < length / 3; i++) {
+			this.palette[i * 4 + 0] = this.source.get(data + i * 3 + 0);
+			this.palette[i * 4 + 1] = this.source.get(data + i * 3 + 1);
+			this.palette[i * 4 + 2] = this.source.get(data + i * 3 + 2);
+			this.palette[i * 4 + 3] = (byte) 0xFF;
+		}
+	}
+	
+	protected void readTransparency(int data, int length) throws IOException {
+		switch (this.colorType) {
+			case COLOR_INDEXED:
+				if (this.palette == null) throw new IOException("PNG transparency before palette!");
+				for (int i = 0; i < Math.min(length, 256); i++) this.palette[i * 4 + 3] = this.source.get(data + i);
+				break;
+			case COLOR_GRAYSCALE:
+				if (length < 2) throw new IOException("Invalid PNG transparency!");
+				this.transparentColor = new int[] {this.source.getShort(data) & 0xFFFF};
+				break;
+			case COLOR_TRUECOLOR:
+				if (length < 6) throw new IOException("Invalid PNG transparency!");
+				this.transparentColor = new int[] {this.source.getShort(data) & 0xFFFF, this.source.getShort(data + 2) & 0xFFFF, this.source.getShort(data + 4) & 0xFFFF};
+				break;
+		}
+	}
+	
+	public int getWidth() {
+		return width;
+	}
+	
+	public int getHeight() {
+		return height;
+	}
+	
+	public boolean isInterlaced() {
+		return this.interlace != 0;
+	}
+	
+	protected int channels() {
+		return switch (this.colorType) {
+			case COLOR_TRUECOLOR -> 3;
+			case COLOR_GRAYSCALE_ALPHA -> 2;
+			case COLOR_TRUECOLOR_ALPHA -> 4;
+			default -> 1;
+		};
+	}
+	
+	/**
+	 * Decodes the image into a new {@link TextureImage}.
+	 * @return The decoded image
+	 * @throws IOException If the image data is corrupted or the image is interlaced
+	 */
+	public TextureImage decode() throws IOException {
+		TextureImage image = TextureImage.allocate(this.width, this.height);
+		decode(image.getPixels());
+		return image;
+	}
+	
+	/**
+	 * Decodes the image into the buffer, as RGBA bytes with the rows bottom-up.
+	 * @param target The buffer to write to, starting at its position, the position is not changed
+	 * @throws IOException If the image data is corrupted or the image is interlaced
+	 */
+	public void decode(ByteBuffer target) throws IOException {
+		
+		if (isInterlaced()) throw new IOException("Interlaced PNG images are not supported!");
+		if (target.remaining() < this.width * this.height * 4) throw new IllegalArgumentException("The target buffer is to small for the image!");
+		
+		int bitsPerPixel = channels() * this.bitDepth;
+		int bytesPerPixel = Math.max(1, bitsPerPixel / 8);
+		int rowLength = (int) (((long) this.width * bitsPerPixel + 7) / 8);
+		byte[] previousRow = new byte[rowLength];
+		byte[] row = new byte[rowLength];
+		byte[] pixels = new byte[this.width * 4];
+		byte[] filter = new byte[1];
+		
+		Inflater inflater = new Inflater();
+		try {
+			
+			int chunk = this.dataStart;
+			for (int y = 0; y < this.height; y++) {
+				
+				boolean filterRead = false;
+				int read = 0;
+				while (read < rowLength) {
+					if (inflater.needsInput()) {
+						chunk = nextDataChunk(inflater, chunk);
+						continue;
+					}
+					if (!filterRead) {
+						filterRead = inflater.inflate(filter) == 1;
+					} else {
+						read += inflater.inflate(row, read, rowLength - read);
+					}
+					if (inflater.finished() && read < rowLength) throw new IOException("Unexpected end of PNG image data!");
+					if (inflater.needsDictionary()) throw new IOException("Invalid PNG image data!");
+				}
+				
+				unfilter(filter[0] & 0xFF, row, previousRow, bytesPerPixel);
+				convertRow(row, pixels);
+				target.put(target.position() + (this.height - 1 - y) * pixels.length, pixels);
+				
+				byte[] swap = previousRow;
+				previousRow = row;
+				row = swap;
+			
+			}
+		
+		} catch (DataFormatException e) {
+			throw new IOException("Invalid PNG image data!", e);
+		} finally {
+			inflater.end();
+		}
+	
+	}
+	
+	/**
+	 * Passes the data of the next IDAT chunk to the inflater.
+	 * @return The position of the chunk after the passed one
+	 */
+	protected int nextDataChunk(Inflater inflater, int position) throws IOException {
+		if (position + 8 > this.source.limit()) throw new IOException("Unexpected end of PNG image!");
+		int length = this.source.getInt(position);
+		int type = this.source.getInt(position + 4);
+		if (type != CHUNK_IDAT) throw new IOException("Unexpected end of PNG image data!");
+		if (length < 0 || position + 12 + length > this.source.limit()) throw new IOException("Invalid PNG chunk length!");
+		inflater.setInput(this.source.slice(position + 8, length));
+		return position + 12 + length;
+	}
+	
+	protected static void unfilter(int filter, byte[] row, byte[] previousRow, int bytesPerPixel) throws IOException {
+		switch (filter) {
+			case 0:
+				break;
+			case 1:
+				for (int i = bytesPerPixel; i < row.length; i++) row[i] += row[i - bytesPerPixel];
+				break;
+			case 2:
+				for (int i = 0; i < row.length; i++) row[i] += previousRow[i];
+				break;
+			case 3:
+				for (int i = 0; i < bytesPerPixel; i++) row[i] += (previousRow[i] & 0xFF) >>> 1;
+				for (int i = bytesPerPixel; i < row.length; i++) row[i] += ((row[i - bytesPerPixel] & 0xFF) + (previousRow[i] & 0xFF)) >>> 1;
+				break;
+			case 4:
+				for (int i = 0; i < bytesPerPixel; i++) row[i] += previousRow[i];
+				for (int i = bytesPerPixel; i < row.length; i++) row[i] += paeth(row[i - bytesPerPixel] & 0xFF, previousRow[i] & 0xFF, previousRow[i - bytesPerPixel] & 0xFF);
+				break;
+			default:
+				throw new IOException("Invalid PNG filter type " + filter + "!");
+		}
+	}
+	
+	protected static int paeth(int a, int b, int c) {
+		int p = a + b - c;
+		int pa = Math.abs(p - a);
+		int pb = Math.abs(p - b);
+		int pc = Math.abs(p - c);
+		if (pa <= pb && pa <= pc) return a;
+		return pb <= pc ? b : c;
+	}
+	
+	/**
+	 * Converts an unfiltered scanline to RGBA.
+	 */
+	protected void convertRow(byte[] row, byte[] pixels) {
+		
+		if (this.bitDepth == 8 && this.colorType == COLOR_TRUECOLOR_ALPHA) {
+			System.arraycopy(row, 0, pixels, 0, pixels.length);
+			return;
+		}
+		
+		for (int x = 0; x < this.width; x++) {
+			int pixel = x * 4;
+			switch (this.colorType) {
+				case COLOR_INDEXED: {
+					System.arraycopy(this.palette, sample(row, x) * 4, pixels, pixel, 4);
+					break;
+				}
+				case COLOR_GRAYSCALE: {
+					int gray = sample(row, x);
+					byte value = to8Bit(gray);
+					pixels[pixel + 0] = value;
+					pixels[pixel + 1] = value;
+					pixels[pixel + 2] = value;
+					pixels[pixel + 3] = (byte) (this.transparentColor != null && this.transparentColor[0] == gray ? 0 : 0xFF);
+					break;
+				}
+				case COLOR_GRAYSCALE_ALPHA: {
+					byte value = to8Bit(sample(row, x * 2));
+					pixels[pixel + 0] = value;
+					pixels[pixel + 1] = value;
+					pixels[pixel + 2] = value;
+					pixels[pixel + 3] = to8Bit(sample(row, x * 2 + 1));
+					break;
+				}
+				case COLOR_TRUECOLOR: {
+					int r = sample(row, x * 3);
+					int g = sample(row, x * 3 + 1);
+					int b = sample(row, x * 3 + 2);
+					pixels[pixel + 0] = to8Bit(r);
+					pixels[pixel + 1] = to8Bit(g);
+					pixels[pixel + 2] = to8Bit(b);
+					boolean transparent = this.transparentColor != null && this.transparentColor[0] == r && this.transparentColor[1] == g && this.transparentColor[2] == b;
+					pixels[pixel + 3] = (byte) (transparent ? 0 : 0xFF);
+					break;
+				}
+				case COLOR_TRUECOLOR_ALPHA: {
+					pixels[pixel + 0] = to8Bit(sample(row, x * 4));
+					pixels[pixel + 1] = to8Bit(sample(row, x * 4 + 1));
+					pixels[pixel + 2] = to8Bit(sample(row, x * 4 + 2));
+					pixels[pixel + 3] = to8Bit(sample(row, x * 4 + 3));
+					break;
+				}
+			}
+		}
+	
+	}
+	
+	/**
+	 * Returns the raw value of the sample with the given index in the scanline.
+	 */
+	protected int sample(byte[] row, int index) {
+		switch (this.bitDepth) {
+			case 8:
+				return row[index] & 0xFF;
+			case 16:
+				return ((row[index * 2] & 0xFF) << 8) | (row[index * 2 + 1] & 0xFF);
+			default:
+				int bit = index * this.bitDepth;
+				int shift = 8 - this.bitDepth - (bit & 7);
+				return ((row[bit >>> 3] & 0xFF) >>> shift) & ((1 << this.bitDepth) - 1);
+		}
+	}
+	
+	/**
+	 * Scales a sample value to 8 bit.
+	 */
+	protected byte to8Bit(int value) {
+		return switch (this.bitDepth) {
+			case 16 -> (byte) (value >>> 8);
+			case 8 -> (byte) value;
+			default -> (byte) (value * 255 / ((1 << this.bitDepth) - 1));
+		};
+	}
+
+}
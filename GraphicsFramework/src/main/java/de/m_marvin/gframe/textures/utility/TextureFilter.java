@@ -10,7 +10,9 @@ import org.lwjgl.opengl.GL33;
  */
 public enum TextureFilter {
 	
-	LINEAR(GL33.GL_LINEAR),NEAREST(GL33.GL_NEAREST);
+	LINEAR(GL33.GL_LINEAR),NEAREST(GL33.GL_NEAREST),
+	LINEAR_MIPMAP_LINEAR(GL33.GL_LINEAR_MIPMAP_LINEAR),LINEAR_MIPMAP_NEAREST(GL33.GL_LINEAR_MIPMAP_NEAREST),
+	NEAREST_MIPMAP_LINEAR(GL33.GL_NEAREST_MIPMAP_LINEAR),NEAREST_MIPMAP_NEAREST(GL33.GL_NEAREST_MIPMAP_NEAREST);
 	
 	private final int glType;
 	
@@ -22,4 +24,17 @@ public enum TextureFilter {
 		return this.glType;
 	}
 	
+	/**
+	 * Returns the variant of this filter that samples the mip levels, blending between them.
+	 * Only applicable as min filter, the mipmap filters are returned unchanged.
+	 * @return The filter for textures with mipmaps
+	 */
+	public TextureFilter mipmapped() {
+		return switch (this) {
+		case LINEAR -> LINEAR_MIPMAP_LINEAR;
+		case NEAREST -> NEAREST_MIPMAP_LINEAR;
+		default -> this;
+		};
+	}
+
 }
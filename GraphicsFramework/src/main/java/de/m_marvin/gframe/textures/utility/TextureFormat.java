@@ -4,23 +4,32 @@ import org.lwjgl.opengl.GL33;
 
 public enum TextureFormat {
 	
-	DEPTH(GL33.GL_DEPTH_COMPONENT),
-	DEPTH_STENCIL(GL33.GL_DEPTH_STENCIL),
-	RED(GL33.GL_RED),
-	RED_GREEN(GL33.GL_RG),
-	RED_GREEN_BLUE(GL33.GL_RGB),
-	RED_GREEN_BLUE_ALPHA(GL33.GL_RGBA),
-	RED_GREEN_BLUE_ALPHA_GAMMACORRECT(GL33.GL_SRGB_ALPHA);
+	DEPTH(GL33.GL_DEPTH_COMPONENT, 4),
+	DEPTH_STENCIL(GL33.GL_DEPTH_STENCIL, 4),
+	RED(GL33.GL_RED, 1),
+	RED_GREEN(GL33.GL_RG, 2),
+	RED_GREEN_BLUE(GL33.GL_RGB, 3),
+	RED_GREEN_BLUE_ALPHA(GL33.GL_RGBA, 4),
+	RED_GREEN_BLUE_ALPHA_GAMMACORRECT(GL33.GL_SRGB_ALPHA, 4);
 	
 	// TODO all formats from https://docs.gl/gl4/glTexImage2D
 	
 	private final int glType;
+	private final int bytesPerPixel;
 	
-	private TextureFormat(int glType) {
+	private TextureFormat(int glType, int bytesPerPixel) {
 		this.glType = glType;
+		this.bytesPerPixel = bytesPerPixel;
 	}
 	
 	public int glType() {
 		return glType;
 	}
+	
+	/**
+	 * The approximated number of bytes a pixel of this format occupies in GPU memory, the actual size depends on the driver.
+	 */
+	public int bytesPerPixel() {
+		return bytesPerPixel;
+	}
 }
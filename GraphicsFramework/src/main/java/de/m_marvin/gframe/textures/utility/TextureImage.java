@@ -0,0 +1,173 @@
+package de.m_marvin.gframe.textures.utility;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+
+/**
+ * A decoded texture image, ready to be uploaded with {@link TextureDataFormat#INT_RGBA_8_8_8_8}.
+ * The pixels are stored as RGBA bytes in a direct buffer, the rows are stored bottom-up as expected by OpenGL.
+ *
+ * @author Marvin Köhler
+ */
+public class TextureImage {
+	
+	protected final int width;
+	protected final int height;
+	protected final ByteBuffer pixels;
+	/* The lower mip levels, starting with level 1 */
+	protected TextureImage[] mipmaps = new TextureImage[0];
+	
+	/**
+	 * Creates a new image from existing pixel data.
+	 * @param width The width of the image in pixels
+	 * @param height The height of the image in pixels
+	 * @param pixels The RGBA pixel data, rows bottom-up
+	 */
+	public TextureImage(int width, int height, ByteBuffer pixels) {
+		if (pixels.remaining() < width * height * 4) throw new IllegalArgumentException("The pixel buffer is to small for an image of " + width + "x" + height + " pixels!");
+		this.width = width;
+		this.height = height;
+		this.pixels = pixels;
+	}
+	
+	/**
+	 * Creates a new image with all pixels set to zero.
+	 * @param width The width of the image in pixels
+	 * @param height The height of the image in pixels
+	 * @return The new image
+	 */
+	public static TextureImage allocate(int width, int height) {
+		return new TextureImage(width, height, ByteBuffer.allocateDirect(width * height * 4));
+	}
+	
+	/**
+	 * Creates a new image from ARGB pixels, as used by {@link BufferedImage#getRGB(int, int)}.
+	 * @param width The width of the image in pixels
+	 * @param height The height of the image in pixels
+	 * @param pixels The ARGB pixels, rows bottom-up
+	 * @return The new image
+	 */
+	public static TextureImage fromARGB(int width, int height, int[] pixels) {
+		TextureImage image = allocate(width, height);
+		image.setARGB(pixels);
+		return image;
+	}
+	
+	/**
+	 * Creates a new image from a {@link BufferedImage}, the rows are flipped while copying.
+	 * @param image The image with rows top-down
+	 * @return The new image
+	 */
+	public static TextureImage fromBufferedImage(BufferedImage image) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		TextureImage texture = allocate(width, height);
+		int[] row = new int[width];
+		for (int y = 0; y < height; y++) {
+			image.getRGB(0, y, width, 1, row, 0, width);
+			int offset = (height - 1 - y) * width * 4;
+			for (int x = 0; x < width; x++) texture.pixels.putInt(offset + x * 4, argbToRgba(row[x]));
+		}
+		return texture;
+	}
+	
+	/* The buffers are big endian, so the int is written as R, G, B, A */
+	protected static int argbToRgba(int argb) {
+		return (argb << 8) | (argb >>> 24);
+	}
+	
+	public int getWidth() {
+		return width;
+	}
+	
+	public int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * Sets the lower mip levels of this image, which are uploaded together with the image.
+	 * @param mipmaps The images of the levels, starting with level 1, as generated by {@link MipmapGenerator#generate(TextureImage, int, boolean)}
+	 */
+	public void setMipmaps(TextureImage... mipmaps) {
+		this.mipmaps = mipmaps;
+	}
+	
+	/**
+	 * Generates and sets the lower mip levels of this image, see {@link MipmapGenerator}.
+	 * @param levels The number of levels including this image
+	 * @param gammaCorrect True if the pixels are sRGB encoded
+	 */
+	public void generateMipmaps(int levels, boolean gammaCorrect) {
+		this.mipmaps = MipmapGenerator.generate(this, levels, gammaCorrect);
+	}
+	
+	/**
+	 * Filters the existing mip levels of this image again, after its pixels changed.
+	 * @param gammaCorrect True if the pixels are sRGB encoded
+	 */
+	public void updateMipmaps(boolean gammaCorrect) {
+		TextureImage level = this;
+		for (TextureImage mipmap : this.mipmaps) {
+			MipmapGenerator.downsample(level, mipmap, gammaCorrect);
+			level = mipmap;
+		}
+	}
+	
+	/**
+	 * Returns the lower mip levels of this image, starting with level 1.
+	 * @return The images of the levels, empty if the image has no mip levels
+	 */
+	public TextureImage[] getMipmaps() {
+		return mipmaps;
+	}
+	
+	/**
+	 * Returns the pixel data of this image, must not be modified.
+	 * @return The RGBA pixel data, rows bottom-up
+	 */
+	public ByteBuffer getPixels() {
+		return pixels;
+	}
+	
+	/**
+	 * Replaces the pixels of this image with ARGB pixels, allows to reuse the image for repeated uploads.
+	 * @param pixels The ARGB pixels, rows bottom-up
+	 */
+	public void setARGB(int[] pixels) {
+		for (int i = 0; i < this.width * this.height; i++) {
+			this.pixels.putInt(this.pixels.position() + i * 4, argbToRgba(pixels[i]));
+		}
+	}
+	
+	/**
+	 * Replaces the pixels of a region of this image with ARGB pixels, used to compose the texture atlases.
+	 * @param x The x coordinate of the region
+	 * @param y The y coordinate of the region, in the row order of this image
+	 * @param width The width of the region
+	 * @param height The height of the region
+	 * @param pixels The ARGB pixels of the region, in the row order of this image
+	 */
+	public void setARGB(int x, int y, int width, int height, int[] pixels) {
+		if (x < 0 || y < 0 || x + width > this.width || y + height > this.height) throw new IllegalArgumentException("The region exceeds the image bounds!");
+		for (int row = 0; row < height; row++) {
+			int offset = this.pixels.position() + ((y + row) * this.width + x) * 4;
+			for (int column = 0; column < width; column++) {
+				this.pixels.putInt(offset + column * 4, argbToRgba(pixels[row * width + column]));
+			}
+		}
+	}
+	
+	/**
+	 * Converts the pixels to ARGB, as used by {@link BufferedImage#getRGB(int, int)} and the texture atlases.
+	 * @return The ARGB pixels, rows bottom-up
+	 */
+	public int[] getARGB() {
+		int[] argb = new int[width * height];
+		for (int i = 0; i < argb.length; i++) {
+			int rgba = this.pixels.getInt(this.pixels.position() + i * 4);
+			argb[i] = (rgba >>> 8) | (rgba << 24);
+		}
+		return argb;
+	}
+
+}
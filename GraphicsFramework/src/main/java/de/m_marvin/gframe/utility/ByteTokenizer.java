@@ -0,0 +1,271 @@
+package de.m_marvin.gframe.utility;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A simple tokenizer working directly on the bytes of an ASCII (or UTF-8) text in a {@link ByteBuffer}.
+ * Tokens are separated by spaces or tabs, lines by '\n' (an optional '\r' is ignored).
+ * Numbers are parsed directly from the bytes, without creating intermediate strings.
+ * Used by the text based model parsers, which spend most of their time in splitting lines and parsing numbers.
+ *
+ * @author Marvin Köhler
+ */
+public class ByteTokenizer {
+
+	protected static final double[] POWERS_OF_TEN = new double[23];
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+	}
+
+	protected final ByteBuffer buffer;
+	protected final int end;
+	protected int position;
+
+	/**
+	 * Creates a new tokenizer reading the bytes between the position and the limit of the buffer.
+	 * The position of the buffer itself is not modified.
+	 * @param buffer The buffer to read from
+	 */
+	public ByteTokenizer(ByteBuffer buffer) {
+		this(buffer, buffer.position(), buffer.limit());
+	}
+
+	/**
+	 * Creates a new tokenizer reading the bytes in the given range of the buffer.
+	 * The position of the buffer itself is not modified.
+	 * @param buffer The buffer to read from
+	 * @param start The index of the first byte to read
+	 * @param end The index after the last byte to read
+	 */
+	public ByteTokenizer(ByteBuffer buffer, int start, int end) {
+		this.buffer = buffer;
+		this.position = start;
+		this.end = end;
+	}
+
+	public int position() {
+		return this.position;
+	}
+
+	public boolean hasRemaining() {
+		return this.position < this.end;
+	}
+
+	protected static boolean isSpace(byte b) {
+		return b == ' ' || b == '\t' || b == '\r';
+	}
+
+	protected static boolean isSeparator(byte b) {
+		return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+	}
+
+	/**
+	 * Skips all spaces and tabs until the next token or the end of the line.
+	 */
+	public void skipSpaces() {
+		while (this.position < this.end && isSpace(this.buffer.get(this.position))) this.position++;
+	}
+
+	/**
+	 * Skips the remaining bytes of the current line including the line break.
+	 */
+	public void nextLine() {
+		while (this.position < this.end) {
+			if (this.buffer.get(this.position++) == '\n') return;
+		}
+	}
+
+	/**
+	 * Skips the remaining bytes of the current token.
+	 */
+	public void skipToken() {
+		while (this.position < this.end && !isSeparator(this.buffer.get(this.position))) this.position++;
+	}
+
+	/**
+	 * Checks if the current line contains more tokens.
+	 * Comments starting with '#' are treated as end of the line.
+	 * @return true if an other token follows on this line
+	 */
+	public boolean hasToken() {
+		skipSpaces();
+		if (this.position >= this.end) return false;
+		byte b = this.buffer.get(this.position);
+		return b != '\n' && b != '#';
+	}
+
+	/**
+	 * Checks if the next token equals the given keyword and consumes it if so.
+	 * @param keyword The keyword as ASCII bytes
+	 * @return true if the keyword was found and consumed
+	 */
+	public boolean matchToken(byte[] keyword) {
+		skipSpaces();
+		int tokenEnd = this.position + keyword.length;
+		if (tokenEnd > this.end) return false;
+		for (int i = 0; i < keyword.length; i++) {
+			if (this.buffer.get(this.position + i) != keyword[i]) return false;
+		}
+		if (tokenEnd < this.end && !isSeparator(this.buffer.get(tokenEnd))) return false;
+		this.position = tokenEnd;
+		return true;
+	}
+
+	/**
+	 * Consumes the next byte if it equals the given character.
+	 * @param c The character to test for
+	 * @return true if the character was found and consumed
+	 */
+	public boolean matchChar(char c) {
+		if (this.position < this.end && this.buffer.get(this.position) == c) {
+			this.position++;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Reads the next token as UTF-8 string.
+	 * @return The next token or an empty string if the line has no more tokens
+	 */
+	public String nextString() {
+		if (!hasToken()) return "";
+		int start = this.position;
+		skipToken();
+		byte[] bytes = new byte[this.position - start];
+		this.buffer.get(start, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parses an integer value at the current position.
+	 * Stops at the first byte that is not part of the number, which allows parsing compound tokens like "1/2/3".
+	 * Numbers outside of the int range are consumed but not accepted, the fallback is returned for them.
+	 * @param fallback The value returned if no number is found at the current position
+	 * @return The parsed value or the fallback
+	 */
+	public int nextInt(int fallback) {
+		skipSpaces();
+		int p = this.position;
+		boolean negative = false;
+		if (p < this.end) {
+			byte b = this.buffer.get(p);
+			if (b == '-' || b == '+') {
+				negative = b == '-';
+				p++;
+			}
+		}
+		int start = p;
+		long value = 0;
+		boolean overflow = false;
+		while (p < this.end) {
+			int digit = this.buffer.get(p) - '0';
+			if (digit < 0 || digit > 9) break;
+			if (!overflow) {
+				value = value * 10 + digit;
+				overflow = value > (negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE);
+			}
+			p++;
+		}
+		if (p == start) return fallback;
+		this.position = p;
+		if (overflow) return fallback;
+		return (int) (negative ? -value : value);
+	}
+
+	/**
+	 * Parses an decimal floating point value at the current position.
+	 * Supports an optional sign, fraction and exponent.
+	 * If the token is not a valid number, the token is skipped and the fallback is returned.
+	 * @param fallback The value returned if no number is found at the current position
+	 * @return The parsed value or the fallback
+	 */
+	public float nextFloat(float fallback) {
+		if (!hasToken()) return fallback;
+		int p = this.position;
+		boolean negative = false;
+		byte b = this.buffer.get(p);
+		if (b == '-' || b == '+') {
+			negative = b == '-';
+			p++;
+		}
+
+		long mantissa = 0;
+		int exponent = 0;
+		int digits = 0;
+		int significant = 0;
+		while (p < this.end) {
+			int digit = this.buffer.get(p) - '0';
+			if (digit < 0 || digit > 9) break;
+			if (significant < 18) {
+				mantissa = mantissa * 10 + digit;
+				if (mantissa > 0) significant++;
+			} else {
+				exponent++;
+			}
+			digits++;
+			p++;
+		}
+		if (p < this.end && this.buffer.get(p) == '.') {
+			p++;
+			while (p < this.end) {
+				int digit = this.buffer.get(p) - '0';
+				if (digit < 0 || digit > 9) break;
+				if (significant < 18) {
+					mantissa = mantissa * 10 + digit;
+					if (mantissa > 0) significant++;
+					exponent--;
+				}
+				digits++;
+				p++;
+			}
+		}
+		if (digits == 0) {
+			skipToken();
+			return fallback;
+		}
+		if (p < this.end && (this.buffer.get(p) | 0x20) == 'e') {
+			int q = p + 1;
+			boolean negativeExponent = false;
+			if (q < this.end && (this.buffer.get(q) == '-' || this.buffer.get(q) == '+')) {
+				negativeExponent = this.buffer.get(q) == '-';
+				q++;
+			}
+			int exponentStart = q;
+			int explicitExponent = 0;
+			while (q < this.end) {
+				int digit = this.buffer.get(q) - '0';
+				if (digit < 0 || digit > 9) break;
+				if (explicitExponent < 10000) explicitExponent = explicitExponent * 10 + digit;
+				q++;
+			}
+			if (q > exponentStart) {
+				exponent += negativeExponent ? -explicitExponent : explicitExponent;
+				p = q;
+			}
+		}
+		this.position = p;
+
+		double value = mantissa;
+		if (exponent != 0 && mantissa != 0) {
+			if (exponent < 0) {
+				while (exponent < -22) {
+					value /= POWERS_OF_TEN[22];
+					exponent += 22;
+				}
+				value /= POWERS_OF_TEN[-exponent];
+			} else {
+				while (exponent > 22) {
+					value *= POWERS_OF_TEN[22];
+					exponent -= 22;
+				}
+				value *= POWERS_OF_TEN[exponent];
+			}
+		}
+		return (float) (negative ? -value : value);
+	}
+
+}
@@ -0,0 +1,118 @@
+package de.m_marvin.gframe.utility;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive int values.
+ * Used in places where a {@link java.util.List} of boxed values would waste to much memory and time, like the model parsers.
+ * 
+ * @author Marvin Köhler
+ */
+public class IntArrayList {
+	
+	protected int[] data;
+	protected int size;
+	
+	/**
+	 * Creates a new empty list with an initial capacity of 16 values.
+	 */
+	public IntArrayList() {
+		this(16);
+	}
+	
+	/**
+	 * Creates a new empty list with the given initial capacity.
+	 * @param capacity The initial number of values the list can hold without growing
+	 */
+	public IntArrayList(int capacity) {
+		this.data = new int[Math.max(capacity, 1)];
+	}
+	
+	/**
+	 * Makes sure the list can hold the given number of values without growing again.
+	 * @param capacity The number of values the list has to be able to hold
+	 */
+	public void ensureCapacity(int capacity) {
+		if (capacity > this.data.length) {
+			this.data = Arrays.copyOf(this.data, Math.max(capacity, this.data.length + (this.data.length >> 1)));
+		}
+	}
+	
+	public void add(int i) {
+		if (this.size == this.data.length) ensureCapacity(this.size + 1);
+		this.data[this.size++] = i;
+	}
+	
+	public void add(int x, int y) {
+		ensureCapacity(this.size + 2);
+		this.data[this.size++] = x;
+		this.data[this.size++] = y;
+	}
+	
+	public void add(int x, int y, int z) {
+		ensureCapacity(this.size + 3);
+		this.data[this.size++] = x;
+		this.data[this.size++] = y;
+		this.data[this.size++] = z;
+	}
+	
+	/**
+	 * Appends the values of the given list to this list.
+	 * @param list The list to copy the values from
+	 */
+	public void addAll(IntArrayList list) {
+		ensureCapacity(this.size + list.size);
+		System.arraycopy(list.data, 0, this.data, this.size, list.size);
+		this.size += list.size;
+	}
+	
+	public int get(int index) {
+		if (index >= this.size) throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + this.size);
+		return this.data[index];
+	}
+	
+	public void set(int index, int i) {
+		if (index >= this.size) throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + this.size);
+		this.data[index] = i;
+	}
+	
+	/**
+	 * Changes the size of the list, new values are initialized with zero.
+	 * @param size The new size of the list
+	 */
+	public void resize(int size) {
+		ensureCapacity(size);
+		if (size > this.size) Arrays.fill(this.data, this.size, size, 0);
+		this.size = size;
+	}
+	
+	public int size() {
+		return this.size;
+	}
+	
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+	
+	public void clear() {
+		this.size = 0;
+	}
+	
+	/**
+	 * Returns the backing array of this list, only the first {@link #size()} values are valid.
+	 * Intended for bulk operations, the array is replaced when the list grows.
+	 * @return The backing array of this list
+	 */
+	public int[] array() {
+		return this.data;
+	}
+	
+	/**
+	 * Returns a copy of the values in this list, trimmed to the size of the list.
+	 * @return A new array containing the values of this list
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(this.data, this.size);
+	}
+	
+}
@@ -0,0 +1,76 @@
+package de.m_marvin.enginetest;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import de.m_marvin.gframe.textures.atlasbuilding.AtlasLayoutBuilder;
+import de.m_marvin.gframe.textures.atlasbuilding.AtlasLayoutBuilder.AtlasImage;
+import de.m_marvin.gframe.textures.atlasbuilding.AtlasLayoutBuilder.AtlasLayout;
+
+/**
+ * Measures the time to pack sprites of random sizes between 4 and 32 pixels into an atlas.
+ * The packing efficiency of the layouts is printed once per sprite count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AtlasPackingBenchmark {
+	
+	@Param({"1000", "10000", "50000"})
+	public int sprites;
+	
+	protected AtlasImage<Integer>[] images;
+	
+	@SuppressWarnings("unchecked")
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(sprites);
+		this.images = new AtlasImage[sprites];
+		for (int i = 0; i < sprites; i++) {
+			this.images[i] = new AtlasImage<>(4 + random.nextInt(29), 4 + random.nextInt(29), i);
+		}
+		AtlasLayout<Integer> layout = pack(false);
+		System.out.printf("%n%d sprites: %dx%d atlas, %.1f%% efficiency%n", sprites, layout.width(), layout.height(), layout.efficiency() * 100);
+	}
+	
+	protected AtlasLayout<Integer> pack(boolean powerOfTwo) {
+		AtlasLayoutBuilder<Integer> builder = new AtlasLayoutBuilder<>();
+		builder.setPowerOfTwo(powerOfTwo);
+		for (AtlasImage<Integer> image : this.images) builder.addAtlasImage(image);
+		return builder.buildLayout(false);
+	}
+	
+	@Benchmark
+	public AtlasLayout<Integer> packAtlas() {
+		return pack(false);
+	}
+	
+	@Benchmark
+	public AtlasLayout<Integer> packPowerOfTwoAtlas() {
+		return pack(true);
+	}
+	
+	public static void main(String... args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(AtlasPackingBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -19,6 +19,7 @@ import de.m_marvin.gframe.buffers.VertexBuffer;
 import de.m_marvin.gframe.framebuffers.Framebuffer;
 import de.m_marvin.gframe.inputbinding.UserInput;
 import de.m_marvin.gframe.inputbinding.bindingsource.KeySource;
+import de.m_marvin.gframe.resources.LoadingPipeline;
 import de.m_marvin.gframe.resources.ResourceLoader;
 import de.m_marvin.gframe.resources.defimpl.ResourceLocation;
 import de.m_marvin.gframe.shaders.ShaderInstance;
@@ -63,6 +64,7 @@ public class EngineExample {
 	private ShaderLoader<ResourceLocation, ResourceFolders> shaderLoader;
 	private TextureLoader<ResourceLocation, ResourceFolders> textureLoader;
 	private UserInput inputHandler;
+	private LoadingPipeline loadingPipeline;
 	
 	protected Camera mainCamera;
 	protected Matrix4f projectionMatrix = Matrix4f.perspective(50, 1000F / 600F, 1F, 1000F);
@@ -185,10 +187,11 @@ public class EngineExample {
 		inputHandler.registerBinding("physic.activate").addBinding(KeySource.getKey(GLFW.GLFW_KEY_P));
 		inputHandler.registerBinding("spawn_object").addBinding(KeySource.getKey(GLFW.GLFW_KEY_O));
 		
-		// Load shader, textures and models
-		shaderLoader.loadShadersIn(WORLD_SHADER_LOCATION, 10);
-		textureLoader.buildAtlasMapFromTextures(OBJECT_TEXTURE_LOCATION, OBJECT_TEXTURE_ATLAS, false, false, 10, false);
-		textureLoader.buildAtlasMapFromTextures(OBJECT_TEXTURE_LOCATION, OBJECT_TEXTURE_ATLAS_INTERPOLATED, false, true, 10, false);
+		// Load shader, textures and models, the uploads are processed by the first frames
+		loadingPipeline = new LoadingPipeline();
+		shaderLoader.loadShadersIn(loadingPipeline, WORLD_SHADER_LOCATION, 10);
+		textureLoader.buildAtlasMapFromTextures(loadingPipeline, OBJECT_TEXTURE_LOCATION, OBJECT_TEXTURE_ATLAS, false, false, 10, false);
+		textureLoader.buildAtlasMapFromTextures(loadingPipeline, OBJECT_TEXTURE_LOCATION, OBJECT_TEXTURE_ATLAS_INTERPOLATED, false, true, 10, false);
 
 		windowResized(new Vec2i(this.mainWindow.getSize().x, this.mainWindow.getSize().x));
 		this.mainWindow.registerWindowListener((windowResize, type) -> { if (windowResize.isPresent()) windowResized(new Vec2i(windowResize.get())); });
@@ -223,6 +226,15 @@ public class EngineExample {
 	int fbt = 0;
 	
 	private void frame(float partialTick) {
+		
+		if (loadingPipeline != null) {
+			GLStateManager.clearColor(0, 0, 0, 1);
+			GLStateManager.clear();
+			// keep the loading screen responsive, 4ms per frame for the uploads
+			if (!loadingPipeline.processUploads(4000000)) return;
+			loadingPipeline.logMetrics();
+			loadingPipeline = null;
+		}
 
 		Framebuffer framebuffer = null;
 		if (fbt == 100) {
@@ -0,0 +1,100 @@
+package de.m_marvin.enginetest;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import de.m_marvin.gframe.resources.ResourceCache;
+import de.m_marvin.gframe.resources.defimpl.ResourceLocation;
+
+/**
+ * Measures the cost of the texture lookups per frame in a scene with many sprites.
+ * The lookups go through the alias map and the texture cache, like {@link de.m_marvin.gframe.textures.TextureLoader#getTextureMap(de.m_marvin.gframe.resources.IResourceProvider)}.
+ * The sprites either hold interned locations or equal but separately created ones, the later have to be compared by their strings.
+ * Deriving measures the creation of the locations of all sprites from their folders.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocationLookupBenchmark {
+	
+	public static final String NAMESPACE = "sprites";
+	public static final int TEXTURES = 500;
+	public static final int SPRITES = 20000;
+	
+	protected Map<ResourceLocation, ResourceLocation> textureAliases;
+	protected ResourceCache<ResourceLocation, Object> textureCache;
+	protected ResourceLocation[] internedSprites;
+	protected ResourceLocation[] createdSprites;
+	protected ResourceLocation[] derivedSprites;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		
+		ResourceLocation atlasName = ResourceLocation.of(NAMESPACE, "sprite_atlas");
+		this.textureAliases = new HashMap<>();
+		this.textureCache = new ResourceCache<>();
+		this.textureCache.put(atlasName, new Object());
+		for (int i = 0; i < TEXTURES; i++) {
+			this.textureAliases.put(ResourceLocation.of(NAMESPACE, "entities/sprite_" + i + ".png"), atlasName);
+		}
+		
+		this.internedSprites = new ResourceLocation[SPRITES];
+		this.createdSprites = new ResourceLocation[SPRITES];
+		this.derivedSprites = new ResourceLocation[SPRITES];
+		for (int i = 0; i < SPRITES; i++) {
+			this.internedSprites[i] = ResourceLocation.of(NAMESPACE, "entities/sprite_" + (i % TEXTURES) + ".png");
+			this.createdSprites[i] = new ResourceLocation(NAMESPACE, "entities/sprite_" + (i % TEXTURES) + ".png");
+		}
+		
+		if (lookupFrame(this.internedSprites) != SPRITES || lookupFrame(this.createdSprites) != SPRITES) throw new IllegalStateException("Not all textures were found!");
+	
+	}
+	
+	protected int lookupFrame(ResourceLocation[] sprites) {
+		int found = 0;
+		for (ResourceLocation sprite : sprites) {
+			if (this.textureCache.get(this.textureAliases.getOrDefault(sprite, sprite)) != null) found++;
+		}
+		return found;
+	}
+	
+	@Benchmark
+	public int lookupInternedLocations() {
+		return lookupFrame(this.internedSprites);
+	}
+	
+	@Benchmark
+	public int lookupCreatedLocations() {
+		return lookupFrame(this.createdSprites);
+	}
+	
+	@Benchmark
+	public ResourceLocation[] deriveLocations() {
+		for (int i = 0; i < SPRITES; i++) this.derivedSprites[i] = this.internedSprites[i].getParent().locationOfFile("sprite_" + (i % TEXTURES)).append(".png");
+		return this.derivedSprites;
+	}
+	
+	public static void main(String... args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(LocationLookupBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,125 @@
+package de.m_marvin.enginetest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import de.m_marvin.gframe.models.OBJParser;
+import de.m_marvin.gframe.resources.defimpl.ResourceLocation;
+
+/**
+ * Measures the throughput of the OBJ parser on a generated OBJ file, in megabytes of OBJ text per second.
+ * The file contains vertices, texture coordinates, normals and triangle faces, a part of the faces uses negative (relative) indices.
+ * The MB/s are reported as the "megabytes" counter, the file is parsed sequentially and in parallel chunks on the common pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class OBJParseBenchmark {
+	
+	/* The size of the generated file in MB */
+	@Param({"16", "128"})
+	public int fileSize;
+	
+	protected ByteBuffer file;
+	
+	/**
+	 * Counts the parsed megabytes, reported as rate by JMH.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class ParsedBytes {
+		
+		public double megabytes;
+		
+		@Setup(Level.Iteration)
+		public void reset() {
+			this.megabytes = 0;
+		}
+	
+	}
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		this.file = generateOBJ(this.fileSize * 1024L * 1024L, new Random(this.fileSize));
+		System.out.printf("%nGenerated %.1f MB OBJ file%n", this.file.remaining() / (1024.0 * 1024.0));
+	}
+	
+	/**
+	 * Generates an OBJ file of about the given size, in the direct memory like a memory mapped file.
+	 * @param size The size in bytes
+	 * @param random The random generator for the values
+	 * @return The buffer containing the file
+	 */
+	public static ByteBuffer generateOBJ(long size, Random random) {
+		
+		StringBuilder builder = new StringBuilder((int) Math.min(size + 1024, Integer.MAX_VALUE - 8));
+		builder.append("mtllib model.mtl\no model\nusemtl material\n");
+		int vertices = 0;
+		while (builder.length() < size) {
+			for (int i = 0; i < 3; i++) {
+				builder.append(String.format(Locale.ROOT, "v %.6f %.6f %.6f\n", random.nextFloat() * 100 - 50, random.nextFloat() * 100 - 50, random.nextFloat() * 100 - 50));
+				builder.append(String.format(Locale.ROOT, "vt %.6f %.6f\n", random.nextFloat(), random.nextFloat()));
+				builder.append(String.format(Locale.ROOT, "vn %.6f %.6f %.6f\n", random.nextFloat() * 2 - 1, random.nextFloat() * 2 - 1, random.nextFloat() * 2 - 1));
+			}
+			vertices += 3;
+			if (random.nextInt(4) == 0) {
+				builder.append("f -3/-3/-3 -2/-2/-2 -1/-1/-1\n");
+			} else {
+				int a = vertices - 2, b = vertices - 1, c = vertices;
+				builder.append("f ").append(a).append('/').append(a).append('/').append(a).append(' ')
+					.append(b).append('/').append(b).append('/').append(b).append(' ')
+					.append(c).append('/').append(c).append('/').append(c).append('\n');
+			}
+		}
+		
+		byte[] bytes = builder.toString().getBytes(StandardCharsets.US_ASCII);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+		buffer.put(bytes).flip();
+		return buffer;
+	
+	}
+	
+	@Benchmark
+	public List<String> parseSequential(ParsedBytes parsed) {
+		List<String> result = new OBJParser<ResourceLocation>().parseOBJFile(this.file.duplicate());
+		parsed.megabytes += this.file.remaining() / (1024.0 * 1024.0);
+		return result;
+	}
+	
+	@Benchmark
+	public List<String> parseParallel(ParsedBytes parsed) {
+		List<String> result = new OBJParser<ResourceLocation>().parseOBJFile(this.file.duplicate(), ForkJoinPool.commonPool());
+		parsed.megabytes += this.file.remaining() / (1024.0 * 1024.0);
+		return result;
+	}
+	
+	public static void main(String... args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(OBJParseBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
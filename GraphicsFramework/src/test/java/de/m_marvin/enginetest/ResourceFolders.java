@@ -3,10 +3,13 @@ package de.m_marvin.enginetest;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.function.BiFunction;
 import java.util.stream.Stream;
 
+import de.m_marvin.gframe.resources.FileUtility;
 import de.m_marvin.gframe.resources.ISourceFolder;
 import de.m_marvin.gframe.resources.ResourceLoader;
 
@@ -32,6 +35,17 @@ public enum ResourceFolders implements ISourceFolder {
 		return new FileInputStream(path);
 	}
 
+	@Override
+	public ByteBuffer getAsByteBuffer(String path) throws IOException {
+		return FileUtility.mapFile(new File(path));
+	}
+	
+	@Override
+	public long lastModified(String path) {
+		long lastModified = new File(path).lastModified();
+		return lastModified == 0 ? -1 : lastModified;
+	}
+	
 	@Override
 	public String[] listFiles(String path) {
 		File folder = new File(path);